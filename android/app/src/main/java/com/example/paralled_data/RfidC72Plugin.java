@@ -1,7 +1,15 @@
 package com.example.paralled_data;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import androidx.annotation.NonNull;
 import android.util.Log;
@@ -9,6 +17,9 @@ import android.util.Log;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.EventChannel;
 
@@ -17,12 +28,43 @@ import android.os.Handler;
 import android.os.Looper;
 
 import com.rscja.deviceapi.RFIDWithUHFUART;
-import com.rscja.deviceapi.entity.UHFTAGInfo;
-
-// Import Barcode API
-import com.rscja.barcode.BarcodeDecoder;
-import com.rscja.barcode.BarcodeFactory;
-import com.rscja.deviceapi.entity.BarcodeEntity;
+import com.rscja.deviceapi.entity.Gen2Entity;
+
+import com.example.paralled_data.barcode.BarcodeDebouncer;
+import com.example.paralled_data.barcode.BarcodeRead;
+import com.example.paralled_data.barcode.BarcodeWorker;
+import com.example.paralled_data.lifecycle.HardwareLifecycleManager;
+import com.example.paralled_data.metrics.MetricsReporter;
+import com.example.paralled_data.metrics.PipelineMetrics;
+import com.example.paralled_data.radio.InventoryMemoryMode;
+import com.example.paralled_data.radio.RadioProfile;
+import com.example.paralled_data.radio.ReaderCaptureWriter;
+import com.example.paralled_data.radio.ReplayTagReader;
+import com.example.paralled_data.radio.SimulatedTagReader;
+import com.example.paralled_data.radio.TagReader;
+import com.example.paralled_data.radio.UartTagReader;
+import com.example.paralled_data.storage.JournalRecord;
+import com.example.paralled_data.storage.EncryptedSegmentStore;
+import com.example.paralled_data.storage.RecordStore;
+import com.example.paralled_data.storage.ScanExporter;
+import com.example.paralled_data.storage.ScanJournal;
+import com.example.paralled_data.storage.StorageKeys;
+import com.example.paralled_data.sync.BatchUploader;
+import com.example.paralled_data.tag_pipeline.AdaptivePoller;
+import com.example.paralled_data.tag_pipeline.EpcDeduplicator;
+import com.example.paralled_data.tag_pipeline.EpcMaskFilter;
+import com.example.paralled_data.tag_pipeline.ExpectedInventory;
+import com.example.paralled_data.tag_pipeline.HexCodec;
+import com.example.paralled_data.tag_pipeline.RawTagSlot;
+import com.example.paralled_data.tag_pipeline.ReadLatencyStats;
+import com.example.paralled_data.tag_pipeline.TagAggregateTable;
+import com.example.paralled_data.tag_pipeline.TagBatchDispatcher;
+import com.example.paralled_data.tag_pipeline.TagDeliveryQueue;
+import com.example.paralled_data.tag_pipeline.TagEventMaps;
+import com.example.paralled_data.tag_pipeline.TagFrameEncoder;
+import com.example.paralled_data.tag_pipeline.TagPipeline;
+import com.example.paralled_data.tag_pipeline.TagRead;
+import com.example.paralled_data.tag_pipeline.UserBankReadQueue;
 
 public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
     private static final String TAG = "RfidC72Plugin";
@@ -35,24 +77,76 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
     private EventChannel.EventSink tagsSink;
     private EventChannel.EventSink connectedSink;
     private EventChannel.EventSink barcodeSink;
+    private EventChannel reconciliationEventChannel;
+    private EventChannel.EventSink reconciliationSink;
+    private EventChannel exportEventChannel;
+    private EventChannel.EventSink exportSink;
+    private EventChannel syncEventChannel;
+    private EventChannel.EventSink syncSink;
+    private EventChannel metricsEventChannel;
+    private EventChannel.EventSink metricsSink;
 
     private static final String METHOD_CHANNEL = "rfid_c72_plugin";
     private static final String TAGS_CHANNEL = "TagsStatus";
     private static final String CONNECTED_CHANNEL = "ConnectedStatus";
     private static final String BARCODE_CHANNEL = "BarcodeStatus";
+    private static final String TAGS_BINARY_CHANNEL = "TagsBinary";
+    private static final String RECONCILIATION_CHANNEL = "ReconciliationStatus";
+    private static final String EXPORT_CHANNEL = "ExportStatus";
+    private static final String SYNC_CHANNEL = "SyncStatus";
+    private static final String METRICS_CHANNEL = "MetricsStatus";
 
     private Context context;
-    private RFIDWithUHFUART uhfReader;
-    private boolean isScanning = false;
-    private boolean isBarcodeScanning = false;
+    // SDK của module UART (null với backend simulated): profile radio, chế độ inventory, Gen2...
+    private volatile RFIDWithUHFUART uhfReader;
+    // Backend đang dùng cho đường quét (null = chưa connect)
+    private volatile TagReader tagReader;
+    // "uart" / "simulated", đổi bằng setReaderBackend
+    private String readerBackend = "uart";
+    private SimulatedTagReader.Config simulatedConfig = new SimulatedTagReader.Config();
+    // File capture + tốc độ cho backend "replay"
+    private File replayFile;
+    private double replaySpeed = 1;
+    // Ghi output thô của đầu đọc ra file capture (startCapture / stopCapture); null = không ghi
+    private volatile ReaderCaptureWriter readerCapture;
+
+    // Số lần chạy lại inventory sau khi mất kết nối giữa phiên và thời gian mất kết nối lần gần nhất
+    private volatile long readerRecoveries;
+    private volatile long lastRecoveryNs;
+    private volatile boolean isScanning = false;
     private Handler scanHandler;
     private ActivityPluginBinding activityBinding;
 
-    // Barcode
-    private BarcodeDecoder barcodeDecoder;
-    private Thread barcodeScanThread;
-    private final Object barcodeLock = new Object();
+    // Barcode: decoder thuộc về một HandlerThread riêng, kết quả gửi về main thread
+    private final BarcodeWorker barcodeWorker = new BarcodeWorker(TAG, new BarcodeWorker.Listener() {
+        @Override
+        public void onBarcode(String data, long scanDurationNs) {
+            sendBarcodeData(data, scanDurationNs);
+        }
+
+        @Override
+        public void onStateChanged(String state) {
+            // Gửi nốt lô barcode đang chờ trước event trạng thái để giữ thứ tự
+            barcodeBatchDispatcher.flush();
+            postToMain(() -> {
+                if (barcodeSink != null) barcodeSink.success(state);
+            });
+        }
+    });
     
+    // Chặn lặp cùng mã trong một cửa sổ thời gian rồi gom thành lô trước khi gửi qua BarcodeStatus
+    private final BarcodeDebouncer barcodeDebouncer = new BarcodeDebouncer();
+    private final TagBatchDispatcher<BarcodeRead> barcodeBatchDispatcher =
+            new TagBatchDispatcher<>(TAG + "-barcode", this::deliverBarcodeBatch);
+    
+    // Init / giải phóng SDK trên lifecycle thread; mỗi lần chuyển trạng thái gửi qua ConnectedStatus
+    private final HardwareLifecycleManager lifecycle = new HardwareLifecycleManager(TAG, event -> {
+        Handler handler = scanHandler;
+        if (handler != null) handler.post(() -> {
+            if (connectedSink != null) connectedSink.success(event);
+        });
+    });
+
     // Static reference để cleanup khi hot restart
     private static RfidC72Plugin activeInstance;
 
@@ -61,33 +155,158 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
 
     // Thời gian quét của rfid
     private long lastScanStartTime = 0;
-    private long lastScanStartTimeNs = 0;
 
-    // Thời gian quét barcode/QRcode
-    private long lastBarcodeScanTime = 0;
-    private long lastBarcodeScanTimeNs = 0;
+    // Độ trễ rút UART -> giải mã -> gửi qua channel (getLatencyStats)
+    private final ReadLatencyStats readLatency = new ReadLatencyStats();
+
+    // Khử trùng lặp EPC trong phiên quét liên tục (chạy trên dispatcher thread của tagPipeline)
+    private final EpcDeduplicator epcDeduplicator = new EpcDeduplicator();
+
+    // Profile radio áp dụng mỗi lần connect (null = giữ cấu hình module đang có)
+    private RadioProfile radioProfile;
+
+    // Vùng nhớ trả về kèm mỗi tag khi inventory (null = giữ chế độ module đang có)
+    private volatile InventoryMemoryMode inventoryMode;
+
+    // Đọc USER cho từng EPC mới giữa các lượt inventory (reader thread), gộp vào record của tag
+    private final UserBankReadQueue userBankReads = new UserBankReadQueue();
+
+    // Lọc EPC theo mặt nạ bit: đẩy xuống module (setFilter) khi chỉ có một rule,
+    // còn lại lọc bằng phần mềm trên dispatcher thread
+    private final EpcMaskFilter epcFilter = new EpcMaskFilter();
+    private volatile boolean epcFilterInHardware = false;
+
+    // Đối soát với danh sách EPC dự kiến; chỉ EPC mới thấy / ngoài danh sách được gom lô gửi lên
+    private final ExpectedInventory expectedInventory = new ExpectedInventory();
+    private final TagBatchDispatcher<ExpectedInventory.Sighting> reconciliationDispatcher =
+            new TagBatchDispatcher<>(TAG + "-reconcile", this::deliverReconciliation);
+
+    // Thống kê theo từng EPC (số lần đọc, RSSI...) cho getSessionSnapshot
+    private final TagAggregateTable tagAggregates = new TagAggregateTable();
+
+    // Nhật ký quét trên đĩa (opt-in qua setJournalConfig): ghi mọi tag gửi lên Flutter vào
+    // ScanJournal hoặc EncryptedSegmentStore (encrypted), chỉ truy cập qua các hàm synchronized
+    private volatile RecordStore scanJournal;
+    private volatile boolean journalEnabled = false;
+    private final AtomicLong journalErrors = new AtomicLong();
+
+    // Job xuất journal ra CSV / JSON (mỗi lúc một job, chạy trên thread riêng)
+    private volatile ScanExporter exportJob;
+    private long nextExportId = 1;
+
+    // Đẩy journal lên server theo lô gzip trên các thread riêng (setSyncConfig / startSync)
+    private final BatchUploader batchUploader = new BatchUploader("c72", this::onSyncStatus);
+
+    // Poll readTagFromBuffer thích ứng (spin ngắn sau khi có tag, park lùi dần khi rỗng)
+    private final AdaptivePoller readerPoller = new AdaptivePoller();
+
+    // Gom tag thành lô trước khi gửi qua TagsStatus (tránh 1 Runnable/1 tag trên main looper)
+    private final TagBatchDispatcher<TagRead> tagBatchDispatcher =
+            new TagBatchDispatcher<>(TAG, this::deliverTagBatch,
+                    () -> Looper.myLooper() != Looper.getMainLooper());
+
+    // Reader thread + dispatcher thread sống suốt vòng đời plugin, nối với nhau bằng ring SPSC
+    private final TagPipeline tagPipeline = new TagPipeline(TAG, TagPipeline.DEFAULT_RING_CAPACITY,
+            readerPoller, new TagPipeline.Consumer() {
+                @Override
+                public void accept(RawTagSlot slot) {
+                    long decodeNs = System.nanoTime();
+                    if (slot.userBankRead) {
+                        sendUserBankRead(slot.epcHex, slot.tidHex, slot.userHex);
+                        return;
+                    }
+                    if (!epcFilterInHardware && !epcFilter.matches(slot.epcHex)) return;
+
+                    String userHex = slot.userHex;
+                    if (userBankReads.isEnabled() && (userHex == null || userHex.isEmpty())
+                            && !userBankReads.offer(slot.epcHex, System.currentTimeMillis())) {
+                        String known = userBankReads.userFor(slot.epcHex);
+                        if (known != null) userHex = known;
+                    }
+
+                    readLatency.recordDecode(slot.readNs, decodeNs);
+                    reconcile(slot.epcHex);
+                    tagAggregates.observe(slot.epcHex, slot.rssi, System.currentTimeMillis());
+
+                    // Chỉ gửi lần thấy đầu tiên + cập nhật số lần đọc định kỳ
+                    int dedupResult = epcDeduplicator.observe(slot.epcHex, slot.readNs);
+                    if (dedupResult != EpcDeduplicator.SUPPRESS) {
+                        sendRfidData(slot.epcHex, slot.tidHex, userHex, slot.rssi, slot.count,
+                                slot.scanDurationNs, dedupResult, slot.readNs, decodeNs);
+                    }
+                }
+
+                @Override
+                public void onDrained() {
+                    tagBatchDispatcher.flush();
+                    reconciliationDispatcher.flush();
+                    syncJournal(!tagPipeline.isSessionActive());
+                }
+
+                @Override
+                public void onError(String where, Exception e) {
+                    Log.e(TAG, "Error in continuous scan (" + where + "): " + e.getMessage());
+                }
+            });
+
+    // Bộ đếm hot path + snapshot mỗi giây qua MetricsStatus (chỉ lấy mẫu khi có listener)
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics();
+    private final MetricsReporter metricsReporter = new MetricsReporter(TAG, pipelineMetrics,
+            new MetricsReporter.Gauges() {
+                @Override
+                public int ringDepth() {
+                    return tagPipeline.queueDepth();
+                }
+
+                @Override
+                public int deliveryQueued() {
+                    return tagDeliveryQueue.queuedReads();
+                }
+
+                @Override
+                public long deliveredReads() {
+                    return tagDeliveryQueue.deliveredReads();
+                }
+
+                @Override
+                public long droppedReads() {
+                    return tagDeliveryQueue.droppedReads();
+                }
+
+                @Override
+                public int sessionUnique() {
+                    return tagAggregates.size();
+                }
+
+                @Override
+                public boolean isScanning() {
+                    return isScanning;
+                }
+            },
+            snapshot -> postToMain(() -> {
+                if (metricsSink != null) metricsSink.success(snapshot);
+            }));
+
+    // Hàng đợi có giới hạn giữa thread flush và main thread (chính sách khi đầy + buffer trước khi có listener)
+    private final TagDeliveryQueue tagDeliveryQueue = new TagDeliveryQueue(
+            this::postToMain, this::deliverTagEvent, () -> Looper.myLooper() != Looper.getMainLooper());
+
+    // Chế độ nhị phân (opt-in): lô tag được gửi qua TagsBinary dưới dạng một frame ByteBuffer
+    private BasicMessageChannel<ByteBuffer> tagsBinaryChannel;
+    private volatile boolean binaryWireFormat = false;
 
 
+    // Giải mã HEX sang ASCII bằng bảng tra (chỉ gọi trong sink của tagBatchDispatcher,
+    // vốn được tuần tự hoá bởi lock của dispatcher, nên dùng chung một HexCodec)
+    private final HexCodec hexCodec = new HexCodec();
+
     // Hàm chuyển từ HEX sang ASCII
     private String hexToAscii(String hex) {
-        if (hex == null) return "";
-        StringBuilder output = new StringBuilder();
-        // Nếu độ dài lẻ, bỏ ký tự cuối (phòng dữ liệu lỗi)
-        int len = hex.length();
-        if (len % 2 != 0) {
-            Log.w(TAG, "hexToAscii: hex length is odd (" + len + "), trimming last nibble.");
-            len = len - 1;
-        }
-        for (int i = 0; i < len; i += 2) {
-            try {
-                String part = hex.substring(i, i + 2);
-                int val = Integer.parseInt(part, 16);
-                output.append((char) val);
-            } catch (Exception e) {
-                Log.w(TAG, "Lỗi chuyển hexToAscii tại vị trí " + i + ": " + e.getMessage());
-            }
+        String ascii = hexCodec.hexToAscii(hex);
+        if (hexCodec.lastInvalidPairs() > 0) {
+            Log.w(TAG, "hexToAscii: bỏ qua " + hexCodec.lastInvalidPairs() + " cặp hex không hợp lệ trong " + hex);
         }
-        return output.toString();
+        return ascii;
     }
 
     @Override
@@ -96,23 +315,19 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
         Log.d(TAG, "🧩 activeInstance hiện tại: " + activeInstance);
         Log.d(TAG, "🧩 this instance: " + this);
         
-        if (activeInstance != null && activeInstance != this) {
+        final RfidC72Plugin staleInstance = activeInstance != this ? activeInstance : null;
+        if (staleInstance != null) {
             Log.w(TAG, "⚠️ Detected old instance, forcing cleanup...");
-            activeInstance.forceCleanup();
         }
         
         context = binding.getApplicationContext();
-        
-        // forceCleanup();
-
-        Log.d(TAG, "🧹 Running double cleanup with delay...");
-        forceCleanup();
-
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            Log.d(TAG, "🧹 Second cleanup after delay...");
-            forceCleanup();
-        }, 1500); // 1.5 giây
 
+        // Giải phóng phần cứng (của instance cũ nếu có, rồi của instance này) trên lifecycle thread,
+        // xong mới làm nóng barcode decoder; main thread không chờ UART
+        lifecycle.release(() -> {
+            if (staleInstance != null) staleInstance.releaseHardware();
+            releaseHardware();
+        }, (errorCode, message) -> barcodeWorker.warmUp(context));
 
         if (scanHandler == null) {
             scanHandler = new Handler(Looper.getMainLooper());
@@ -120,72 +335,92 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
 
         setupMethodChannel(binding);
         setupEventChannels(binding);
+
+        // Tạo sẵn reader / dispatcher thread để lần quét đầu không phải chờ
+        tagPipeline.start();
+        tagDeliveryQueue.setDeliveryObserver(readLatency::recordDelivered);
+        reconciliationDispatcher.configure(200, 500);
         
         activeInstance = this;
         
         Log.d(TAG, "✅ Plugin attached and ready");
     }
 
-    private void forceCleanup() {
+    // Lifecycle thread: dừng phiên quét, đóng decoder, giải phóng module UHF và UART của đầu quét
+    // Lifecycle thread, lần cuối khi engine detach: giải phóng phần cứng rồi dừng pipeline, đóng decoder,
+    // capture và journal (fsync / niêm phong segment) sau khi dispatcher không còn ghi vào
+    private void releaseForDetach() throws Exception {
+        try {
+            releaseHardware();
+        } finally {
+            tagPipeline.shutdown();
+            tagBatchDispatcher.shutdown();
+            tagDeliveryQueue.shutdown();
+            reconciliationDispatcher.shutdown();
+            lifecycle.step("close_files", () -> {
+                closeCapture();
+                RecordStore journal = scanJournal;
+                if (journal != null) journal.close();
+            });
+            lifecycle.step("shutdown_barcode", () -> {
+                barcodeWorker.shutdown();
+                barcodeBatchDispatcher.shutdown();
+            });
+        }
+    }
+
+    private void releaseHardware() throws Exception {
         Log.d(TAG, "🧹 Force cleanup all resources...");
         
         isScanning = false;
-        isBarcodeScanning = false;
+        lifecycle.step("stop_session", () -> {
+            tagPipeline.stopSession();
+            // Chờ reader thread rời khỏi readTagFromBuffer trước khi free() module
+            tagPipeline.awaitIdle(200);
+        });
+        
+        lifecycle.step("close_barcode", () -> {
+            if (!barcodeWorker.closeNow(500)) {
+                Log.w(TAG, "Barcode worker chưa đóng decoder sau 500ms");
+            }
+        });
         
-        synchronized (barcodeLock) {
-            if (barcodeDecoder != null) {
+        // Cleanup RFID
+        final TagReader reader = tagReader;
+        if (reader != null) {
+            lifecycle.step("free_reader", () -> {
                 try {
-                    Log.d(TAG, "Stopping barcode scan...");
-                    barcodeDecoder.stopScan();
-                    
-                    Log.d(TAG, "Clearing barcode callback...");
-                    barcodeDecoder.setDecodeCallback(null);
+                    Log.d(TAG, "Stopping RFID inventory...");
+                    reader.stopInventory();
+                    Thread.sleep(50);
                     
-                    Log.d(TAG, "Closing barcode decoder...");
-                    barcodeDecoder.close();
+                    Log.d(TAG, "Freeing RFID reader...");
+                    reader.disconnect();
                     
                 } catch (Exception e) {
-                    Log.w(TAG, "Error in force cleanup barcode: " + e.getMessage());
+                    Log.w(TAG, "Error in force cleanup RFID: " + e.getMessage());
                 } finally {
-                    barcodeDecoder = null;
+                    if (tagReader == reader) {
+                        tagReader = null;
+                        uhfReader = null;
+                    }
                 }
-            }
+            });
         }
-        
-        // Cleanup RFID
-        if (uhfReader != null) {
+
+        lifecycle.step("release_barcode_uart", () -> {
             try {
-                Log.d(TAG, "Stopping RFID inventory...");
-                uhfReader.stopInventory();
-                Thread.sleep(50);
-                
-                Log.d(TAG, "Freeing RFID reader...");
-                uhfReader.free();
-                
+                Log.d(TAG, "🧯 Forcing BarcodeFactory releaseAll() to unlock UART...");
+                Class<?> factoryClass = Class.forName("com.rscja.barcode.BarcodeFactory");
+                java.lang.reflect.Method releaseAll = factoryClass.getDeclaredMethod("releaseAll");
+                releaseAll.setAccessible(true);
+                releaseAll.invoke(null);
+                Log.d(TAG, "✅ BarcodeFactory.releaseAll() executed successfully");
             } catch (Exception e) {
-                Log.w(TAG, "Error in force cleanup RFID: " + e.getMessage());
-            } finally {
-                uhfReader = null;
+                Log.w(TAG, "⚠️ BarcodeFactory.releaseAll() not found or failed: " + e.getMessage());
             }
-        }
-        
-        // Clear handler callbacks
-        if (scanHandler != null) {
-            scanHandler.removeCallbacksAndMessages(null);
-        }
-
-        try {
-            Log.d(TAG, "🧯 Forcing BarcodeFactory releaseAll() to unlock UART...");
-            Class<?> factoryClass = Class.forName("com.rscja.barcode.BarcodeFactory");
-            java.lang.reflect.Method releaseAll = factoryClass.getDeclaredMethod("releaseAll");
-            releaseAll.setAccessible(true);
-            releaseAll.invoke(null);
-            Log.d(TAG, "✅ BarcodeFactory.releaseAll() executed successfully");
-        } catch (Exception e) {
-            Log.w(TAG, "⚠️ BarcodeFactory.releaseAll() not found or failed: " + e.getMessage());
-        }
+        });
 
-        
         Log.d(TAG, "✅ Force cleanup completed");
     }
 
@@ -195,7 +430,11 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
         Log.d(TAG, "🔌 onDetachedFromEngine called");
         try {
 
-            forceCleanup();
+            if (scanHandler != null) {
+                scanHandler.removeCallbacksAndMessages(null);
+            }
+            // Giải phóng module, đóng decoder / journal chạy trên lifecycle thread, main không chờ
+            lifecycle.shutdown(this::releaseForDetach);
             activeInstance = null;
 
             if (methodChannel != null) {
@@ -214,6 +453,27 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
                 barcodeEventChannel.setStreamHandler(null);
                 barcodeEventChannel = null;
             }
+            tagsBinaryChannel = null;
+            if (reconciliationEventChannel != null) {
+                reconciliationEventChannel.setStreamHandler(null);
+                reconciliationEventChannel = null;
+            }
+            if (exportEventChannel != null) {
+                exportEventChannel.setStreamHandler(null);
+                exportEventChannel = null;
+            }
+            if (syncEventChannel != null) {
+                syncEventChannel.setStreamHandler(null);
+                syncEventChannel = null;
+            }
+            if (metricsEventChannel != null) {
+                metricsEventChannel.setStreamHandler(null);
+                metricsEventChannel = null;
+            }
+
+            metricsReporter.shutdown();
+            cancelExportJob();
+            batchUploader.stop();
 
             if (scanHandler != null) {
                 scanHandler.removeCallbacksAndMessages(null);
@@ -244,7 +504,7 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
                     connectRFID(result);
                     break;
                 case "isConnected":
-                    result.success(uhfReader != null);
+                    result.success(tagReader != null && tagReader.isConnected());
                     break;
                 case "startSingle":
                     startSingleScan(result);
@@ -258,10 +518,133 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
                 case "close":
                     closeConnection(result);
                     break;
+                case "setDedupConfig":
+                    setDedupConfig(call, result);
+                    break;
+                case "getDedupStats":
+                    getDedupStats(result);
+                    break;
+                case "getSessionSnapshot":
+                    getSessionSnapshot(call, result);
+                    break;
+                case "setAggregateConfig":
+                    setAggregateConfig(call, result);
+                    break;
+                case "setInventoryMode":
+                    setInventoryMode(call, result);
+                    break;
+                case "getInventoryMode":
+                    result.success(inventoryMode != null ? inventoryMode.toMap() : null);
+                    break;
+                case "setUserBankReadConfig":
+                    setUserBankReadConfig(call, result);
+                    break;
+                case "getUserBankReadStats":
+                    getUserBankReadStats(result);
+                    break;
+                case "setReaderBackend":
+                    setReaderBackend(call, result);
+                    break;
+                case "getReaderStats":
+                    getReaderStats(result);
+                    break;
+                case "startCapture":
+                    startCapture(call, result);
+                    break;
+                case "stopCapture":
+                    result.success(closeCapture());
+                    break;
+                case "setRadioProfile":
+                    setRadioProfile(call, result);
+                    break;
+                case "getRadioProfiles":
+                    getRadioProfiles(result);
+                    break;
+                case "setEpcFilters":
+                    setEpcFilters(call, result);
+                    break;
+                case "getEpcFilters":
+                    getEpcFilters(result);
+                    break;
+                case "loadExpectedInventory":
+                    loadExpectedInventory(call, result);
+                    break;
+                case "clearExpectedInventory":
+                    expectedInventory.clear();
+                    emitReconciliationStatus();
+                    result.success(true);
+                    break;
+                case "resetReconciliation":
+                    expectedInventory.reset();
+                    emitReconciliationStatus();
+                    result.success(true);
+                    break;
+                case "getReconciliationStatus":
+                    getReconciliationStatus(call, result);
+                    break;
+                case "setBatchConfig":
+                    setBatchConfig(call, result);
+                    break;
+                case "setWireFormat":
+                    setWireFormat(call, result);
+                    break;
+                case "setBackpressureConfig":
+                    setBackpressureConfig(call, result);
+                    break;
+                case "getDeliveryStats":
+                    getDeliveryStats(result);
+                    break;
+                case "getLatencyStats":
+                    result.success(readLatency.snapshot());
+                    break;
+                case "resetLatencyStats":
+                    readLatency.reset();
+                    result.success(true);
+                    break;
+                case "setPollingConfig":
+                    setPollingConfig(call, result);
+                    break;
+                case "getPollingStats":
+                    getPollingStats(result);
+                    break;
+                case "setJournalConfig":
+                    setJournalConfig(call, result);
+                    break;
+                case "getJournalStats":
+                    getJournalStats(result);
+                    break;
+                case "readJournal":
+                    readJournal(call, result);
+                    break;
+                case "clearJournal":
+                    clearJournal(result);
+                    break;
+                case "startExport":
+                    startExport(call, result);
+                    break;
+                case "cancelExport":
+                    result.success(cancelExportJob());
+                    break;
+                case "getExportStatus":
+                    getExportStatus(result);
+                    break;
+                case "setSyncConfig":
+                    setSyncConfig(call, result);
+                    break;
+                case "startSync":
+                    startSync(result);
+                    break;
+                case "stopSync":
+                    batchUploader.stop();
+                    result.success(true);
+                    break;
+                case "getSyncStats":
+                    result.success(batchUploader.stats());
+                    break;
 
                 // ================= BARCODE =================
                 case "connectBarcode":
-                    connectBarcode(result);
+                    connectBarcode(call, result);
                     break;
                 case "scanBarcodeContinuous":
                     scanBarcodeContinuous(result);
@@ -275,6 +658,23 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
                 case "closeScan":
                     closeBarcode(result);
                     break;
+                case "setBarcodeConfig":
+                    setBarcodeConfig(call, result);
+                    break;
+                case "getLifecycleStats":
+                    result.success(lifecycle.stats());
+                    break;
+                case "getBarcodeReadiness":
+                    result.success(barcodeWorker.readinessInfo());
+                    break;
+                case "getBarcodeStats":
+                    result.success(barcodeStats());
+                    break;
+                case "resetBarcodeStats":
+                    barcodeWorker.resetStats();
+                    barcodeDebouncer.reset();
+                    result.success(true);
+                    break;
 
                 default:
                     result.notImplemented();
@@ -288,10 +688,12 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
             @Override
             public void onListen(Object arguments, EventChannel.EventSink events) {
                 tagsSink = events;
+                updateTagListener();
             }
             @Override
             public void onCancel(Object arguments) {
                 tagsSink = null;
+                updateTagListener();
             }
         });
 
@@ -307,6 +709,61 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
             }
         });
 
+        tagsBinaryChannel = new BasicMessageChannel<>(
+                binding.getBinaryMessenger(), TAGS_BINARY_CHANNEL, BinaryCodec.INSTANCE);
+
+        reconciliationEventChannel = new EventChannel(binding.getBinaryMessenger(), RECONCILIATION_CHANNEL);
+        reconciliationEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                reconciliationSink = events;
+            }
+            @Override
+            public void onCancel(Object arguments) {
+                reconciliationSink = null;
+            }
+        });
+
+        exportEventChannel = new EventChannel(binding.getBinaryMessenger(), EXPORT_CHANNEL);
+        exportEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                exportSink = events;
+            }
+            @Override
+            public void onCancel(Object arguments) {
+                exportSink = null;
+            }
+        });
+
+        // arguments: chu kỳ lấy mẫu (ms), mặc định 1000
+        metricsEventChannel = new EventChannel(binding.getBinaryMessenger(), METRICS_CHANNEL);
+        metricsEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                metricsSink = events;
+                metricsReporter.start(arguments instanceof Number
+                        ? ((Number) arguments).longValue() : MetricsReporter.DEFAULT_INTERVAL_MS);
+            }
+            @Override
+            public void onCancel(Object arguments) {
+                metricsReporter.stop();
+                metricsSink = null;
+            }
+        });
+
+        syncEventChannel = new EventChannel(binding.getBinaryMessenger(), SYNC_CHANNEL);
+        syncEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                syncSink = events;
+            }
+            @Override
+            public void onCancel(Object arguments) {
+                syncSink = null;
+            }
+        });
+
         barcodeEventChannel = new EventChannel(binding.getBinaryMessenger(), BARCODE_CHANNEL);
         barcodeEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
             @Override
@@ -321,528 +778,1378 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
     }
 
     // ================= RFID =================
+    // Init module (UART) trên lifecycle thread: main thread không chờ, ConnectedStatus nhận
+    // INITIALIZING -> READY (hoặc -> IDLE kèm error)
     private void connectRFID(MethodChannel.Result result) {
-        try {
-            if (uhfReader == null) {
-                uhfReader = RFIDWithUHFUART.getInstance();
-            }
-            boolean connected = uhfReader.init(context);
-            if (connected) {
-                if (connectedSink != null) connectedSink.success(true);
-                result.success(true);
-            } else {
-                result.error("CONNECT_ERROR", "Không thể kết nối với RFID", null);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Lỗi kết nối RFID: " + e.getMessage());
-            result.error("EXCEPTION", "Lỗi kết nối RFID: " + e.getMessage(), null);
+        lifecycle.initialize(this::initHardware, replyOnMain(result)::done);
+    }
+
+    // Lifecycle thread: tạo đầu đọc theo backend, connect rồi áp lại cấu hình; null = thành công
+    private String initHardware() throws Exception {
+        if (tagReader == null) {
+            lifecycle.step("create_reader", () -> {
+                if ("simulated".equals(readerBackend)) {
+                    tagReader = new SimulatedTagReader(simulatedConfig);
+                } else if ("replay".equals(readerBackend)) {
+                    tagReader = new ReplayTagReader(replayFile, replaySpeed);
+                } else {
+                    uhfReader = RFIDWithUHFUART.getInstance();
+                    tagReader = new UartTagReader(uhfReader, context);
+                }
+            });
+        }
+        final TagReader reader = tagReader;
+        if (!lifecycle.call("connect_" + reader.name(), reader::connect)) {
+            return "Không thể kết nối với RFID";
+        }
+        if (!epcFilter.isEmpty()) {
+            // init() có thể xoá Select trên module, đẩy lại bộ lọc
+            lifecycle.step("apply_filter", () -> applyEpcFilterToReader(true));
+        }
+        final RFIDWithUHFUART uhf = uhfReader;
+        if (uhf != null && radioProfile != null) {
+            lifecycle.step("apply_profile", () -> {
+                List<String> failed = radioProfile.applyTo(uhf);
+                if (!failed.isEmpty()) {
+                    Log.w(TAG, "⚠️ Profile radio " + radioProfile.name + ": module từ chối " + failed);
+                }
+            });
+        }
+        if (uhf != null && inventoryMode != null) {
+            lifecycle.step("apply_inventory_mode", () -> {
+                if (!inventoryMode.applyTo(uhf)) {
+                    Log.w(TAG, "⚠️ Module từ chối chế độ inventory " + inventoryMode.name);
+                }
+            });
         }
+        return null;
     }
 
-    private void sendRfidData(UHFTAGInfo tagInfo) {
-        if (tagsSink != null && tagInfo != null) {
-            Map<String, Object> dataMap = new HashMap<>();
+    // readNs / decodeNs: mốc nanoTime lúc rút khỏi module và lúc giải mã (ReadLatencyStats)
+    private void sendRfidData(String epc, String tid, String user, String rssi, int count,
+                              long scanDurationNs, int dedupResult, long readNs, long decodeNs) {
+        // Luôn đưa vào pipeline: khi chưa có listener, tagDeliveryQueue giữ lại các tag mới nhất
+        TagRead read;
+        if (isScanning && epcDeduplicator.isEnabled()) {
+            read = new TagRead(epc, tid, user, rssi, count, System.currentTimeMillis(), scanDurationNs,
+                    dedupResult == EpcDeduplicator.FIRST_SIGHTING, epcDeduplicator.lastReadCount(),
+                    epcDeduplicator.totalReads(), epcDeduplicator.uniqueCount(), readNs, decodeNs);
+        } else {
+            read = new TagRead(epc, tid, user, rssi, count, System.currentTimeMillis(), scanDurationNs,
+                    true, -1, -1, -1, readNs, decodeNs);
+        }
 
-            String epcHex = tagInfo.getEPC() != null ? tagInfo.getEPC() : "";
-            String tidHex = tagInfo.getTid() != null ? tagInfo.getTid() : "";
-            String userHex = tagInfo.getUser() != null ? tagInfo.getUser() : "";
+        tagBatchDispatcher.offer(read);
+        if (journalEnabled) appendToJournal(read);
+    }
 
-            String epcAscii = hexToAscii(epcHex);
-            String tidAscii = hexToAscii(tidHex);
-            String userAscii = hexToAscii(userHex);
+    // Kết quả đọc USER của một EPC đã gửi trước đó: gửi dạng cập nhật (user_update) và gắn vào bảng
+    // thống kê theo EPC; không ghi journal / upload như một lần đọc (các lần đọc sau mang USER qua userFor)
+    private void sendUserBankRead(String epc, String tid, String user) {
+        tagAggregates.setUser(epc, user);
+        tagBatchDispatcher.offer(TagRead.userUpdate(epc, tid, user, System.currentTimeMillis()));
+    }
 
-            long endTimeNs = System.nanoTime();
-            long scanDurationNs = (lastScanStartTimeNs > 0)
-                    ? (endTimeNs - lastScanStartTimeNs)
-                    : 0;
-            double scanDurationMs = scanDurationNs / 1_000_000.0;
+    private void appendToJournal(TagRead read) {
+        RecordStore journal = scanJournal;
+        if (journal == null) return;
+        try {
+            journal.append(read);
+        } catch (IOException e) {
+            journalErrors.incrementAndGet();
+            Log.e(TAG, "Lỗi ghi journal: " + e.getMessage());
+        }
+    }
 
-            dataMap.put("epc_hex", epcHex);
-            dataMap.put("epc_ascii", epcAscii);
-            dataMap.put("tid_hex", tidHex);
-            dataMap.put("tid_ascii", tidAscii);
-            dataMap.put("user_hex", userHex);
-            dataMap.put("user_ascii", userAscii);
-            dataMap.put("rssi", tagInfo.getRssi() != null ? tagInfo.getRssi() : "");
-            dataMap.put("count", tagInfo.getCount());
+    // force journal xuống đĩa: ngay khi phiên quét kết thúc, còn lại theo syncIntervalMs
+    private void syncJournal(boolean now) {
+        RecordStore journal = scanJournal;
+        if (journal == null || !journalEnabled) return;
+        try {
+            if (now) {
+                journal.sync();
+            } else {
+                journal.syncIfDue(System.currentTimeMillis());
+            }
+        } catch (IOException e) {
+            journalErrors.incrementAndGet();
+            Log.e(TAG, "Lỗi sync journal: " + e.getMessage());
+        }
+    }
 
-            dataMap.put("scan_duration_ms", scanDurationMs);
-            dataMap.put("scan_duration_ns", scanDurationNs);
+    private void postToMain(Runnable runnable) {
+        Handler handler = scanHandler;
+        if (handler != null) handler.post(runnable);
+    }
 
+    // Chạy trên thread flush: đưa lô qua tagDeliveryQueue (có giới hạn) thay vì post thẳng sang main
+    private void deliverTagBatch(List<TagRead> batch) {
+        tagDeliveryQueue.offer(batch, this::encodeTagBatch);
+    }
 
-            scanHandler.post(() -> tagsSink.success(dataMap));
+    // Mã hoá lô (Map hoặc frame nhị phân); maxBatch = 1 giữ định dạng cũ (1 Map/event)
+    private Object encodeTagBatch(List<TagRead> batch) {
+        if (binaryWireFormat) {
+            return TagFrameEncoder.encode(batch);
+        }
+        if (batch.size() == 1 && tagBatchDispatcher.maxBatchSize() == 1) {
+            return TagEventMaps.toEventMap(batch.get(0), this::hexToAscii);
+        }
+        TagEventMaps.AsciiDecoder ascii = this::hexToAscii;
+        List<Map<String, Object>> maps = new ArrayList<>(batch.size());
+        for (TagRead read : batch) maps.add(TagEventMaps.toEventMap(read, ascii));
+        return maps;
+    }
 
-            Log.d(TAG, "RFID Data Sent: EPC=" + epcAscii +
-                " | Thời gian quét: " + scanDurationMs + " ms (" + scanDurationNs + " ns)");
+    // Main thread: gửi một event đã mã hoá tới kênh tương ứng
+    private void deliverTagEvent(Object event) {
+        if (event instanceof ByteBuffer) {
+            if (tagsBinaryChannel != null) {
+                tagsBinaryChannel.send((ByteBuffer) event);
+                pipelineMetrics.onChannelMessage();
+            }
+        } else if (tagsSink != null) {
+            tagsSink.success(event);
+            pipelineMetrics.onChannelMessage();
         }
     }
 
+    // Chế độ nhị phân không có onListen, coi như luôn có listener
+    private void updateTagListener() {
+        tagDeliveryQueue.setListenerAttached(tagsSink != null || binaryWireFormat);
+    }
+
     private void startSingleScan(MethodChannel.Result result) {
-        if (uhfReader == null) {
+        if (tagReader == null) {
             result.error("NOT_CONNECTED", "Chưa kết nối RFID", null);
             return;
         }
-        try {
+        // inventorySingleTag / đọc USER là lệnh UART: chạy trên lifecycle thread, kết quả trả về main
+        lifecycle.execute(() -> {
+            TagReader reader = tagReader;
+            if (reader == null) {
+                postToMain(() -> result.error("NOT_CONNECTED", "Chưa kết nối RFID", null));
+                return;
+            }
+            try {
+
+                // scan_duration của quét đơn = thời gian lệnh inventorySingleTag
+                RawTagSlot tag = new RawTagSlot();
+                long startNs = System.nanoTime();
+                boolean found = lifecycle.call("inventory_single", () -> reader.inventorySingle(tag));
+                long readNs = System.nanoTime();
+                if (found) captureRead(tag, readNs);
+                if (found && !epcFilterInHardware && !epcFilter.matches(tag.epcHex)) {
+                    found = false;
+                }
 
-            lastScanStartTimeNs = System.nanoTime();
-            UHFTAGInfo tagInfo = uhfReader.inventorySingleTag();
+                if (found && userBankReads.isEnabled() && (tag.userHex == null || tag.userHex.isEmpty())) {
+                    // Quét đơn: đọc USER ngay (module đang rảnh), không qua hàng đợi
+                    String user = readUserBank(reader, tag.epcHex);
+                    if (user != null) tag.userHex = user;
+                }
 
-            if (tagInfo != null) {
-                sendRfidData(tagInfo);
-                result.success(true);
-            } else {
-                Log.d(TAG, "❌ Không quét được tag ");
-                result.success(false);
-            }
+                if (found) {
+                    tagAggregates.observe(tag.epcHex, tag.rssi, System.currentTimeMillis());
+                    reconcile(tag.epcHex);
+                    readLatency.recordDrain(startNs, readNs);
+                    pipelineMetrics.onRawRead();
+                    long decodeNs = System.nanoTime();
+                    readLatency.recordDecode(readNs, decodeNs);
+                    sendRfidData(tag.epcHex, tag.tidHex, tag.userHex, tag.rssi,
+                            tag.count, readNs - startNs, EpcDeduplicator.FIRST_SIGHTING, readNs, decodeNs);
+                    tagBatchDispatcher.flush();
+                    reconciliationDispatcher.flush();
+                    postToMain(() -> result.success(true));
+                } else {
+                    Log.d(TAG, "❌ Không quét được tag ");
+                    postToMain(() -> result.success(false));
+                }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Lỗi quét RFID: " + e.getMessage());
-            result.error("SCAN_ERROR", "Lỗi quét RFID: " + e.getMessage(), null);
-        }
+            } catch (Exception e) {
+                Log.e(TAG, "Lỗi quét RFID: " + e.getMessage());
+                postToMain(() -> result.error("SCAN_ERROR", "Lỗi quét RFID: " + e.getMessage(), null));
+            }
+        });
     }
 
 
     private void startContinuousScan(MethodChannel.Result result) {
-        if (uhfReader == null) {
+        if (tagReader == null) {
             result.error("NOT_CONNECTED", "Chưa kết nối RFID", null);
             return;
         }
+        if (lifecycle.isBusy()) {
+            result.error("NOT_READY", "Đầu đọc đang " + lifecycle.state(), null);
+            return;
+        }
 
-        try {
-            if (isScanning) {
-                result.success(true);
-                return;
-            }
+        if (isScanning) {
+            result.success(true);
+            return;
+        }
+        // Giữ chỗ phiên ngay trên main để lệnh start thứ hai trả về luôn; stopScan trong lúc chờ sẽ
+        // được kiểm tra lại sau startSession
+        isScanning = true;
 
-            isScanning = true;
-            Log.d(TAG, "🚀 Bắt đầu quét liên tục...");
+        // Chờ phiên trước và startInventory (lệnh UART) chạy trên lifecycle thread, kết quả trả về main
+        lifecycle.execute(() -> {
+            try {
+                // Phiên trước (nếu vừa stop) phải gọi xong stopInventory và xử lý hết ring
+                // Quá hạn thì không bật inventory: reader thread cũ có thể gọi stopInventory sau lệnh start mới
+                if (!tagPipeline.awaitIdle(500)) {
+                    Log.w(TAG, "⚠️ Phiên quét trước chưa dừng hẳn sau 500ms");
+                    isScanning = false;
+                    postToMain(() -> result.error("NOT_READY", "Phiên quét trước chưa dừng hẳn, thử lại sau", null));
+                    return;
+                }
+                final TagReader reader = tagReader;
+                if (reader == null) {
+                    isScanning = false;
+                    postToMain(() -> result.error("NOT_CONNECTED", "Chưa kết nối RFID", null));
+                    return;
+                }
+                if (!isScanning) {
+                    // stopScan đến trước khi kịp bắt đầu: không bật inventory
+                    postToMain(() -> result.success(false));
+                    return;
+                }
 
-            // Gọi lệnh bắt đầu quét liên tục trên module (hardware loop)
-            boolean started = uhfReader.startInventoryTag();
-            if (!started) {
-                isScanning = false;
-                result.error("START_FAILED", "Không thể bắt đầu quét liên tục", null);
-                return;
-            }
+                epcDeduplicator.reset();
+                tagAggregates.reset();
+                userBankReads.reset();
+                Log.d(TAG, "🚀 Bắt đầu quét liên tục...");
 
-            // Thread đọc dữ liệu trả về từ module
-            new Thread(() -> {
-                while (isScanning) {
-                    try {
-                        // Gọi inventorySingleTag() để lấy tag hiện có trong buffer
-                        UHFTAGInfo tagInfo = uhfReader.readTagFromBuffer();
+                // Gọi lệnh bắt đầu quét liên tục trên module (hardware loop)
+                boolean started = lifecycle.call("start_inventory", reader::startInventory);
+                if (!started) {
+                    isScanning = false;
+                    postToMain(() -> result.error("START_FAILED", "Không thể bắt đầu quét liên tục", null));
+                    return;
+                }
 
-                        if (tagInfo != null) {
-                            sendRfidData(tagInfo);
+                // Reader thread (tạo sẵn) chỉ rút tag vào ring; dispatcher thread khử trùng lặp và gửi.
+                // Poll buffer thích ứng: dồn dập ngay sau khi có tag, lùi dần (park) khi buffer rỗng
+                readerPoller.resetStats();
+                tagDeliveryQueue.resetStats();
+                readLatency.reset();
+                final long sessionStartNs = System.nanoTime();
+                tagPipeline.startSession(new TagPipeline.Source() {
+                    // Chỉ reader thread đọc / ghi: scan_duration = khoảng cách tới lần rút tag trước trong phiên
+                    private long lastReadNs = sessionStartNs;
+                    private boolean readerMarked;
+                    // Đang dừng inventory để đọc USER: rút nốt buffer, đọc, rồi chạy inventory lại
+                    private boolean paused;
+                    private long pauseStartNs;
+                    // {epc, user} đã đọc xong, đưa lần lượt vào ring trước khi rút tag tiếp
+                    private final ArrayDeque<String[]> userResults = new ArrayDeque<>();
+                    // Mất kết nối giữa phiên: chờ có lại rồi chạy lại inventory
+                    private boolean disconnected;
+                    private long disconnectedAtNs;
+
+                    @Override
+                    public boolean read(RawTagSlot slot) {
+                        String[] userResult = userResults.pollFirst();
+                        if (userResult != null) {
+                            slot.set(userResult[0], "", userResult[1], "", 0, System.nanoTime(), 0);
+                            slot.userBankRead = true;
+                            return true;
+                        }
 
-                            // lastScanStartTime = System.currentTimeMillis();
-                            // nếu có biến nanoTime, bạn có thể thêm:
-                            lastScanStartTimeNs = System.nanoTime();
+                        if (!reader.isConnected()) {
+                            if (!disconnected) {
+                                disconnected = true;
+                                disconnectedAtNs = System.nanoTime();
+                                Log.w(TAG, "⚠️ Mất kết nối đầu đọc giữa phiên quét, chờ kết nối lại...");
+                            }
+                            return false;
+                        }
+                        if (disconnected && !recoverInventory()) return false;
+
+                        // Lấy tag hiện có trong buffer của module
+                        long drainStartNs = System.nanoTime();
+                        if (!reader.readFromBuffer(slot)) {
+                            if (paused) {
+                                readPendingUserBanks();
+                            } else if (userBankReads.shouldPause(System.currentTimeMillis(), true)) {
+                                pauseInventory();
+                            }
+                            return false;
                         }
 
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error in continuous scan loop: " + e.getMessage());
+                        long nowNs = System.nanoTime();
+                        readLatency.recordDrain(drainStartNs, nowNs);
+                        pipelineMetrics.onRawRead();
+                        if (!readerMarked) {
+                            readerMarked = true;
+                            pipelineMetrics.markReaderThread();
+                        }
+                        slot.readNs = nowNs;
+                        slot.scanDurationNs = nowNs - lastReadNs;
+                        lastReadNs = nowNs;
+                        captureRead(slot, nowNs);
+                        if (!paused && userBankReads.shouldPause(System.currentTimeMillis(), false)) pauseInventory();
+                        return true;
                     }
-                }
 
-                // Khi vòng lặp dừng
-                uhfReader.stopInventory();
-                Log.d(TAG, "🛑 Dừng quét liên tục (thread).");
-            }).start();
+                    // Có kết nối lại: inventory trên module đã dừng, chạy lại (thử lại ở lần poll sau nếu lỗi)
+                    private boolean recoverInventory() {
+                        if (!reader.startInventory()) return false;
+                        long nowNs = System.nanoTime();
+                        disconnected = false;
+                        if (paused) {
+                            paused = false;
+                            userBankReads.onPauseFinished(pauseStartNs, nowNs, System.currentTimeMillis());
+                        }
+                        lastRecoveryNs = nowNs - disconnectedAtNs;
+                        readerRecoveries++;
+                        lastReadNs = nowNs;
+                        Log.d(TAG, "✅ Chạy lại inventory sau " + (lastRecoveryNs / 1_000_000L) + "ms mất kết nối");
+                        return true;
+                    }
 
-            result.success(true);
+                    private void pauseInventory() {
+                        paused = true;
+                        pauseStartNs = System.nanoTime();
+                        reader.stopInventory();
+                    }
 
-        } catch (Exception e) {
-            isScanning = false;
-            Log.e(TAG, "Lỗi quét liên tục RFID: " + e.getMessage());
-            result.error("SCAN_ERROR", "Lỗi quét liên tục RFID: " + e.getMessage(), null);
-        }
-    }
+                    // Buffer đã rút hết sau stopInventory: đọc tối đa readsPerPause tag rồi chạy lại
+                    private void readPendingUserBanks() {
+                        for (int i = userBankReads.readsPerPause(); i > 0 && tagPipeline.isSessionActive(); i--) {
+                            String epc = userBankReads.poll();
+                            if (epc == null) break;
+                            long startNs = System.nanoTime();
+                            String user = readUserBank(reader, epc);
+                            userBankReads.complete(epc, user, System.nanoTime() - startNs, System.currentTimeMillis());
+                            if (user != null) userResults.addLast(new String[]{epc, user});
+                        }
+                        // readData lọc theo EPC bằng Select, ghi đè bộ lọc EPC đã đẩy xuống module
+                        if (epcFilterInHardware) applyEpcFilterToReader(true);
+                        paused = false;
+                        userBankReads.onPauseFinished(pauseStartNs, System.nanoTime(), System.currentTimeMillis());
+                        // Phiên đã dừng thì onStop lo stopInventory, không chạy lại
+                        if (tagPipeline.isSessionActive() && !reader.startInventory()) {
+                            Log.e(TAG, "Không chạy lại được inventory sau khi đọc USER");
+                        }
+                    }
 
-    private void stopScan(MethodChannel.Result result) {
-        try {
-            isScanning = false;
-            if (uhfReader != null) {
-                new Thread(() -> {
-                    try {
-                        Log.d(TAG, "🛑 Gửi lệnh dừng quét UHF...");
-                        uhfReader.stopInventory();
-                        Log.d(TAG, "✅ Dừng quét thành công");
-                    } catch (Exception e) {
-                        Log.e(TAG, "❌ Lỗi trong stopInventory thread: " + e.getMessage());
+                    @Override
+                    public void onStop() {
+                        // Khi vòng lặp dừng
+                        reader.stopInventory();
+                        Log.d(TAG, "🛑 Dừng quét liên tục (reader thread).");
                     }
-                }).start();
-            }
-            result.success(true);
-        } catch (Exception e) {
-            Log.e(TAG, "Lỗi dừng quét: " + e.getMessage());
-            result.error("STOP_ERROR", "Lỗi dừng quét: " + e.getMessage(), null);
+                });
+                lifecycle.setScanning(true);
+                // stopScan chạy giữa lúc giữ chỗ và startSession: dừng phiên vừa mở (onStop gọi stopInventory)
+                if (!isScanning) {
+                    tagPipeline.stopSession();
+                    lifecycle.setScanning(false);
+                }
+
+                postToMain(() -> result.success(true));
+
+            } catch (Exception e) {
+                isScanning = false;
+                Log.e(TAG, "Lỗi quét liên tục RFID: " + e.getMessage());
+                postToMain(() -> result.error("SCAN_ERROR", "Lỗi quét liên tục RFID: " + e.getMessage(), null));
+            }
+        });
+    }
+
+    // Ghi tag vừa rút vào file capture (nếu đang bật); lỗi ghi thì dừng capture, không làm hỏng phiên quét
+    private void captureRead(RawTagSlot tag, long readNs) {
+        ReaderCaptureWriter capture = readerCapture;
+        if (capture == null) return;
+        try {
+            capture.append(tag.epcHex, tag.tidHex, tag.userHex, tag.rssi, tag.count, readNs);
+        } catch (IOException e) {
+            Log.e(TAG, "Lỗi ghi capture, dừng capture: " + e.getMessage());
+            closeCapture();
         }
     }
 
-    private void closeConnection(MethodChannel.Result result) {
+    // USER hex của tag có EPC này (lọc Select theo EPC), null nếu không đọc được
+    private String readUserBank(TagReader reader, String epcHex) {
+        try {
+            return reader.readUserBank(userBankReads.accessPassword(), epcHex,
+                    userBankReads.userPtr(), userBankReads.userLen());
+        } catch (Exception e) {
+            Log.w(TAG, "Lỗi đọc USER của " + epcHex + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void stopScan(MethodChannel.Result result) {
         try {
-            forceCleanup();
-            if (connectedSink != null) connectedSink.success(false);
+            isScanning = false;
+            // stopInventory được gọi trên reader thread khi vòng poll thoát
+            Log.d(TAG, "🛑 Gửi lệnh dừng quét UHF...");
+            tagPipeline.stopSession();
+            lifecycle.setScanning(false);
             result.success(true);
         } catch (Exception e) {
-            Log.e(TAG, "Lỗi đóng kết nối: " + e.getMessage());
-            result.error("CLOSE_ERROR", "Lỗi đóng kết nối: " + e.getMessage(), null);
+            Log.e(TAG, "Lỗi dừng quét: " + e.getMessage());
+            result.error("STOP_ERROR", "Lỗi dừng quét: " + e.getMessage(), null);
         }
     }
 
-    // ===========================================
-    // ================= BARCODE =================
-    // ===========================================
-    private void connectBarcode(MethodChannel.Result result) {
-        new Thread(() -> {
-            int maxRetries = 3;
-            int retryCount = 0;
-            boolean opened = false;
+    private void setDedupConfig(MethodCall call, MethodChannel.Result result) {
+        Boolean enabled = call.argument("enabled");
+        Number updateIntervalMs = call.argument("updateIntervalMs");
+        epcDeduplicator.configure(
+                enabled != null ? enabled : epcDeduplicator.isEnabled(),
+                updateIntervalMs != null ? updateIntervalMs.longValue() : epcDeduplicator.updateIntervalMs());
+        Log.d(TAG, "Dedup config: enabled=" + epcDeduplicator.isEnabled()
+                + ", updateIntervalMs=" + epcDeduplicator.updateIntervalMs());
+        result.success(true);
+    }
 
-            while (retryCount < maxRetries && !opened) {
-                try {
-                    // Force đóng decoder cũ nếu đang mở
-                    synchronized (barcodeLock) {
-                        if (barcodeDecoder != null) {
-                            try {
-                                Log.d(TAG, "Force closing old decoder...");
-                                barcodeDecoder.stopScan();
-                                barcodeDecoder.setDecodeCallback(null);
-                                barcodeDecoder.close();
-                            } catch (Exception e) {
-                                Log.w(TAG, "Error closing old decoder: " + e.getMessage());
-                            }
-                            barcodeDecoder = null;
-                        }
-                    }
+    private void setBatchConfig(MethodCall call, MethodChannel.Result result) {
+        Number intervalMs = call.argument("intervalMs");
+        Number maxBatch = call.argument("maxBatch");
+        tagBatchDispatcher.configure(
+                intervalMs != null ? intervalMs.longValue() : tagBatchDispatcher.flushIntervalMs(),
+                maxBatch != null ? maxBatch.intValue() : tagBatchDispatcher.maxBatchSize());
+        Log.d(TAG, "Batch config: intervalMs=" + tagBatchDispatcher.flushIntervalMs()
+                + ", maxBatch=" + tagBatchDispatcher.maxBatchSize());
+        result.success(true);
+    }
 
-                    Thread.sleep(500 * (retryCount + 1));
+    private void setWireFormat(MethodCall call, MethodChannel.Result result) {
+        String format = call.argument("format");
+        if (!"binary".equals(format) && !"map".equals(format)) {
+            result.error("INVALID_FORMAT", "format phải là 'map' hoặc 'binary'", null);
+            return;
+        }
+        // Flush lô đang chờ theo định dạng cũ (trên thread flush) rồi mới đổi
+        boolean binary = "binary".equals(format);
+        tagBatchDispatcher.flushAsync(() -> postToMain(() -> {
+            binaryWireFormat = binary;
+            updateTagListener();
+            Log.d(TAG, "Wire format: " + format);
+            result.success(true);
+        }));
+    }
 
-                    // Tạo mới decoder
-                    Log.d(TAG, "Creating new barcode decoder...");
-                    synchronized (barcodeLock) {
-                        barcodeDecoder = BarcodeFactory.getInstance().getBarcodeDecoder();
-                        Log.d(TAG, "BarcodeFactory instance: " + BarcodeFactory.getInstance());
-                        Log.d(TAG, "BarcodeDecoder instance before open: " + barcodeDecoder);
-                        Log.d(TAG, "Barcode open context: " + context.hashCode());
-                    }
+    private void setBackpressureConfig(MethodCall call, MethodChannel.Result result) {
+        String policyName = call.argument("policy");
+        Number capacity = call.argument("capacity");
+        Number preListenerCapacity = call.argument("preListenerCapacity");
+
+        TagDeliveryQueue.OverflowPolicy policy = policyName != null
+                ? TagDeliveryQueue.OverflowPolicy.parse(policyName)
+                : tagDeliveryQueue.policy();
+        if (policy == null) {
+            result.error("INVALID_POLICY",
+                    "policy phải là 'block', 'drop_oldest', 'drop_newest' hoặc 'aggregate_only'", null);
+            return;
+        }
+        tagDeliveryQueue.configure(policy,
+                capacity != null ? capacity.intValue() : tagDeliveryQueue.capacity(),
+                preListenerCapacity != null ? preListenerCapacity.intValue() : tagDeliveryQueue.preListenerCapacity());
+        Log.d(TAG, "Backpressure config: policy=" + policy + ", capacity=" + tagDeliveryQueue.capacity()
+                + ", preListenerCapacity=" + tagDeliveryQueue.preListenerCapacity());
+        result.success(true);
+    }
 
-                    if (barcodeDecoder == null) {
-                        retryCount++;
-                        Log.w(TAG, "BarcodeFactory trả về null, retrying... (" + retryCount + "/" + maxRetries + ")");
-                        continue;
-                    }
+    // dropped / degraded > 0 nghĩa là Flutter không theo kịp tốc độ đọc của thiết bị
+    private void getDeliveryStats(MethodChannel.Result result) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("policy", tagDeliveryQueue.policy().name().toLowerCase());
+        stats.put("capacity", tagDeliveryQueue.capacity());
+        stats.put("pre_listener_capacity", tagDeliveryQueue.preListenerCapacity());
+        stats.put("listener_attached", tagDeliveryQueue.isListenerAttached());
+        stats.put("queued_reads", tagDeliveryQueue.queuedReads());
+        stats.put("max_queued_reads", tagDeliveryQueue.maxQueuedReads());
+        stats.put("delivered_reads", tagDeliveryQueue.deliveredReads());
+        stats.put("dropped_reads", tagDeliveryQueue.droppedReads());
+        stats.put("degraded_reads", tagDeliveryQueue.degradedReads());
+        stats.put("blocked_ms", tagDeliveryQueue.blockedNs() / 1_000_000.0);
+        result.success(stats);
+    }
 
-                    // Mở decoder
-                    synchronized (barcodeLock) {
-                        opened = barcodeDecoder.open(context);
-                    }
-                    Log.d(TAG, "Barcode decoder open result: " + opened);
+    private void setPollingConfig(MethodCall call, MethodChannel.Result result) {
+        Number spinIterations = call.argument("spinIterations");
+        Number minParkUs = call.argument("minParkUs");
+        Number maxParkUs = call.argument("maxParkUs");
+        readerPoller.configure(
+                spinIterations != null ? spinIterations.intValue() : readerPoller.spinIterations(),
+                minParkUs != null ? minParkUs.longValue() * 1_000L : readerPoller.minParkNs(),
+                maxParkUs != null ? maxParkUs.longValue() * 1_000L : readerPoller.maxParkNs());
+        Log.d(TAG, "Polling config: spin=" + readerPoller.spinIterations()
+                + ", minParkNs=" + readerPoller.minParkNs() + ", maxParkNs=" + readerPoller.maxParkNs());
+        result.success(true);
+    }
 
-                    if (!opened) {
-                        retryCount++;
-                        synchronized (barcodeLock) {
-                            barcodeDecoder = null;
-                        }
-                        Log.w(TAG, "Không thể mở barcode decoder, retrying... (" + retryCount + "/" + maxRetries + ")");
-                        continue;
-                    }
+    // Thời gian reader thread spin (poll rỗng) so với park, để cân chỉnh độ trễ / CPU
+    private void getPollingStats(MethodChannel.Result result) {
+        long spinNs = readerPoller.spinNs();
+        long waitNs = readerPoller.waitNs();
+        long activeNs = readerPoller.activeNs();
+        long totalNs = spinNs + waitNs + activeNs;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("spin_iterations", readerPoller.spinIterations());
+        stats.put("min_park_us", readerPoller.minParkNs() / 1_000L);
+        stats.put("max_park_us", readerPoller.maxParkNs() / 1_000L);
+        stats.put("spin_ms", spinNs / 1_000_000.0);
+        stats.put("wait_ms", waitNs / 1_000_000.0);
+        stats.put("active_ms", activeNs / 1_000_000.0);
+        stats.put("spin_ratio", totalNs > 0 ? (double) spinNs / totalNs : 0.0);
+        stats.put("hits", readerPoller.hits());
+        stats.put("empty_polls", readerPoller.emptyPolls());
+        stats.put("parks", readerPoller.parks());
+        stats.put("queue_depth", tagPipeline.queueDepth());
+        stats.put("ring_capacity", tagPipeline.ringCapacity());
+        stats.put("ring_full_waits", tagPipeline.ringFullWaits());
+        result.success(stats);
+    }
 
-                    // Thiết lập callback cho quét
-                    synchronized (barcodeLock) {
-                        barcodeDecoder.setDecodeCallback(new BarcodeDecoder.DecodeCallback() {
-                            @Override
-                            public void onDecodeComplete(BarcodeEntity barcodeEntity) {
-                                int resultCode = barcodeEntity.getResultCode();
-                                Log.d(TAG, "🔥 BarcodeDecoder callback - resultCode: " + resultCode);
-
-                                if (resultCode == BarcodeDecoder.DECODE_SUCCESS) {
-                                    String scannedBarcode = barcodeEntity.getBarcodeData();
-                                    Log.d(TAG, "✅ Barcode scanned: " + scannedBarcode);
-
-                                    //Gửi dữ liệu map barcode
-                                    sendBarcodeData(scannedBarcode);
-
-                                    // Gửi dữ liệu về Flutter
-                                    // scanHandler.post(() -> {
-                                    //     if (barcodeSink != null) {
-                                    //         barcodeSink.success(scannedBarcode);
-                                    //         Log.d(TAG, "📤 Sent to Flutter: " + scannedBarcode);
-                                    //     } else {
-                                    //         Log.e(TAG, "❌ barcodeSink is null!");
-                                    //     }
-                                    // });
-
-                                    // Luôn dừng scan sau success để tắt laser
-                                    synchronized (barcodeLock) {
-                                        if (barcodeDecoder != null) {
-                                            try {
-                                                barcodeDecoder.stopScan();
-                                                Log.d(TAG, "Stopped scan after success");
-                                            } catch (Exception e) {
-                                                Log.e(TAG, "Error stopping scan after success: " + e.getMessage());
-                                            }
-                                        }
-                                    }
-
-                                    // Nếu là chế độ liên tục, khởi động lại sau delay
-                                    if (isBarcodeScanning) {
-                                        scanHandler.postDelayed(() -> {
-                                            synchronized (barcodeLock) {
-                                                if (barcodeDecoder != null && isBarcodeScanning) {
-                                                    Log.d(TAG, "🔄 Auto restart scan...");
-                                                    try {
-                                                        lastBarcodeScanTimeNs = System.nanoTime();
-
-                                                        barcodeDecoder.startScan();
-                                                    } catch (Exception e) {
-                                                        Log.e(TAG, "Error restarting scan: " + e.getMessage());
-                                                        isBarcodeScanning = false;
-                                                        scanHandler.post(() -> {
-                                                            if (barcodeSink != null) {
-                                                                barcodeSink.success("STOPPED");
-                                                            }
-                                                        });
-                                                    }
-                                                }
-                                            }
-                                        }, 100);
-                                    }
-                                } else {
-                                    Log.e(TAG, "❌ Decode FAIL - resultCode: " + resultCode);
-                                    if (isBarcodeScanning) {
-                                        scanHandler.postDelayed(() -> {
-                                            synchronized (barcodeLock) {
-                                                if (barcodeDecoder != null && isBarcodeScanning) {
-                                                    Log.d(TAG, "🔄 Retry scan after failure...");
-                                                    try {
-                                                        lastBarcodeScanTimeNs = System.nanoTime();
-
-                                                        barcodeDecoder.startScan();
-                                                    } catch (Exception e) {
-                                                        Log.e(TAG, "Error retrying scan: " + e.getMessage());
-                                                    }
-                                                }
-                                            }
-                                        }, 100);
-                                    }
-                                }
-                            }
-                        });
-                    }
+    // enabled: bật / tắt ghi journal (mở file ở lần bật đầu tiên); syncIntervalMs: chu kỳ force xuống đĩa;
+    // encrypted: ghi vào kho mã hoá AES-GCM theo khối (thư mục riêng, khoá bọc bằng Android Keystore)
+    private void setJournalConfig(MethodCall call, MethodChannel.Result result) {
+        Boolean enabled = call.argument("enabled");
+        Boolean encrypted = call.argument("encrypted");
+        Number syncIntervalMs = call.argument("syncIntervalMs");
+        if (syncIntervalMs != null && syncIntervalMs.longValue() < 0) {
+            result.error("INVALID_ARGUMENT", "syncIntervalMs phải >= 0", null);
+            return;
+        }
+        RecordStore current = scanJournal;
+        boolean switching = encrypted != null && current != null
+                && encrypted != (current instanceof EncryptedSegmentStore);
+        if (switching && isScanning) {
+            result.error("SCANNING", "Không thể đổi loại journal khi đang quét", null);
+            return;
+        }
+        if (switching && isExporting()) {
+            result.error("EXPORT_RUNNING", "Không thể đổi loại journal khi đang xuất", null);
+            return;
+        }
+        if (switching && batchUploader.isActive()) {
+            result.error("SYNC_RUNNING", "Không thể đổi loại journal khi đang đồng bộ", null);
+            return;
+        }
+        try {
+            if (switching) {
+                journalEnabled = false;
+                current.close();
+                scanJournal = null;
+            }
+            if (Boolean.TRUE.equals(enabled)) {
+                if (scanJournal == null) scanJournal = createJournal(Boolean.TRUE.equals(encrypted));
+                scanJournal.open();
+            }
+            RecordStore journal = scanJournal;
+            if (journal != null && syncIntervalMs != null) journal.setSyncIntervalMs(syncIntervalMs.longValue());
+            if (enabled != null) {
+                journalEnabled = enabled && journal != null;
+                if (!enabled && journal != null) journal.sync();
+            }
+        } catch (IOException e) {
+            journalEnabled = false;
+            Log.e(TAG, "Lỗi mở journal: " + e.getMessage());
+            result.error("JOURNAL_ERROR", "Lỗi mở journal: " + e.getMessage(), null);
+            return;
+        } catch (GeneralSecurityException e) {
+            journalEnabled = false;
+            Log.e(TAG, "Lỗi khoá mã hoá journal: " + e.getMessage());
+            result.error("ENCRYPTION_ERROR", "Lỗi khoá mã hoá journal: " + e.getMessage(), null);
+            return;
+        }
+        Log.d(TAG, "Journal config: enabled=" + journalEnabled);
+        result.success(true);
+    }
 
-                    Log.d(TAG, "✅ Barcode decoder connected successfully");
-                    scanHandler.post(() -> {
-                        result.success(true);
-                    });
-                    return;
+    private RecordStore createJournal(boolean encrypted) throws IOException, GeneralSecurityException {
+        File directory = journalDirectory(encrypted);
+        if (!encrypted) return new ScanJournal(directory);
+        return new EncryptedSegmentStore(directory,
+                StorageKeys.loadOrCreateDataKey("paralled_data_scan_journal", new File(directory, "data.key")));
+    }
 
-                } catch (Exception e) {
-                    retryCount++;
-                    Log.e(TAG, "Lỗi kết nối barcode (attempt " + retryCount + "/" + maxRetries + "): " + e.getMessage());
-                    e.printStackTrace();
-                    synchronized (barcodeLock) {
-                        barcodeDecoder = null;
-                    }
+    private File journalDirectory(boolean encrypted) {
+        return new File(context.getFilesDir(), encrypted ? "scan_journal_encrypted" : "scan_journal");
+    }
+
+    // Số record / seq cuối đọc từ bộ đếm trong bộ nhớ (header segment), không quét file
+    private void getJournalStats(MethodChannel.Result result) {
+        RecordStore journal = scanJournal;
+        Map<String, Object> stats = journal != null ? journal.stats() : new HashMap<>();
+        stats.put("enabled", journalEnabled);
+        stats.put("encrypted", journal instanceof EncryptedSegmentStore);
+        stats.put("write_errors", journalErrors.get());
+        if (journal == null) {
+            stats.put("open", false);
+            stats.put("records", 0L);
+        }
+        result.success(stats);
+    }
+
+    // offset: vị trí record (0 = cũ nhất còn trong journal), limit: số record tối đa (mặc định 500)
+    private void readJournal(MethodCall call, MethodChannel.Result result) {
+        Number offset = call.argument("offset");
+        Number limit = call.argument("limit");
+        List<Map<String, Object>> records = new ArrayList<>();
+        if (scanJournal != null) {
+            try {
+                for (JournalRecord record : scanJournal.read(
+                        offset != null ? offset.longValue() : 0,
+                        limit != null ? limit.intValue() : 500)) {
+                    records.add(record.toMap());
                 }
+            } catch (IOException e) {
+                result.error("JOURNAL_ERROR", "Lỗi đọc journal: " + e.getMessage(), null);
+                return;
             }
+        }
+        result.success(records);
+    }
 
-            // Nếu thất bại sau maxRetries
-            if (!opened) {
-                scanHandler.post(() -> {
-                    result.error("OPEN_ERROR", "Không thể kết nối barcode sau " + maxRetries + " lần thử", null);
-                });
+    private void clearJournal(MethodChannel.Result result) {
+        if (isScanning) {
+            result.error("SCANNING", "Không thể xoá journal khi đang quét", null);
+            return;
+        }
+        if (isExporting()) {
+            result.error("EXPORT_RUNNING", "Không thể xoá journal khi đang xuất", null);
+            return;
+        }
+        if (scanJournal != null) {
+            try {
+                scanJournal.clear();
+            } catch (IOException e) {
+                result.error("JOURNAL_ERROR", "Lỗi xoá journal: " + e.getMessage(), null);
+                return;
             }
-        }).start();
+        }
+        journalErrors.set(0);
+        result.success(true);
     }
 
-        private void sendBarcodeData(String barcodeData) {
-            if (barcodeSink != null && barcodeData != null) {
-                Map<String, Object> dataMap = new HashMap<>();
-                
-                // Tính thời gian quét
-                long barcodeEndTimeNs = System.nanoTime();
-                long barcodeScanDurationNs = (lastBarcodeScanTimeNs > 0) 
-                        ? (barcodeEndTimeNs - lastBarcodeScanTimeNs) 
-                        : 0;
-                double barcodeScanDurationMs = barcodeScanDurationNs / 1_000_000.0;
-                
-                dataMap.put("barcode", barcodeData);
-                dataMap.put("barcode_scan_duration_ms", barcodeScanDurationMs);
-                dataMap.put("barcode_scan_duration_ns", barcodeScanDurationNs);
-                
-                scanHandler.post(() -> barcodeSink.success(dataMap));
-                
-                Log.d(TAG, "Barcode Data Sent: " + barcodeData + 
-                    " | Thời gian quét: " + barcodeScanDurationMs + " ms (" + barcodeScanDurationNs + " ns)");
-            }
+    // format: "csv" (mặc định) / "json", path: file đích (mặc định thư mục exports trong bộ nhớ app),
+    // offset: record bắt đầu. Trả về trạng thái job; tiến độ gửi qua ExportStatus.
+    private void startExport(MethodCall call, MethodChannel.Result result) {
+        String formatName = call.argument("format");
+        String path = call.argument("path");
+        Number offset = call.argument("offset");
+        ScanExporter.Format format = ScanExporter.Format.parse(formatName != null ? formatName : "csv");
+        if (format == null) {
+            result.error("INVALID_FORMAT", "Định dạng xuất không hỗ trợ: " + formatName, null);
+            return;
+        }
+        RecordStore journal = scanJournal;
+        if (journal == null || !journal.isOpen()) {
+            result.error("NO_JOURNAL", "Journal chưa bật (setJournalConfig)", null);
+            return;
+        }
+        if (isExporting()) {
+            result.error("EXPORT_RUNNING", "Đang có job xuất chạy", null);
+            return;
         }
 
+        File target;
+        if (path != null && !path.isEmpty()) {
+            target = new File(path);
+        } else {
+            File base = context.getExternalFilesDir(null);
+            if (base == null) base = context.getFilesDir();
+            target = new File(new File(base, "exports"), "rfid_export_" + System.currentTimeMillis()
+                    + (format == ScanExporter.Format.CSV ? ".csv" : ".json"));
+        }
 
-    private void scanBarcodeContinuous(MethodChannel.Result result) {
+        // Đẩy phần đã ghi xuống đĩa trước khi đọc lại
         try {
-            synchronized (barcodeLock) {
-                if (barcodeDecoder == null) {
-                    Log.w(TAG, "⚠️ BarcodeDecoder null, force reconnecting...");
-                    connectBarcode(new MethodChannel.Result() {
-                        @Override
-                        public void success(Object o) {
-                            Log.d(TAG, "✅ Reconnect success, starting continuous scan...");
-                            scanHandler.postDelayed(() -> {
-                                startBarcodeScanInternal(true, result);
-                            }, 800);
-                        }
-                        @Override
-                        public void error(String s, String s1, Object o) {
-                            Log.e(TAG, "❌ Reconnect failed: " + s1);
-                            result.error(s, s1, o);
-                        }
-                        @Override
-                        public void notImplemented() {
-                            result.notImplemented();
-                        }
-                    });
-                    return;
+            journal.sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Lỗi sync journal trước khi xuất: " + e.getMessage());
+        }
+
+        ScanExporter job = new ScanExporter(nextExportId++, journal, target, format,
+                offset != null ? offset.longValue() : 0, this::onExportProgress);
+        exportJob = job;
+        Thread thread = new Thread(job, TAG + "-export");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        Log.d(TAG, "Bắt đầu xuất journal -> " + target);
+        result.success(job.toMap());
+    }
+
+    // url: endpoint nhận lô; batchSize (mặc định 500), concurrency: số kết nối song song (mặc định 2),
+    // maxAttempts: số lần thử mỗi lô (mặc định 8), gzip (mặc định true), headers: header thêm
+    private void setSyncConfig(MethodCall call, MethodChannel.Result result) {
+        String url = call.argument("url");
+        Number batchSize = call.argument("batchSize");
+        Number concurrency = call.argument("concurrency");
+        Number maxAttempts = call.argument("maxAttempts");
+        Boolean gzip = call.argument("gzip");
+        Map<String, String> headers = call.argument("headers");
+        if (batchUploader.isActive()) {
+            result.error("SYNC_RUNNING", "Không thể đổi cấu hình khi đang đồng bộ", null);
+            return;
+        }
+        try {
+            batchUploader.configure(url,
+                    batchSize != null ? batchSize.intValue() : BatchUploader.DEFAULT_BATCH_SIZE,
+                    concurrency != null ? concurrency.intValue() : BatchUploader.DEFAULT_CONCURRENCY,
+                    maxAttempts != null ? maxAttempts.intValue() : BatchUploader.DEFAULT_MAX_ATTEMPTS,
+                    gzip == null || gzip,
+                    headers);
+        } catch (IllegalArgumentException | IllegalStateException | IOException | ClassCastException e) {
+            result.error("INVALID_ARGUMENT", "Cấu hình đồng bộ không hợp lệ: " + e.getMessage(), null);
+            return;
+        }
+        result.success(true);
+    }
+
+    // Đẩy các record journal chưa lên server (sau cursor lưu cạnh journal), tiếp tục theo record mới
+    private void startSync(MethodChannel.Result result) {
+        RecordStore journal = scanJournal;
+        if (journal == null || !journal.isOpen()) {
+            result.error("NO_JOURNAL", "Journal chưa bật (setJournalConfig)", null);
+            return;
+        }
+        try {
+            File cursor = new File(journalDirectory(journal instanceof EncryptedSegmentStore), "upload.cursor");
+            batchUploader.start(journal, cursor);
+        } catch (IllegalStateException e) {
+            result.error("SYNC_ERROR", e.getMessage(), null);
+            return;
+        } catch (IOException e) {
+            result.error("SYNC_ERROR", "Lỗi đọc cursor đồng bộ: " + e.getMessage(), null);
+            return;
+        }
+        result.success(true);
+    }
+
+    // Chạy trên thread của uploader
+    private void onSyncStatus(BatchUploader uploader, Map<String, Object> status) {
+        postToMain(() -> {
+            if (syncSink != null) syncSink.success(status);
+        });
+    }
+
+    // Trạng thái job gần nhất (null nếu chưa xuất lần nào)
+    private void getExportStatus(MethodChannel.Result result) {
+        ScanExporter job = exportJob;
+        result.success(job != null ? job.toMap() : null);
+    }
+
+    private boolean isExporting() {
+        ScanExporter job = exportJob;
+        return job != null && !job.isFinished();
+    }
+
+    // true nếu có job đang chạy bị huỷ
+    private boolean cancelExportJob() {
+        ScanExporter job = exportJob;
+        if (job == null || job.isFinished()) return false;
+        job.cancel();
+        return true;
+    }
+
+    // Chạy trên thread của job
+    private void onExportProgress(ScanExporter job, boolean finished) {
+        Map<String, Object> status = job.toMap();
+        if (finished) Log.d(TAG, "Xuất journal: " + status);
+        postToMain(() -> {
+            if (exportSink != null) exportSink.success(status);
+        });
+    }
+
+    // epcs: danh sách EPC dự kiến (thay danh sách cũ và xoá kết quả đối soát)
+    private void loadExpectedInventory(MethodCall call, MethodChannel.Result result) {
+        List<String> epcs = call.argument("epcs");
+        if (epcs == null) {
+            result.error("INVALID_ARGUMENT", "Thiếu danh sách epcs", null);
+            return;
+        }
+        int loaded = expectedInventory.load(epcs);
+        Log.d(TAG, "Đã nạp " + loaded + " EPC dự kiến (" + epcs.size() + " dòng)");
+        emitReconciliationStatus();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("expected", loaded);
+        response.put("ignored", epcs.size() - loaded);
+        result.success(response);
+    }
+
+    // missingLimit / unexpectedLimit: số EPC trả về kèm (0 = không trả, -1 = tất cả)
+    private void getReconciliationStatus(MethodCall call, MethodChannel.Result result) {
+        Number missingLimit = call.argument("missingLimit");
+        Number unexpectedLimit = call.argument("unexpectedLimit");
+
+        Map<String, Object> status = expectedInventory.statusMap(null);
+        status.remove("new_found");
+        status.remove("new_unexpected");
+        int missing = missingLimit != null ? missingLimit.intValue() : 0;
+        int unexpected = unexpectedLimit != null ? unexpectedLimit.intValue() : 0;
+        if (missing != 0) status.put("missing_epcs", expectedInventory.missing(missing));
+        if (unexpected != 0) status.put("unexpected_epcs", expectedInventory.unexpected(unexpected));
+        result.success(status);
+    }
+
+    // Chạy trên thread xử lý tag: chỉ EPC đổi trạng thái mới được gom lô gửi lên
+    private void reconcile(String epcHex) {
+        int match = expectedInventory.observe(epcHex);
+        if (match == ExpectedInventory.FOUND) {
+            reconciliationDispatcher.offer(new ExpectedInventory.Sighting(epcHex, true));
+        } else if (match == ExpectedInventory.UNEXPECTED) {
+            reconciliationDispatcher.offer(new ExpectedInventory.Sighting(epcHex, false));
+        }
+    }
+
+    private void deliverReconciliation(List<ExpectedInventory.Sighting> batch) {
+        Map<String, Object> status = expectedInventory.statusMap(batch);
+        postToMain(() -> {
+            if (reconciliationSink != null) reconciliationSink.success(status);
+        });
+    }
+
+    // Gửi bộ đếm hiện tại (sau khi nạp / xoá / reset)
+    private void emitReconciliationStatus() {
+        reconciliationDispatcher.clear();
+        deliverReconciliation(null);
+    }
+
+    // filters: [{offsetBits, lengthBits, value}] (offset tính từ bit đầu của EPC), danh sách rỗng = bỏ lọc.
+    // hardware (mặc định true): thử đẩy xuống module khi chỉ có một rule.
+    private void setEpcFilters(MethodCall call, MethodChannel.Result result) {
+        if (isScanning) {
+            result.error("SCANNING", "Không thể đổi bộ lọc EPC khi đang quét", null);
+            return;
+        }
+
+        List<Map<String, Object>> filters = call.argument("filters");
+        Boolean hardware = call.argument("hardware");
+
+        List<EpcMaskFilter.Rule> rules = new ArrayList<>();
+        try {
+            if (filters != null) {
+                for (Map<String, Object> filter : filters) {
+                    Number offsetBits = (Number) filter.get("offsetBits");
+                    Number lengthBits = (Number) filter.get("lengthBits");
+                    String value = (String) filter.get("value");
+                    if (lengthBits == null || value == null) {
+                        throw new IllegalArgumentException("Mỗi filter cần lengthBits và value");
+                    }
+                    rules.add(new EpcMaskFilter.Rule(
+                            offsetBits != null ? offsetBits.intValue() : 0, lengthBits.intValue(), value));
                 }
             }
-            
-            startBarcodeScanInternal(true, result);
-        } catch (Exception e) {
-            isBarcodeScanning = false;
-            Log.e(TAG, "❌ Lỗi quét barcode: " + e.getMessage());
-            e.printStackTrace();
-            result.error("SCAN_ERROR", "Lỗi quét barcode: " + e.getMessage(), null);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            result.error("INVALID_ARGUMENT", "Bộ lọc EPC không hợp lệ: " + e.getMessage(), null);
+            return;
         }
+
+        epcFilter.setRules(rules);
+        applyEpcFilterToReader(hardware == null || hardware);
+        Log.d(TAG, "Bộ lọc EPC: " + rules.size() + " rule, " + (epcFilterInHardware ? "trên module" : "phần mềm"));
+        getEpcFilters(result);
     }
 
-    private void scanBarcodeSingle(MethodChannel.Result result) {
+    // Xoá Select cũ trên module rồi đẩy rule mới nếu module biểu diễn được (một rule duy nhất)
+    private void applyEpcFilterToReader(boolean allowHardware) {
+        TagReader reader = tagReader;
+        boolean inHardware = false;
+        if (reader != null) {
+            try {
+                if (epcFilterInHardware && !reader.setEpcFilter(0, 0, "00")) {
+                    Log.w(TAG, "⚠️ Không xoá được bộ lọc EPC cũ trên module");
+                }
+                List<EpcMaskFilter.Rule> rules = epcFilter.rules();
+                if (allowHardware && rules.size() == 1) {
+                    EpcMaskFilter.Rule rule = rules.get(0);
+                    // Bank EPC: 16 bit CRC + 16 bit PC đứng trước dữ liệu EPC
+                    inHardware = reader.setEpcFilter(32 + rule.offsetBits, rule.lengthBits, rule.hardwareData());
+                    if (!inHardware) Log.w(TAG, "⚠️ Module từ chối bộ lọc EPC, dùng lọc phần mềm");
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "⚠️ Lỗi đẩy bộ lọc EPC xuống module: " + e.getMessage());
+                inHardware = false;
+            }
+        }
+        epcFilterInHardware = inHardware;
+    }
+
+    private void getEpcFilters(MethodChannel.Result result) {
+        List<Map<String, Object>> filters = new ArrayList<>();
+        for (EpcMaskFilter.Rule rule : epcFilter.rules()) {
+            Map<String, Object> filter = new HashMap<>();
+            filter.put("offsetBits", rule.offsetBits);
+            filter.put("lengthBits", rule.lengthBits);
+            filter.put("value", rule.valueHex);
+            filters.add(filter);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("filters", filters);
+        response.put("mode", epcFilter.isEmpty() ? "none" : epcFilterInHardware ? "hardware" : "software");
+        response.put("rejected_reads", epcFilter.rejected());
+        result.success(response);
+    }
+
+    // name: một preset trong RadioProfile (hoặc "custom"), overrides: ghi đè từng tham số.
+    // Không có name lẫn overrides = bỏ profile, giữ cấu hình module.
+    // Nếu đã connect thì áp dụng ngay (lifecycle thread), không thì áp dụng ở lần connect tiếp theo.
+    private void setRadioProfile(MethodCall call, MethodChannel.Result result) {
+        if (isScanning) {
+            result.error("SCANNING", "Không thể đổi profile radio khi đang quét", null);
+            return;
+        }
+
+        String name = call.argument("name");
+        Map<String, Object> overrides = call.argument("overrides");
+
+        RadioProfile profile = null;
+        if (name != null || overrides != null) {
+            profile = name == null || "custom".equals(name)
+                    ? new RadioProfile("custom")
+                    : RadioProfile.preset(name);
+            if (profile == null) {
+                result.error("UNKNOWN_PROFILE", "Không có profile radio: " + name, null);
+                return;
+            }
+            String error = overrides != null ? profile.applyOverrides(overrides) : profile.validate();
+            if (error != null) {
+                result.error("INVALID_ARGUMENT", error, null);
+                return;
+            }
+        }
+        radioProfile = profile;
+
+        final RadioProfile selected = profile;
+        lifecycle.execute(() -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("profile", selected != null ? selected.toMap() : null);
+            RFIDWithUHFUART uhf = uhfReader;
+            if (selected != null && uhf != null) {
+                try {
+                    List<String> failed = lifecycle.call("apply_profile", () -> selected.applyTo(uhf));
+                    response.put("applied", failed.isEmpty());
+                    response.put("failed", failed);
+                    Log.d(TAG, "Profile radio " + selected.name + (failed.isEmpty() ? " đã áp dụng" : ", module từ chối " + failed));
+                } catch (Exception e) {
+                    Log.e(TAG, "Lỗi áp dụng profile radio: " + e.getMessage());
+                    postToMain(() -> result.error("PROFILE_ERROR", "Lỗi áp dụng profile radio: " + e.getMessage(), null));
+                    return;
+                }
+            } else {
+                response.put("applied", false);
+                response.put("failed", new ArrayList<String>());
+            }
+            postToMain(() -> result.success(response));
+        });
+    }
+
+    // mode: "epc" / "epc_tid" / "epc_tid_user" (kèm userPtr, userLen tính theo word).
+    // Áp dụng ngay nếu đã connect và tự áp dụng lại mỗi lần connect.
+    private void setInventoryMode(MethodCall call, MethodChannel.Result result) {
+        if (isScanning) {
+            result.error("SCANNING", "Không thể đổi chế độ inventory khi đang quét", null);
+            return;
+        }
+        String mode = call.argument("mode");
+        Number userPtr = call.argument("userPtr");
+        Number userLen = call.argument("userLen");
+        final InventoryMemoryMode memoryMode;
         try {
-            synchronized (barcodeLock) {
-                if (barcodeDecoder == null) {
-                    Log.w(TAG, "⚠️ BarcodeDecoder null, force reconnecting...");
-                    connectBarcode(new MethodChannel.Result() {
-                        @Override
-                        public void success(Object o) {
-                            Log.d(TAG, "✅ Reconnect success, starting single scan...");
-                            scanHandler.postDelayed(() -> {
-                                startBarcodeScanInternal(false, result);
-                            }, 800);
-                        }
-                        @Override
-                        public void error(String s, String s1, Object o) {
-                            Log.e(TAG, "❌ Reconnect failed: " + s1);
-                            result.error(s, s1, o);
-                        }
-                        @Override
-                        public void notImplemented() {
-                            result.notImplemented();
-                        }
-                    });
+            memoryMode = InventoryMemoryMode.of(mode,
+                    userPtr != null ? userPtr.intValue() : 0,
+                    userLen != null ? userLen.intValue() : 0);
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return;
+        }
+        // Lệnh UART chạy trên lifecycle thread, tuần tự với init / giải phóng
+        lifecycle.execute(() -> {
+            RFIDWithUHFUART uhf = uhfReader;
+            if (uhf != null) {
+                try {
+                    if (!lifecycle.call("apply_inventory_mode", () -> memoryMode.applyTo(uhf))) {
+                        postToMain(() -> result.error("MODE_REJECTED", "Module từ chối chế độ inventory " + mode, null));
+                        return;
+                    }
+                } catch (Exception e) {
+                    postToMain(() -> result.error("MODE_REJECTED", "Lỗi đặt chế độ inventory: " + e.getMessage(), null));
                     return;
                 }
             }
-            
-            startBarcodeScanInternal(false, result);
-        } catch (Exception e) {
-            Log.e(TAG, "❌ Lỗi quét single barcode: " + e.getMessage());
-            e.printStackTrace();
-            result.error("SCAN_ERROR", "Lỗi quét single barcode: " + e.getMessage(), null);
+            inventoryMode = memoryMode;
+            Log.d(TAG, "Chế độ inventory: " + memoryMode.toMap());
+            postToMain(() -> result.success(true));
+        });
+    }
+
+    // enabled, userPtr / userLen (word), readsPerPause: số tag đọc mỗi lần dừng inventory,
+    // roundMs: thời gian inventory tối thiểu giữa hai lần dừng, maxWaitMs: EPC chờ quá lâu thì
+    // ngắt lượt đang chạy, maxAttempts: số lần thử mỗi tag, accessPassword: 8 ký tự hex
+    private void setUserBankReadConfig(MethodCall call, MethodChannel.Result result) {
+        if (isScanning) {
+            result.error("SCANNING", "Không thể đổi cấu hình đọc USER khi đang quét", null);
+            return;
+        }
+        Map<String, Object> current = userBankReads.stats();
+        Boolean enabled = call.argument("enabled");
+        Number userPtr = call.argument("userPtr");
+        Number userLen = call.argument("userLen");
+        Number readsPerPause = call.argument("readsPerPause");
+        Number roundMs = call.argument("roundMs");
+        Number maxWaitMs = call.argument("maxWaitMs");
+        Number maxAttempts = call.argument("maxAttempts");
+        String accessPassword = call.argument("accessPassword");
+        try {
+            userBankReads.configure(
+                    enabled != null ? enabled : userBankReads.isEnabled(),
+                    (userPtr != null ? userPtr : (Number) current.get("userPtr")).intValue(),
+                    (userLen != null ? userLen : (Number) current.get("userLen")).intValue(),
+                    (readsPerPause != null ? readsPerPause : (Number) current.get("readsPerPause")).intValue(),
+                    (roundMs != null ? roundMs : (Number) current.get("roundMs")).longValue(),
+                    (maxWaitMs != null ? maxWaitMs : (Number) current.get("maxWaitMs")).longValue(),
+                    (maxAttempts != null ? maxAttempts : (Number) current.get("maxAttempts")).intValue(),
+                    accessPassword != null ? accessPassword : userBankReads.accessPassword());
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return;
         }
+        getUserBankReadStats(result);
     }
 
-    private void startBarcodeScanInternal(boolean continuous, MethodChannel.Result result) {
-        synchronized (barcodeLock) {
-            if (barcodeDecoder == null) {
-                Log.e(TAG, "BarcodeDecoder is null, cannot start scan");
-                result.error("NOT_INITIALIZED", "Barcode decoder chưa được khởi tạo", null);
+    private void getUserBankReadStats(MethodChannel.Result result) {
+        Map<String, Object> stats = userBankReads.stats();
+        stats.put("inventoryMode", inventoryMode != null ? inventoryMode.toMap() : null);
+        result.success(stats);
+    }
+
+    // backend: "uart" (module C72) / "simulated" (SimulatedTagReader, kèm config ghi đè tham số mô phỏng).
+    // Đầu đọc đang mở được ngắt; gọi connect lại để dùng backend mới.
+    private void setReaderBackend(MethodCall call, MethodChannel.Result result) {
+        if (isScanning) {
+            result.error("SCANNING", "Không thể đổi backend đầu đọc khi đang quét", null);
+            return;
+        }
+        String backend = call.argument("backend");
+        Map<String, Object> config = call.argument("config");
+        if (!"uart".equals(backend) && !"simulated".equals(backend) && !"replay".equals(backend)) {
+            result.error("INVALID_ARGUMENT", "backend phải là 'uart', 'simulated' hoặc 'replay'", null);
+            return;
+        }
+        File replay = null;
+        double speed = 1;
+        if ("replay".equals(backend)) {
+            // config: path (file capture), speed (1 = nhịp gốc, 0 = nhanh nhất)
+            Object path = config != null ? config.get("path") : null;
+            Object speedArg = config != null ? config.get("speed") : null;
+            if (!(path instanceof String) || !new File((String) path).isFile()) {
+                result.error("INVALID_ARGUMENT", "Không tìm thấy file capture: " + path, null);
                 return;
             }
-
-            if (isBarcodeScanning && continuous) {
-                Log.w(TAG, "Barcode scan đang chạy rồi");
-                result.success(true);
+            if (speedArg instanceof Number) speed = ((Number) speedArg).doubleValue();
+            if (speed < 0) {
+                result.error("INVALID_ARGUMENT", "speed phải >= 0", null);
+                return;
+            }
+            replay = new File((String) path);
+        }
+        SimulatedTagReader.Config simulated = new SimulatedTagReader.Config();
+        if (config != null && "simulated".equals(backend)) {
+            String error = simulated.applyOverrides(config);
+            if (error != null) {
+                result.error("INVALID_ARGUMENT", error, null);
                 return;
             }
+        }
+        final TagReader old = tagReader;
+        if (old != null) {
+            tagReader = null;
+            uhfReader = null;
+            // Ngắt đầu đọc cũ trên lifecycle thread (free() chờ UART); connect sau đó chạy nối tiếp
+            lifecycle.release(() -> lifecycle.step("free_reader", () -> {
+                try {
+                    old.disconnect();
+                } catch (Exception e) {
+                    Log.w(TAG, "Lỗi ngắt đầu đọc " + old.name() + ": " + e.getMessage());
+                }
+            }), null);
+        }
+        readerBackend = backend;
+        simulatedConfig = simulated;
+        replayFile = replay;
+        replaySpeed = speed;
+        readerRecoveries = 0;
+        lastRecoveryNs = 0;
+        Log.d(TAG, "Backend đầu đọc: " + backend);
+        result.success(true);
+    }
 
-            try {
-                isBarcodeScanning = continuous;
+    private void getReaderStats(MethodChannel.Result result) {
+        Map<String, Object> stats;
+        if (tagReader instanceof SimulatedTagReader) {
+            stats = ((SimulatedTagReader) tagReader).stats();
+        } else if (tagReader instanceof ReplayTagReader) {
+            stats = ((ReplayTagReader) tagReader).stats();
+        } else {
+            stats = new HashMap<>();
+        }
+        stats.put("backend", readerBackend);
+        stats.put("connected", tagReader != null && tagReader.isConnected());
+        stats.put("recoveries", readerRecoveries);
+        stats.put("last_recovery_ms", lastRecoveryNs / 1e6);
+        result.success(stats);
+    }
 
-                lastBarcodeScanTimeNs = System.nanoTime();
+    // path: file đích (mặc định <external files>/captures/rfid_capture_<ms>.rcap), maxMb: giới hạn kích thước
+    // (mặc định 256). Ghi mọi tag rút từ đầu đọc (trước lọc EPC / khử trùng lặp) cho tới stopCapture.
+    private void startCapture(MethodCall call, MethodChannel.Result result) {
+        if (readerCapture != null) {
+            result.error("CAPTURE_RUNNING", "Đang ghi capture " + readerCapture.file(), null);
+            return;
+        }
+        String path = call.argument("path");
+        Number maxMb = call.argument("maxMb");
+        File target;
+        if (path != null && !path.isEmpty()) {
+            target = new File(path);
+        } else {
+            File base = context.getExternalFilesDir(null);
+            if (base == null) base = context.getFilesDir();
+            target = new File(new File(base, "captures"), "rfid_capture_" + System.currentTimeMillis() + ".rcap");
+        }
+        try {
+            readerCapture = new ReaderCaptureWriter(target, System.nanoTime(), System.currentTimeMillis(),
+                    (maxMb != null ? maxMb.longValue() : 256) * 1024 * 1024);
+        } catch (IOException e) {
+            result.error("CAPTURE_ERROR", "Không mở được file capture: " + e.getMessage(), null);
+            return;
+        }
+        Log.d(TAG, "Bắt đầu capture -> " + target);
+        result.success(target.getAbsolutePath());
+    }
 
-                Log.i(TAG, "Calling startScan()... barcodeSink: " + (barcodeSink != null));
-                barcodeDecoder.startScan();
-                Log.i(TAG, "startScan() called successfully");
+    // Đóng file capture; trả về {path, records, bytes, truncated} hoặc null nếu không có capture
+    private Map<String, Object> closeCapture() {
+        ReaderCaptureWriter capture = readerCapture;
+        if (capture == null) return null;
+        readerCapture = null;
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("path", capture.file().getAbsolutePath());
+        try {
+            capture.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Lỗi đóng capture: " + e.getMessage());
+            summary.put("error", e.getMessage());
+        }
+        summary.put("records", capture.records());
+        summary.put("bytes", capture.bytes());
+        summary.put("truncated", capture.isTruncated());
+        Log.d(TAG, "Dừng capture: " + summary);
+        return summary;
+    }
 
-                scanHandler.post(() -> {
-                    if (barcodeSink != null) {
-                        barcodeSink.success("SCANNING");
-                    } else {
-                    Log.e(TAG, "barcodeSink is null when starting scan!");
-                    }
-                });
+    // Các preset, profile đang chọn và giá trị module đang dùng (nếu đã connect, đọc trên lifecycle thread)
+    private void getRadioProfiles(MethodChannel.Result result) {
+        List<Map<String, Object>> presets = new ArrayList<>();
+        for (RadioProfile preset : RadioProfile.presets().values()) presets.add(preset.toMap());
 
-                result.success(true);
-            } catch (Exception e) {
-                isBarcodeScanning = false;
-                Log.e(TAG, "Lỗi startScan: " + e.getMessage());
-                e.printStackTrace();
-                result.error("START_SCAN_ERROR", "Lỗi khởi động laser: " + e.getMessage(), null);
-            }
+        Map<String, Object> response = new HashMap<>();
+        response.put("presets", presets);
+        response.put("active", radioProfile != null ? radioProfile.toMap() : null);
+
+        if (isScanning) {
+            result.success(response);
+            return;
         }
+        lifecycle.execute(() -> {
+            RFIDWithUHFUART uhf = uhfReader;
+            if (uhf != null) {
+                try {
+                    lifecycle.step("read_radio_config", () -> {
+                        Map<String, Object> module = new HashMap<>();
+                        module.put("power", uhf.getPower());
+                        module.put("frequencyMode", uhf.getFrequencyMode());
+                        module.put("rfLink", uhf.getRFLink());
+                        module.put("fastInventory", uhf.getFastInventoryMode() == 1);
+                        Gen2Entity gen2 = uhf.getGen2();
+                        if (gen2 != null) {
+                            module.put("session", gen2.getQuerySession());
+                            module.put("target", gen2.getQueryTarget());
+                            module.put("qAlgorithm", gen2.getQ());
+                            module.put("startQ", gen2.getStartQ());
+                            module.put("minQ", gen2.getMinQ());
+                            module.put("maxQ", gen2.getMaxQ());
+                        }
+                        response.put("module", module);
+                    });
+                } catch (Exception e) {
+                    Log.w(TAG, "Không đọc được cấu hình radio: " + e.getMessage());
+                }
+            }
+            postToMain(() -> result.success(response));
+        });
     }
 
-    private void stopScanBarcode(MethodChannel.Result result) {
-        synchronized (barcodeLock) {
-            if (barcodeDecoder == null) {
-                result.error("NOT_CONNECTED", "Chưa kết nối barcode", null);
+    // Cả bảng thống kê theo EPC (hoặc một trang offset/limit) trong một message, dạng cột
+    private void getSessionSnapshot(MethodCall call, MethodChannel.Result result) {
+        Number offset = call.argument("offset");
+        Number limit = call.argument("limit");
+        result.success(tagAggregates.snapshot(
+                offset != null ? offset.intValue() : 0,
+                limit != null ? limit.intValue() : 0));
+    }
+
+    private void setAggregateConfig(MethodCall call, MethodChannel.Result result) {
+        Number ewmaAlpha = call.argument("ewmaAlpha");
+        if (ewmaAlpha != null) {
+            double alpha = ewmaAlpha.doubleValue();
+            if (!(alpha > 0 && alpha <= 1)) {
+                result.error("INVALID_ARGUMENT", "ewmaAlpha phải trong khoảng (0, 1]", null);
                 return;
             }
-            
-            try {
-                isBarcodeScanning = false;
-                barcodeDecoder.stopScan();
-                
-                Log.i(TAG, "Đã TẮT laser - Dừng quét barcode");
-                
-                scanHandler.post(() -> {
-                    if (barcodeSink != null) {
-                        barcodeSink.success("STOPPED");
-                    }
-                });
-                
+            tagAggregates.setEwmaAlpha(alpha);
+        }
+        result.success(true);
+    }
+
+    private void getDedupStats(MethodChannel.Result result) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", epcDeduplicator.isEnabled());
+        stats.put("update_interval_ms", epcDeduplicator.updateIntervalMs());
+        stats.put("session_reads", epcDeduplicator.totalReads());
+        stats.put("session_unique", epcDeduplicator.uniqueCount());
+        result.success(stats);
+    }
+
+    // Giải phóng trên lifecycle thread; ConnectedStatus nhận RELEASING -> IDLE
+    private void closeConnection(MethodChannel.Result result) {
+        lifecycle.release(this::releaseHardware, replyOnMain(result)::done);
+    }
+
+    // ===========================================
+    // ================= BARCODE =================
+    // ===========================================
+    // Decoder đã được làm nóng thì trả về ngay; reconnect = true: đóng và mở lại (worker thread)
+    private void connectBarcode(MethodCall call, MethodChannel.Result result) {
+        if (Boolean.TRUE.equals(call.argument("reconnect"))) {
+            barcodeWorker.open(context, replyOnMain(result));
+        } else {
+            barcodeWorker.ensureOpen(context, replyOnMain(result));
+        }
+    }
+
+    // Kết quả lệnh chạy trên worker / lifecycle thread trả về Flutter trên main thread
+    // Qua postToMain: engine đã detach (scanHandler null) thì bỏ kết quả thay vì NPE trên thread nền
+    private BarcodeWorker.Completion replyOnMain(MethodChannel.Result result) {
+        return (errorCode, message) -> postToMain(() -> {
+            if (errorCode == null) {
                 result.success(true);
-            } catch (Exception e) {
-                isBarcodeScanning = false;
-                Log.e(TAG, "Lỗi dừng quét barcode: " + e.getMessage());
-                result.error("STOP_ERROR", "Lỗi dừng quét barcode: " + e.getMessage(), null);
+            } else {
+                Log.e(TAG, "❌ " + errorCode + ": " + message);
+                result.error(errorCode, message, null);
             }
+        });
+    }
+
+    // Worker thread: qua bộ chặn lặp, lần quét mới (hoặc update số lần lặp) vào lô chờ gửi
+    private void sendBarcodeData(String barcodeData, long barcodeScanDurationNs) {
+        if (barcodeData == null) return;
+        BarcodeRead read = barcodeDebouncer.observe(barcodeData, barcodeScanDurationNs, System.currentTimeMillis());
+        if (read != null) barcodeBatchDispatcher.offer(read);
+    }
+
+    // Thread flush của barcodeBatchDispatcher; maxBatch = 1 giữ định dạng cũ (1 Map/event)
+    private void deliverBarcodeBatch(List<BarcodeRead> batch) {
+        barcodeDebouncer.markDelivered(batch);
+        Object payload;
+        if (batch.size() == 1 && barcodeBatchDispatcher.maxBatchSize() == 1) {
+            payload = toBarcodeMap(batch.get(0));
+        } else {
+            List<Map<String, Object>> maps = new ArrayList<>(batch.size());
+            for (BarcodeRead read : batch) maps.add(toBarcodeMap(read));
+            payload = maps;
         }
+        postToMain(() -> {
+            if (barcodeSink != null) barcodeSink.success(payload);
+        });
+    }
+
+    private Map<String, Object> toBarcodeMap(BarcodeRead read) {
+        Map<String, Object> dataMap = new HashMap<>();
+        dataMap.put("barcode", read.code);
+        dataMap.put("barcode_scan_duration_ms", read.scanDurationNs / 1_000_000.0);
+        dataMap.put("barcode_scan_duration_ns", read.scanDurationNs);
+        dataMap.put("timestamp", read.timestampMs);
+        // repeats: số lần quét lặp gộp vào event này; update: chỉ báo lặp của mã đã gửi trước đó
+        dataMap.put("repeats", barcodeDebouncer.repeatsOf(read));
+        dataMap.put("update", read.update);
+        return dataMap;
+    }
+
+    private void scanBarcodeContinuous(MethodChannel.Result result) {
+        startBarcodeScan(true, result);
+    }
+
+    private void scanBarcodeSingle(MethodChannel.Result result) {
+        startBarcodeScan(false, result);
+    }
+
+    // Decoder còn lạnh thì worker tự mở trước khi bật laser (cùng một lệnh trên worker thread)
+    private void startBarcodeScan(boolean continuous, MethodChannel.Result result) {
+        barcodeWorker.startScan(context, continuous, replyOnMain(result));
+    }
+
+    private void stopScanBarcode(MethodChannel.Result result) {
+        barcodeWorker.stopScan(replyOnMain(result));
     }
 
     private void closeBarcode(MethodChannel.Result result) {
-        try {
-            isBarcodeScanning = false;
-            
-            synchronized (barcodeLock) {
-                if (barcodeDecoder != null) {
-                    barcodeDecoder.stopScan();
-                    barcodeDecoder.close();
-                    barcodeDecoder = null;
-                }
-            }
-            
-            Log.i(TAG, "🔒 Barcode decoder đã đóng");
-            result.success(true);
-        } catch (Exception e) {
-            Log.e(TAG, "❌ Lỗi đóng barcode: " + e.getMessage());
-            result.error("CLOSE_ERROR", "Lỗi đóng barcode: " + e.getMessage(), null);
+        barcodeWorker.close(replyOnMain(result));
+    }
+
+    // restartDelayMs: thời gian tắt laser giữa hai lần quét ở chế độ liên tục (0 = bật lại ngay),
+    // dedupWindowMs: cửa sổ chặn lặp cùng mã (0 = tắt), batchIntervalMs / maxBatch: gom lô BarcodeStatus
+    private void setBarcodeConfig(MethodCall call, MethodChannel.Result result) {
+        Number restartDelayMs = call.argument("restartDelayMs");
+        Number dedupWindowMs = call.argument("dedupWindowMs");
+        Number batchIntervalMs = call.argument("batchIntervalMs");
+        Number maxBatch = call.argument("maxBatch");
+        if ((restartDelayMs != null && restartDelayMs.longValue() < 0)
+                || (dedupWindowMs != null && dedupWindowMs.longValue() < 0)
+                || (batchIntervalMs != null && batchIntervalMs.longValue() < 0)
+                || (maxBatch != null && maxBatch.intValue() < 1)) {
+            result.error("INVALID_ARGUMENT", "Thời gian phải >= 0, maxBatch phải >= 1", null);
+            return;
         }
+        if (restartDelayMs != null) barcodeWorker.setRestartDelayMs(restartDelayMs.longValue());
+        if (dedupWindowMs != null) barcodeDebouncer.configure(dedupWindowMs.longValue());
+        // Flush lô đang chờ theo cấu hình cũ trước khi đổi
+        barcodeBatchDispatcher.flush();
+        barcodeBatchDispatcher.configure(
+                batchIntervalMs != null ? batchIntervalMs.longValue() : barcodeBatchDispatcher.flushIntervalMs(),
+                maxBatch != null ? maxBatch.intValue() : barcodeBatchDispatcher.maxBatchSize());
+        Log.d(TAG, "Barcode config: restartDelayMs=" + barcodeWorker.restartDelayMs()
+                + ", dedupWindowMs=" + barcodeDebouncer.windowMs()
+                + ", batchIntervalMs=" + barcodeBatchDispatcher.flushIntervalMs()
+                + ", maxBatch=" + barcodeBatchDispatcher.maxBatchSize());
+        result.success(true);
+    }
+
+    private Map<String, Object> barcodeStats() {
+        Map<String, Object> stats = barcodeWorker.stats();
+        stats.put("dedup", barcodeDebouncer.stats());
+        stats.put("batchIntervalMs", barcodeBatchDispatcher.flushIntervalMs());
+        stats.put("maxBatch", barcodeBatchDispatcher.maxBatchSize());
+        return stats;
     }
     
     @Override
     public void onAttachedToActivity(@NonNull ActivityPluginBinding binding) { 
         this.activityBinding = binding; 
+        // Activity mới gắn vào engine cũ (sau onDetachedFromActivity đã giải phóng): làm nóng lại decoder,
+        // qua lifecycle thread để luôn chạy sau lệnh giải phóng đang chờ. Decoder đã mở thì không làm gì
+        if (context != null) lifecycle.execute(() -> barcodeWorker.warmUp(context));
     }
     
     @Override
@@ -854,14 +2161,14 @@ public class RfidC72Plugin implements FlutterPlugin, ActivityAware {
     @Override
     public void onReattachedToActivityForConfigChanges(@NonNull ActivityPluginBinding binding) { 
         Log.d(TAG, "🔌 onReattachedToActivityForConfigChanges called");
-        forceCleanup();
+        // Xoay màn hình / đổi cấu hình: engine vẫn sống, giữ đầu đọc đã kết nối và decoder đã làm nóng
         this.activityBinding = binding; 
     }
     
     @Override
     public void onDetachedFromActivity() { 
         Log.d(TAG, "🔌 onDetachedFromActivity called");
-        forceCleanup();
+        lifecycle.release(this::releaseHardware, null);
         this.activityBinding = null; 
     }
 }
@@ -0,0 +1,108 @@
+package com.example.paralled_data.barcode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Chặn lặp barcode khi quét lướt qua nhãn: cùng một mã quét lại trong windowMs kể từ lần thấy
+// gần nhất (cửa sổ trượt) không tạo event mới mà được đếm vào repeats:
+//  - event của mã còn chờ trong lô chưa gửi: cộng thẳng vào repeats của event đó
+//  - event đã gửi: tạo một event update (update = true, repeats = số lần lặp kể từ đó), các lần
+//    lặp sau lại gộp vào event update này tới khi nó được gửi
+// Nhờ vậy mỗi mã chiếm tối đa một event mỗi lô. Hết cửa sổ mà quét lại thì là lần quét mới.
+// windowMs = 0: tắt chặn lặp, mọi lần giải mã là một event.
+public final class BarcodeDebouncer {
+
+    public static final long DEFAULT_WINDOW_MS = 1000;
+
+    private static final class Entry {
+        long lastSeenMs;
+        BarcodeRead pending;   // event gần nhất của mã (đã hoặc chưa gửi)
+    }
+
+    // Thứ tự truy cập: mã lâu nhất chưa thấy nằm đầu, dọn dần khi hết cửa sổ
+    private final LinkedHashMap<String, Entry> recent = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long windowMs = DEFAULT_WINDOW_MS;
+    private long decodes;
+    private long emitted;
+    private long updates;
+    private long suppressed;
+
+    public synchronized void configure(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+        recent.clear();
+    }
+
+    public synchronized long windowMs() {
+        return windowMs;
+    }
+
+    // Trả về event cần đưa vào lô, hoặc null nếu lần quét đã được gộp vào event đang chờ
+    public synchronized BarcodeRead observe(String code, long scanDurationNs, long nowMs) {
+        decodes++;
+        if (windowMs == 0) {
+            emitted++;
+            return new BarcodeRead(code, scanDurationNs, nowMs, false, 0);
+        }
+        evictExpired(nowMs);
+
+        Entry entry = recent.get(code);
+        if (entry == null) {
+            entry = new Entry();
+            entry.lastSeenMs = nowMs;
+            entry.pending = new BarcodeRead(code, scanDurationNs, nowMs, false, 0);
+            recent.put(code, entry);
+            emitted++;
+            return entry.pending;
+        }
+
+        entry.lastSeenMs = nowMs;
+        suppressed++;
+        if (!entry.pending.delivered) {
+            entry.pending.repeats++;
+            return null;
+        }
+        entry.pending = new BarcodeRead(code, scanDurationNs, nowMs, true, 1);
+        updates++;
+        return entry.pending;
+    }
+
+    // Gọi ngay trước khi mã hoá lô: lần lặp đến sau đó sẽ tạo event update mới
+    public synchronized void markDelivered(List<BarcodeRead> batch) {
+        for (BarcodeRead read : batch) read.delivered = true;
+    }
+
+    public synchronized int repeatsOf(BarcodeRead read) {
+        return read.repeats;
+    }
+
+    public synchronized void reset() {
+        recent.clear();
+        decodes = 0;
+        emitted = 0;
+        updates = 0;
+        suppressed = 0;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("windowMs", windowMs);
+        stats.put("decodes", decodes);
+        stats.put("emitted", emitted);
+        stats.put("repeat_updates", updates);
+        stats.put("suppressed", suppressed);
+        stats.put("tracked_codes", recent.size());
+        return stats;
+    }
+
+    private void evictExpired(long nowMs) {
+        Iterator<Entry> it = recent.values().iterator();
+        while (it.hasNext()) {
+            if (nowMs - it.next().lastSeenMs <= windowMs) break;
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.paralled_data.barcode;
+
+// Một event barcode chờ gửi qua BarcodeStatus. Các lần quét lặp lại cùng mã (trong cửa sổ của
+// BarcodeDebouncer) được cộng vào repeats của event chưa gửi thay vì tạo event mới.
+public final class BarcodeRead {
+    public final String code;
+    public final long scanDurationNs;
+    public final long timestampMs;
+    // true = chỉ báo thêm lần lặp của mã đã gửi trước đó, không phải lần quét mới
+    public final boolean update;
+
+    // Do BarcodeDebouncer ghi / đọc dưới khoá của nó
+    int repeats;
+    boolean delivered;
+
+    BarcodeRead(String code, long scanDurationNs, long timestampMs, boolean update, int repeats) {
+        this.code = code;
+        this.scanDurationNs = scanDurationNs;
+        this.timestampMs = timestampMs;
+        this.update = update;
+        this.repeats = repeats;
+    }
+}
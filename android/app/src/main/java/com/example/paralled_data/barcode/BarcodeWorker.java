@@ -0,0 +1,402 @@
+package com.example.paralled_data.barcode;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.paralled_data.tag_pipeline.LatencyHistogram;
+import com.rscja.barcode.BarcodeDecoder;
+import com.rscja.barcode.BarcodeFactory;
+import com.rscja.deviceapi.entity.BarcodeEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Một HandlerThread riêng sở hữu BarcodeDecoder: mọi lệnh SDK (open / startScan / stopScan / close)
+// và callback giải mã đều chạy tuần tự trên thread này, nên không cần khoá và main thread không bao giờ
+// chờ I/O UART của đầu quét. Ở chế độ liên tục, sau mỗi lần giải mã laser được tắt rồi bật lại sau
+// restartDelayMs (0 = bật lại ngay trong callback) thay cho postDelayed 100 ms cố định trên main looper.
+// Decoder được làm nóng (warmUp) ngay khi plugin attach rồi giữ mở; startScan chỉ mở khi decoder
+// còn lạnh, và chỉ lần thử lại sau khi mở lỗi mới phải chờ.
+public final class BarcodeWorker {
+
+    // Trạng thái sẵn sàng của decoder (readinessInfo())
+    public static final String STATE_CLOSED = "CLOSED";
+    public static final String STATE_OPENING = "OPENING";
+    public static final String STATE_READY = "READY";
+    public static final String STATE_FAILED = "FAILED";
+
+    public interface Listener {
+        // Trên worker thread. scanDurationNs: từ lúc startScan tới khi giải mã xong
+        void onBarcode(String data, long scanDurationNs);
+
+        // "SCANNING" / "STOPPED"
+        void onStateChanged(String state);
+    }
+
+    // errorCode null = thành công; gọi trên worker thread
+    public interface Completion {
+        void done(String errorCode, String message);
+    }
+
+    public static final long DEFAULT_RESTART_DELAY_MS = 0;
+    private static final int OPEN_ATTEMPTS = 3;
+
+    private final String tag;
+    private final Listener listener;
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    // Chỉ worker thread đọc / ghi decoder
+    private BarcodeDecoder decoder;
+    private volatile boolean open;
+    private volatile String state = STATE_CLOSED;
+    private volatile String lastOpenError;
+    private volatile long openDurationNs;
+    private volatile int openAttempts;
+    private volatile long readySinceMs;
+    private volatile boolean continuous;
+    private volatile long restartDelayMs = DEFAULT_RESTART_DELAY_MS;
+    // Tăng mỗi lần dừng / đóng: lần khởi động lại đã hẹn của phiên cũ bị bỏ
+    private int generation;
+
+    private long scanStartNs;
+    private long lastDecodeNs;
+    private long sessionStartNs;
+
+    private volatile long scansOk;
+    private volatile long scansFailed;
+    private volatile long restarts;
+    private volatile long sessionScans;
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final LatencyHistogram restartGap = new LatencyHistogram();
+
+    // Lần quét đầu tiên sau mỗi lần mở decoder: từ lúc nhận lệnh quét tới khi bật laser / giải mã xong
+    private boolean firstScanPending;
+    private long firstScanRequestNs;
+    private boolean firstScanWarm;
+    private volatile Map<String, Object> firstScan;
+
+    public BarcodeWorker(String tag, Listener listener) {
+        this.tag = tag;
+        this.listener = listener;
+        this.thread = new HandlerThread(tag + "-barcode");
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    public long restartDelayMs() {
+        return restartDelayMs;
+    }
+
+    public void setRestartDelayMs(long delayMs) {
+        restartDelayMs = Math.max(0, delayMs);
+    }
+
+    // Mở decoder trên worker thread ngay khi plugin attach để lần bấm quét đầu không phải chờ
+    public void warmUp(Context context) {
+        ensureOpen(context, (errorCode, message) -> {
+            if (errorCode != null) Log.w(tag, "Làm nóng barcode decoder thất bại: " + message);
+        });
+    }
+
+    // Decoder đã mở (hoặc đang được làm nóng, vì lệnh chạy tuần tự) thì trả về ngay, không mở lại
+    public void ensureOpen(Context context, Completion completion) {
+        handler.post(() -> {
+            String error = decoder != null ? null : openNow(context);
+            completion.done(error == null ? null : "OPEN_ERROR", error);
+        });
+    }
+
+    // Đóng decoder cũ (nếu có) rồi mở lại
+    public void open(Context context, Completion completion) {
+        handler.post(() -> {
+            String error = openNow(context);
+            completion.done(error == null ? null : "OPEN_ERROR", error);
+        });
+    }
+
+    // Thử tối đa OPEN_ATTEMPTS lần; trả về thông báo lỗi, null = thành công
+    private String openNow(Context context) {
+        boolean hadDecoder = decoder != null;
+        closeDecoder();
+        state = STATE_OPENING;
+        long startNs = System.nanoTime();
+        for (int attempt = 1; attempt <= OPEN_ATTEMPTS; attempt++) {
+            openAttempts = attempt;
+            try {
+                // Chỉ chờ đầu quét nhả UART khi vừa đóng decoder cũ hoặc lần thử trước lỗi (lâu dần)
+                int waits = hadDecoder ? attempt : attempt - 1;
+                if (waits > 0) Thread.sleep(500L * waits);
+                BarcodeDecoder created = BarcodeFactory.getInstance().getBarcodeDecoder();
+                if (created == null) {
+                    Log.w(tag, "BarcodeFactory trả về null, retrying... (" + attempt + "/" + OPEN_ATTEMPTS + ")");
+                    continue;
+                }
+                if (!created.open(context)) {
+                    Log.w(tag, "Không thể mở barcode decoder, retrying... (" + attempt + "/" + OPEN_ATTEMPTS + ")");
+                    continue;
+                }
+                created.setDecodeCallback(new BarcodeDecoder.DecodeCallback() {
+                    @Override
+                    public void onDecodeComplete(BarcodeEntity barcodeEntity) {
+                        long decodedNs = System.nanoTime();
+                        if (Looper.myLooper() == handler.getLooper()) {
+                            onDecoded(barcodeEntity, decodedNs);
+                        } else {
+                            handler.post(() -> onDecoded(barcodeEntity, decodedNs));
+                        }
+                    }
+                });
+                decoder = created;
+                open = true;
+                openDurationNs = System.nanoTime() - startNs;
+                readySinceMs = System.currentTimeMillis();
+                lastOpenError = null;
+                firstScanPending = true;
+                firstScanRequestNs = 0;
+                state = STATE_READY;
+                Log.d(tag, "✅ Barcode decoder connected successfully (" + openDurationNs / 1_000_000 + " ms)");
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                Log.e(tag, "Lỗi kết nối barcode (attempt " + attempt + "/" + OPEN_ATTEMPTS + "): " + e.getMessage());
+            }
+        }
+        closeDecoder();
+        lastOpenError = "Không thể kết nối barcode sau " + OPEN_ATTEMPTS + " lần thử";
+        state = STATE_FAILED;
+        return lastOpenError;
+    }
+
+    // Decoder còn lạnh (chưa làm nóng xong / đã đóng) thì mở trước rồi quét trong cùng một lệnh
+    public void startScan(Context context, boolean continuousMode, Completion completion) {
+        long requestNs = System.nanoTime();
+        handler.post(() -> {
+            boolean warm = decoder != null;
+            if (!warm) {
+                Log.w(tag, "⚠️ BarcodeDecoder chưa mở, opening before scan...");
+                String error = openNow(context);
+                if (error != null) {
+                    completion.done("OPEN_ERROR", error);
+                    return;
+                }
+            }
+            if (continuousMode && continuous) {
+                completion.done(null, null);
+                return;
+            }
+            generation++;
+            continuous = continuousMode;
+            if (continuousMode) {
+                sessionStartNs = System.nanoTime();
+                sessionScans = 0;
+            }
+            if (!startScanNow()) {
+                continuous = false;
+                completion.done("START_SCAN_ERROR", "Lỗi khởi động laser");
+                return;
+            }
+            if (firstScanPending && firstScanRequestNs == 0) {
+                firstScanRequestNs = requestNs;
+                firstScanWarm = warm;
+            }
+            listener.onStateChanged("SCANNING");
+            completion.done(null, null);
+        });
+    }
+
+    public void stopScan(Completion completion) {
+        handler.post(() -> {
+            if (decoder == null) {
+                completion.done("NOT_CONNECTED", "Chưa kết nối barcode");
+                return;
+            }
+            continuous = false;
+            generation++;
+            try {
+                decoder.stopScan();
+            } catch (Exception e) {
+                completion.done("STOP_ERROR", "Lỗi dừng quét barcode: " + e.getMessage());
+                return;
+            }
+            listener.onStateChanged("STOPPED");
+            completion.done(null, null);
+        });
+    }
+
+    public void close(Completion completion) {
+        handler.post(() -> {
+            closeDecoder();
+            completion.done(null, null);
+        });
+    }
+
+    // Cho forceCleanup / detach trên main thread: đóng decoder và chờ tối đa timeoutMs
+    public boolean closeNow(long timeoutMs) {
+        continuous = false;
+        CountDownLatch closed = new CountDownLatch(1);
+        handler.postAtFrontOfQueue(() -> {
+            closeDecoder();
+            closed.countDown();
+        });
+        try {
+            return closed.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void shutdown() {
+        closeNow(500);
+        thread.quitSafely();
+    }
+
+    // scans_ok / scans_failed / restarts / scans_per_sec (phiên liên tục hiện tại hoặc gần nhất) /
+    // decode_latency (startScan -> giải mã) / restart_gap (giải mã -> startScan kế tiếp)
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("open", open);
+        stats.put("state", state);
+        stats.put("continuous", continuous);
+        stats.put("restartDelayMs", restartDelayMs);
+        stats.put("scans_ok", scansOk);
+        stats.put("scans_failed", scansFailed);
+        stats.put("restarts", restarts);
+        long startNs = sessionStartNs;
+        double elapsedSec = startNs > 0 ? (System.nanoTime() - startNs) / 1e9 : 0;
+        stats.put("scans_per_sec", elapsedSec > 0 ? sessionScans / elapsedSec : 0.0);
+        stats.put("decode_latency", decodeLatency.snapshot());
+        stats.put("restart_gap", restartGap.snapshot());
+        Map<String, Object> first = firstScan;
+        if (first != null) stats.put("first_scan", first);
+        return stats;
+    }
+
+    // state (CLOSED / OPENING / READY / FAILED) / open_ms + open_attempts của lần mở gần nhất /
+    // ready_since / error
+    public Map<String, Object> readinessInfo() {
+        Map<String, Object> info = new HashMap<>();
+        info.put("state", state);
+        info.put("ready", state.equals(STATE_READY));
+        info.put("open_ms", openDurationNs / 1e6);
+        info.put("open_attempts", openAttempts);
+        if (state.equals(STATE_READY)) info.put("ready_since", readySinceMs);
+        String error = lastOpenError;
+        if (error != null) info.put("error", error);
+        return info;
+    }
+
+    public void resetStats() {
+        handler.post(() -> {
+            scansOk = 0;
+            scansFailed = 0;
+            restarts = 0;
+            sessionScans = 0;
+            sessionStartNs = continuous ? System.nanoTime() : 0;
+            decodeLatency.reset();
+            restartGap.reset();
+        });
+    }
+
+    private void onDecoded(BarcodeEntity barcodeEntity, long decodedNs) {
+        if (decoder == null) return;
+        lastDecodeNs = decodedNs;
+        int resultCode = barcodeEntity.getResultCode();
+        if (resultCode == BarcodeDecoder.DECODE_SUCCESS) {
+            long scanDurationNs = decodedNs - scanStartNs;
+            scansOk++;
+            sessionScans++;
+            decodeLatency.record(scanDurationNs);
+            if (firstScanPending && firstScanRequestNs != 0) recordFirstScan(decodedNs);
+            listener.onBarcode(barcodeEntity.getBarcodeData(), scanDurationNs);
+            // Luôn dừng scan sau success để tắt laser
+            try {
+                decoder.stopScan();
+            } catch (Exception e) {
+                Log.e(tag, "Error stopping scan after success: " + e.getMessage());
+            }
+        } else {
+            scansFailed++;
+            Log.d(tag, "Decode FAIL - resultCode: " + resultCode);
+        }
+        if (continuous) scheduleRestart();
+    }
+
+    private void recordFirstScan(long decodedNs) {
+        firstScanPending = false;
+        Map<String, Object> first = new HashMap<>();
+        // warm = false: lần quét phải tự mở decoder, request_to_laser_ms gồm cả thời gian mở
+        first.put("warm", firstScanWarm);
+        first.put("request_to_laser_ms", (scanStartNs - firstScanRequestNs) / 1e6);
+        first.put("request_to_decode_ms", (decodedNs - firstScanRequestNs) / 1e6);
+        first.put("at", System.currentTimeMillis());
+        firstScan = first;
+        Log.d(tag, "First barcode scan: " + first);
+    }
+
+    private void scheduleRestart() {
+        final int scheduledGeneration = generation;
+        Runnable restart = () -> {
+            if (scheduledGeneration != generation || !continuous || decoder == null) return;
+            restarts++;
+            if (startScanNow()) {
+                restartGap.record(scanStartNs - lastDecodeNs);
+            } else {
+                continuous = false;
+                listener.onStateChanged("STOPPED");
+            }
+        };
+        long delayMs = restartDelayMs;
+        if (delayMs == 0) {
+            restart.run();
+        } else {
+            handler.postDelayed(restart, delayMs);
+        }
+    }
+
+    private boolean startScanNow() {
+        scanStartNs = System.nanoTime();
+        try {
+            // Giá trị trả về của startScan không nhất quán giữa các đời đầu quét: chỉ coi exception là lỗi
+            if (!decoder.startScan()) Log.w(tag, "startScan() trả về false");
+            return true;
+        } catch (Exception e) {
+            Log.e(tag, "Lỗi startScan: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void closeDecoder() {
+        continuous = false;
+        generation++;
+        open = false;
+        firstScanPending = false;
+        if (decoder != null) state = STATE_CLOSED;
+        BarcodeDecoder old = decoder;
+        decoder = null;
+        if (old == null) return;
+        try {
+            old.stopScan();
+            old.setDecodeCallback(null);
+            old.close();
+        } catch (Exception e) {
+            Log.w(tag, "Error closing barcode decoder: " + e.getMessage());
+        }
+    }
+}
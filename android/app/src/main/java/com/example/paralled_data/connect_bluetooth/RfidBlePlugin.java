@@ -19,20 +19,53 @@ import com.rscja.deviceapi.interfaces.IUHFInventoryCallback;
 import com.rscja.deviceapi.interfaces.KeyEventCallback;
 import com.rscja.deviceapi.interfaces.ScanBTCallback;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
 import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 
+import com.example.paralled_data.metrics.MetricsReporter;
+import com.example.paralled_data.metrics.PipelineMetrics;
+import com.example.paralled_data.radio.InventoryMemoryMode;
+import com.example.paralled_data.radio.ReaderCaptureWriter;
+import com.example.paralled_data.storage.JournalRecord;
+import com.example.paralled_data.storage.EncryptedSegmentStore;
+import com.example.paralled_data.storage.RecordStore;
+import com.example.paralled_data.storage.ScanExporter;
+import com.example.paralled_data.storage.ScanJournal;
+import com.example.paralled_data.storage.StorageKeys;
+import com.example.paralled_data.sync.BatchUploader;
+import com.example.paralled_data.tag_pipeline.HexCodec;
+import com.example.paralled_data.tag_pipeline.ReadLatencyStats;
+import com.example.paralled_data.tag_pipeline.ExpectedInventory;
+import com.example.paralled_data.tag_pipeline.TagAggregateTable;
+import com.example.paralled_data.tag_pipeline.TagBatchDispatcher;
+import com.example.paralled_data.tag_pipeline.TagDeliveryQueue;
+import com.example.paralled_data.tag_pipeline.TagEventMaps;
+import com.example.paralled_data.tag_pipeline.TagFrameEncoder;
+import com.example.paralled_data.tag_pipeline.TagRead;
+
 import android.content.BroadcastReceiver;
 import android.content.Intent;
 import android.content.IntentFilter;
@@ -42,8 +75,13 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
     private static final String METHOD_CHANNEL = "rfid_ble_channel";
     private static final String SCAN_EVENT_CHANNEL = "ble_rfid_scan_result";
     private static final String RFID_DATA_CHANNEL = "rfid_ble_data";
+    private static final String RFID_BINARY_CHANNEL = "rfid_ble_data_binary";
     private static final String CONFIG_CHANNEL = "ble_rfid_config";
     private static final String CONNECTION_CHANNEL = "ble_rfid_connection";
+    private static final String RECONCILIATION_CHANNEL = "rfid_ble_reconciliation";
+    private static final String EXPORT_CHANNEL = "rfid_ble_export";
+    private static final String SYNC_CHANNEL = "rfid_ble_sync";
+    private static final String METRICS_CHANNEL = "rfid_ble_metrics";
 
     private static final int REQUEST_ENABLE_BT = 100;
     private static final int REQUEST_BLUETOOTH_PERMISSIONS = 1;
@@ -59,6 +97,14 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
     private EventChannel.EventSink rfidDataSink;
     private EventChannel.EventSink configEventSink;
     private EventChannel.EventSink connectionEventSink;
+    private EventChannel reconciliationEventChannel;
+    private EventChannel.EventSink reconciliationSink;
+    private EventChannel exportEventChannel;
+    private EventChannel.EventSink exportSink;
+    private EventChannel syncEventChannel;
+    private EventChannel.EventSink syncSink;
+    private EventChannel metricsEventChannel;
+    private EventChannel.EventSink metricsSink;
 
     private Activity activity;
     private Context context;
@@ -66,6 +112,10 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
     private Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private boolean isInventoryRunning = false;
+    // Vùng nhớ trả về kèm mỗi tag khi inventory (null = mặc định của module, chỉ EPC)
+    private InventoryMemoryMode inventoryMode;
+    // Ghi output thô của đầu đọc (startCapture / stopCapture), phát lại bằng ReplayTagReader; null = tắt
+    private volatile ReaderCaptureWriter readerCapture;
     private boolean isScanning = false;
     private Handler scanHandler = new Handler(Looper.getMainLooper());
     private static final long SCAN_PERIOD = 10000;
@@ -80,7 +130,91 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
     private boolean lastConnectionState = false;
 
     private long lastScanStartTime = 0;
-    private long lastScanStartTimeNs = 0;
+
+    // Độ trễ callback -> giải mã -> gửi qua channel (getLatencyStats)
+    private final ReadLatencyStats readLatency = new ReadLatencyStats();
+
+    // Thống kê theo từng EPC (số lần đọc, RSSI...) cho getSessionSnapshot
+    private final TagAggregateTable tagAggregates = new TagAggregateTable();
+
+    // Đối soát với danh sách EPC dự kiến; chỉ EPC mới thấy / ngoài danh sách được gom lô gửi lên
+    private final ExpectedInventory expectedInventory = new ExpectedInventory();
+    private final TagBatchDispatcher<ExpectedInventory.Sighting> reconciliationDispatcher =
+            new TagBatchDispatcher<>(TAG + "-reconcile", this::deliverReconciliation);
+
+    // Nhật ký quét trên đĩa (opt-in qua setJournalConfig), thường hoặc mã hoá AES-GCM,
+    // tách riêng khỏi journal của plugin UART
+    private volatile RecordStore scanJournal;
+    private volatile boolean journalEnabled = false;
+    private final AtomicLong journalErrors = new AtomicLong();
+    // Ghi / force journal trên thread riêng: callback SDK chỉ thêm vào journalPending, không chờ đĩa
+    // (force định kỳ, niêm phong segment mã hoá); main thread không fsync khi dừng quét
+    private final Object journalLock = new Object();
+    private ArrayList<TagRead> journalPending = new ArrayList<>();
+    private final ExecutorService journalWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, TAG + "-journal");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Job xuất journal ra CSV / JSON (mỗi lúc một job, chạy trên thread riêng)
+    private volatile ScanExporter exportJob;
+    private long nextExportId = 1;
+
+    // Đẩy journal lên server theo lô gzip trên các thread riêng (setSyncConfig / startSync)
+    private final BatchUploader batchUploader = new BatchUploader("ble", this::onSyncStatus);
+
+    // Gom tag thành lô trước khi gửi qua rfidDataSink trên main thread
+    private final TagBatchDispatcher<TagRead> tagBatchDispatcher =
+            new TagBatchDispatcher<>(TAG, this::deliverTagBatch,
+                    () -> Looper.myLooper() != Looper.getMainLooper());
+
+    // Bộ đếm hot path + snapshot mỗi giây qua METRICS_CHANNEL (chỉ lấy mẫu khi có listener).
+    // Không có ring: thread callback của SDK đưa tag thẳng vào batch dispatcher.
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics();
+    private final MetricsReporter metricsReporter = new MetricsReporter(TAG, pipelineMetrics,
+            new MetricsReporter.Gauges() {
+                @Override
+                public int ringDepth() {
+                    return 0;
+                }
+
+                @Override
+                public int deliveryQueued() {
+                    return tagDeliveryQueue.queuedReads();
+                }
+
+                @Override
+                public long deliveredReads() {
+                    return tagDeliveryQueue.deliveredReads();
+                }
+
+                @Override
+                public long droppedReads() {
+                    return tagDeliveryQueue.droppedReads();
+                }
+
+                @Override
+                public int sessionUnique() {
+                    return tagAggregates.size();
+                }
+
+                @Override
+                public boolean isScanning() {
+                    return isInventoryRunning;
+                }
+            },
+            snapshot -> mainHandler.post(() -> {
+                if (metricsSink != null) metricsSink.success(snapshot);
+            }));
+
+    // Hàng đợi có giới hạn giữa thread flush và main thread (chính sách khi đầy + buffer trước khi có listener)
+    private final TagDeliveryQueue tagDeliveryQueue = new TagDeliveryQueue(
+            mainHandler::post, this::deliverTagEvent, () -> Looper.myLooper() != Looper.getMainLooper());
+
+    // Chế độ nhị phân (opt-in): mỗi lô được gửi qua RFID_BINARY_CHANNEL dưới dạng một frame ByteBuffer
+    private BasicMessageChannel<ByteBuffer> rfidBinaryChannel;
+    private volatile boolean binaryWireFormat = false;
 
 
 
@@ -104,29 +238,22 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
         }
     }
 
+    // Chỉ dùng trong sink của tagBatchDispatcher (các lần gọi sink đã tuần tự)
+    private final HexCodec hexCodec = new HexCodec();
+
     private String hexToAscii(String hex) {
-        if (hex == null) return "";
-        StringBuilder output = new StringBuilder();
-        int len = hex.length();
-        if (len % 2 != 0) {
-            Log.w(TAG, "hexToAscii: hex length is odd (" + len + "), trimming last nibble.");
-            len = len - 1;
-        }
-        for (int i = 0; i < len; i += 2) {
-            try {
-                String part = hex.substring(i, i + 2);
-                int val = Integer.parseInt(part, 16);
-                output.append((char) val);
-            } catch (Exception e) {
-                Log.w(TAG, "Error hexToAscii at " + i + ": " + e.getMessage());
-            }
+        String ascii = hexCodec.hexToAscii(hex);
+        if (hexCodec.lastInvalidPairs() > 0) {
+            Log.w(TAG, "hexToAscii: skipped " + hexCodec.lastInvalidPairs() + " invalid hex pairs in " + hex);
         }
-        return output.toString();
+        return ascii;
     }
 
     @Override
     public void onAttachedToEngine(@NonNull FlutterPluginBinding binding) {
         context = binding.getApplicationContext();
+        reconciliationDispatcher.configure(200, 500);
+        tagDeliveryQueue.setDeliveryObserver(readLatency::recordDelivered);
         
         methodChannel = new MethodChannel(binding.getBinaryMessenger(), METHOD_CHANNEL);
         methodChannel.setMethodCallHandler(this);
@@ -151,16 +278,85 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
             @Override
             public void onListen(Object arguments, EventChannel.EventSink events) {
                 rfidDataSink = events;
+                updateTagListener();
                 Log.d(TAG, "RFID EventSink connected");
             }
 
             @Override
             public void onCancel(Object arguments) {
                 rfidDataSink = null;
+                updateTagListener();
                 Log.d(TAG, "RFID EventSink disconnected");
             }
         });
 
+        rfidBinaryChannel = new BasicMessageChannel<>(
+                binding.getBinaryMessenger(), RFID_BINARY_CHANNEL, BinaryCodec.INSTANCE);
+
+        reconciliationEventChannel = new EventChannel(binding.getBinaryMessenger(), RECONCILIATION_CHANNEL);
+        reconciliationEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                reconciliationSink = events;
+                Log.d(TAG, "Reconciliation EventSink connected");
+            }
+
+            @Override
+            public void onCancel(Object arguments) {
+                reconciliationSink = null;
+                Log.d(TAG, "Reconciliation EventSink disconnected");
+            }
+        });
+
+        exportEventChannel = new EventChannel(binding.getBinaryMessenger(), EXPORT_CHANNEL);
+        exportEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                exportSink = events;
+                Log.d(TAG, "Export EventSink connected");
+            }
+
+            @Override
+            public void onCancel(Object arguments) {
+                exportSink = null;
+                Log.d(TAG, "Export EventSink disconnected");
+            }
+        });
+
+        syncEventChannel = new EventChannel(binding.getBinaryMessenger(), SYNC_CHANNEL);
+        syncEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                syncSink = events;
+                Log.d(TAG, "Sync EventSink connected");
+            }
+
+            @Override
+            public void onCancel(Object arguments) {
+                syncSink = null;
+                Log.d(TAG, "Sync EventSink disconnected");
+            }
+        });
+
+        // arguments: chu kỳ lấy mẫu (ms, mặc định 1000)
+        metricsEventChannel = new EventChannel(binding.getBinaryMessenger(), METRICS_CHANNEL);
+        metricsEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events) {
+                metricsSink = events;
+                metricsReporter.start(arguments instanceof Number
+                        ? ((Number) arguments).longValue() : MetricsReporter.DEFAULT_INTERVAL_MS);
+                Log.d(TAG, "Metrics EventSink connected");
+            }
+
+            @Override
+            public void onCancel(Object arguments) {
+                metricsReporter.stop();
+                metricsSink = null;
+                Log.d(TAG, "Metrics EventSink disconnected");
+            }
+        });
+
         configEventChannel = new EventChannel(binding.getBinaryMessenger(), CONFIG_CHANNEL);
         configEventChannel.setStreamHandler(new EventChannel.StreamHandler() {
             @Override
@@ -261,6 +457,120 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
                 getConnectionStatus(result);
                 break;
 
+            case "setBatchConfig":
+                setBatchConfig(call, result);
+                break;
+
+            case "setWireFormat":
+                setWireFormat(call, result);
+                break;
+
+            case "getSessionSnapshot":
+                getSessionSnapshot(call, result);
+                break;
+
+            case "setAggregateConfig":
+                setAggregateConfig(call, result);
+                break;
+
+            case "loadExpectedInventory":
+                loadExpectedInventory(call, result);
+                break;
+
+            case "clearExpectedInventory":
+                expectedInventory.clear();
+                emitReconciliationStatus();
+                result.success(null);
+                break;
+
+            case "resetReconciliation":
+                expectedInventory.reset();
+                emitReconciliationStatus();
+                result.success(null);
+                break;
+
+            case "getReconciliationStatus":
+                getReconciliationStatus(call, result);
+                break;
+
+            case "setBackpressureConfig":
+                setBackpressureConfig(call, result);
+                break;
+
+            case "getDeliveryStats":
+                getDeliveryStats(result);
+                break;
+
+            case "getLatencyStats":
+                result.success(readLatency.snapshot());
+                break;
+
+            case "resetLatencyStats":
+                readLatency.reset();
+                result.success(null);
+                break;
+
+            case "setJournalConfig":
+                setJournalConfig(call, result);
+                break;
+
+            case "getJournalStats":
+                getJournalStats(result);
+                break;
+
+            case "readJournal":
+                readJournal(call, result);
+                break;
+
+            case "clearJournal":
+                clearJournal(result);
+                break;
+
+            case "startExport":
+                startExport(call, result);
+                break;
+
+            case "cancelExport":
+                result.success(cancelExportJob());
+                break;
+
+            case "getExportStatus":
+                getExportStatus(result);
+                break;
+
+            case "setSyncConfig":
+                setSyncConfig(call, result);
+                break;
+
+            case "startSync":
+                startSync(result);
+                break;
+
+            case "stopSync":
+                batchUploader.stop();
+                result.success(null);
+                break;
+
+            case "getSyncStats":
+                result.success(batchUploader.stats());
+                break;
+
+            case "setInventoryMode":
+                setInventoryMode(call, result);
+                break;
+
+            case "getInventoryMode":
+                result.success(inventoryMode != null ? inventoryMode.toMap() : null);
+                break;
+
+            case "startCapture":
+                startCapture(call, result);
+                break;
+
+            case "stopCapture":
+                result.success(closeCapture());
+                break;
+
             default:
                 result.notImplemented();
                 break;
@@ -525,6 +835,33 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
         result.success(null);
     }
 
+    // mode: "epc" / "epc_tid" / "epc_tid_user" (+ userPtr, userLen tính theo word). Áp dụng ngay nếu
+    // đang kết nối và áp lại mỗi lần connect. Đọc USER giữa các lượt chỉ có trên C72: inventory BLE
+    // chạy theo callback, phía plugin không tạm dừng được.
+    private void setInventoryMode(MethodCall call, Result result) {
+        if (isInventoryRunning) {
+            result.error("SCANNING", "Cannot change inventory mode while scanning", null);
+            return;
+        }
+        Number userPtr = call.argument("userPtr");
+        Number userLen = call.argument("userLen");
+        InventoryMemoryMode mode;
+        try {
+            mode = InventoryMemoryMode.of(call.argument("mode"),
+                    userPtr != null ? userPtr.intValue() : 0,
+                    userLen != null ? userLen.intValue() : 0);
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return;
+        }
+        if (uhfble != null && uhfble.getConnectStatus() == ConnectionStatus.CONNECTED && !mode.applyTo(uhfble)) {
+            result.error("MODE_REJECTED", "Reader rejected inventory mode " + mode.name, null);
+            return;
+        }
+        inventoryMode = mode;
+        result.success(null);
+    }
+
     private void singleInventory(Result result) {
         if (uhfble == null || uhfble.getConnectStatus() != ConnectionStatus.CONNECTED) {
             result.error("NOT_CONNECTED", "Device not connected", null);
@@ -532,11 +869,16 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
         }
 
         // lastScanStartTime = System.currentTimeMillis();
-        lastScanStartTimeNs = System.nanoTime();
+        long startNs = System.nanoTime();
         UHFTAGInfo tagInfo = uhfble.inventorySingleTag();
+        long readNs = System.nanoTime();
 
         if (tagInfo != null) {
-            sendRfidData(tagInfo);
+            // scan_duration của quét đơn = thời gian lệnh inventorySingleTag
+            readLatency.recordDrain(startNs, readNs);
+            sendRfidData(tagInfo, readNs, readNs - startNs);
+            tagBatchDispatcher.flush();
+            reconciliationDispatcher.flush();
             result.success(null);
         } else {
             result.error("NO_TAG", "No tag found", null);
@@ -555,15 +897,26 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
         }
 
         // lastScanStartTime = System.currentTimeMillis();
-        lastScanStartTimeNs = System.nanoTime();
+        final long sessionStartNs = System.nanoTime();
+        tagDeliveryQueue.resetStats();
+        readLatency.reset();
+        tagAggregates.reset();
 
         uhfble.setInventoryCallback(new IUHFInventoryCallback() {
+            // Riêng cho callback của phiên này: scan_duration = khoảng cách tới lần đọc trước
+            private long lastReadNs = sessionStartNs;
+            private boolean readerMarked;
+
             @Override
             public void callback(UHFTAGInfo uhftagInfo) {
                 if (uhftagInfo != null) {
-                    sendRfidData(uhftagInfo);
-                    // lastScanStartTime = System.currentTimeMillis();
-                    lastScanStartTimeNs = System.nanoTime();
+                    long readNs = System.nanoTime();
+                    if (!readerMarked) {
+                        readerMarked = true;
+                        pipelineMetrics.markReaderThread();
+                    }
+                    sendRfidData(uhftagInfo, readNs, readNs - lastReadNs);
+                    lastReadNs = readNs;
                 }
             }
         });
@@ -584,9 +937,444 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
             uhfble.stopInventory();
             isInventoryRunning = false;
         }
+        tagBatchDispatcher.flush();
+        reconciliationDispatcher.flush();
+        // Sau các lần ghi đang chờ (cùng thread journal, theo thứ tự)
+        runOnJournalWriter(this::syncJournalNow);
+        result.success(null);
+    }
+
+    private void setBatchConfig(MethodCall call, Result result) {
+        Number intervalMs = call.argument("intervalMs");
+        Number maxBatch = call.argument("maxBatch");
+        tagBatchDispatcher.configure(
+                intervalMs != null ? intervalMs.longValue() : tagBatchDispatcher.flushIntervalMs(),
+                maxBatch != null ? maxBatch.intValue() : tagBatchDispatcher.maxBatchSize());
+        Log.d(TAG, "Batch config: intervalMs=" + tagBatchDispatcher.flushIntervalMs()
+                + ", maxBatch=" + tagBatchDispatcher.maxBatchSize());
         result.success(null);
     }
 
+    private void setWireFormat(MethodCall call, Result result) {
+        String format = call.argument("format");
+        if (!"binary".equals(format) && !"map".equals(format)) {
+            result.error("INVALID_FORMAT", "format must be 'map' or 'binary'", null);
+            return;
+        }
+        // Flush lô đang chờ theo định dạng cũ (trên thread flush) rồi mới đổi
+        boolean binary = "binary".equals(format);
+        tagBatchDispatcher.flushAsync(() -> mainHandler.post(() -> {
+            binaryWireFormat = binary;
+            updateTagListener();
+            Log.d(TAG, "Wire format: " + format);
+            result.success(null);
+        }));
+    }
+
+    // Toàn bộ bảng theo EPC (hoặc một trang offset/limit) trong một message dạng cột
+    private void getSessionSnapshot(MethodCall call, Result result) {
+        Number offset = call.argument("offset");
+        Number limit = call.argument("limit");
+        result.success(tagAggregates.snapshot(
+                offset != null ? offset.intValue() : 0,
+                limit != null ? limit.intValue() : 0));
+    }
+
+    private void setAggregateConfig(MethodCall call, Result result) {
+        Number ewmaAlpha = call.argument("ewmaAlpha");
+        if (ewmaAlpha != null) {
+            double alpha = ewmaAlpha.doubleValue();
+            if (!(alpha > 0 && alpha <= 1)) {
+                result.error("INVALID_ARGUMENT", "ewmaAlpha must be in (0, 1]", null);
+                return;
+            }
+            tagAggregates.setEwmaAlpha(alpha);
+        }
+        result.success(null);
+    }
+
+    // epcs: danh sách EPC dự kiến (thay danh sách cũ và xoá kết quả)
+    private void loadExpectedInventory(MethodCall call, Result result) {
+        List<String> epcs = call.argument("epcs");
+        if (epcs == null) {
+            result.error("INVALID_ARGUMENT", "epcs is required", null);
+            return;
+        }
+        int loaded = expectedInventory.load(epcs);
+        Log.d(TAG, "Loaded " + loaded + " expected EPCs (" + epcs.size() + " entries)");
+        emitReconciliationStatus();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("expected", loaded);
+        response.put("ignored", epcs.size() - loaded);
+        result.success(response);
+    }
+
+    // missingLimit / unexpectedLimit: số EPC trả kèm (0 = không, -1 = tất cả)
+    private void getReconciliationStatus(MethodCall call, Result result) {
+        Number missingLimit = call.argument("missingLimit");
+        Number unexpectedLimit = call.argument("unexpectedLimit");
+
+        Map<String, Object> status = expectedInventory.statusMap(null);
+        status.remove("new_found");
+        status.remove("new_unexpected");
+        int missing = missingLimit != null ? missingLimit.intValue() : 0;
+        int unexpected = unexpectedLimit != null ? unexpectedLimit.intValue() : 0;
+        if (missing != 0) status.put("missing_epcs", expectedInventory.missing(missing));
+        if (unexpected != 0) status.put("unexpected_epcs", expectedInventory.unexpected(unexpected));
+        result.success(status);
+    }
+
+    // Chạy trên thread xử lý tag: chỉ EPC đổi trạng thái được gom lô gửi lên
+    private void reconcile(String epcHex) {
+        int match = expectedInventory.observe(epcHex);
+        if (match == ExpectedInventory.FOUND) {
+            reconciliationDispatcher.offer(new ExpectedInventory.Sighting(epcHex, true));
+        } else if (match == ExpectedInventory.UNEXPECTED) {
+            reconciliationDispatcher.offer(new ExpectedInventory.Sighting(epcHex, false));
+        }
+    }
+
+    private void deliverReconciliation(List<ExpectedInventory.Sighting> batch) {
+        Map<String, Object> status = expectedInventory.statusMap(batch);
+        mainHandler.post(() -> {
+            if (reconciliationSink != null) reconciliationSink.success(status);
+        });
+    }
+
+    // Gửi bộ đếm hiện tại (sau load / clear / reset)
+    private void emitReconciliationStatus() {
+        reconciliationDispatcher.clear();
+        deliverReconciliation(null);
+    }
+
+    private void setBackpressureConfig(MethodCall call, Result result) {
+        String policyName = call.argument("policy");
+        Number capacity = call.argument("capacity");
+        Number preListenerCapacity = call.argument("preListenerCapacity");
+
+        TagDeliveryQueue.OverflowPolicy policy = policyName != null
+                ? TagDeliveryQueue.OverflowPolicy.parse(policyName)
+                : tagDeliveryQueue.policy();
+        if (policy == null) {
+            result.error("INVALID_POLICY",
+                    "policy must be 'block', 'drop_oldest', 'drop_newest' or 'aggregate_only'", null);
+            return;
+        }
+        tagDeliveryQueue.configure(policy,
+                capacity != null ? capacity.intValue() : tagDeliveryQueue.capacity(),
+                preListenerCapacity != null ? preListenerCapacity.intValue() : tagDeliveryQueue.preListenerCapacity());
+        Log.d(TAG, "Backpressure config: policy=" + policy + ", capacity=" + tagDeliveryQueue.capacity()
+                + ", preListenerCapacity=" + tagDeliveryQueue.preListenerCapacity());
+        result.success(null);
+    }
+
+    // enabled: bật / tắt ghi journal (mở file ở lần bật đầu tiên); syncIntervalMs: chu kỳ force xuống đĩa;
+    // encrypted: ghi vào kho mã hoá AES-GCM theo khối (thư mục riêng, khoá bọc bằng Android Keystore)
+    private void setJournalConfig(MethodCall call, Result result) {
+        Boolean enabled = call.argument("enabled");
+        Boolean encrypted = call.argument("encrypted");
+        Number syncIntervalMs = call.argument("syncIntervalMs");
+        if (syncIntervalMs != null && syncIntervalMs.longValue() < 0) {
+            result.error("INVALID_ARGUMENT", "syncIntervalMs must be >= 0", null);
+            return;
+        }
+        RecordStore current = scanJournal;
+        boolean switching = encrypted != null && current != null
+                && encrypted != (current instanceof EncryptedSegmentStore);
+        if (switching && isInventoryRunning) {
+            result.error("SCANNING", "Cannot switch journal type while inventory is running", null);
+            return;
+        }
+        if (switching && isExporting()) {
+            result.error("EXPORT_RUNNING", "Cannot switch journal type while an export is running", null);
+            return;
+        }
+        if (switching && batchUploader.isActive()) {
+            result.error("SYNC_RUNNING", "Cannot switch journal type while sync is running", null);
+            return;
+        }
+        try {
+            if (switching) {
+                journalEnabled = false;
+                current.close();
+                scanJournal = null;
+            }
+            if (Boolean.TRUE.equals(enabled)) {
+                if (scanJournal == null) scanJournal = createJournal(Boolean.TRUE.equals(encrypted));
+                scanJournal.open();
+            }
+            RecordStore journal = scanJournal;
+            if (journal != null && syncIntervalMs != null) journal.setSyncIntervalMs(syncIntervalMs.longValue());
+            if (enabled != null) {
+                journalEnabled = enabled && journal != null;
+                if (!enabled && journal != null) journal.sync();
+            }
+        } catch (IOException e) {
+            journalEnabled = false;
+            Log.e(TAG, "Failed to open journal: " + e.getMessage());
+            result.error("JOURNAL_ERROR", "Failed to open journal: " + e.getMessage(), null);
+            return;
+        } catch (GeneralSecurityException e) {
+            journalEnabled = false;
+            Log.e(TAG, "Journal key unavailable: " + e.getMessage());
+            result.error("ENCRYPTION_ERROR", "Journal key unavailable: " + e.getMessage(), null);
+            return;
+        }
+        Log.d(TAG, "Journal config: enabled=" + journalEnabled);
+        result.success(null);
+    }
+
+    private RecordStore createJournal(boolean encrypted) throws IOException, GeneralSecurityException {
+        File directory = journalDirectory(encrypted);
+        if (!encrypted) return new ScanJournal(directory);
+        return new EncryptedSegmentStore(directory,
+                StorageKeys.loadOrCreateDataKey("paralled_data_scan_journal_ble", new File(directory, "data.key")));
+    }
+
+    private File journalDirectory(boolean encrypted) {
+        return new File(context.getFilesDir(), encrypted ? "scan_journal_ble_encrypted" : "scan_journal_ble");
+    }
+
+    // Số record / seq cuối lấy từ bộ đếm trong bộ nhớ (header của segment), không quét file
+    private void getJournalStats(Result result) {
+        RecordStore journal = scanJournal;
+        Map<String, Object> stats = journal != null ? journal.stats() : new HashMap<>();
+        stats.put("enabled", journalEnabled);
+        stats.put("encrypted", journal instanceof EncryptedSegmentStore);
+        stats.put("write_errors", journalErrors.get());
+        if (journal == null) {
+            stats.put("open", false);
+            stats.put("records", 0L);
+        }
+        result.success(stats);
+    }
+
+    // offset: vị trí record (0 = record cũ nhất còn trong journal), limit: số record tối đa (mặc định 500)
+    private void readJournal(MethodCall call, Result result) {
+        Number offset = call.argument("offset");
+        Number limit = call.argument("limit");
+        List<Map<String, Object>> records = new ArrayList<>();
+        if (scanJournal != null) {
+            try {
+                for (JournalRecord record : scanJournal.read(
+                        offset != null ? offset.longValue() : 0,
+                        limit != null ? limit.intValue() : 500)) {
+                    records.add(record.toMap());
+                }
+            } catch (IOException e) {
+                result.error("JOURNAL_ERROR", "Failed to read journal: " + e.getMessage(), null);
+                return;
+            }
+        }
+        result.success(records);
+    }
+
+    private void clearJournal(Result result) {
+        if (isInventoryRunning) {
+            result.error("SCANNING", "Cannot clear the journal while inventory is running", null);
+            return;
+        }
+        if (isExporting()) {
+            result.error("EXPORT_RUNNING", "Cannot clear the journal while an export is running", null);
+            return;
+        }
+        if (scanJournal != null) {
+            try {
+                scanJournal.clear();
+            } catch (IOException e) {
+                result.error("JOURNAL_ERROR", "Failed to clear journal: " + e.getMessage(), null);
+                return;
+            }
+        }
+        journalErrors.set(0);
+        result.success(null);
+    }
+
+    // format: "csv" (mặc định) / "json", path: file đích (mặc định: thư mục exports của app),
+    // offset: record đầu tiên. Trả về trạng thái job; tiến độ gửi qua rfid_ble_export.
+    private void startExport(MethodCall call, Result result) {
+        String formatName = call.argument("format");
+        String path = call.argument("path");
+        Number offset = call.argument("offset");
+        ScanExporter.Format format = ScanExporter.Format.parse(formatName != null ? formatName : "csv");
+        if (format == null) {
+            result.error("INVALID_FORMAT", "Unsupported export format: " + formatName, null);
+            return;
+        }
+        RecordStore journal = scanJournal;
+        if (journal == null || !journal.isOpen()) {
+            result.error("NO_JOURNAL", "Journal is not enabled (setJournalConfig)", null);
+            return;
+        }
+        if (isExporting()) {
+            result.error("EXPORT_RUNNING", "An export is already running", null);
+            return;
+        }
+
+        File target;
+        if (path != null && !path.isEmpty()) {
+            target = new File(path);
+        } else {
+            File base = context.getExternalFilesDir(null);
+            if (base == null) base = context.getFilesDir();
+            target = new File(new File(base, "exports"), "rfid_ble_export_" + System.currentTimeMillis()
+                    + (format == ScanExporter.Format.CSV ? ".csv" : ".json"));
+        }
+
+        // Đẩy phần đang buffer xuống đĩa trước khi đọc lại
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Journal sync before export failed: " + e.getMessage());
+        }
+
+        ScanExporter job = new ScanExporter(nextExportId++, journal, target, format,
+                offset != null ? offset.longValue() : 0, this::onExportProgress);
+        exportJob = job;
+        Thread thread = new Thread(job, TAG + "-export");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        Log.d(TAG, "Journal export started -> " + target);
+        result.success(job.toMap());
+    }
+
+    // url: endpoint nhận lô; batchSize (mặc định 500), concurrency: số kết nối song song (mặc định 2),
+    // maxAttempts: số lần thử mỗi lô (mặc định 8), gzip (mặc định true), headers: header thêm vào request
+    private void setSyncConfig(MethodCall call, Result result) {
+        String url = call.argument("url");
+        Number batchSize = call.argument("batchSize");
+        Number concurrency = call.argument("concurrency");
+        Number maxAttempts = call.argument("maxAttempts");
+        Boolean gzip = call.argument("gzip");
+        Map<String, String> headers = call.argument("headers");
+        if (batchUploader.isActive()) {
+            result.error("SYNC_RUNNING", "Cannot change sync config while sync is running", null);
+            return;
+        }
+        try {
+            batchUploader.configure(url,
+                    batchSize != null ? batchSize.intValue() : BatchUploader.DEFAULT_BATCH_SIZE,
+                    concurrency != null ? concurrency.intValue() : BatchUploader.DEFAULT_CONCURRENCY,
+                    maxAttempts != null ? maxAttempts.intValue() : BatchUploader.DEFAULT_MAX_ATTEMPTS,
+                    gzip == null || gzip,
+                    headers);
+        } catch (IllegalArgumentException | IllegalStateException | IOException | ClassCastException e) {
+            result.error("INVALID_ARGUMENT", "Invalid sync config: " + e.getMessage(), null);
+            return;
+        }
+        result.success(null);
+    }
+
+    // Đẩy các record sau con trỏ (lưu cạnh journal) rồi tiếp tục theo dõi record mới
+    private void startSync(Result result) {
+        RecordStore journal = scanJournal;
+        if (journal == null || !journal.isOpen()) {
+            result.error("NO_JOURNAL", "Journal is not enabled (setJournalConfig)", null);
+            return;
+        }
+        try {
+            File cursor = new File(journalDirectory(journal instanceof EncryptedSegmentStore), "upload.cursor");
+            batchUploader.start(journal, cursor);
+        } catch (IllegalStateException e) {
+            result.error("SYNC_ERROR", e.getMessage(), null);
+            return;
+        } catch (IOException e) {
+            result.error("SYNC_ERROR", "Failed to read sync cursor: " + e.getMessage(), null);
+            return;
+        }
+        result.success(null);
+    }
+
+    // Chạy trên thread của uploader
+    private void onSyncStatus(BatchUploader uploader, Map<String, Object> status) {
+        mainHandler.post(() -> {
+            if (syncSink != null) syncSink.success(status);
+        });
+    }
+
+    // Trạng thái job gần nhất (null nếu chưa xuất lần nào)
+    private void getExportStatus(Result result) {
+        ScanExporter job = exportJob;
+        result.success(job != null ? job.toMap() : null);
+    }
+
+    private boolean isExporting() {
+        ScanExporter job = exportJob;
+        return job != null && !job.isFinished();
+    }
+
+    // true nếu đã huỷ một job đang chạy
+    private boolean cancelExportJob() {
+        ScanExporter job = exportJob;
+        if (job == null || job.isFinished()) return false;
+        job.cancel();
+        return true;
+    }
+
+    // Chạy trên thread xuất
+    private void onExportProgress(ScanExporter job, boolean finished) {
+        Map<String, Object> status = job.toMap();
+        if (finished) Log.d(TAG, "Journal export: " + status);
+        mainHandler.post(() -> {
+            if (exportSink != null) exportSink.success(status);
+        });
+    }
+
+    // dropped / degraded khác 0: Flutter không theo kịp tốc độ đầu đọc
+    private void getDeliveryStats(Result result) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("policy", tagDeliveryQueue.policy().name().toLowerCase());
+        stats.put("capacity", tagDeliveryQueue.capacity());
+        stats.put("pre_listener_capacity", tagDeliveryQueue.preListenerCapacity());
+        stats.put("listener_attached", tagDeliveryQueue.isListenerAttached());
+        stats.put("queued_reads", tagDeliveryQueue.queuedReads());
+        stats.put("max_queued_reads", tagDeliveryQueue.maxQueuedReads());
+        stats.put("delivered_reads", tagDeliveryQueue.deliveredReads());
+        stats.put("dropped_reads", tagDeliveryQueue.droppedReads());
+        stats.put("degraded_reads", tagDeliveryQueue.degradedReads());
+        stats.put("blocked_ms", tagDeliveryQueue.blockedNs() / 1_000_000.0);
+        result.success(stats);
+    }
+
+    // Chạy trên thread flush: đưa lô vào tagDeliveryQueue (có giới hạn) thay vì post thẳng lên main
+    private void deliverTagBatch(List<TagRead> batch) {
+        tagDeliveryQueue.offer(batch, this::encodeTagBatch);
+    }
+
+    // Mã hoá lô (Map hoặc frame nhị phân); maxBatch = 1 giữ định dạng cũ (1 Map/event)
+    private Object encodeTagBatch(List<TagRead> batch) {
+        if (binaryWireFormat) {
+            return TagFrameEncoder.encode(batch);
+        }
+        if (batch.size() == 1 && tagBatchDispatcher.maxBatchSize() == 1) {
+            return TagEventMaps.toEventMap(batch.get(0), this::hexToAscii);
+        }
+        TagEventMaps.AsciiDecoder ascii = this::hexToAscii;
+        List<Map<String, Object>> maps = new ArrayList<>(batch.size());
+        for (TagRead read : batch) maps.add(TagEventMaps.toEventMap(read, ascii));
+        return maps;
+    }
+
+    // Main thread: gửi một event đã mã hoá qua channel tương ứng
+    private void deliverTagEvent(Object event) {
+        if (event instanceof ByteBuffer) {
+            if (rfidBinaryChannel != null) {
+                rfidBinaryChannel.send((ByteBuffer) event);
+                pipelineMetrics.onChannelMessage();
+            }
+        } else if (rfidDataSink != null) {
+            rfidDataSink.success(event);
+            pipelineMetrics.onChannelMessage();
+        }
+    }
+
+    // Chế độ nhị phân không có onListen nên coi như luôn có listener
+    private void updateTagListener() {
+        tagDeliveryQueue.setListenerAttached(rfidDataSink != null || binaryWireFormat);
+    }
+
     private void getBatteryLevel(Result result) {
         if (uhfble == null || uhfble.getConnectStatus() != ConnectionStatus.CONNECTED) {
             result.error("NOT_CONNECTED", "Device not connected", null);
@@ -606,40 +1394,130 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
         result.success(null);
     }
 
-    private void sendRfidData(UHFTAGInfo tagInfo) {
-        if (rfidDataSink != null && tagInfo != null) {
-            Map<String, Object> dataMap = new HashMap<>();
+    // readNs: mốc nanoTime lúc SDK trả tag (readLatency)
+    private void sendRfidData(UHFTAGInfo tagInfo, long readNs, long scanDurationNs) {
+        // Luôn đưa vào pipeline: khi chưa có listener, tagDeliveryQueue giữ lại các tag mới nhất
+        if (tagInfo != null) {
+            pipelineMetrics.onRawRead();
+            captureRead(tagInfo, readNs);
+            tagAggregates.observe(tagInfo.getEPC(), tagInfo.getRssi(), System.currentTimeMillis());
+            reconcile(tagInfo.getEPC());
+
+            long decodeNs = System.nanoTime();
+            readLatency.recordDecode(readNs, decodeNs);
+            TagRead read = new TagRead(tagInfo.getEPC(), tagInfo.getTid(), tagInfo.getUser(), tagInfo.getRssi(),
+                    tagInfo.getCount(), System.currentTimeMillis(), scanDurationNs,
+                    true, -1, -1, -1, readNs, decodeNs);
+            tagBatchDispatcher.offer(read);
+            if (journalEnabled) appendToJournal(read);
+        }
+    }
 
-            String epcHex = tagInfo.getEPC() != null ? tagInfo.getEPC() : "";
-            String tidHex = tagInfo.getTid() != null ? tagInfo.getTid() : "";
-            String userHex = tagInfo.getUser() != null ? tagInfo.getUser() : "";
+    // Chạy trên thread callback của SDK; lỗi ghi thì dừng capture, không làm hỏng phiên quét
+    private void captureRead(UHFTAGInfo tagInfo, long readNs) {
+        ReaderCaptureWriter capture = readerCapture;
+        if (capture == null) return;
+        try {
+            capture.append(tagInfo.getEPC(), tagInfo.getTid(), tagInfo.getUser(), tagInfo.getRssi(),
+                    tagInfo.getCount(), readNs);
+        } catch (IOException e) {
+            Log.e(TAG, "Capture write failed, stopping capture: " + e.getMessage());
+            closeCapture();
+        }
+    }
 
-            String epcAscii = hexToAscii(epcHex);
-            String tidAscii = hexToAscii(tidHex);
-            String userAscii = hexToAscii(userHex);
+    // path: file đích (mặc định <external files>/captures/rfid_ble_capture_<ms>.rcap),
+    // maxMb: giới hạn dung lượng (mặc định 256). Ghi mọi tag thô trước khử trùng lặp tới khi stopCapture.
+    private void startCapture(MethodCall call, Result result) {
+        if (readerCapture != null) {
+            result.error("CAPTURE_RUNNING", "Already capturing to " + readerCapture.file(), null);
+            return;
+        }
+        String path = call.argument("path");
+        Number maxMb = call.argument("maxMb");
+        File target;
+        if (path != null && !path.isEmpty()) {
+            target = new File(path);
+        } else {
+            File base = context.getExternalFilesDir(null);
+            if (base == null) base = context.getFilesDir();
+            target = new File(new File(base, "captures"), "rfid_ble_capture_" + System.currentTimeMillis() + ".rcap");
+        }
+        try {
+            readerCapture = new ReaderCaptureWriter(target, System.nanoTime(), System.currentTimeMillis(),
+                    (maxMb != null ? maxMb.longValue() : 256) * 1024 * 1024);
+        } catch (IOException e) {
+            result.error("CAPTURE_ERROR", "Cannot open capture file: " + e.getMessage(), null);
+            return;
+        }
+        result.success(target.getAbsolutePath());
+    }
 
-            long endTimeNs = System.nanoTime();
-            long scanDurationNs = (lastScanStartTimeNs > 0)
-                    ? (endTimeNs - lastScanStartTimeNs)
-                    : 0;
-            double scanDurationMs = scanDurationNs / 1_000_000.0;
+    // Đóng file capture; trả về {path, records, bytes, truncated} hoặc null nếu không có capture nào
+    private Map<String, Object> closeCapture() {
+        ReaderCaptureWriter capture = readerCapture;
+        if (capture == null) return null;
+        readerCapture = null;
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("path", capture.file().getAbsolutePath());
+        try {
+            capture.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Closing capture failed: " + e.getMessage());
+            summary.put("error", e.getMessage());
+        }
+        summary.put("records", capture.records());
+        summary.put("bytes", capture.bytes());
+        summary.put("truncated", capture.isTruncated());
+        return summary;
+    }
 
-            dataMap.put("epc_hex", epcHex);
-            dataMap.put("epc_ascii", epcAscii);
-            dataMap.put("tid_hex", tidHex);
-            dataMap.put("tid_ascii", tidAscii);
-            dataMap.put("user_hex", userHex);
-            dataMap.put("user_ascii", userAscii);
-            dataMap.put("rssi", tagInfo.getRssi() != null ? tagInfo.getRssi() : "");
-            dataMap.put("count", tagInfo.getCount());
+    // Chạy trên thread callback của SDK: chỉ xếp hàng; tag đầu tiên của mỗi đợt đặt một lệnh ghi
+    // lên thread journal
+    private void appendToJournal(TagRead read) {
+        boolean schedule;
+        synchronized (journalLock) {
+            schedule = journalPending.isEmpty();
+            journalPending.add(read);
+        }
+        if (schedule) runOnJournalWriter(this::drainJournal);
+    }
 
-            dataMap.put("scan_duration_ms", scanDurationMs);
-            dataMap.put("scan_duration_ns", scanDurationNs);
+    // Thread journal: ghi hết phần đang chờ, force() định kỳ đi kèm các lần ghi
+    private void drainJournal() {
+        List<TagRead> batch;
+        synchronized (journalLock) {
+            batch = journalPending;
+            journalPending = new ArrayList<>();
+        }
+        RecordStore journal = scanJournal;
+        if (journal == null || batch.isEmpty()) return;
+        try {
+            for (int i = 0; i < batch.size(); i++) journal.append(batch.get(i));
+            journal.syncIfDue(System.currentTimeMillis());
+        } catch (IOException e) {
+            journalErrors.incrementAndGet();
+            Log.e(TAG, "Journal write failed: " + e.getMessage());
+        }
+    }
 
-            mainHandler.post(() -> rfidDataSink.success(dataMap));
+    // Thread journal: force phần đã ghi xuống đĩa (dừng quét)
+    private void syncJournalNow() {
+        RecordStore journal = scanJournal;
+        if (journal == null) return;
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            journalErrors.incrementAndGet();
+            Log.e(TAG, "Journal sync failed: " + e.getMessage());
+        }
+    }
 
-            Log.d(TAG, "RFID Data Sent: EPC=" + epcAscii +
-                " | Thời gian quét: " + scanDurationMs + " ms (" + scanDurationNs + " ns)");
+    private void runOnJournalWriter(Runnable task) {
+        try {
+            journalWriter.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Đã detach engine
         }
     }
 
@@ -666,6 +1544,9 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
     private void initRFID() {
         if (uhfble != null && uhfble.getConnectStatus() == ConnectionStatus.CONNECTED) {
             uhfble.init(context);
+            if (inventoryMode != null && !inventoryMode.applyTo(uhfble)) {
+                Log.w(TAG, "Reader rejected inventory mode " + inventoryMode.name);
+            }
             
             uhfble.setKeyEventCallback(new KeyEventCallback() {
                 @Override
@@ -722,6 +1603,18 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
         releaseWakeLock();
+        cancelExportJob();
+        batchUploader.stop();
+        // Ghi nốt phần đang chờ rồi đóng journal trên thread journal, main không chờ đĩa
+        runOnJournalWriter(() -> {
+            drainJournal();
+            RecordStore journal = scanJournal;
+            if (journal != null) journal.close();
+        });
+        journalWriter.shutdown();
+        tagBatchDispatcher.shutdown();
+        tagDeliveryQueue.shutdown();
+        reconciliationDispatcher.shutdown();
 
         if (methodChannel != null) {
             methodChannel.setMethodCallHandler(null);
@@ -738,6 +1631,21 @@ public class RfidBlePlugin implements FlutterPlugin, MethodCallHandler, Activity
         if (connectionEventChannel != null) {
             connectionEventChannel.setStreamHandler(null);
         }
+        rfidBinaryChannel = null;
+        if (reconciliationEventChannel != null) {
+            reconciliationEventChannel.setStreamHandler(null);
+        }
+        if (exportEventChannel != null) {
+            exportEventChannel.setStreamHandler(null);
+        }
+        if (syncEventChannel != null) {
+            syncEventChannel.setStreamHandler(null);
+        }
+        if (metricsEventChannel != null) {
+            metricsEventChannel.setStreamHandler(null);
+        }
+        metricsReporter.shutdown();
+        closeCapture();
         
         if (uhfble != null) {
             if (isInventoryRunning) {
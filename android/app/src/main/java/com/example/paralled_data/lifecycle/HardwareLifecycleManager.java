@@ -0,0 +1,240 @@
+package com.example.paralled_data.lifecycle;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+// Máy trạng thái vòng đời phần cứng (module UHF + UART đầu quét barcode):
+// IDLE -> INITIALIZING -> READY <-> SCANNING, trạng thái nào cũng có thể -> RELEASING -> IDLE.
+// Init / giải phóng SDK chạy tuần tự trên một HandlerThread riêng nên main thread (cold start,
+// connect lại) không bao giờ chờ UART, và lần init mới luôn chạy sau khi lần giải phóng trước xong.
+// Mỗi lần chuyển trạng thái được báo qua Listener; mỗi bước (step / call) được đo thời gian.
+public final class HardwareLifecycleManager {
+
+    public static final String IDLE = "IDLE";
+    public static final String INITIALIZING = "INITIALIZING";
+    public static final String READY = "READY";
+    public static final String SCANNING = "SCANNING";
+    public static final String RELEASING = "RELEASING";
+
+    public interface Listener {
+        // Trên lifecycle thread. state / previous / previous_ms (thời gian ở trạng thái trước) /
+        // connected / at / error (nếu có)
+        void onTransition(Map<String, Object> event);
+    }
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    // Trả về thông báo lỗi, null = init thành công
+    public interface InitTask {
+        String run() throws Exception;
+    }
+
+    // errorCode null = thành công; gọi trên lifecycle thread
+    public interface Completion {
+        void done(String errorCode, String message);
+    }
+
+    private static final class StepTiming {
+        long count;
+        long lastNs;
+        long maxNs;
+        long totalNs;
+    }
+
+    private final String tag;
+    private final Listener listener;
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    private volatile String state = IDLE;
+    private volatile long stateSinceMs = System.currentTimeMillis();
+    private volatile String lastError;
+    private volatile long transitions;
+    // Thứ tự bước theo lần chạy đầu tiên; ghi trên lifecycle thread, đọc từ stats()
+    private final Map<String, StepTiming> steps = new LinkedHashMap<>();
+
+    public HardwareLifecycleManager(String tag, Listener listener) {
+        this.tag = tag;
+        this.listener = listener;
+        this.thread = new HandlerThread(tag + "-lifecycle");
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    public String state() {
+        return state;
+    }
+
+    // Đang init hoặc giải phóng: module chưa dùng được
+    public boolean isBusy() {
+        String current = state;
+        return current.equals(INITIALIZING) || current.equals(RELEASING);
+    }
+
+    // READY / IDLE: chạy task init; SCANNING: đã kết nối và đang quét, trả về ngay
+    public void initialize(InitTask task, Completion completion) {
+        handler.post(() -> {
+            if (state.equals(SCANNING)) {
+                completion.done(null, null);
+                return;
+            }
+            transition(INITIALIZING, null);
+            long startNs = System.nanoTime();
+            String error;
+            String errorCode = "CONNECT_ERROR";
+            try {
+                error = task.run();
+            } catch (Exception e) {
+                errorCode = "EXCEPTION";
+                error = "Lỗi kết nối: " + e.getMessage();
+            }
+            record("initialize", System.nanoTime() - startNs);
+            if (error == null) {
+                lastError = null;
+                transition(READY, null);
+                completion.done(null, null);
+            } else {
+                lastError = error;
+                Log.e(tag, "❌ Init phần cứng thất bại: " + error);
+                transition(IDLE, error);
+                completion.done(errorCode, error);
+            }
+        });
+    }
+
+    // completion có thể null
+    public void release(Task task, Completion completion) {
+        handler.post(() -> {
+            runRelease(task);
+            if (completion != null) completion.done(null, null);
+        });
+    }
+
+    // Lệnh SDK khác (đặt / đọc cấu hình module...): chạy tuần tự với init / giải phóng, không đổi
+    // trạng thái. Task tự trả kết quả; exception lọt ra chỉ được log
+    public void execute(Task task) {
+        handler.post(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                Log.e(tag, "Lỗi lệnh phần cứng: " + e.getMessage());
+            }
+        });
+    }
+
+    // Báo phiên quét bắt đầu / kết thúc (READY <-> SCANNING), giữ thứ tự với các lệnh init / giải phóng
+    public void setScanning(boolean scanning) {
+        handler.post(() -> {
+            if (scanning && state.equals(READY)) {
+                transition(SCANNING, null);
+            } else if (!scanning && state.equals(SCANNING)) {
+                transition(READY, null);
+            }
+        });
+    }
+
+    // Bước có đo thời gian, gọi bên trong task trên lifecycle thread
+    public void step(String name, Task task) throws Exception {
+        long startNs = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            record(name, System.nanoTime() - startNs);
+        }
+    }
+
+    public <T> T call(String name, Callable<T> task) throws Exception {
+        long startNs = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            record(name, System.nanoTime() - startNs);
+        }
+    }
+
+    // Cho onDetachedFromEngine: bỏ các lệnh đang chờ, giải phóng rồi dừng thread, không chờ trên thread gọi.
+    // quitSafely vẫn chạy hết các message đã post trước đó, nên task giải phóng luôn được chạy
+    public void shutdown(Task task) {
+        handler.removeCallbacksAndMessages(null);
+        handler.post(() -> runRelease(task));
+        thread.quitSafely();
+    }
+
+    // state / state_ms / transitions / last_error / steps: tên bước -> count / last_ms / max_ms / avg_ms
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("state", state);
+        stats.put("state_ms", System.currentTimeMillis() - stateSinceMs);
+        stats.put("transitions", transitions);
+        String error = lastError;
+        if (error != null) stats.put("last_error", error);
+        Map<String, Object> stepStats = new LinkedHashMap<>();
+        synchronized (steps) {
+            for (Map.Entry<String, StepTiming> entry : steps.entrySet()) {
+                StepTiming timing = entry.getValue();
+                Map<String, Object> step = new HashMap<>();
+                step.put("count", timing.count);
+                step.put("last_ms", timing.lastNs / 1e6);
+                step.put("max_ms", timing.maxNs / 1e6);
+                step.put("avg_ms", timing.count > 0 ? timing.totalNs / 1e6 / timing.count : 0.0);
+                stepStats.put(entry.getKey(), step);
+            }
+        }
+        stats.put("steps", stepStats);
+        return stats;
+    }
+
+    private void runRelease(Task task) {
+        transition(RELEASING, null);
+        long startNs = System.nanoTime();
+        try {
+            task.run();
+        } catch (Exception e) {
+            Log.w(tag, "Lỗi giải phóng phần cứng: " + e.getMessage());
+        }
+        record("release", System.nanoTime() - startNs);
+        transition(IDLE, null);
+    }
+
+    private void record(String name, long durationNs) {
+        synchronized (steps) {
+            StepTiming timing = steps.get(name);
+            if (timing == null) {
+                timing = new StepTiming();
+                steps.put(name, timing);
+            }
+            timing.count++;
+            timing.lastNs = durationNs;
+            timing.maxNs = Math.max(timing.maxNs, durationNs);
+            timing.totalNs += durationNs;
+        }
+        Log.d(tag, "⏱ " + name + ": " + durationNs / 1_000_000.0 + " ms");
+    }
+
+    private void transition(String to, String error) {
+        String from = state;
+        if (from.equals(to)) return;
+        long nowMs = System.currentTimeMillis();
+        long previousMs = nowMs - stateSinceMs;
+        state = to;
+        stateSinceMs = nowMs;
+        transitions++;
+        Map<String, Object> event = new HashMap<>();
+        event.put("state", to);
+        event.put("previous", from);
+        event.put("previous_ms", previousMs);
+        event.put("connected", to.equals(READY) || to.equals(SCANNING));
+        event.put("at", nowMs);
+        if (error != null) event.put("error", error);
+        Log.d(tag, "🔁 Lifecycle " + from + " -> " + to + " (" + previousMs + " ms)");
+        listener.onTransition(event);
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.paralled_data.metrics;
+
+import android.os.Build;
+import android.os.Debug;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Lấy mẫu PipelineMetrics + các gauge của plugin mỗi intervalMs trên một thread riêng,
+// tính tốc độ theo khoảng giữa hai lần lấy mẫu rồi gọi Listener với snapshot (Map cho EventChannel).
+// Chỉ chạy khi có listener (start / stop theo onListen / onCancel); hot path chỉ tăng bộ đếm.
+//  - CPU của reader thread: utime + stime trong /proc/self/task/<tid>/stat
+//  - Tốc độ cấp phát heap: art.gc.bytes-allocated (API 23+), không có thì null
+public final class MetricsReporter {
+
+    public interface Gauges {
+        int ringDepth();            // tag đang chờ dispatcher (0 nếu không có ring)
+        int deliveryQueued();       // tag đã mã hoá, chờ main thread gửi
+        long deliveredReads();      // tích luỹ
+        long droppedReads();        // tích luỹ
+        int sessionUnique();        // EPC khác nhau trong phiên hiện tại
+        boolean isScanning();
+    }
+
+    public interface Listener {
+        // Chạy trên thread lấy mẫu
+        void onSnapshot(Map<String, Object> snapshot);
+    }
+
+    public static final long DEFAULT_INTERVAL_MS = 1_000;
+
+    // USER_HZ của kernel Android (đơn vị utime / stime trong /proc)
+    private static final long CLOCK_TICK_MS = 10;
+
+    private final PipelineMetrics metrics;
+    private final Gauges gauges;
+    private final Listener listener;
+    private final ScheduledExecutorService timer;
+    private final byte[] statBuffer = new byte[512];
+
+    private ScheduledFuture<?> task;
+
+    // Mẫu trước, chỉ thread lấy mẫu đọc / ghi
+    private boolean primed;
+    private long lastNs;
+    private long lastRawReads;
+    private long lastChannelMessages;
+    private long lastDelivered;
+    private long lastDropped;
+    private int lastUnique;
+    private int lastReaderTid;
+    private long lastReaderCpuMs;
+    private long lastProcessCpuMs;
+    private long lastAllocBytes;
+
+    public MetricsReporter(String name, PipelineMetrics metrics, Gauges gauges, Listener listener) {
+        this.metrics = metrics;
+        this.gauges = gauges;
+        this.listener = listener;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public synchronized void start(long intervalMs) {
+        if (task != null) task.cancel(false);
+        long period = Math.max(100, intervalMs);
+        timer.execute(() -> primed = false);
+        task = timer.scheduleAtFixedRate(this::sampleSafely, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return task != null;
+    }
+
+    public void shutdown() {
+        stop();
+        timer.shutdownNow();
+    }
+
+    private void sampleSafely() {
+        try {
+            Map<String, Object> snapshot = sample();
+            if (snapshot != null) listener.onSnapshot(snapshot);
+        } catch (RuntimeException e) {
+            // Không để một lần lỗi huỷ lịch của scheduleAtFixedRate
+        }
+    }
+
+    // Mẫu đầu tiên chỉ làm mốc; null nếu chưa đủ hai mẫu
+    private Map<String, Object> sample() {
+        long nowNs = SystemClock.elapsedRealtimeNanos();
+        long rawReads = metrics.rawReads();
+        long channelMessages = metrics.channelMessages();
+        long delivered = gauges.deliveredReads();
+        long dropped = gauges.droppedReads();
+        int unique = gauges.sessionUnique();
+        int readerTid = metrics.readerTid();
+        long readerCpuMs = readerTid != 0 ? threadCpuMs(readerTid) : -1;
+        long processCpuMs = Process.getElapsedCpuTime();
+        long allocBytes = allocatedBytes();
+
+        Map<String, Object> snapshot = null;
+        if (primed) {
+            double seconds = (nowNs - lastNs) / 1e9;
+            snapshot = new HashMap<>();
+            snapshot.put("timestamp_ms", System.currentTimeMillis());
+            snapshot.put("interval_ms", (nowNs - lastNs) / 1_000_000L);
+            snapshot.put("scanning", gauges.isScanning());
+            snapshot.put("reads_per_sec", rate(rawReads - lastRawReads, seconds));
+            // Bộ đếm phiên về 0 khi bắt đầu phiên mới: khi đó cả giá trị hiện tại là phần tăng
+            snapshot.put("unique_per_sec", rate(unique >= lastUnique ? unique - lastUnique : unique, seconds));
+            snapshot.put("channel_messages_per_sec", rate(channelMessages - lastChannelMessages, seconds));
+            snapshot.put("delivered_per_sec", rate(delivered >= lastDelivered ? delivered - lastDelivered : delivered, seconds));
+            snapshot.put("dropped_per_sec", rate(dropped >= lastDropped ? dropped - lastDropped : dropped, seconds));
+            snapshot.put("total_reads", rawReads);
+            snapshot.put("session_unique", unique);
+            snapshot.put("dropped_events", dropped);
+            snapshot.put("queue_depth", gauges.ringDepth());
+            snapshot.put("delivery_queued", gauges.deliveryQueued());
+            // % của một core trong khoảng lấy mẫu
+            snapshot.put("reader_cpu_percent", readerCpuMs >= 0 && readerTid == lastReaderTid && lastReaderCpuMs >= 0
+                    ? rate(readerCpuMs - lastReaderCpuMs, seconds) / 10.0 : null);
+            snapshot.put("process_cpu_percent", rate(processCpuMs - lastProcessCpuMs, seconds) / 10.0);
+            snapshot.put("alloc_bytes_per_sec", allocBytes >= 0 && lastAllocBytes >= 0
+                    ? rate(allocBytes - lastAllocBytes, seconds) : null);
+            Runtime runtime = Runtime.getRuntime();
+            snapshot.put("heap_used_bytes", runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        primed = true;
+        lastNs = nowNs;
+        lastRawReads = rawReads;
+        lastChannelMessages = channelMessages;
+        lastDelivered = delivered;
+        lastDropped = dropped;
+        lastUnique = unique;
+        lastReaderTid = readerTid;
+        lastReaderCpuMs = readerCpuMs;
+        lastProcessCpuMs = processCpuMs;
+        lastAllocBytes = allocBytes;
+        return snapshot;
+    }
+
+    private static double rate(long delta, double seconds) {
+        return seconds > 0 ? Math.round(delta / seconds * 10.0) / 10.0 : 0.0;
+    }
+
+    // utime + stime (ms) của thread, -1 nếu không đọc được (thread đã thoát)
+    private long threadCpuMs(int tid) {
+        int length;
+        try (FileInputStream in = new FileInputStream("/proc/self/task/" + tid + "/stat")) {
+            length = in.read(statBuffer);
+        } catch (IOException e) {
+            return -1;
+        }
+        // Tên thread (field 2) nằm trong ngoặc và có thể chứa dấu cách: đếm field từ sau ')' cuối
+        int i = length - 1;
+        while (i >= 0 && statBuffer[i] != ')') i--;
+        if (i < 0) return -1;
+        // Sau ')' là field 3 (state); utime / stime là field 14 / 15
+        int field = 2;
+        long utime = -1;
+        long value = 0;
+        boolean inNumber = false;
+        for (i = i + 1; i < length; i++) {
+            byte b = statBuffer[i];
+            if (b == ' ') {
+                if (inNumber) {
+                    if (field == 14) {
+                        utime = value;
+                    } else if (field == 15) {
+                        return (utime + value) * CLOCK_TICK_MS;
+                    }
+                }
+                inNumber = false;
+                continue;
+            }
+            if (!inNumber) {
+                inNumber = true;
+                field++;
+                value = 0;
+            }
+            if (b >= '0' && b <= '9') value = value * 10 + (b - '0');
+        }
+        return -1;
+    }
+
+    // Tổng byte đã cấp phát trên heap ART từ lúc khởi động, -1 nếu không có
+    private static long allocatedBytes() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) return -1;
+        String value = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        if (value == null) return -1;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.paralled_data.metrics;
+
+import android.os.Process;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bộ đếm tích luỹ của pipeline tag, tăng trên hot path và được MetricsReporter lấy mẫu mỗi giây.
+// Mỗi bộ đếm gần như chỉ có một thread ghi (reader / main) nên incrementAndGet không tranh chấp,
+// chi phí cỡ một lệnh atomic; không khoá, không cấp phát.
+// (LongAdder cần API 24, trong khi minSdk của app thấp hơn.)
+public final class PipelineMetrics {
+
+    private final AtomicLong rawReads = new AtomicLong();
+    private final AtomicLong channelMessages = new AtomicLong();
+
+    // tid (Linux) của thread đang rút tag khỏi module, để đọc CPU time của riêng thread đó; 0 = chưa biết
+    private volatile int readerTid;
+
+    // Mỗi lần rút được một tag khỏi module (trước lọc / khử trùng lặp)
+    public void onRawRead() {
+        rawReads.incrementAndGet();
+    }
+
+    // Mỗi event / frame gửi qua platform channel (main thread)
+    public void onChannelMessage() {
+        channelMessages.incrementAndGet();
+    }
+
+    // Gọi từ chính reader thread, một lần mỗi phiên
+    public void markReaderThread() {
+        readerTid = Process.myTid();
+    }
+
+    public long rawReads() {
+        return rawReads.get();
+    }
+
+    public long channelMessages() {
+        return channelMessages.get();
+    }
+
+    public int readerTid() {
+        return readerTid;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.paralled_data.radio;
+
+import com.rscja.deviceapi.interfaces.IUHF;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Vùng nhớ module trả về cùng mỗi tag khi inventory:
+//  - epc: chỉ EPC, nhanh nhất (mặc định của module)
+//  - epc_tid: EPC + TID, mỗi lượt trả lời dài hơn nên tốc độ đọc giảm
+//  - epc_tid_user: EPC + TID + userLen word USER từ userPtr, chậm nhất
+// Khác với đọc USER theo hàng đợi (UserBankReadQueue): ở đây module đọc kèm trong mỗi lượt inventory.
+public final class InventoryMemoryMode {
+
+    public static final String EPC = "epc";
+    public static final String EPC_TID = "epc_tid";
+    public static final String EPC_TID_USER = "epc_tid_user";
+
+    // = JournalRecord.USER_BYTES / 2: record journal cố định chỉ có 28 byte cho USER, dài hơn sẽ bị cắt
+    public static final int MAX_USER_WORDS = 14;
+
+    public final String name;
+    public final int userPtr;   // word
+    public final int userLen;   // word
+
+    private InventoryMemoryMode(String name, int userPtr, int userLen) {
+        this.name = name;
+        this.userPtr = userPtr;
+        this.userLen = userLen;
+    }
+
+    // Ném IllegalArgumentException nếu tên / vùng USER không hợp lệ
+    public static InventoryMemoryMode of(String name, int userPtr, int userLen) {
+        if (EPC.equals(name) || EPC_TID.equals(name)) return new InventoryMemoryMode(name, 0, 0);
+        if (!EPC_TID_USER.equals(name)) {
+            throw new IllegalArgumentException("mode phải là epc, epc_tid hoặc epc_tid_user");
+        }
+        if (userPtr < 0 || userLen < 1 || userLen > MAX_USER_WORDS) {
+            throw new IllegalArgumentException("userPtr phải >= 0, userLen phải trong 1.." + MAX_USER_WORDS);
+        }
+        return new InventoryMemoryMode(name, userPtr, userLen);
+    }
+
+    public boolean returnsTid() {
+        return !EPC.equals(name);
+    }
+
+    public boolean returnsUser() {
+        return EPC_TID_USER.equals(name);
+    }
+
+    // Áp dụng lên module (không gọi khi đang quét); false nếu module từ chối
+    public boolean applyTo(IUHF reader) {
+        switch (name) {
+            case EPC_TID:
+                return reader.setEPCAndTIDMode();
+            case EPC_TID_USER:
+                return reader.setEPCAndTIDUserMode(userPtr, userLen);
+            default:
+                return reader.setEPCMode();
+        }
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("mode", name);
+        if (returnsUser()) {
+            map.put("userPtr", userPtr);
+            map.put("userLen", userLen);
+        }
+        return map;
+    }
+}
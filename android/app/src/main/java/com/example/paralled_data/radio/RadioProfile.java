@@ -0,0 +1,217 @@
+package com.example.paralled_data.radio;
+
+import com.rscja.deviceapi.RFIDWithUHFUART;
+import com.rscja.deviceapi.entity.Gen2Entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bộ tham số radio (công suất, Gen2 session / target / Q, RF link...) áp dụng cùng lúc cho module.
+// Trường null = giữ nguyên giá trị module đang có. Các preset dưới đây là điểm khởi đầu,
+// có thể ghi đè từng trường từ method channel (setRadioProfile với overrides).
+public final class RadioProfile {
+
+    // Gen2 session
+    public static final int SESSION_S0 = 0;
+    public static final int SESSION_S1 = 1;
+    public static final int SESSION_S2 = 2;
+    public static final int SESSION_S3 = 3;
+    // Gen2 query target
+    public static final int TARGET_A = 0;
+    public static final int TARGET_B = 1;
+    // Thuật toán Q của module: 0 = Q cố định, 1 = Q động (startQ/minQ/maxQ)
+    public static final int Q_STATIC = 0;
+    public static final int Q_DYNAMIC = 1;
+    // RF link (theo SDK): 0 = DSB_ASK/FM0/40KHz, 1 = PR_ASK/Miller4/250KHz,
+    // 2 = PR_ASK/Miller4/300KHz, 3 = DSB_ASK/FM0/400KHz
+    public static final int RF_LINK_FM0_40K = 0;
+    public static final int RF_LINK_MILLER4_250K = 1;
+    public static final int RF_LINK_MILLER4_300K = 2;
+    public static final int RF_LINK_FM0_400K = 3;
+
+    public static final String DENSE_STATIC_SHELF = "dense-static-shelf";
+    public static final String PORTAL_FAST_MOVING = "portal-fast-moving";
+    public static final String SINGLE_ITEM_NEAR = "single-item-near";
+
+    private static final Map<String, RadioProfile> PRESETS;
+    static {
+        Map<String, RadioProfile> presets = new LinkedHashMap<>();
+
+        // Kệ hàng dày đặc, tag đứng yên: S2 giữ tag đã đọc ở trạng thái B lâu hơn để các tag
+        // còn lại được trả lời, Q động bắt đầu cao cho quần thể lớn, Miller4 chịu nhiễu tốt hơn.
+        RadioProfile dense = new RadioProfile(DENSE_STATIC_SHELF);
+        dense.power = 30;
+        dense.session = SESSION_S2;
+        dense.target = TARGET_A;
+        dense.qAlgorithm = Q_DYNAMIC;
+        dense.startQ = 7;
+        dense.minQ = 4;
+        dense.maxQ = 15;
+        dense.rfLink = RF_LINK_MILLER4_250K;
+        dense.fastInventory = true;
+        dense.tagFocus = false;
+        presets.put(dense.name, dense);
+
+        // Cổng / băng chuyền, tag đi qua nhanh: S1 + TagFocus, link FM0 nhanh nhất, Q khởi đầu thấp.
+        RadioProfile portal = new RadioProfile(PORTAL_FAST_MOVING);
+        portal.power = 30;
+        portal.session = SESSION_S1;
+        portal.target = TARGET_A;
+        portal.qAlgorithm = Q_DYNAMIC;
+        portal.startQ = 4;
+        portal.minQ = 0;
+        portal.maxQ = 10;
+        portal.rfLink = RF_LINK_FM0_400K;
+        portal.fastInventory = true;
+        portal.tagFocus = true;
+        presets.put(portal.name, portal);
+
+        // Đọc một tag ở gần: công suất thấp tránh đọc nhầm tag bên cạnh, S0 để tag trả lời lại ngay.
+        RadioProfile single = new RadioProfile(SINGLE_ITEM_NEAR);
+        single.power = 10;
+        single.session = SESSION_S0;
+        single.target = TARGET_A;
+        single.qAlgorithm = Q_STATIC;
+        single.startQ = 0;
+        single.minQ = 0;
+        single.maxQ = 0;
+        single.rfLink = RF_LINK_FM0_400K;
+        single.fastInventory = false;
+        single.tagFocus = false;
+        presets.put(single.name, single);
+
+        PRESETS = Collections.unmodifiableMap(presets);
+    }
+
+    public final String name;
+    public Integer power;          // dBm (5..30)
+    public Integer frequencyMode;  // vùng tần số theo SDK, thường để null (cấu hình theo site)
+    public Integer session;
+    public Integer target;
+    public Integer qAlgorithm;
+    public Integer startQ;
+    public Integer minQ;
+    public Integer maxQ;
+    public Integer rfLink;
+    public Boolean fastInventory;
+    public Boolean tagFocus;
+
+    public RadioProfile(String name) {
+        this.name = name;
+    }
+
+    public static RadioProfile preset(String name) {
+        RadioProfile preset = PRESETS.get(name);
+        return preset != null ? preset.copy(preset.name) : null;
+    }
+
+    public static Map<String, RadioProfile> presets() {
+        return PRESETS;
+    }
+
+    public RadioProfile copy(String newName) {
+        RadioProfile copy = new RadioProfile(newName);
+        copy.power = power;
+        copy.frequencyMode = frequencyMode;
+        copy.session = session;
+        copy.target = target;
+        copy.qAlgorithm = qAlgorithm;
+        copy.startQ = startQ;
+        copy.minQ = minQ;
+        copy.maxQ = maxQ;
+        copy.rfLink = rfLink;
+        copy.fastInventory = fastInventory;
+        copy.tagFocus = tagFocus;
+        return copy;
+    }
+
+    // Ghi đè các khoá có trong map (cùng tên với toMap); trả về thông báo lỗi hoặc null
+    public String applyOverrides(Map<String, Object> overrides) {
+        try {
+            if (overrides.containsKey("power")) power = intOrNull(overrides.get("power"));
+            if (overrides.containsKey("frequencyMode")) frequencyMode = intOrNull(overrides.get("frequencyMode"));
+            if (overrides.containsKey("session")) session = intOrNull(overrides.get("session"));
+            if (overrides.containsKey("target")) target = intOrNull(overrides.get("target"));
+            if (overrides.containsKey("qAlgorithm")) qAlgorithm = intOrNull(overrides.get("qAlgorithm"));
+            if (overrides.containsKey("startQ")) startQ = intOrNull(overrides.get("startQ"));
+            if (overrides.containsKey("minQ")) minQ = intOrNull(overrides.get("minQ"));
+            if (overrides.containsKey("maxQ")) maxQ = intOrNull(overrides.get("maxQ"));
+            if (overrides.containsKey("rfLink")) rfLink = intOrNull(overrides.get("rfLink"));
+            if (overrides.containsKey("fastInventory")) fastInventory = (Boolean) overrides.get("fastInventory");
+            if (overrides.containsKey("tagFocus")) tagFocus = (Boolean) overrides.get("tagFocus");
+        } catch (ClassCastException e) {
+            return "Kiểu dữ liệu không hợp lệ: " + e.getMessage();
+        }
+        return validate();
+    }
+
+    private static Integer intOrNull(Object value) {
+        return value != null ? ((Number) value).intValue() : null;
+    }
+
+    public String validate() {
+        if (power != null && (power < 5 || power > 30)) return "power phải trong khoảng 5..30 dBm";
+        if (session != null && (session < SESSION_S0 || session > SESSION_S3)) return "session phải là 0..3";
+        if (target != null && target != TARGET_A && target != TARGET_B) return "target phải là 0 (A) hoặc 1 (B)";
+        if (qAlgorithm != null && qAlgorithm != Q_STATIC && qAlgorithm != Q_DYNAMIC) return "qAlgorithm phải là 0 hoặc 1";
+        if (!validQ(startQ) || !validQ(minQ) || !validQ(maxQ)) return "Q phải trong khoảng 0..15";
+        if (minQ != null && maxQ != null && minQ > maxQ) return "minQ phải <= maxQ";
+        if (rfLink != null && (rfLink < RF_LINK_FM0_40K || rfLink > RF_LINK_FM0_400K)) return "rfLink phải là 0..3";
+        return null;
+    }
+
+    private static boolean validQ(Integer q) {
+        return q == null || (q >= 0 && q <= 15);
+    }
+
+    // Áp dụng lên module (chặn trên UART, không gọi khi đang quét).
+    // Trả về danh sách tham số module từ chối; rỗng nếu tất cả thành công.
+    public List<String> applyTo(RFIDWithUHFUART reader) {
+        List<String> failed = new ArrayList<>();
+
+        if (frequencyMode != null && !reader.setFrequencyMode(frequencyMode)) failed.add("frequencyMode");
+        if (power != null && !reader.setPower(power)) failed.add("power");
+
+        if (session != null || target != null || qAlgorithm != null
+                || startQ != null || minQ != null || maxQ != null) {
+            Gen2Entity gen2 = reader.getGen2();
+            if (gen2 == null) {
+                failed.add("gen2");
+            } else {
+                if (session != null) gen2.setQuerySession(session);
+                if (target != null) gen2.setQueryTarget(target);
+                if (qAlgorithm != null) gen2.setQ(qAlgorithm);
+                if (startQ != null) gen2.setStartQ(startQ);
+                if (minQ != null) gen2.setMinQ(minQ);
+                if (maxQ != null) gen2.setMaxQ(maxQ);
+                if (!reader.setGen2(gen2)) failed.add("gen2");
+            }
+        }
+
+        if (rfLink != null && !reader.setRFLink(rfLink)) failed.add("rfLink");
+        if (fastInventory != null && !reader.setFastInventoryMode(fastInventory)) failed.add("fastInventory");
+        if (tagFocus != null && !reader.setTagFocus(tagFocus)) failed.add("tagFocus");
+        return failed;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", name);
+        map.put("power", power);
+        map.put("frequencyMode", frequencyMode);
+        map.put("session", session);
+        map.put("target", target);
+        map.put("qAlgorithm", qAlgorithm);
+        map.put("startQ", startQ);
+        map.put("minQ", minQ);
+        map.put("maxQ", maxQ);
+        map.put("rfLink", rfLink);
+        map.put("fastInventory", fastInventory);
+        map.put("tagFocus", tagFocus);
+        return map;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.paralled_data.radio;
+
+import com.example.paralled_data.tag_pipeline.HexCodec;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Ghi lại nguyên dạng output thô của đầu đọc (trước lọc / khử trùng lặp) vào file capture nhị phân,
+// để phát lại đúng quần thể tag của một site bằng ReplayTagReader (trên máy hoặc JVM thuần).
+//
+// Header 24 byte: magic "RCAP", version (short), reserved (short), startWallMs (long), reserved (long).
+// Mỗi record (độ dài thay đổi, số nguyên dạng varint không dấu):
+//   deltaNs       khoảng cách tới record trước (record đầu: tới lúc mở capture)
+//   epc, tid, user  varint (len << 1 | raw) + len byte: hex hợp lệ độ dài chẵn lưu dạng byte,
+//                   còn lại (raw = 1) lưu nguyên chuỗi UTF-8; hex phát lại dạng chữ hoa như SDK
+//   rssi          varint len + chuỗi ASCII như SDK trả về (giữ nguyên định dạng khi phát lại)
+//   count         varint
+// Một tag EPC 96 bit + TID thường tốn ~40 byte. Ghi qua buffer 64 KB, chỉ chạm file khi đầy.
+public final class ReaderCaptureWriter {
+
+    static final int MAGIC = 0x52434150;   // "RCAP"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final String FILE_SUFFIX = ".rcap";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Mỗi trường giới hạn MAX_FIELD_BYTES; record lớn nhất = 4 trường + 2 varint
+    private static final int MAX_FIELD_BYTES = 1024;
+    private static final int MAX_RECORD_BYTES = 4 * (MAX_FIELD_BYTES + 5) + 2 * 10;
+
+    private final File file;
+    private final FileOutputStream out;
+    private final long maxBytes;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    private long lastNs;
+    private long records;
+    private long bytesWritten;
+    private boolean truncated;
+    private boolean closed;
+
+    // maxBytes: dừng ghi (truncated) khi file đạt kích thước này, tránh đầy bộ nhớ máy
+    public ReaderCaptureWriter(File file, long startNs, long startWallMs, long maxBytes) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Không tạo được thư mục " + parent);
+        }
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.out = new FileOutputStream(file);
+        this.lastNs = startNs;
+        writeInt(MAGIC);
+        writeShort(VERSION);
+        writeShort(0);
+        writeLong(startWallMs);
+        writeLong(0);
+    }
+
+    public File file() {
+        return file;
+    }
+
+    // readNs: System.nanoTime() lúc rút tag khỏi đầu đọc
+    public synchronized void append(String epc, String tid, String user, String rssi, int count, long readNs)
+            throws IOException {
+        if (closed || truncated) return;
+        if (bytesWritten + position + MAX_RECORD_BYTES > maxBytes) {
+            truncated = true;
+            return;
+        }
+        if (position + MAX_RECORD_BYTES > buffer.length) flushBuffer();
+
+        writeVarint(Math.max(0, readNs - lastNs));
+        lastNs = readNs;
+        writeHexField(epc);
+        writeHexField(tid);
+        writeHexField(user);
+        writeAscii(rssi);
+        writeVarint(Math.max(0, count));
+        records++;
+    }
+
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flushBuffer();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    public synchronized long records() {
+        return records;
+    }
+
+    public synchronized long bytes() {
+        return bytesWritten + position;
+    }
+
+    public synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position == 0) return;
+        out.write(buffer, 0, position);
+        bytesWritten += position;
+        position = 0;
+    }
+
+    private void writeHexField(String value) {
+        if (value == null) value = "";
+        int length = value.length();
+        boolean hex = (length & 1) == 0 && length / 2 <= MAX_FIELD_BYTES;
+        for (int i = 0; hex && i < length; i++) {
+            if (HexCodec.nibble(value.charAt(i)) < 0) hex = false;
+        }
+        if (hex) {
+            int bytes = length / 2;
+            writeVarint((long) bytes << 1);
+            for (int i = 0; i < bytes; i++) {
+                buffer[position++] = (byte) ((HexCodec.nibble(value.charAt(2 * i)) << 4)
+                        | HexCodec.nibble(value.charAt(2 * i + 1)));
+            }
+        } else {
+            byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+            int bytes = Math.min(raw.length, MAX_FIELD_BYTES);
+            writeVarint(((long) bytes << 1) | 1);
+            System.arraycopy(raw, 0, buffer, position, bytes);
+            position += bytes;
+        }
+    }
+
+    private void writeAscii(String value) {
+        if (value == null) value = "";
+        int bytes = Math.min(value.length(), MAX_FIELD_BYTES);
+        writeVarint(bytes);
+        for (int i = 0; i < bytes; i++) buffer[position++] = (byte) value.charAt(i);
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeShort(int value) {
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        writeShort(value >>> 16);
+        writeShort(value);
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+}
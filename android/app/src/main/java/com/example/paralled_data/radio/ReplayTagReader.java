@@ -0,0 +1,244 @@
+package com.example.paralled_data.radio;
+
+import com.example.paralled_data.tag_pipeline.RawTagSlot;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// TagReader phát lại file capture của ReaderCaptureWriter qua đúng đường quét của plugin.
+// speed = 1: giữ nhịp gốc (tag chỉ có trong "buffer" khi đã tới thời điểm của nó, tính theo thời
+// gian inventory đang chạy); speed = 2: nhanh gấp đôi...; speed = 0: nhanh nhất có thể.
+// Hết file thì readFromBuffer luôn trả về false (isFinished), kết nối vẫn giữ.
+// Capture chỉ có output inventory nên readUserBank luôn null và không có Select trên "module".
+public final class ReplayTagReader implements TagReader {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final File file;
+    private final double speed;
+
+    private DataInputStream in;
+    private long startWallMs;
+    private volatile boolean connected;
+    private volatile boolean finished;
+    private String lastError;
+
+    // Thời gian phát lại: chỉ chạy khi inventory đang bật
+    private boolean running;
+    private long runStartNs;
+    private long playedNs;
+
+    // Record kế tiếp đã giải mã, chờ tới thời điểm của nó
+    private boolean pending;
+    private long offsetNs;         // thời điểm của record kế tiếp tính từ lúc mở capture
+    private long firstOffsetNs;    // bỏ khoảng chờ trước tag đầu tiên (mở capture trước khi quét)
+    private String epc;
+    private String tid;
+    private String user;
+    private String rssi;
+    private int count;
+
+    private long replayed;
+
+    public ReplayTagReader(File file, double speed) {
+        if (speed < 0) throw new IllegalArgumentException("speed phải >= 0");
+        this.file = file;
+        this.speed = speed;
+    }
+
+    @Override
+    public String name() {
+        return "replay";
+    }
+
+    @Override
+    public synchronized boolean connect() {
+        closeStream();
+        try {
+            DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+            if (stream.readInt() != ReaderCaptureWriter.MAGIC) {
+                stream.close();
+                throw new IOException("Không phải file capture: " + file);
+            }
+            int version = stream.readShort();
+            if (version != ReaderCaptureWriter.VERSION) {
+                stream.close();
+                throw new IOException("Phiên bản capture không hỗ trợ: " + version);
+            }
+            stream.readShort();
+            startWallMs = stream.readLong();
+            stream.readLong();
+            in = stream;
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            connected = false;
+            return false;
+        }
+        lastError = null;
+        connected = true;
+        finished = false;
+        pending = false;
+        running = false;
+        playedNs = 0;
+        offsetNs = 0;
+        firstOffsetNs = -1;
+        replayed = 0;
+        return true;
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        connected = false;
+        running = false;
+        closeStream();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public synchronized boolean startInventory() {
+        if (!connected) return false;
+        if (!running) {
+            running = true;
+            runStartNs = System.nanoTime();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void stopInventory() {
+        if (running) {
+            playedNs += System.nanoTime() - runStartNs;
+            running = false;
+        }
+    }
+
+    @Override
+    public synchronized boolean readFromBuffer(RawTagSlot slot) {
+        if (!connected || !running || !loadNext()) return false;
+        if (speed > 0 && (offsetNs - firstOffsetNs) / speed > playedNs + (System.nanoTime() - runStartNs)) return false;
+        return take(slot);
+    }
+
+    // Quét đơn: trả record kế tiếp ngay, không theo nhịp
+    @Override
+    public synchronized boolean inventorySingle(RawTagSlot slot) {
+        if (!connected || !loadNext()) return false;
+        return take(slot);
+    }
+
+    @Override
+    public String readUserBank(String accessPassword, String epcHex, int ptrWords, int lenWords) {
+        return null;
+    }
+
+    @Override
+    public boolean setEpcFilter(int offsetBits, int lengthBits, String dataHex) {
+        return false;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("backend", name());
+        stats.put("path", file.getAbsolutePath());
+        stats.put("speed", speed);
+        stats.put("connected", connected);
+        stats.put("finished", finished);
+        stats.put("replayed", replayed);
+        stats.put("capture_position_ms", offsetNs / 1e6);
+        stats.put("capture_start_ms", startWallMs);
+        if (lastError != null) stats.put("error", lastError);
+        return stats;
+    }
+
+    public synchronized String lastError() {
+        return lastError;
+    }
+
+    private boolean take(RawTagSlot slot) {
+        slot.setTag(epc, tid, user, rssi, count);
+        pending = false;
+        replayed++;
+        return true;
+    }
+
+    private boolean loadNext() {
+        if (pending) return true;
+        if (finished || in == null) return false;
+        try {
+            offsetNs += readVarint();
+            epc = readField();
+            tid = readField();
+            user = readField();
+            rssi = new String(readBytes((int) readVarint()), StandardCharsets.US_ASCII);
+            count = (int) readVarint();
+        } catch (EOFException e) {
+            // Hết file (hoặc record cuối bị ghi dở khi capture bị ngắt)
+            finished = true;
+            closeStream();
+            return false;
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            finished = true;
+            closeStream();
+            return false;
+        }
+        if (firstOffsetNs < 0) firstOffsetNs = offsetNs;
+        pending = true;
+        return true;
+    }
+
+    private String readField() throws IOException {
+        long header = readVarint();
+        int length = (int) (header >>> 1);
+        byte[] bytes = readBytes(length);
+        if ((header & 1) != 0) return new String(bytes, StandardCharsets.UTF_8);
+        char[] chars = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >>> 4) & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        // Trường nào cũng <= 1024 byte khi ghi: lớn hơn là file hỏng
+        if (length < 0 || length > 4096) throw new IOException("Độ dài trường không hợp lệ trong file capture");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Varint hỏng trong file capture");
+    }
+
+    private void closeStream() {
+        if (in == null) return;
+        try {
+            in.close();
+        } catch (IOException ignored) {
+        }
+        in = null;
+    }
+}
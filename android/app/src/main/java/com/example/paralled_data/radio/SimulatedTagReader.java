@@ -0,0 +1,393 @@
+package com.example.paralled_data.radio;
+
+import com.example.paralled_data.tag_pipeline.RawTagSlot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// TagReader tổng hợp, không cần thiết bị: dùng để đo thông lượng và khả năng phục hồi của pipeline
+// (trên máy thật với setReaderBackend("simulated") hoặc trên JVM thuần ở module benchmarks).
+// Tag được sinh lười theo đồng hồ ngay trong readFromBuffer (không có thread riêng):
+//  - readsPerSec lần đọc / giây, nhân burstMultiplier trong burstDurationMs đầu mỗi burstEveryMs
+//  - quần thể population tag nhìn thấy cùng lúc, turnoverPerSec tag được thay bằng EPC mới mỗi giây
+//  - RSSI mỗi tag ~ N(rssiMean, rssiStdDev), mỗi lần đọc dao động thêm ~ N(0, rssiJitter)
+//  - buffer module chứa tối đa bufferCapacity tag: đọc chậm hơn tốc độ sinh thì tag cũ nhất bị đè
+//  - mỗi disconnectEveryMs mất kết nối disconnectDurationMs; có lại kết nối thì inventory đã dừng,
+//    người gọi phải startInventory() lại (như module bị reset)
+// Chuỗi EPC / TID / RSSI được dựng sẵn và dùng lại nên lần đọc không cấp phát.
+public final class SimulatedTagReader implements TagReader {
+
+    public static final class Config {
+        public int population = 500;
+        public double readsPerSec = 800;
+        public double turnoverPerSec = 0;
+        public double rssiMean = -60;
+        public double rssiStdDev = 8;
+        public double rssiJitter = 2;
+        public long burstEveryMs = 0;        // 0 = không có burst
+        public long burstDurationMs = 0;
+        public double burstMultiplier = 1;
+        public int bufferCapacity = 2_048;
+        public long disconnectEveryMs = 0;   // 0 = không bao giờ mất kết nối
+        public long disconnectDurationMs = 0;
+        public boolean withTid = true;
+        public double userReadFailRate = 0;
+        public String epcPrefix = "E2801160600002";
+        public long seed = 1;
+
+        // Ghi đè các khoá có trong map (cùng tên với toMap); trả về thông báo lỗi hoặc null
+        public String applyOverrides(Map<String, Object> overrides) {
+            try {
+                if (overrides.containsKey("population")) population = ((Number) overrides.get("population")).intValue();
+                if (overrides.containsKey("readsPerSec")) readsPerSec = ((Number) overrides.get("readsPerSec")).doubleValue();
+                if (overrides.containsKey("turnoverPerSec")) turnoverPerSec = ((Number) overrides.get("turnoverPerSec")).doubleValue();
+                if (overrides.containsKey("rssiMean")) rssiMean = ((Number) overrides.get("rssiMean")).doubleValue();
+                if (overrides.containsKey("rssiStdDev")) rssiStdDev = ((Number) overrides.get("rssiStdDev")).doubleValue();
+                if (overrides.containsKey("rssiJitter")) rssiJitter = ((Number) overrides.get("rssiJitter")).doubleValue();
+                if (overrides.containsKey("burstEveryMs")) burstEveryMs = ((Number) overrides.get("burstEveryMs")).longValue();
+                if (overrides.containsKey("burstDurationMs")) burstDurationMs = ((Number) overrides.get("burstDurationMs")).longValue();
+                if (overrides.containsKey("burstMultiplier")) burstMultiplier = ((Number) overrides.get("burstMultiplier")).doubleValue();
+                if (overrides.containsKey("bufferCapacity")) bufferCapacity = ((Number) overrides.get("bufferCapacity")).intValue();
+                if (overrides.containsKey("disconnectEveryMs")) disconnectEveryMs = ((Number) overrides.get("disconnectEveryMs")).longValue();
+                if (overrides.containsKey("disconnectDurationMs")) disconnectDurationMs = ((Number) overrides.get("disconnectDurationMs")).longValue();
+                if (overrides.containsKey("withTid")) withTid = (Boolean) overrides.get("withTid");
+                if (overrides.containsKey("userReadFailRate")) userReadFailRate = ((Number) overrides.get("userReadFailRate")).doubleValue();
+                if (overrides.containsKey("epcPrefix")) epcPrefix = (String) overrides.get("epcPrefix");
+                if (overrides.containsKey("seed")) seed = ((Number) overrides.get("seed")).longValue();
+            } catch (ClassCastException | NullPointerException e) {
+                return "Kiểu dữ liệu không hợp lệ: " + e.getMessage();
+            }
+            return validate();
+        }
+
+        public String validate() {
+            if (population < 1 || population > 1_000_000) return "population phải trong khoảng 1..1000000";
+            if (readsPerSec < 0 || turnoverPerSec < 0) return "readsPerSec / turnoverPerSec phải >= 0";
+            if (rssiStdDev < 0 || rssiJitter < 0) return "rssiStdDev / rssiJitter phải >= 0";
+            if (burstEveryMs < 0 || burstDurationMs < 0 || burstMultiplier < 0) return "tham số burst phải >= 0";
+            if (bufferCapacity < 1) return "bufferCapacity phải >= 1";
+            if (disconnectEveryMs < 0 || disconnectDurationMs < 0) return "tham số disconnect phải >= 0";
+            if (disconnectEveryMs > 0 && disconnectDurationMs >= disconnectEveryMs) {
+                return "disconnectDurationMs phải < disconnectEveryMs";
+            }
+            if (userReadFailRate < 0 || userReadFailRate > 1) return "userReadFailRate phải trong khoảng 0..1";
+            if (epcPrefix == null || !epcPrefix.matches("[0-9A-Fa-f]{0,16}")) return "epcPrefix phải là tối đa 16 ký tự hex";
+            return null;
+        }
+
+        public Config copy() {
+            Config copy = new Config();
+            copy.applyOverrides(toMap());
+            return copy;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("population", population);
+            map.put("readsPerSec", readsPerSec);
+            map.put("turnoverPerSec", turnoverPerSec);
+            map.put("rssiMean", rssiMean);
+            map.put("rssiStdDev", rssiStdDev);
+            map.put("rssiJitter", rssiJitter);
+            map.put("burstEveryMs", burstEveryMs);
+            map.put("burstDurationMs", burstDurationMs);
+            map.put("burstMultiplier", burstMultiplier);
+            map.put("bufferCapacity", bufferCapacity);
+            map.put("disconnectEveryMs", disconnectEveryMs);
+            map.put("disconnectDurationMs", disconnectDurationMs);
+            map.put("withTid", withTid);
+            map.put("userReadFailRate", userReadFailRate);
+            map.put("epcPrefix", epcPrefix);
+            map.put("seed", seed);
+            return map;
+        }
+    }
+
+    // RSSI từ -100.00 tới -20.00 dBm, bước 0.1
+    private static final int RSSI_MIN_DECI = -1000;
+    private static final int RSSI_MAX_DECI = -200;
+    private static final String[] RSSI_STRINGS = new String[RSSI_MAX_DECI - RSSI_MIN_DECI + 1];
+    static {
+        for (int i = 0; i < RSSI_STRINGS.length; i++) {
+            RSSI_STRINGS[i] = String.format(Locale.US, "%.2f", (RSSI_MIN_DECI + i) / 10.0);
+        }
+    }
+
+    private final Config config;
+    private final String epcSuffixFormat;
+
+    // Quần thể đang thấy: ordinal trong [firstOrdinal, firstOrdinal + population), chuỗi cache theo ordinal % population
+    private final long[] cachedOrdinal;
+    private final String[] epcs;
+    private final String[] tids;
+    private final int[] baseRssiDeci;
+
+    // Buffer vòng của module: ordinal + RSSI (deci-dBm) của mỗi lần đọc chờ rút
+    private final long[] bufferOrdinal;
+    private final int[] bufferRssi;
+    private int head;
+    private int size;
+
+    private long rng;
+    private double spareGaussian = Double.NaN;
+
+    private boolean connected;
+    private boolean inventoryRunning;
+    private long epochNs;
+    private long lastRefillNs;
+    private double credit;             // phần lẻ của số lần đọc chưa sinh
+    private long windowsSeen;          // số lần mất kết nối đã xử lý
+
+    private long generated;
+    private long delivered;
+    private long overflowDropped;
+    private long disconnects;
+
+    public SimulatedTagReader(Config config) {
+        String error = config.validate();
+        if (error != null) throw new IllegalArgumentException(error);
+        this.config = config.copy();
+        epcSuffixFormat = "%0" + (24 - this.config.epcPrefix.length()) + "X";
+        int population = this.config.population;
+        cachedOrdinal = new long[population];
+        epcs = new String[population];
+        tids = new String[population];
+        baseRssiDeci = new int[population];
+        Arrays.fill(cachedOrdinal, -1);
+        bufferOrdinal = new long[this.config.bufferCapacity];
+        bufferRssi = new int[this.config.bufferCapacity];
+        rng = this.config.seed != 0 ? this.config.seed : 0x9E3779B97F4A7C15L;
+    }
+
+    public Config config() {
+        return config.copy();
+    }
+
+    @Override
+    public String name() {
+        return "simulated";
+    }
+
+    @Override
+    public synchronized boolean connect() {
+        connected = true;
+        inventoryRunning = false;
+        epochNs = System.nanoTime();
+        windowsSeen = 0;
+        size = 0;
+        return true;
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        connected = false;
+        inventoryRunning = false;
+        size = 0;
+    }
+
+    @Override
+    public synchronized boolean isConnected() {
+        return connected && !inDisconnectWindow(System.nanoTime());
+    }
+
+    @Override
+    public synchronized boolean startInventory() {
+        long nowNs = System.nanoTime();
+        if (!connected || inDisconnectWindow(nowNs)) return false;
+        observeDisconnects(nowNs);
+        inventoryRunning = true;
+        lastRefillNs = nowNs;
+        credit = 0;
+        return true;
+    }
+
+    @Override
+    public synchronized void stopInventory() {
+        inventoryRunning = false;
+    }
+
+    @Override
+    public synchronized boolean readFromBuffer(RawTagSlot slot) {
+        long nowNs = System.nanoTime();
+        if (!connected) return false;
+        if (inDisconnectWindow(nowNs)) {
+            observeDisconnects(nowNs);
+            return false;
+        }
+        observeDisconnects(nowNs);
+        if (inventoryRunning) refill(nowNs);
+        if (size == 0) return false;
+
+        int index = head;
+        head = (head + 1) % bufferOrdinal.length;
+        size--;
+        delivered++;
+        fill(slot, bufferOrdinal[index], bufferRssi[index]);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean inventorySingle(RawTagSlot slot) {
+        if (!isConnected()) return false;
+        long ordinal = pickOrdinal(System.nanoTime());
+        generated++;
+        delivered++;
+        fill(slot, ordinal, readRssi(ordinal));
+        return true;
+    }
+
+    @Override
+    public synchronized String readUserBank(String accessPassword, String epcHex, int ptrWords, int lenWords) {
+        if (!isConnected() || nextDouble() < config.userReadFailRate) return null;
+        StringBuilder user = new StringBuilder(lenWords * 4);
+        long hash = epcHex.hashCode() * 0x9E3779B97F4A7C15L + ptrWords;
+        for (int i = 0; i < lenWords * 4; i++) {
+            hash = hash * 6364136223846793005L + 1442695040888963407L;
+            user.append(Character.toUpperCase(Character.forDigit((int) (hash >>> 60), 16)));
+        }
+        return user.toString();
+    }
+
+    // Module mô phỏng không có Select: plugin lọc bằng phần mềm
+    @Override
+    public boolean setEpcFilter(int offsetBits, int lengthBits, String dataHex) {
+        return false;
+    }
+
+    // generated / delivered / buffered / overflow_dropped / disconnects + cấu hình
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("backend", name());
+        stats.put("connected", isConnected());
+        stats.put("inventory_running", inventoryRunning);
+        stats.put("generated", generated);
+        stats.put("delivered", delivered);
+        stats.put("buffered", size);
+        stats.put("overflow_dropped", overflowDropped);
+        stats.put("disconnects", disconnects);
+        stats.put("config", config.toMap());
+        return stats;
+    }
+
+    private boolean inDisconnectWindow(long nowNs) {
+        if (config.disconnectEveryMs <= 0) return false;
+        long elapsedMs = (nowNs - epochNs) / 1_000_000L;
+        return elapsedMs >= config.disconnectEveryMs
+                && elapsedMs % config.disconnectEveryMs < config.disconnectDurationMs;
+    }
+
+    // Mỗi lần mất kết nối đã bắt đầu: inventory dừng, buffer module mất
+    private void observeDisconnects(long nowNs) {
+        if (config.disconnectEveryMs <= 0) return;
+        long windows = (nowNs - epochNs) / 1_000_000L / config.disconnectEveryMs;
+        if (windows > windowsSeen) {
+            disconnects += windows - windowsSeen;
+            windowsSeen = windows;
+            inventoryRunning = false;
+            size = 0;
+        }
+    }
+
+    private void refill(long nowNs) {
+        double seconds = (nowNs - lastRefillNs) / 1e9;
+        lastRefillNs = nowNs;
+        double rate = config.readsPerSec;
+        if (config.burstEveryMs > 0 && (nowNs - epochNs) / 1_000_000L % config.burstEveryMs < config.burstDurationMs) {
+            rate *= config.burstMultiplier;
+        }
+        credit += rate * seconds;
+        if (credit < 1) return;
+        long toAdd = (long) credit;
+        credit -= toAdd;
+        generated += toAdd;
+
+        int capacity = bufferOrdinal.length;
+        if (toAdd > capacity) {
+            // Phần vượt quá buffer bị đè ngay, không cần sinh ra
+            overflowDropped += size + toAdd - capacity;
+            head = 0;
+            size = 0;
+            toAdd = capacity;
+        }
+        for (long i = 0; i < toAdd; i++) {
+            long ordinal = pickOrdinal(nowNs);
+            int tail;
+            if (size == capacity) {
+                // Buffer đầy: đè lần đọc cũ nhất
+                tail = head;
+                head = (head + 1) % capacity;
+                overflowDropped++;
+            } else {
+                tail = (head + size) % capacity;
+                size++;
+            }
+            bufferOrdinal[tail] = ordinal;
+            bufferRssi[tail] = readRssi(ordinal);
+        }
+    }
+
+    private long pickOrdinal(long nowNs) {
+        long first = (long) ((nowNs - epochNs) / 1e9 * config.turnoverPerSec);
+        return first + (long) (nextDouble() * config.population);
+    }
+
+    private int readRssi(long ordinal) {
+        int slot = (int) (ordinal % config.population);
+        ensureCached(slot, ordinal);
+        int deci = baseRssiDeci[slot] + (int) Math.round(nextGaussian() * config.rssiJitter * 10);
+        return Math.max(RSSI_MIN_DECI, Math.min(RSSI_MAX_DECI, deci));
+    }
+
+    private void fill(RawTagSlot slot, long ordinal, int rssiDeci) {
+        int index = (int) (ordinal % config.population);
+        ensureCached(index, ordinal);
+        slot.setTag(epcs[index], tids[index], "", RSSI_STRINGS[rssiDeci - RSSI_MIN_DECI], 1);
+    }
+
+    private void ensureCached(int slot, long ordinal) {
+        if (cachedOrdinal[slot] == ordinal) return;
+        cachedOrdinal[slot] = ordinal;
+        // EPC 96 bit (24 ký tự hex) = prefix + ordinal đệm số 0
+        epcs[slot] = config.epcPrefix + String.format(Locale.US, epcSuffixFormat, ordinal);
+        tids[slot] = config.withTid ? String.format(Locale.US, "E2801160%016X", ordinal) : "";
+        // RSSI gốc của tag cố định theo ordinal (không phụ thuộc thứ tự đọc)
+        long saved = rng;
+        double savedSpare = spareGaussian;
+        rng = ordinal * 0x9E3779B97F4A7C15L + config.seed;
+        spareGaussian = Double.NaN;
+        baseRssiDeci[slot] = (int) Math.round((config.rssiMean + nextGaussian() * config.rssiStdDev) * 10);
+        rng = saved;
+        spareGaussian = savedSpare;
+    }
+
+    // xorshift64*: nhanh, không đồng bộ như java.util.Random
+    private double nextDouble() {
+        long x = rng;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        if (x == 0) x = 0x9E3779B97F4A7C15L;
+        rng = x;
+        return ((x * 0x2545F4914F6CDD1DL) >>> 11) * 0x1.0p-53;
+    }
+
+    // Phương pháp polar của Marsaglia
+    private double nextGaussian() {
+        if (!Double.isNaN(spareGaussian)) {
+            double value = spareGaussian;
+            spareGaussian = Double.NaN;
+            return value;
+        }
+        double u, v, s;
+        do {
+            u = nextDouble() * 2 - 1;
+            v = nextDouble() * 2 - 1;
+            s = u * u + v * v;
+        } while (s >= 1 || s == 0);
+        double factor = Math.sqrt(-2 * Math.log(s) / s);
+        spareGaussian = v * factor;
+        return u * factor;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.paralled_data.radio;
+
+import com.example.paralled_data.tag_pipeline.RawTagSlot;
+
+// Các thao tác mà đường quét của plugin cần từ đầu đọc UHF, không phụ thuộc SDK của hãng:
+//  - UartTagReader: module UART của C72 (RFIDWithUHFUART)
+//  - SimulatedTagReader: quần thể tag tổng hợp để chạy pipeline không cần thiết bị
+// Cấu hình riêng của module (profile radio, chế độ inventory, Gen2...) vẫn đi thẳng qua SDK.
+// Các hàm đọc của phiên liên tục (kể cả chạy lại inventory) được gọi trên reader thread; connect /
+// disconnect, startInventory lúc bắt đầu phiên và quét đơn chạy tuần tự trên thread của
+// HardwareLifecycleManager, không trên main thread.
+public interface TagReader {
+
+    // Tên backend: "uart" / "simulated"
+    String name();
+
+    boolean connect();
+
+    void disconnect();
+
+    // false khi mất kết nối giữa phiên; inventory phải được chạy lại sau khi có kết nối trở lại
+    boolean isConnected();
+
+    boolean startInventory();
+
+    void stopInventory();
+
+    // Ghi tag kế tiếp trong buffer của module vào slot (setTag); false nếu buffer rỗng
+    boolean readFromBuffer(RawTagSlot slot);
+
+    // Một lượt inventory đơn; false nếu không thấy tag
+    boolean inventorySingle(RawTagSlot slot);
+
+    // Đọc lenWords word vùng USER từ ptrWords của tag có EPC này (Select theo EPC); null nếu lỗi
+    String readUserBank(String accessPassword, String epcHex, int ptrWords, int lenWords);
+
+    // Đặt Select theo EPC trên module (offset tính từ đầu bank EPC, kể cả CRC + PC);
+    // lengthBits = 0 để xoá. false nếu module không hỗ trợ / từ chối
+    boolean setEpcFilter(int offsetBits, int lengthBits, String dataHex);
+}
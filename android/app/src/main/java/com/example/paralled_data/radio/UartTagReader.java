@@ -0,0 +1,87 @@
+package com.example.paralled_data.radio;
+
+import android.content.Context;
+
+import com.example.paralled_data.tag_pipeline.RawTagSlot;
+import com.rscja.deviceapi.RFIDWithUHFUART;
+import com.rscja.deviceapi.entity.UHFTAGInfo;
+import com.rscja.deviceapi.interfaces.IUHF;
+
+// TagReader trên module UART của C72. uart() trả về đối tượng SDK cho các cấu hình riêng của module.
+public final class UartTagReader implements TagReader {
+
+    private final RFIDWithUHFUART uart;
+    private final Context context;
+    private volatile boolean connected;
+
+    public UartTagReader(RFIDWithUHFUART uart, Context context) {
+        this.uart = uart;
+        this.context = context;
+    }
+
+    public RFIDWithUHFUART uart() {
+        return uart;
+    }
+
+    @Override
+    public String name() {
+        return "uart";
+    }
+
+    @Override
+    public boolean connect() {
+        connected = uart.init(context);
+        return connected;
+    }
+
+    @Override
+    public void disconnect() {
+        connected = false;
+        uart.free();
+    }
+
+    // UART nội bộ không rớt kết nối giữa chừng như BLE: coi như còn kết nối tới khi free()
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public boolean startInventory() {
+        return uart.startInventoryTag();
+    }
+
+    @Override
+    public void stopInventory() {
+        uart.stopInventory();
+    }
+
+    @Override
+    public boolean readFromBuffer(RawTagSlot slot) {
+        return fill(slot, uart.readTagFromBuffer());
+    }
+
+    @Override
+    public boolean inventorySingle(RawTagSlot slot) {
+        return fill(slot, uart.inventorySingleTag());
+    }
+
+    private static boolean fill(RawTagSlot slot, UHFTAGInfo tagInfo) {
+        if (tagInfo == null) return false;
+        slot.setTag(tagInfo.getEPC(), tagInfo.getTid(), tagInfo.getUser(), tagInfo.getRssi(), tagInfo.getCount());
+        return true;
+    }
+
+    @Override
+    public String readUserBank(String accessPassword, String epcHex, int ptrWords, int lenWords) {
+        // Bank EPC: 16 bit CRC + 16 bit PC đứng trước dữ liệu EPC
+        String data = uart.readData(accessPassword, IUHF.Bank_EPC, 32, epcHex.length() * 4, epcHex,
+                IUHF.Bank_USER, ptrWords, lenWords);
+        return data != null && !data.isEmpty() ? data : null;
+    }
+
+    @Override
+    public boolean setEpcFilter(int offsetBits, int lengthBits, String dataHex) {
+        return uart.setFilter(IUHF.Bank_EPC, offsetBits, lengthBits, dataHex);
+    }
+}
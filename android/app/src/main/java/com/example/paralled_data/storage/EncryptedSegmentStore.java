@@ -0,0 +1,543 @@
+package com.example.paralled_data.storage;
+
+import com.example.paralled_data.tag_pipeline.TagRead;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+// Kho record mã hoá: record (JournalRecord) được gom thành khối cố định chunkRecords record,
+// mỗi khối được niêm phong độc lập bằng AES-GCM với nonce ngẫu nhiên riêng và auth tag 16 byte.
+// Cipher lấy từ provider mặc định (Conscrypt trên Android, dùng lệnh AES / PMULL của CPU).
+//
+// - Khối đầy được ghi nối vào segment file ở vị trí cố định (slot), nên đọc ngẫu nhiên record i
+//   chỉ cần giải mã đúng khối chứa nó; đếm record là O(số segment) lúc mở, O(1) sau đó.
+// - Khối đang ghi dở (tail) nằm trong bộ nhớ dạng plaintext; sync() niêm phong nó vào tail.chunk
+//   (ghi file tạm + force + rename), nên chi phí mã hoá mỗi lần chỉ giới hạn trong một khối.
+//   Crash giữa hai lần sync mất tối đa syncIntervalMs dữ liệu, không bao giờ để plaintext trên đĩa.
+// - AAD của mỗi khối gồm magic / version / số record / firstSeq: khối bị tráo vị trí, cắt ngắn hay
+//   sửa đổi đều không qua được kiểm tra tag. Khi mở lại, slot ghi dở cuối segment bị cắt bỏ và
+//   tail.chunk cũ hơn khối đã niêm phong bị bỏ qua.
+public final class EncryptedSegmentStore implements RecordStore {
+
+    public static final int DEFAULT_CHUNK_RECORDS = 256;          // 32 KB plaintext / khối
+    public static final int DEFAULT_CHUNKS_PER_SEGMENT = 256;     // ~8 MB / segment
+    public static final long DEFAULT_SYNC_INTERVAL_MS = 1000;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_BITS = 128;
+    private static final int TAG_BYTES = TAG_BITS / 8;
+    private static final int NONCE_BYTES = 12;
+
+    private static final int MAGIC = 0x534A4543;   // "SJEC"
+    private static final short VERSION = 1;
+
+    // Header khối (40 byte); AAD = 24 byte đầu
+    private static final int C_MAGIC = 0;
+    private static final int C_VERSION = 4;
+    private static final int C_COUNT = 8;
+    private static final int C_FIRST_SEQ = 16;
+    private static final int C_NONCE = 24;
+    private static final int AAD_BYTES = C_NONCE;
+    private static final int CHUNK_HEADER = 40;
+
+    private static final String SEGMENT_PREFIX = "enc-";
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String TAIL_FILE = "tail.chunk";
+    private static final String TAIL_TEMP_FILE = "tail.chunk.tmp";
+    private static final String KEY_CHECK_FILE = "key.check";
+
+    private static final class Segment {
+        final File file;
+        final long firstSeq;
+        int chunks;
+
+        Segment(File file, long firstSeq, int chunks) {
+            this.file = file;
+            this.firstSeq = firstSeq;
+            this.chunks = chunks;
+        }
+    }
+
+    private final File directory;
+    private final SecretKey key;
+    private final int chunkRecords;
+    private final int chunksPerSegment;
+    private final int slotSize;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private FileChannel activeChannel;   // segment cuối, nơi khối đầy được ghi nối
+    private boolean open;
+
+    // Khối đang ghi (plaintext, chỉ trong bộ nhớ)
+    private final byte[] tail;
+    private final ByteBuffer tailBuffer;
+    private int tailCount;
+    private long tailFirstSeq;
+
+    // Khối giải mã gần nhất, để đọc tuần tự không giải mã lại
+    private long cachedChunk = -1;
+    private ByteBuffer cachedPlaintext;
+
+    private final byte[] header = new byte[CHUNK_HEADER];
+    private final ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+    private final SecureRandom random = new SecureRandom();
+    private final Cipher cipher;
+
+    private long sealedRecords;
+    private long lastSeq;
+    private long syncIntervalMs = DEFAULT_SYNC_INTERVAL_MS;
+    private long lastSyncMs;
+    private boolean segmentDirty;   // khối đã ghi nối nhưng chưa force
+    private boolean tailDirty;      // tail trong bộ nhớ khác tail.chunk trên đĩa
+    private long sealedChunks;
+    private long discardedRecords;
+
+    public EncryptedSegmentStore(File directory, SecretKey key) throws GeneralSecurityException {
+        this(directory, key, DEFAULT_CHUNK_RECORDS, DEFAULT_CHUNKS_PER_SEGMENT);
+    }
+
+    public EncryptedSegmentStore(File directory, SecretKey key, int chunkRecords, int chunksPerSegment)
+            throws GeneralSecurityException {
+        if (chunkRecords <= 0 || chunksPerSegment <= 0) {
+            throw new IllegalArgumentException("chunkRecords / chunksPerSegment phải > 0");
+        }
+        this.directory = directory;
+        this.key = key;
+        this.chunkRecords = chunkRecords;
+        this.chunksPerSegment = chunksPerSegment;
+        this.slotSize = CHUNK_HEADER + chunkRecords * JournalRecord.SIZE + TAG_BYTES;
+        this.tail = new byte[chunkRecords * JournalRecord.SIZE];
+        this.tailBuffer = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+        this.cipher = Cipher.getInstance(TRANSFORMATION);
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        if (open) return;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Không tạo được thư mục lưu trữ: " + directory);
+        }
+        File temp = new File(directory, TAIL_TEMP_FILE);
+        if (temp.exists() && !temp.delete()) throw new IOException("Không xoá được " + temp);
+        // Sai khoá thì dừng ở đây, trước khi bước khôi phục coi các khối là hỏng và cắt bỏ
+        verifyKey();
+
+        File[] files = directory.listFiles((dir, name) ->
+                name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) files = new File[0];
+        Arrays.sort(files);
+
+        segments.clear();
+        sealedRecords = 0;
+        lastSeq = 0;
+        for (File file : files) {
+            long firstSeq = parseFirstSeq(file);
+            if (firstSeq <= 0) continue;
+            Segment segment = new Segment(file, firstSeq, recoverChunks(file, firstSeq));
+            segments.add(segment);
+            sealedRecords += (long) segment.chunks * chunkRecords;
+            lastSeq = Math.max(lastSeq, firstSeq + (long) segment.chunks * chunkRecords - 1);
+        }
+
+        restoreTail();
+        if (segments.isEmpty() || lastSegment().chunks >= chunksPerSegment) {
+            startSegment(tailFirstSeq);
+        } else {
+            activeChannel = new RandomAccessFile(lastSegment().file, "rw").getChannel();
+        }
+        cachedChunk = -1;
+        lastSyncMs = System.currentTimeMillis();
+        open = true;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void setSyncIntervalMs(long intervalMs) {
+        syncIntervalMs = Math.max(0, intervalMs);
+    }
+
+    @Override
+    public synchronized long syncIntervalMs() {
+        return syncIntervalMs;
+    }
+
+    @Override
+    public synchronized void append(TagRead read) throws IOException {
+        if (!open) throw new IOException("Kho lưu trữ chưa mở");
+        long seq = lastSeq + 1;
+        JournalRecord.encode(read, seq, tail, tailBuffer, tailCount * JournalRecord.SIZE, crc);
+        tailCount++;
+        lastSeq = seq;
+        tailDirty = true;
+        if (tailCount == chunkRecords) sealTail();
+    }
+
+    @Override
+    public synchronized void syncIfDue(long nowMs) throws IOException {
+        if ((tailDirty || segmentDirty) && nowMs - lastSyncMs >= syncIntervalMs) sync();
+    }
+
+    // Khối đầy phải xuống đĩa trước tail mới, để tail trên đĩa không bao giờ vượt qua khoảng trống
+    @Override
+    public synchronized void sync() throws IOException {
+        if (!open) return;
+        if (segmentDirty) {
+            activeChannel.force(false);
+            segmentDirty = false;
+        }
+        if (tailDirty) {
+            writeTail();
+            tailDirty = false;
+        }
+        lastSyncMs = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!open) return;
+        try {
+            sync();
+        } catch (IOException ignored) {
+        }
+        closeActive();
+        open = false;
+    }
+
+    @Override
+    public synchronized void clear() throws IOException {
+        if (!open) open();
+        closeActive();
+        for (Segment segment : segments) {
+            if (!segment.file.delete() && segment.file.exists()) {
+                throw new IOException("Không xoá được " + segment.file);
+            }
+        }
+        segments.clear();
+        sealedRecords = 0;
+        sealedChunks = 0;
+        discardedRecords = 0;
+        cachedChunk = -1;
+        tailCount = 0;
+        tailFirstSeq = lastSeq + 1;
+        // tail rỗng giữ lại seq tiếp theo qua lần mở sau
+        writeTail();
+        tailDirty = false;
+        segmentDirty = false;
+        startSegment(tailFirstSeq);
+    }
+
+    @Override
+    public synchronized long recordCount() {
+        return sealedRecords + tailCount;
+    }
+
+    @Override
+    public synchronized long firstSeq() {
+        for (Segment segment : segments) {
+            if (segment.chunks > 0) return segment.firstSeq;
+        }
+        return tailFirstSeq;
+    }
+
+    @Override
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    // Chỉ giải mã các khối chứa record được đọc
+    @Override
+    public synchronized List<JournalRecord> read(long index, int limit) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        if (index < 0 || limit <= 0) return records;
+
+        long position = index;
+        while (records.size() < limit && position < sealedRecords) {
+            long chunk = position / chunkRecords;
+            ByteBuffer plaintext = decryptChunk(chunk);
+            int from = (int) (position % chunkRecords);
+            int n = Math.min(chunkRecords - from, limit - records.size());
+            for (int i = 0; i < n; i++) {
+                records.add(new JournalRecord(plaintext, (from + i) * JournalRecord.SIZE));
+            }
+            position += n;
+        }
+        while (records.size() < limit && position < sealedRecords + tailCount) {
+            records.add(new JournalRecord(tailBuffer, (int) (position - sealedRecords) * JournalRecord.SIZE));
+            position++;
+        }
+        return records;
+    }
+
+    @Override
+    public synchronized Map<String, Object> stats() {
+        long bytes = 0;
+        for (Segment segment : segments) bytes += segment.file.length();
+        File tailFile = new File(directory, TAIL_FILE);
+        if (tailFile.exists()) bytes += tailFile.length();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("open", open);
+        stats.put("encrypted", true);
+        stats.put("cipher", TRANSFORMATION);
+        stats.put("provider", cipher.getProvider().getName());
+        stats.put("records", recordCount());
+        stats.put("first_seq", firstSeq());
+        stats.put("last_seq", lastSeq);
+        stats.put("segments", segments.size());
+        stats.put("chunk_records", chunkRecords);
+        stats.put("tail_records", tailCount);
+        stats.put("sealed_chunks", sealedChunks);
+        stats.put("bytes", bytes);
+        stats.put("sync_interval_ms", syncIntervalMs);
+        stats.put("unsynced", tailDirty || segmentDirty);
+        stats.put("discarded_records", discardedRecords);
+        return stats;
+    }
+
+    private Segment lastSegment() {
+        return segments.get(segments.size() - 1);
+    }
+
+    // Niêm phong khối đầy vào slot tiếp theo của segment cuối (mở segment mới nếu cần)
+    private void sealTail() throws IOException {
+        if (lastSegment().chunks >= chunksPerSegment) {
+            activeChannel.force(false);
+            closeActive();
+            startSegment(tailFirstSeq);
+        }
+        Segment segment = lastSegment();
+        ByteBuffer sealed = seal(tailFirstSeq, chunkRecords);
+        long position = (long) segment.chunks * slotSize;
+        while (sealed.hasRemaining()) {
+            position += activeChannel.write(sealed, position);
+        }
+        segment.chunks++;
+        sealedChunks++;
+        sealedRecords += chunkRecords;
+        segmentDirty = true;
+
+        tailCount = 0;
+        tailFirstSeq = lastSeq + 1;
+        // tail.chunk cũ (firstSeq nhỏ hơn) tự bị bỏ qua khi mở lại; ghi tail rỗng ở lần sync sau
+        tailDirty = true;
+    }
+
+    // header + ciphertext + tag của count record đầu trong tail
+    private ByteBuffer seal(long firstSeq, int count) throws IOException {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        writeChunkHeader(firstSeq, count, nonce);
+        int plaintextBytes = count * JournalRecord.SIZE;
+        byte[] out = new byte[CHUNK_HEADER + plaintextBytes + TAG_BYTES];
+        System.arraycopy(header, 0, out, 0, CHUNK_HEADER);
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(header, 0, AAD_BYTES);
+            cipher.doFinal(tail, 0, plaintextBytes, out, CHUNK_HEADER);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Lỗi mã hoá khối: " + e.getMessage(), e);
+        }
+        return ByteBuffer.wrap(out);
+    }
+
+    private void writeChunkHeader(long firstSeq, int count, byte[] nonce) {
+        Arrays.fill(header, (byte) 0);
+        headerBuffer.putInt(C_MAGIC, MAGIC);
+        headerBuffer.putShort(C_VERSION, VERSION);
+        headerBuffer.putInt(C_COUNT, count);
+        headerBuffer.putLong(C_FIRST_SEQ, firstSeq);
+        System.arraycopy(nonce, 0, header, C_NONCE, NONCE_BYTES);
+    }
+
+    // Giải mã một khối (header + ciphertext + tag); null nếu không xác thực được
+    private ByteBuffer unseal(ByteBuffer chunk, long expectedFirstSeq, int expectedCount) {
+        ByteBuffer in = chunk.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < CHUNK_HEADER + TAG_BYTES || in.getInt(C_MAGIC) != MAGIC) return null;
+        int count = in.getInt(C_COUNT);
+        long firstSeq = in.getLong(C_FIRST_SEQ);
+        if (count < 0 || count > chunkRecords || (expectedCount >= 0 && count != expectedCount)) return null;
+        if (expectedFirstSeq > 0 && firstSeq != expectedFirstSeq) return null;
+        if (in.remaining() < CHUNK_HEADER + count * JournalRecord.SIZE + TAG_BYTES) return null;
+
+        byte[] bytes = new byte[CHUNK_HEADER + count * JournalRecord.SIZE + TAG_BYTES];
+        in.get(bytes);
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, bytes, C_NONCE, NONCE_BYTES));
+            cipher.updateAAD(bytes, 0, AAD_BYTES);
+            byte[] plaintext = cipher.doFinal(bytes, CHUNK_HEADER, bytes.length - CHUNK_HEADER);
+            return ByteBuffer.wrap(plaintext).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    private ByteBuffer decryptChunk(long chunk) throws IOException {
+        if (chunk == cachedChunk) return cachedPlaintext;
+
+        long remaining = chunk;
+        for (Segment segment : segments) {
+            if (remaining >= segment.chunks) {
+                remaining -= segment.chunks;
+                continue;
+            }
+            ByteBuffer slot = readSlot(segment.file, remaining);
+            long firstSeq = segment.firstSeq + remaining * chunkRecords;
+            ByteBuffer plaintext = unseal(slot, firstSeq, chunkRecords);
+            if (plaintext == null) {
+                throw new IOException("Khối seq " + firstSeq + " không xác thực được (sai khoá hoặc dữ liệu hỏng)");
+            }
+            cachedChunk = chunk;
+            cachedPlaintext = plaintext;
+            return plaintext;
+        }
+        throw new IOException("Khối ngoài phạm vi: " + chunk);
+    }
+
+    private ByteBuffer readSlot(File file, long slot) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(slotSize);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long position = slot * slotSize;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Segment bị cắt ngắn: " + file);
+                }
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Số khối hợp lệ của một segment: cắt slot ghi dở ở cuối. Mỗi lần ghi nối chỉ chạm tới slot
+    // cuối, nên chỉ khối cuối có thể hỏng do mất điện giữa chừng
+    private int recoverChunks(File file, long firstSeq) throws IOException {
+        long length = file.length();
+        int chunks = (int) Math.min(length / slotSize, chunksPerSegment);
+        if (chunks > 0) {
+            ByteBuffer slot = readSlot(file, chunks - 1);
+            if (unseal(slot, firstSeq + (long) (chunks - 1) * chunkRecords, chunkRecords) == null) {
+                discardedRecords += chunkRecords;
+                chunks--;
+            }
+        }
+        if (length != (long) chunks * slotSize) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.getChannel().truncate((long) chunks * slotSize);
+            }
+        }
+        return chunks;
+    }
+
+    // Khôi phục khối dở từ tail.chunk nếu nó nối tiếp đúng khối niêm phong cuối
+    private void restoreTail() throws IOException {
+        tailCount = 0;
+        tailFirstSeq = lastSeq + 1;
+
+        File file = new File(directory, TAIL_FILE);
+        if (!file.exists()) return;
+        byte[] bytes = new byte[(int) Math.min(file.length(), slotSize)];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.readFully(bytes);
+        }
+        ByteBuffer plaintext = unseal(ByteBuffer.wrap(bytes), -1, -1);
+        if (plaintext == null) {
+            discardedRecords += Math.max(0, (bytes.length - CHUNK_HEADER - TAG_BYTES) / JournalRecord.SIZE);
+            return;
+        }
+        long firstSeq = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getLong(C_FIRST_SEQ);
+        int count = plaintext.remaining() / JournalRecord.SIZE;
+        if (firstSeq <= lastSeq) return;   // đã nằm trong khối niêm phong
+        if (segments.isEmpty() || firstSeq == lastSeq + 1) {
+            plaintext.get(tail, 0, count * JournalRecord.SIZE);
+            tailCount = count;
+            tailFirstSeq = firstSeq;
+            lastSeq = firstSeq + count - 1;
+        } else {
+            // Có khoảng trống giữa khối niêm phong cuối và tail (khối trước đó bị hỏng)
+            discardedRecords += count;
+        }
+    }
+
+    // key.check: một khối rỗng niêm phong bằng khoá hiện tại, tạo ở lần mở đầu tiên
+    private void verifyKey() throws IOException {
+        File file = new File(directory, KEY_CHECK_FILE);
+        if (file.exists()) {
+            byte[] bytes = new byte[(int) Math.min(file.length(), slotSize)];
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.readFully(bytes);
+            }
+            if (unseal(ByteBuffer.wrap(bytes), -1, 0) == null) {
+                throw new IOException("Khoá không khớp với dữ liệu đã lưu trong " + directory);
+            }
+            return;
+        }
+        ByteBuffer sealed = seal(0, 0);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            while (sealed.hasRemaining()) channel.write(sealed);
+            channel.force(true);
+        }
+    }
+
+    // Ghi tail (kể cả rỗng) ra file tạm, force, rồi rename đè tail.chunk
+    private void writeTail() throws IOException {
+        ByteBuffer sealed = seal(tailFirstSeq, tailCount);
+        File temp = new File(directory, TAIL_TEMP_FILE);
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            FileChannel channel = raf.getChannel();
+            channel.truncate(0);
+            while (sealed.hasRemaining()) channel.write(sealed);
+            channel.force(true);
+        }
+        if (!temp.renameTo(new File(directory, TAIL_FILE))) {
+            throw new IOException("Không ghi được " + TAIL_FILE);
+        }
+    }
+
+    private void startSegment(long firstSeq) throws IOException {
+        File file = new File(directory, String.format(Locale.US, "%s%020d%s",
+                SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        activeChannel = new RandomAccessFile(file, "rw").getChannel();
+        activeChannel.truncate(0);
+        segments.add(new Segment(file, firstSeq, 0));
+    }
+
+    private void closeActive() {
+        try {
+            if (activeChannel != null) activeChannel.close();
+        } catch (IOException ignored) {
+        }
+        activeChannel = null;
+    }
+
+    private static long parseFirstSeq(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.paralled_data.storage;
+
+import com.example.paralled_data.tag_pipeline.HexCodec;
+import com.example.paralled_data.tag_pipeline.TagFrameEncoder;
+import com.example.paralled_data.tag_pipeline.TagRead;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Một lần đọc tag trong kho lưu trữ trên đĩa: record nhị phân cố định SIZE byte (little-endian),
+// dùng chung cho ScanJournal (map bộ nhớ, không mã hoá) và EncryptedSegmentStore (mã hoá theo khối).
+// Mỗi record mang seq và CRC32 riêng để phát hiện record ghi dở khi khôi phục.
+public final class JournalRecord {
+
+    public static final int SIZE = 128;
+
+    public static final int FLAG_FIRST_SEEN = 1;
+    public static final int FLAG_HAS_DEDUP = 1 << 1;
+    public static final int FLAG_HAS_RSSI = 1 << 2;
+    public static final int FLAG_TRUNCATED = 1 << 3;   // EPC / TID / USER dài hơn chỗ trong record
+
+    // Vị trí trong record
+    static final int R_SEQ = 0;
+    static final int R_TIMESTAMP_MS = 8;
+    static final int R_SCAN_DURATION_NS = 16;
+    static final int R_COUNT = 24;
+    static final int R_SEEN_COUNT = 28;
+    static final int R_RSSI = 32;
+    static final int R_EPC_LEN = 34;
+    static final int R_TID_LEN = 35;
+    static final int R_USER_LEN = 36;
+    static final int R_FLAGS = 37;
+    static final int R_EPC = 40;
+    static final int EPC_BYTES = 32;
+    static final int R_TID = R_EPC + EPC_BYTES;
+    static final int TID_BYTES = 24;
+    static final int R_USER = R_TID + TID_BYTES;
+    static final int USER_BYTES = 28;   // InventoryMemoryMode / UserBankReadQueue giới hạn userLen <= 14 word
+    static final int R_CRC = R_USER + USER_BYTES;   // = 124
+
+    public final long seq;
+    public final long timestampMs;
+    public final long scanDurationNs;
+    public final int count;
+    public final int seenCount;
+    public final int rssiCentiDbm;    // Integer.MIN_VALUE nếu không có RSSI
+    public final int flags;
+    public final String epcHex;
+    public final String tidHex;
+    public final String userHex;
+
+    // Giải mã record bắt đầu tại base (buffer phải là little-endian)
+    JournalRecord(ByteBuffer data, int base) {
+        seq = data.getLong(base + R_SEQ);
+        timestampMs = data.getLong(base + R_TIMESTAMP_MS);
+        scanDurationNs = data.getLong(base + R_SCAN_DURATION_NS);
+        count = data.getInt(base + R_COUNT);
+        seenCount = data.getInt(base + R_SEEN_COUNT);
+        flags = data.get(base + R_FLAGS) & 0xFF;
+        rssiCentiDbm = (flags & FLAG_HAS_RSSI) != 0 ? data.getShort(base + R_RSSI) : Integer.MIN_VALUE;
+        epcHex = toHex(data, base + R_EPC, Math.min(data.get(base + R_EPC_LEN) & 0xFF, EPC_BYTES));
+        tidHex = toHex(data, base + R_TID, Math.min(data.get(base + R_TID_LEN) & 0xFF, TID_BYTES));
+        userHex = toHex(data, base + R_USER, Math.min(data.get(base + R_USER_LEN) & 0xFF, USER_BYTES));
+    }
+
+    public boolean hasRssi() {
+        return rssiCentiDbm != Integer.MIN_VALUE;
+    }
+
+    public boolean hasDedupInfo() {
+        return (flags & FLAG_HAS_DEDUP) != 0;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("seq", seq);
+        map.put("timestamp_ms", timestampMs);
+        map.put("scan_duration_ns", scanDurationNs);
+        map.put("count", count);
+        map.put("epc_hex", epcHex);
+        map.put("tid_hex", tidHex);
+        map.put("user_hex", userHex);
+        map.put("rssi", hasRssi() ? rssiCentiDbm / 100.0 : null);
+        map.put("truncated", (flags & FLAG_TRUNCATED) != 0);
+        if (hasDedupInfo()) {
+            map.put("first_seen", (flags & FLAG_FIRST_SEEN) != 0);
+            map.put("seen_count", seenCount);
+        }
+        return map;
+    }
+
+    // Ghi read thành record tại dst[base..base+SIZE); view là ByteBuffer little-endian bọc dst
+    static void encode(TagRead read, long seq, byte[] dst, ByteBuffer view, int base, CRC32 crc) {
+        Arrays.fill(dst, base, base + SIZE, (byte) 0);
+
+        int centiDbm = TagFrameEncoder.parseCentiDbm(read.rssi);
+        boolean hasRssi = centiDbm != Integer.MIN_VALUE
+                && centiDbm >= Short.MIN_VALUE && centiDbm <= Short.MAX_VALUE;
+        int flags = 0;
+        if (read.firstSeen) flags |= FLAG_FIRST_SEEN;
+        if (read.hasDedupInfo()) flags |= FLAG_HAS_DEDUP;
+        if (hasRssi) flags |= FLAG_HAS_RSSI;
+        if (read.epcHex.length() > EPC_BYTES * 2 || read.tidHex.length() > TID_BYTES * 2
+                || read.userHex.length() > USER_BYTES * 2) {
+            flags |= FLAG_TRUNCATED;
+        }
+
+        view.putLong(base + R_SEQ, seq);
+        view.putLong(base + R_TIMESTAMP_MS, read.timestampMs);
+        view.putLong(base + R_SCAN_DURATION_NS, read.scanDurationNs);
+        view.putInt(base + R_COUNT, read.count);
+        view.putInt(base + R_SEEN_COUNT, read.seenCount);
+        view.putShort(base + R_RSSI, hasRssi ? (short) centiDbm : 0);
+        view.put(base + R_EPC_LEN, (byte) HexCodec.hexToBytes(read.epcHex, dst, base + R_EPC, EPC_BYTES));
+        view.put(base + R_TID_LEN, (byte) HexCodec.hexToBytes(read.tidHex, dst, base + R_TID, TID_BYTES));
+        view.put(base + R_USER_LEN, (byte) HexCodec.hexToBytes(read.userHex, dst, base + R_USER, USER_BYTES));
+        view.put(base + R_FLAGS, (byte) flags);
+
+        crc.reset();
+        crc.update(dst, base, R_CRC);
+        view.putInt(base + R_CRC, (int) crc.getValue());
+    }
+
+    // Record hợp lệ nếu CRC khớp và seq đúng giá trị mong đợi
+    static boolean isValid(ByteBuffer data, int base, long expectedSeq, CRC32 crc) {
+        crc.reset();
+        for (int i = 0; i < R_CRC; i++) crc.update(data.get(base + i));
+        return (int) crc.getValue() == data.getInt(base + R_CRC)
+                && data.getLong(base + R_SEQ) == expectedSeq;
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static String toHex(ByteBuffer data, int offset, int length) {
+        char[] chars = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = data.get(offset + i) & 0xFF;
+            chars[2 * i] = HEX[b >>> 4];
+            chars[2 * i + 1] = HEX[b & 0xF];
+        }
+        return new String(chars);
+    }
+}
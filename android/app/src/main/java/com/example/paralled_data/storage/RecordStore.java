@@ -0,0 +1,46 @@
+package com.example.paralled_data.storage;
+
+import com.example.paralled_data.tag_pipeline.TagRead;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+// Kho record quét trên đĩa mà plugin ghi vào: ScanJournal (map bộ nhớ, không mã hoá)
+// hoặc EncryptedSegmentStore (AES-GCM theo khối). append() chạy trên thread xử lý tag,
+// các hàm còn lại trên main thread; implementation tự đồng bộ.
+public interface RecordStore {
+
+    // Mở (hoặc tạo) kho, khôi phục phần đuôi ghi dở
+    void open() throws IOException;
+
+    boolean isOpen();
+
+    void append(TagRead read) throws IOException;
+
+    // Đẩy dữ liệu đã ghi xuống đĩa
+    void sync() throws IOException;
+
+    // Gọi sau mỗi lượt xử lý tag: sync() nếu đã quá syncIntervalMs từ lần trước
+    void syncIfDue(long nowMs) throws IOException;
+
+    void setSyncIntervalMs(long intervalMs);
+
+    long syncIntervalMs();
+
+    void close();
+
+    // Xoá mọi record; seq vẫn tăng tiếp
+    void clear() throws IOException;
+
+    long recordCount();
+
+    long firstSeq();
+
+    long lastSeq();
+
+    // Tối đa limit record bắt đầu từ vị trí index (0 = record cũ nhất còn trong kho)
+    List<JournalRecord> read(long index, int limit) throws IOException;
+
+    Map<String, Object> stats();
+}
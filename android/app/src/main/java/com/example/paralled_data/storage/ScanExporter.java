@@ -0,0 +1,371 @@
+package com.example.paralled_data.storage;
+
+import com.example.paralled_data.tag_pipeline.HexCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Xuất record từ RecordStore ra CSV / JSON theo kiểu con trỏ: đọc từng trang pageSize record,
+// mã hoá thẳng thành byte ASCII / UTF-8 vào một ByteBuffer direct cố định rồi ghi qua FileChannel.
+// Bộ nhớ dùng không phụ thuộc số record (một trang record + buffer ghi), khác với việc dựng
+// cả danh sách và cả chuỗi CSV trong Dart. Ghi ra file .part, đổi tên khi xong; huỷ hoặc lỗi
+// thì xoá file .part. Chỉ xuất các record có tại thời điểm bắt đầu (tag mới vẫn được ghi tiếp).
+// run() chạy trên thread riêng của job; cancel() và các getter gọi từ thread khác.
+public final class ScanExporter implements Runnable {
+
+    public enum Format {
+        CSV, JSON;
+
+        // "csv" / "json", không phân biệt hoa thường; null nếu không hợp lệ
+        public static Format parse(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) return format;
+            }
+            return null;
+        }
+    }
+
+    public static final int STATE_RUNNING = 0;
+    public static final int STATE_COMPLETED = 1;
+    public static final int STATE_CANCELLED = 2;
+    public static final int STATE_FAILED = 3;
+
+    // Gọi trên thread của job: định kỳ trong lúc chạy (finished = false) và một lần khi kết thúc
+    public interface Listener {
+        void onProgress(ScanExporter job, boolean finished);
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 1024;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_RECORD_BYTES = 2048;   // record JSON dài nhất, kể cả EPC ASCII được escape
+    private static final long PROGRESS_INTERVAL_MS = 200;
+
+    private static final String CSV_HEADER = "seq,epc,scan_duration_ms,epc_hex,tid_hex,user_hex,rssi,count,"
+            + "first_seen,seen_count,timestamp_ms\n";
+
+    private final long id;
+    private final RecordStore store;
+    private final File target;
+    private final Format format;
+    private final long fromIndex;
+    private final int pageSize;
+    private final Listener listener;
+
+    private final HexCodec hexCodec = new HexCodec();
+    private final byte[] digits = new byte[20];
+    private ByteBuffer buffer;
+    private FileChannel channel;
+
+    private volatile boolean cancelled;
+    private volatile int state = STATE_RUNNING;
+    private volatile long total;
+    private volatile long written;
+    private volatile long bytes;
+    private volatile String error;
+    private volatile long startedMs;
+    private volatile long finishedMs;
+
+    public ScanExporter(long id, RecordStore store, File target, Format format, long fromIndex, Listener listener) {
+        this(id, store, target, format, fromIndex, DEFAULT_PAGE_SIZE, listener);
+    }
+
+    public ScanExporter(long id, RecordStore store, File target, Format format, long fromIndex, int pageSize,
+                        Listener listener) {
+        this.id = id;
+        this.store = store;
+        this.target = target;
+        this.format = format;
+        this.fromIndex = Math.max(0, fromIndex);
+        this.pageSize = Math.max(1, pageSize);
+        this.listener = listener;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public void run() {
+        startedMs = System.currentTimeMillis();
+        total = Math.max(0, store.recordCount() - fromIndex);
+        File part = new File(target.getPath() + ".part");
+        try {
+            File parent = target.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Không tạo được thư mục " + parent);
+            }
+            try (RandomAccessFile file = new RandomAccessFile(part, "rw")) {
+                file.setLength(0);
+                channel = file.getChannel();
+                buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+                writeAll();
+                if (!cancelled) {
+                    drain();
+                    channel.force(true);
+                }
+            } finally {
+                channel = null;
+                buffer = null;
+            }
+
+            if (cancelled) {
+                finish(STATE_CANCELLED, null);
+                deleteQuietly(part);
+            } else if (!part.renameTo(target)) {
+                throw new IOException("Không đổi tên được " + part + " thành " + target);
+            } else {
+                finish(STATE_COMPLETED, null);
+            }
+        } catch (Exception e) {
+            deleteQuietly(part);
+            finish(STATE_FAILED, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private void writeAll() throws IOException {
+        if (format == Format.CSV) {
+            putAscii(CSV_HEADER);
+        } else {
+            putAscii("[");
+        }
+
+        long end = fromIndex + total;
+        long lastProgressMs = System.currentTimeMillis();
+        for (long index = fromIndex; index < end && !cancelled; ) {
+            List<JournalRecord> page = store.read(index, (int) Math.min(pageSize, end - index));
+            if (page.isEmpty()) break;   // kho bị xoá trong lúc xuất
+            for (int i = 0; i < page.size(); i++) {
+                if (buffer.remaining() < MAX_RECORD_BYTES) drain();
+                if (format == Format.CSV) {
+                    writeCsv(page.get(i));
+                } else {
+                    if (written > 0) buffer.put((byte) ',');
+                    buffer.put((byte) '\n');
+                    writeJson(page.get(i));
+                }
+                written++;
+            }
+            index += page.size();
+
+            long nowMs = System.currentTimeMillis();
+            if (nowMs - lastProgressMs >= PROGRESS_INTERVAL_MS) {
+                lastProgressMs = nowMs;
+                if (listener != null) listener.onProgress(this, false);
+            }
+        }
+
+        if (format == Format.JSON) putAscii(written > 0 ? "\n]\n" : "]\n");
+    }
+
+    private void writeCsv(JournalRecord record) {
+        putLong(record.seq);
+        buffer.put((byte) ',');
+        putCsvQuoted(hexCodec.hexToAscii(record.epcHex));
+        buffer.put((byte) ',');
+        putMillis(record.scanDurationNs);
+        buffer.put((byte) ',');
+        putAscii(record.epcHex);
+        buffer.put((byte) ',');
+        putAscii(record.tidHex);
+        buffer.put((byte) ',');
+        putAscii(record.userHex);
+        buffer.put((byte) ',');
+        if (record.hasRssi()) putCenti(record.rssiCentiDbm);
+        buffer.put((byte) ',');
+        putLong(record.count);
+        buffer.put((byte) ',');
+        if (record.hasDedupInfo()) putAscii((record.flags & JournalRecord.FLAG_FIRST_SEEN) != 0 ? "true" : "false");
+        buffer.put((byte) ',');
+        if (record.hasDedupInfo()) putLong(record.seenCount);
+        buffer.put((byte) ',');
+        putLong(record.timestampMs);
+        buffer.put((byte) '\n');
+    }
+
+    private void writeJson(JournalRecord record) {
+        putAscii("{\"seq\":");
+        putLong(record.seq);
+        putAscii(",\"epc\":");
+        putJsonString(hexCodec.hexToAscii(record.epcHex));
+        putAscii(",\"scan_duration_ms\":");
+        putMillis(record.scanDurationNs);
+        putAscii(",\"epc_hex\":\"");
+        putAscii(record.epcHex);
+        putAscii("\",\"tid_hex\":\"");
+        putAscii(record.tidHex);
+        putAscii("\",\"user_hex\":\"");
+        putAscii(record.userHex);
+        putAscii("\",\"rssi\":");
+        if (record.hasRssi()) {
+            putCenti(record.rssiCentiDbm);
+        } else {
+            putAscii("null");
+        }
+        putAscii(",\"count\":");
+        putLong(record.count);
+        if (record.hasDedupInfo()) {
+            putAscii(",\"first_seen\":");
+            putAscii((record.flags & JournalRecord.FLAG_FIRST_SEEN) != 0 ? "true" : "false");
+            putAscii(",\"seen_count\":");
+            putLong(record.seenCount);
+        }
+        putAscii(",\"timestamp_ms\":");
+        putLong(record.timestampMs);
+        buffer.put((byte) '}');
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) bytes += channel.write(buffer);
+        buffer.clear();
+    }
+
+    private void putAscii(String text) {
+        for (int i = 0; i < text.length(); i++) buffer.put((byte) text.charAt(i));
+    }
+
+    // Ký tự từ hexToAscii luôn <= 0xFF: ký tự >= 0x80 ghi thành 2 byte UTF-8
+    private void putUtf8(char c) {
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void putCsvQuoted(String text) {
+        buffer.put((byte) '"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') buffer.put((byte) '"');
+            putUtf8(c);
+        }
+        buffer.put((byte) '"');
+    }
+
+    private void putJsonString(String text) {
+        buffer.put((byte) '"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.put((byte) '\\');
+                buffer.put((byte) c);
+            } else if (c < 0x20) {
+                putAscii("\\u00");
+                buffer.put((byte) Character.forDigit(c >> 4, 16));
+                buffer.put((byte) Character.forDigit(c & 0xF, 16));
+            } else {
+                putUtf8(c);
+            }
+        }
+        buffer.put((byte) '"');
+    }
+
+    // Số nguyên không cấp phát String
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            putAscii("-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        while (n > 0) buffer.put(digits[--n]);
+    }
+
+    // centi-dBm -> "-61.50"
+    private void putCenti(int centi) {
+        if (centi < 0) {
+            buffer.put((byte) '-');
+            centi = -centi;
+        }
+        putLong(centi / 100);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + (centi / 10) % 10));
+        buffer.put((byte) ('0' + centi % 10));
+    }
+
+    // ns -> ms với 3 chữ số thập phân
+    private void putMillis(long nanos) {
+        long micros = nanos / 1_000;
+        if (micros < 0) {
+            buffer.put((byte) '-');
+            micros = -micros;
+        }
+        putLong(micros / 1_000);
+        buffer.put((byte) '.');
+        long fraction = micros % 1_000;
+        buffer.put((byte) ('0' + fraction / 100));
+        buffer.put((byte) ('0' + (fraction / 10) % 10));
+        buffer.put((byte) ('0' + fraction % 10));
+    }
+
+    private void finish(int newState, String message) {
+        error = message;
+        finishedMs = System.currentTimeMillis();
+        state = newState;
+        if (listener != null) listener.onProgress(this, true);
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) file.deleteOnExit();
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public int state() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state != STATE_RUNNING;
+    }
+
+    public File target() {
+        return target;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("job_id", id);
+        status.put("state", stateName(state));
+        status.put("format", format.name().toLowerCase());
+        status.put("path", target.getPath());
+        status.put("total", total);
+        status.put("written", written);
+        status.put("bytes", bytes);
+        status.put("progress", total > 0 ? (double) written / total : (isFinished() ? 1.0 : 0.0));
+        long endMs = finishedMs > 0 ? finishedMs : System.currentTimeMillis();
+        status.put("elapsed_ms", startedMs > 0 ? endMs - startedMs : 0);
+        if (error != null) status.put("error", error);
+        return status;
+    }
+
+    private static String stateName(int state) {
+        switch (state) {
+            case STATE_COMPLETED:
+                return "completed";
+            case STATE_CANCELLED:
+                return "cancelled";
+            case STATE_FAILED:
+                return "failed";
+            default:
+                return "running";
+        }
+    }
+}
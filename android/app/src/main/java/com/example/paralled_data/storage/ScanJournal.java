@@ -0,0 +1,440 @@
+package com.example.paralled_data.storage;
+
+import com.example.paralled_data.tag_pipeline.TagRead;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Nhật ký quét phía Java: mỗi tag gửi lên Flutter được ghi thành một JournalRecord cố định 128 byte
+// vào segment file map bằng MappedByteBuffer. Ghi thêm chỉ là một lần copy vào vùng nhớ đã map
+// + cập nhật header, nên chi phí không tăng theo độ dài ca làm việc (khác với việc giải mã /
+// mã hoá lại cả file như TempStorageService). Segment đầy thì đóng lại và mở segment mới.
+//
+// Header segment (64 byte): magic, version, recordSize, capacity, recordCount, firstSeq, lastSeq,
+// createdMs, CRC32 của header -> đếm số record là O(1). Mỗi record có seq (= firstSeq + vị trí)
+// và CRC32 riêng. Record được ghi trước, header sau; khi mở lại, recover() kiểm tra đuôi segment:
+// lùi lại nếu header đếm cả record bị ghi dở (mất điện giữa chừng), tiến thêm nếu record đã ghi
+// mà header chưa kịp cập nhật.
+// Ghi vào MappedByteBuffer đã nằm trong page cache nên không mất khi app crash; sync() (force)
+// chỉ cần cho trường hợp mất nguồn, và được gọi định kỳ theo syncIntervalMs thay vì mỗi record.
+public final class ScanJournal implements RecordStore {
+
+    public static final int RECORD_SIZE = JournalRecord.SIZE;
+    public static final int HEADER_SIZE = 64;
+    public static final int DEFAULT_SEGMENT_RECORDS = 65536;   // ~8 MB / segment
+    public static final long DEFAULT_SYNC_INTERVAL_MS = 1000;
+
+    private static final int MAGIC = 0x534A4E4C;   // "SJNL"
+    private static final short VERSION = 1;
+
+    // Vị trí trong header
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORD_SIZE = 6;
+    private static final int H_CAPACITY = 8;
+    private static final int H_COUNT = 12;
+    private static final int H_FIRST_SEQ = 16;
+    private static final int H_LAST_SEQ = 24;
+    private static final int H_CREATED_MS = 32;
+    private static final int H_CRC = 60;
+
+    private static final String SEGMENT_PREFIX = "scan-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    // Segment đã đầy (chỉ đọc lại bằng FileChannel) hoặc segment đang ghi (có mapped)
+    private static final class Segment {
+        final File file;
+        final long firstSeq;
+        final int capacity;
+        long createdMs;
+        int count;
+        FileChannel channel;
+        MappedByteBuffer mapped;
+
+        Segment(File file, long firstSeq, int capacity, int count) {
+            this.file = file;
+            this.firstSeq = firstSeq;
+            this.capacity = capacity;
+            this.count = count;
+        }
+    }
+
+    private final File directory;
+    private final int segmentRecords;
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+
+    private final byte[] scratch = new byte[RECORD_SIZE];
+    private final ByteBuffer scratchBuffer = ByteBuffer.wrap(scratch).order(ByteOrder.LITTLE_ENDIAN);
+    private final byte[] headerScratch = new byte[HEADER_SIZE];
+    private final ByteBuffer headerBuffer = ByteBuffer.wrap(headerScratch).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+
+    private long totalRecords;
+    private long lastSeq;
+    private long syncIntervalMs = DEFAULT_SYNC_INTERVAL_MS;
+    private long lastSyncMs;
+    private boolean dirty;
+    private long recoveredRecords;    // record thêm vào từ đuôi chưa kịp ghi header
+    private long discardedRecords;    // record bị bỏ vì ghi dở / CRC sai
+
+    public ScanJournal(File directory) {
+        this(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    public ScanJournal(File directory, int segmentRecords) {
+        if (segmentRecords <= 0) throw new IllegalArgumentException("segmentRecords phải > 0");
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+    }
+
+    // Mở (hoặc tạo) journal: đọc header mọi segment, khôi phục đuôi ghi dở
+    @Override
+    public synchronized void open() throws IOException {
+        if (active != null) return;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Không tạo được thư mục journal: " + directory);
+        }
+
+        File[] files = directory.listFiles((dir, name) ->
+                name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) files = new File[0];
+        Arrays.sort(files);
+
+        segments.clear();
+        totalRecords = 0;
+        lastSeq = 0;
+        for (File file : files) {
+            Segment segment = recover(file);
+            if (segment == null) continue;
+            segments.add(segment);
+            totalRecords += segment.count;
+            lastSeq = Math.max(lastSeq, segment.firstSeq + segment.count - 1);
+        }
+
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.count < last.capacity) {
+            mapForWrite(last);
+        } else {
+            startSegment();
+        }
+        lastSyncMs = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return active != null;
+    }
+
+    @Override
+    public synchronized void setSyncIntervalMs(long intervalMs) {
+        syncIntervalMs = Math.max(0, intervalMs);
+    }
+
+    @Override
+    public synchronized long syncIntervalMs() {
+        return syncIntervalMs;
+    }
+
+    @Override
+    public synchronized void append(TagRead read) throws IOException {
+        if (active == null) throw new IOException("Journal chưa mở");
+        if (active.count >= active.capacity) {
+            sealActive();
+            startSegment();
+        }
+
+        long seq = lastSeq + 1;
+        JournalRecord.encode(read, seq, scratch, scratchBuffer, 0, crc);
+
+        MappedByteBuffer mapped = active.mapped;
+        mapped.position(HEADER_SIZE + active.count * RECORD_SIZE);
+        mapped.put(scratch, 0, RECORD_SIZE);
+
+        active.count++;
+        totalRecords++;
+        lastSeq = seq;
+        writeHeader(active);
+        dirty = true;
+    }
+
+    // Gọi sau mỗi lượt xử lý tag: force xuống đĩa nếu đã quá syncIntervalMs từ lần trước
+    @Override
+    public synchronized void syncIfDue(long nowMs) {
+        if (dirty && nowMs - lastSyncMs >= syncIntervalMs) sync();
+    }
+
+    @Override
+    public synchronized void sync() {
+        if (active == null || !dirty) return;
+        active.mapped.force();
+        dirty = false;
+        lastSyncMs = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (active == null) return;
+        sync();
+        closeQuietly(active);
+        active = null;
+    }
+
+    // Xoá mọi segment; seq vẫn tăng tiếp (ghi vào header của segment mới)
+    @Override
+    public synchronized void clear() throws IOException {
+        if (active == null) open();
+        closeQuietly(active);
+        active = null;
+        for (Segment segment : segments) {
+            if (!segment.file.delete() && segment.file.exists()) {
+                throw new IOException("Không xoá được " + segment.file);
+            }
+        }
+        segments.clear();
+        totalRecords = 0;
+        recoveredRecords = 0;
+        discardedRecords = 0;
+        startSegment();
+    }
+
+    @Override
+    public synchronized long recordCount() {
+        return totalRecords;
+    }
+
+    @Override
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    @Override
+    public synchronized long firstSeq() {
+        return totalRecords > 0 ? firstSegmentWithRecords().firstSeq : lastSeq + 1;
+    }
+
+    // Đọc tối đa limit record bắt đầu từ vị trí index (0 = record cũ nhất còn trong journal)
+    @Override
+    public synchronized List<JournalRecord> read(long index, int limit) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        if (index < 0 || limit <= 0) return records;
+
+        long skip = index;
+        for (int s = 0; s < segments.size() && records.size() < limit; s++) {
+            Segment segment = segments.get(s);
+            if (skip >= segment.count) {
+                skip -= segment.count;
+                continue;
+            }
+            int n = Math.min(segment.count - (int) skip, limit - records.size());
+            ByteBuffer buffer = readRecords(segment, (int) skip, n);
+            for (int i = 0; i < n; i++) records.add(new JournalRecord(buffer, i * RECORD_SIZE));
+            skip = 0;
+        }
+        return records;
+    }
+
+    @Override
+    public synchronized Map<String, Object> stats() {
+        long bytes = 0;
+        for (Segment segment : segments) bytes += segment.file.length();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("open", active != null);
+        stats.put("records", totalRecords);
+        stats.put("first_seq", firstSeq());
+        stats.put("last_seq", lastSeq);
+        stats.put("segments", segments.size());
+        stats.put("segment_records", segmentRecords);
+        stats.put("bytes", bytes);
+        stats.put("sync_interval_ms", syncIntervalMs);
+        stats.put("unsynced", dirty);
+        stats.put("recovered_records", recoveredRecords);
+        stats.put("discarded_records", discardedRecords);
+        return stats;
+    }
+
+    private Segment firstSegmentWithRecords() {
+        for (Segment segment : segments) {
+            if (segment.count > 0) return segment;
+        }
+        return segments.get(segments.size() - 1);
+    }
+
+    // Đọc n record liên tiếp của một segment bằng một lần copy / một lần đọc file
+    private ByteBuffer readRecords(Segment segment, int from, int n) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(n * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long position = HEADER_SIZE + (long) from * RECORD_SIZE;
+        if (segment.mapped != null) {
+            ByteBuffer source = segment.mapped.duplicate();
+            source.limit((int) position + buffer.capacity());
+            source.position((int) position);
+            buffer.put(source);
+            return buffer;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.file, "r")) {
+            FileChannel channel = file.getChannel();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Segment bị cắt ngắn: " + segment.file);
+                }
+            }
+        }
+        return buffer;
+    }
+
+    private boolean validHeader(ByteBuffer header) {
+        if (header.getInt(H_MAGIC) != MAGIC) return false;
+        crc.reset();
+        for (int i = 0; i < H_CRC; i++) crc.update(header.get(i));
+        return (int) crc.getValue() == header.getInt(H_CRC);
+    }
+
+    // Đọc header và khôi phục đuôi một segment; null nếu không phải segment hợp lệ
+    private Segment recover(File file) throws IOException {
+        int capacity = capacityOf(file);
+        if (capacity <= 0) return null;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+
+            int count;
+            long firstSeq;
+            if (validHeader(data)) {
+                count = Math.min(Math.max(0, data.getInt(H_COUNT)), capacity);
+                firstSeq = data.getLong(H_FIRST_SEQ);
+            } else {
+                // Header hỏng: dựng lại từ record đầu tiên (nếu có) rồi quét tiến
+                count = 0;
+                firstSeq = data.getLong(HEADER_SIZE + JournalRecord.R_SEQ);
+                if (firstSeq <= 0 || !JournalRecord.isValid(data, HEADER_SIZE, firstSeq, crc)) return null;
+            }
+
+            long createdMs = data.getLong(H_CREATED_MS);
+            int original = count;
+            // Lùi: header đếm cả record ghi dở
+            while (count > 0 && !JournalRecord.isValid(data, HEADER_SIZE + (count - 1) * RECORD_SIZE, firstSeq + count - 1, crc)) {
+                count--;
+            }
+            int confirmed = count;
+            // Tiến: record đã ghi nhưng header chưa kịp cập nhật
+            while (count < capacity && JournalRecord.isValid(data, HEADER_SIZE + count * RECORD_SIZE, firstSeq + count, crc)) {
+                count++;
+            }
+            discardedRecords += original - confirmed;
+            recoveredRecords += count - confirmed;
+
+            // Còn dữ liệu ghi dở sau record cuối: xoá phần còn lại của segment, tránh lần khôi phục
+            // sau nhận nhầm record cũ nằm sau chỗ vừa được ghi đè
+            boolean zeroed = false;
+            if (count < capacity && !zeroSlot(data, count)) {
+                for (int i = HEADER_SIZE + count * RECORD_SIZE; i < HEADER_SIZE + capacity * RECORD_SIZE; i++) {
+                    data.put(i, (byte) 0);
+                }
+                zeroed = true;
+            }
+
+            Segment segment = new Segment(file, firstSeq, capacity, count);
+            segment.createdMs = createdMs;
+            if (zeroed || count != original || !validHeader(data)) {
+                segment.mapped = data;
+                writeHeader(segment);
+                data.force();
+                segment.mapped = null;
+            }
+            return segment;
+        }
+    }
+
+    private static boolean zeroSlot(ByteBuffer data, int index) {
+        int from = HEADER_SIZE + index * RECORD_SIZE;
+        for (int i = from; i < from + RECORD_SIZE; i++) {
+            if (data.get(i) != 0) return false;
+        }
+        return true;
+    }
+
+    private static int capacityOf(File file) {
+        long records = (file.length() - HEADER_SIZE) / RECORD_SIZE;
+        return (int) Math.max(0, Math.min(records, Integer.MAX_VALUE));
+    }
+
+    private void startSegment() throws IOException {
+        long firstSeq = lastSeq + 1;
+        File file = new File(directory, String.format(Locale.US, "%s%020d%s",
+                SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        Segment segment = new Segment(file, firstSeq, segmentRecords, 0);
+        segment.createdMs = System.currentTimeMillis();
+        mapForWrite(segment);
+        writeHeader(segment);
+        segment.mapped.force();
+        segments.add(segment);
+    }
+
+    private void mapForWrite(Segment segment) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(segment.file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) segment.capacity * RECORD_SIZE);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            segment.channel = channel;
+            segment.mapped = mapped;
+            active = segment;
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private void sealActive() {
+        active.mapped.force();
+        closeQuietly(active);
+        active = null;
+    }
+
+    // Dựng header trong mảng tạm rồi copy một lần vào vùng map
+    private void writeHeader(Segment segment) {
+        ByteBuffer header = headerBuffer;
+        Arrays.fill(headerScratch, (byte) 0);
+        header.putInt(H_MAGIC, MAGIC);
+        header.putShort(H_VERSION, VERSION);
+        header.putShort(H_RECORD_SIZE, (short) RECORD_SIZE);
+        header.putInt(H_CAPACITY, segment.capacity);
+        header.putInt(H_COUNT, segment.count);
+        header.putLong(H_FIRST_SEQ, segment.firstSeq);
+        header.putLong(H_LAST_SEQ, segment.firstSeq + segment.count - 1);
+        header.putLong(H_CREATED_MS, segment.createdMs);
+        crc.reset();
+        crc.update(headerScratch, 0, H_CRC);
+        header.putInt(H_CRC, (int) crc.getValue());
+
+        MappedByteBuffer mapped = segment.mapped;
+        mapped.position(0);
+        mapped.put(headerScratch, 0, HEADER_SIZE);
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            if (segment.channel != null) segment.channel.close();
+        } catch (IOException ignored) {
+        }
+        segment.channel = null;
+        segment.mapped = null;
+    }
+}
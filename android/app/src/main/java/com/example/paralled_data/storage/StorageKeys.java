@@ -0,0 +1,109 @@
+package com.example.paralled_data.storage;
+
+import android.os.Build;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+// Khoá dữ liệu (AES-256) cho EncryptedSegmentStore theo kiểu envelope: khoá dữ liệu ngẫu nhiên
+// được bọc bằng khoá AES trong Android Keystore (không rời khỏi TEE) và lưu cạnh dữ liệu.
+// Mỗi khối được mã hoá bằng khoá dữ liệu trong tiến trình qua provider mặc định (có tăng tốc
+// phần cứng), thay vì một lần gọi IPC sang Keystore cho mỗi khối.
+public final class StorageKeys {
+
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int DATA_KEY_BYTES = 32;
+    private static final int TAG_BITS = 128;
+
+    private StorageKeys() {
+    }
+
+    // Đọc khoá dữ liệu đã bọc trong wrappedKeyFile, hoặc tạo mới nếu chưa có
+    public static SecretKey loadOrCreateDataKey(String keystoreAlias, File wrappedKeyFile)
+            throws GeneralSecurityException, IOException {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            throw new GeneralSecurityException("Mã hoá lưu trữ cần Android 6.0 (API 23) trở lên");
+        }
+        SecretKey wrappingKey = wrappingKey(keystoreAlias);
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+
+        if (wrappedKeyFile.exists()) {
+            byte[] stored = new byte[(int) wrappedKeyFile.length()];
+            try (RandomAccessFile file = new RandomAccessFile(wrappedKeyFile, "r")) {
+                file.readFully(stored);
+            }
+            if (stored.length < 2) throw new GeneralSecurityException("File khoá hỏng: " + wrappedKeyFile);
+            int ivLength = stored[0] & 0xFF;
+            if (stored.length < 1 + ivLength) throw new GeneralSecurityException("File khoá hỏng: " + wrappedKeyFile);
+            cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(TAG_BITS, stored, 1, ivLength));
+            byte[] dataKey = cipher.doFinal(stored, 1 + ivLength, stored.length - 1 - ivLength);
+            try {
+                return new SecretKeySpec(dataKey, "AES");
+            } finally {
+                Arrays.fill(dataKey, (byte) 0);
+            }
+        }
+
+        byte[] dataKey = new byte[DATA_KEY_BYTES];
+        new SecureRandom().nextBytes(dataKey);
+        try {
+            // Keystore tự sinh IV cho khoá của nó
+            cipher.init(Cipher.ENCRYPT_MODE, wrappingKey);
+            byte[] iv = cipher.getIV();
+            byte[] wrapped = cipher.doFinal(dataKey);
+
+            byte[] stored = new byte[1 + iv.length + wrapped.length];
+            stored[0] = (byte) iv.length;
+            System.arraycopy(iv, 0, stored, 1, iv.length);
+            System.arraycopy(wrapped, 0, stored, 1 + iv.length, wrapped.length);
+            writeAtomically(wrappedKeyFile, stored);
+            return new SecretKeySpec(dataKey, "AES");
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+    }
+
+    private static SecretKey wrappingKey(String alias) throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        if (!keyStore.containsAlias(alias)) {
+            KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+            generator.init(new KeyGenParameterSpec.Builder(alias,
+                    KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                    .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                    .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                    .setKeySize(256)
+                    .build());
+            return generator.generateKey();
+        }
+        return (SecretKey) keyStore.getKey(alias, null);
+    }
+
+    private static void writeAtomically(File target, byte[] data) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Không tạo được thư mục " + parent);
+        }
+        File temp = new File(target.getPath() + ".tmp");
+        try (RandomAccessFile file = new RandomAccessFile(temp, "rw")) {
+            file.setLength(0);
+            file.write(data);
+            file.getFD().sync();
+        }
+        if (!temp.renameTo(target)) throw new IOException("Không ghi được " + target);
+    }
+}
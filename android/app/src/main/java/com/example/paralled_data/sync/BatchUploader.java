@@ -0,0 +1,517 @@
+package com.example.paralled_data.sync;
+
+import com.example.paralled_data.storage.JournalRecord;
+import com.example.paralled_data.storage.RecordStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Đẩy record trong RecordStore lên server theo lô lớn, chạy hoàn toàn trên các thread Java
+// (không qua isolate UI). Mỗi worker giữ một kết nối keep-alive (số worker = số kết nối đồng thời),
+// lấy lô kế tiếp theo seq, nén gzip và POST kèm header Idempotency-Key = "<source>:<firstSeq>-<lastSeq>".
+// Lỗi mạng / 408 / 429 / 5xx được thử lại với backoff luỹ thừa + jitter (tôn trọng Retry-After);
+// 4xx khác hoặc hết số lần thử thì dừng ở trạng thái failed, lô đó chưa được commit.
+// Cursor (seq cuối đã lên server liên tục từ đầu) lưu trong cursorFile cạnh kho, nên sau khi dừng /
+// khởi động lại app chỉ các record sau cursor được gửi lại; các lô xong trước một lô lỗi có thể
+// bị gửi lại, server khử trùng lặp theo (source, seq).
+public final class BatchUploader {
+
+    // Gọi trên thread worker: khi đổi trạng thái và định kỳ sau mỗi lô
+    public interface Listener {
+        void onStatus(BatchUploader uploader, Map<String, Object> status);
+    }
+
+    public static final String STATE_IDLE = "idle";
+    public static final String STATE_RUNNING = "running";
+    public static final String STATE_STOPPING = "stopping";
+    public static final String STATE_FAILED = "failed";
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_CONCURRENCY = 2;
+    public static final int DEFAULT_MAX_ATTEMPTS = 8;
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final int MAX_CONCURRENCY = 8;
+
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long IDLE_POLL_MS = 250;
+    private static final long STATUS_INTERVAL_MS = 250;
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+
+    private static final int OUTCOME_OK = 0;
+    private static final int OUTCOME_RETRY = 1;
+    private static final int OUTCOME_FATAL = 2;
+
+    private final String source;
+    private final Listener listener;
+    private final Object lock = new Object();
+
+    // Cấu hình, chỉ đổi khi đang dừng
+    private URL endpoint;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private boolean gzip = true;
+    private Map<String, String> headers = new HashMap<>();
+
+    // Trạng thái phiên, giữ lock
+    private RecordStore store;
+    private File cursorFile;
+    private volatile boolean running;
+    private String state = STATE_IDLE;
+    private int liveWorkers;
+    private long committedSeq;
+    private long nextSeq;
+    private final TreeMap<Long, Long> completed = new TreeMap<>();   // lô xong nhưng chưa liền với cursor
+    private int inFlight;
+    private long runStartNs;
+    private long activeNs;
+
+    // Thống kê, giữ lock
+    private long uploadedRecords;
+    private long uploadedBatches;
+    private long retries;
+    private long skippedRecords;
+    private long rawBytes;
+    private long sentBytes;
+    private long lastBatchMs;
+    private int lastStatusCode;
+    private String lastError;
+    private long lastStatusEventMs;
+
+    public BatchUploader(String source, Listener listener) {
+        this.source = source;
+        this.listener = listener;
+    }
+
+    // url: endpoint nhận lô (https; http chỉ cho máy / emulator / IP mạng nội bộ, host http còn phải có
+    // trong res/xml/network_security_config); headers: header thêm vào mỗi request (vd. Authorization)
+    public void configure(String url, int batchSize, int concurrency, int maxAttempts, boolean gzip,
+                          Map<String, String> headers) throws MalformedURLException {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("batchSize phải trong 1.." + MAX_BATCH_SIZE);
+        }
+        if (concurrency < 1 || concurrency > MAX_CONCURRENCY) {
+            throw new IllegalArgumentException("concurrency phải trong 1.." + MAX_CONCURRENCY);
+        }
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts phải >= 1");
+        URL parsed = url != null ? new URL(url) : null;
+        if (parsed != null && !"https".equals(parsed.getProtocol())
+                && !("http".equals(parsed.getProtocol()) && isLocalHost(parsed.getHost()))) {
+            throw new MalformedURLException("Chỉ hỗ trợ https (http chỉ cho server trong mạng nội bộ): " + url);
+        }
+        synchronized (lock) {
+            if (liveWorkers > 0) throw new IllegalStateException("Đang đồng bộ");
+            if (parsed != null) endpoint = parsed;
+            this.batchSize = batchSize;
+            this.concurrency = concurrency;
+            this.maxAttempts = maxAttempts;
+            this.gzip = gzip;
+            this.headers = headers != null ? new HashMap<>(headers) : new HashMap<>();
+        }
+    }
+
+    // Bắt đầu đẩy record của store kể từ sau cursor đọc từ cursorFile (mỗi kho một file vì seq
+    // của các kho độc lập); không làm gì nếu đang chạy
+    public void start(RecordStore store, File cursorFile) throws IOException {
+        synchronized (lock) {
+            if (running) return;
+            if (liveWorkers > 0) throw new IllegalStateException("Phiên trước chưa dừng hẳn");
+            if (endpoint == null) throw new IllegalStateException("Chưa cấu hình url");
+            this.store = store;
+            this.cursorFile = cursorFile;
+            committedSeq = readCursor();
+            nextSeq = committedSeq + 1;
+            completed.clear();
+            inFlight = 0;
+            lastError = null;
+            running = true;
+            state = STATE_RUNNING;
+            runStartNs = System.nanoTime();
+            liveWorkers = concurrency;
+            for (int i = 0; i < concurrency; i++) {
+                Thread worker = new Thread(this::workerLoop, "BatchUploader-" + source + "-" + i);
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+        emitStatus(true);
+    }
+
+    // Không chờ: các worker gửi nốt lô đang dở rồi thoát (trạng thái stopping -> idle)
+    public void stop() {
+        synchronized (lock) {
+            if (!running) return;
+            running = false;
+            state = STATE_STOPPING;
+            lock.notifyAll();
+        }
+        emitStatus(true);
+    }
+
+    public boolean isActive() {
+        synchronized (lock) {
+            return liveWorkers > 0;
+        }
+    }
+
+    public long committedSeq() {
+        synchronized (lock) {
+            return liveWorkers > 0 ? committedSeq : readCursorQuietly();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (lock) {
+            long committed = liveWorkers > 0 || running ? committedSeq : readCursorQuietly();
+            long pending = store != null ? Math.max(0, store.lastSeq() - Math.max(committed, store.firstSeq() - 1)) : 0;
+            long runNs = activeNs + (liveWorkers > 0 ? System.nanoTime() - runStartNs : 0);
+            stats.put("state", state);
+            stats.put("source", source);
+            stats.put("url", endpoint != null ? endpoint.toString() : null);
+            stats.put("batch_size", batchSize);
+            stats.put("concurrency", concurrency);
+            stats.put("max_attempts", maxAttempts);
+            stats.put("gzip", gzip);
+            stats.put("committed_seq", committed);
+            stats.put("pending_records", pending);
+            stats.put("in_flight_batches", inFlight);
+            stats.put("uploaded_records", uploadedRecords);
+            stats.put("uploaded_batches", uploadedBatches);
+            stats.put("retries", retries);
+            stats.put("skipped_records", skippedRecords);
+            stats.put("raw_bytes", rawBytes);
+            stats.put("sent_bytes", sentBytes);
+            stats.put("last_batch_ms", lastBatchMs);
+            stats.put("records_per_sec", runNs > 0 ? uploadedRecords * 1e9 / runNs : 0.0);
+            if (lastStatusCode != 0) stats.put("last_status_code", lastStatusCode);
+            if (lastError != null) stats.put("last_error", lastError);
+        }
+        return stats;
+    }
+
+    // Xoá thống kê (không đổi cursor)
+    public void resetStats() {
+        synchronized (lock) {
+            uploadedRecords = 0;
+            uploadedBatches = 0;
+            retries = 0;
+            skippedRecords = 0;
+            rawBytes = 0;
+            sentBytes = 0;
+            lastBatchMs = 0;
+            lastStatusCode = 0;
+            activeNs = 0;
+            runStartNs = System.nanoTime();
+        }
+    }
+
+    private void workerLoop() {
+        UploadBatchEncoder encoder = new UploadBatchEncoder();
+        try {
+            while (running) {
+                long[] range = claim();
+                // null: đã dừng, hoặc bị interrupt (cờ interrupt vẫn giữ) thì thoát thay vì quay vòng
+                if (range == null) break;
+                uploadRange(encoder, range[0], range[1]);
+            }
+        } finally {
+            boolean last;
+            synchronized (lock) {
+                last = --liveWorkers == 0;
+                if (last) {
+                    // Thoát vì interrupt khi chưa stop(): phiên kết thúc, cho phép start() lại
+                    running = false;
+                    activeNs += System.nanoTime() - runStartNs;
+                    if (!STATE_FAILED.equals(state)) state = STATE_IDLE;
+                }
+            }
+            if (last) emitStatus(true);
+        }
+    }
+
+    // [firstSeq, lastSeq] của lô kế tiếp (chờ tới khi có record mới); null khi đã dừng hoặc bị interrupt
+    private long[] claim() {
+        synchronized (lock) {
+            while (running) {
+                long first = Math.max(nextSeq, store.firstSeq());
+                long last = Math.min(store.lastSeq(), first + batchSize - 1);
+                if (first > nextSeq) {
+                    // Record trước firstSeq đã bị xoá khỏi kho: coi như xong
+                    skippedRecords += first - nextSeq;
+                    completeLocked(nextSeq, first - 1);
+                    nextSeq = first;
+                }
+                if (last >= first) {
+                    nextSeq = last + 1;
+                    inFlight++;
+                    return new long[]{first, last};
+                }
+                try {
+                    lock.wait(IDLE_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    private void uploadRange(UploadBatchEncoder encoder, long firstSeq, long lastSeq) {
+        String batchId = source + ":" + firstSeq + "-" + lastSeq;
+        List<JournalRecord> records;
+        byte[] body;
+        try {
+            records = readRange(firstSeq, lastSeq);
+            if (records.isEmpty()) {
+                synchronized (lock) {
+                    skippedRecords += lastSeq - firstSeq + 1;
+                    inFlight--;
+                    completeLocked(firstSeq, lastSeq);
+                }
+                return;
+            }
+            body = encoder.encode(source, batchId, records, gzip);
+        } catch (IOException e) {
+            fail("Lỗi đọc kho: " + e.getMessage(), 0);
+            return;
+        }
+
+        int[] statusCode = new int[1];
+        long[] retryAfterMs = new long[1];
+        for (int attempt = 1; ; attempt++) {
+            long startNs = System.nanoTime();
+            String error;
+            int outcome;
+            try {
+                outcome = post(body, batchId, statusCode, retryAfterMs);
+                error = outcome == OUTCOME_OK ? null : "HTTP " + statusCode[0];
+            } catch (IOException e) {
+                outcome = OUTCOME_RETRY;
+                statusCode[0] = 0;
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+
+            if (outcome == OUTCOME_OK) {
+                synchronized (lock) {
+                    uploadedRecords += records.size();
+                    uploadedBatches++;
+                    skippedRecords += (lastSeq - firstSeq + 1) - records.size();
+                    rawBytes += encoder.rawBytes();
+                    sentBytes += body.length;
+                    lastBatchMs = (System.nanoTime() - startNs) / 1_000_000;
+                    lastStatusCode = statusCode[0];
+                    inFlight--;
+                    completeLocked(firstSeq, lastSeq);
+                }
+                emitStatus(false);
+                return;
+            }
+            if (outcome == OUTCOME_FATAL || attempt >= maxAttempts) {
+                fail(error + " (lô " + batchId + ", lần " + attempt + ")", statusCode[0]);
+                return;
+            }
+            synchronized (lock) {
+                retries++;
+                lastStatusCode = statusCode[0];
+                lastError = error;
+            }
+            if (!sleepBackoff(attempt, retryAfterMs[0])) {
+                // Bị dừng: lô chưa commit, phiên sau gửi lại từ cursor
+                synchronized (lock) {
+                    inFlight--;
+                }
+                return;
+            }
+        }
+    }
+
+    // Record có seq trong [firstSeq, lastSeq]; bỏ qua record đã bị xoá khỏi kho
+    private List<JournalRecord> readRange(long firstSeq, long lastSeq) throws IOException {
+        long storeFirst = store.firstSeq();
+        long from = Math.max(firstSeq, storeFirst);
+        List<JournalRecord> records = new ArrayList<>();
+        if (from > lastSeq) return records;
+        for (JournalRecord record : store.read(from - storeFirst, (int) (lastSeq - from + 1))) {
+            if (record.seq >= firstSeq && record.seq <= lastSeq) records.add(record);
+        }
+        return records;
+    }
+
+    private int post(byte[] body, String batchId, int[] statusCode, long[] retryAfterMs) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setUseCaches(false);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            if (gzip) connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setRequestProperty("Idempotency-Key", batchId);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+
+            int code = connection.getResponseCode();
+            statusCode[0] = code;
+            retryAfterMs[0] = parseRetryAfterMs(connection.getHeaderField("Retry-After"));
+            // Đọc hết body phản hồi để kết nối được trả về pool keep-alive
+            drain(code >= 400 ? connection.getErrorStream() : connection.getInputStream());
+
+            // 409: lô với Idempotency-Key này đã được nhận trước đó
+            if ((code >= 200 && code < 300) || code == 409) return OUTCOME_OK;
+            if (code == 408 || code == 429 || code >= 500) return OUTCOME_RETRY;
+            return OUTCOME_FATAL;
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) return;
+        try (InputStream stream = in) {
+            byte[] scratch = new byte[1024];
+            while (stream.read(scratch) >= 0) {
+                // bỏ qua
+            }
+        }
+    }
+
+    private static long parseRetryAfterMs(String value) {
+        if (value == null) return 0;
+        try {
+            return Math.min(MAX_BACKOFF_MS, Math.max(0, Long.parseLong(value.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            return 0;   // dạng HTTP-date: dùng backoff thường
+        }
+    }
+
+    // Full jitter: ngẫu nhiên trong [0, min(MAX, BASE * 2^(attempt-1))], không ngắn hơn Retry-After.
+    // false nếu bị dừng trong lúc chờ.
+    private boolean sleepBackoff(int attempt, long retryAfterMs) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt - 1, 16));
+        long delayMs = Math.max(retryAfterMs, ThreadLocalRandom.current().nextLong(ceiling + 1));
+        long deadline = System.currentTimeMillis() + delayMs;
+        synchronized (lock) {
+            long remaining;
+            while (running && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return running;
+        }
+    }
+
+    // Lô chưa gửi được: dừng cả phiên, cursor giữ nguyên trước lô này
+    private void fail(String error, int statusCode) {
+        synchronized (lock) {
+            inFlight--;
+            lastError = error;
+            lastStatusCode = statusCode;
+            running = false;
+            state = STATE_FAILED;
+            lock.notifyAll();
+        }
+        emitStatus(true);
+    }
+
+    // Ghi nhận lô xong, dời cursor qua các lô liền nhau và lưu xuống file
+    private void completeLocked(long firstSeq, long lastSeq) {
+        completed.put(firstSeq, lastSeq);
+        long cursor = committedSeq;
+        Long end;
+        while ((end = completed.remove(cursor + 1)) != null) cursor = end;
+        if (cursor != committedSeq) {
+            committedSeq = cursor;
+            try {
+                writeCursor(cursor);
+            } catch (IOException e) {
+                lastError = "Lỗi ghi cursor: " + e.getMessage();
+            }
+        }
+    }
+
+    private void emitStatus(boolean force) {
+        if (listener == null) return;
+        long nowMs = System.currentTimeMillis();
+        synchronized (lock) {
+            if (!force && nowMs - lastStatusEventMs < STATUS_INTERVAL_MS) return;
+            lastStatusEventMs = nowMs;
+        }
+        listener.onStatus(this, stats());
+    }
+
+    private long readCursor() throws IOException {
+        if (cursorFile == null || !cursorFile.exists()) return 0;
+        try (RandomAccessFile file = new RandomAccessFile(cursorFile, "r")) {
+            return file.length() >= 8 ? file.readLong() : 0;
+        }
+    }
+
+    private long readCursorQuietly() {
+        try {
+            return readCursor();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void writeCursor(long seq) throws IOException {
+        File parent = cursorFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Không tạo được thư mục " + parent);
+        }
+        File temp = new File(cursorFile.getPath() + ".tmp");
+        try (RandomAccessFile file = new RandomAccessFile(temp, "rw")) {
+            file.setLength(0);
+            file.writeLong(seq);
+            file.getFD().sync();
+        }
+        if (!temp.renameTo(cursorFile)) throw new IOException("Không ghi được " + cursorFile);
+    }
+
+    // localhost / IP loopback / IP mạng nội bộ (10/8, 172.16/12, 192.168/16; 10.0.2.2 = máy host của
+    // emulator). Chỉ xét IP viết sẵn, không phân giải tên miền
+    private static boolean isLocalHost(String host) {
+        if ("localhost".equals(host)) return true;
+        String[] parts = host.split("\\.");
+        if (parts.length != 4) return false;
+        int[] octets = new int[4];
+        for (int i = 0; i < 4; i++) {
+            try {
+                octets[i] = Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (octets[i] < 0 || octets[i] > 255) return false;
+        }
+        return octets[0] == 127 || octets[0] == 10
+                || (octets[0] == 172 && octets[1] >= 16 && octets[1] <= 31)
+                || (octets[0] == 192 && octets[1] == 168);
+    }
+}
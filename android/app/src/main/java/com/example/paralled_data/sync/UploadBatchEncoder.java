@@ -0,0 +1,147 @@
+package com.example.paralled_data.sync;
+
+import com.example.paralled_data.storage.JournalRecord;
+import com.example.paralled_data.tag_pipeline.HexCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Mã hoá một lô record thành body JSON (tuỳ chọn gzip) cho BatchUploader:
+// {"source":..,"batch_id":..,"first_seq":..,"last_seq":..,"records":[{"seq":..,"epc":..,...}]}
+// Mỗi record giữ các field mà bản Dart gửi lẻ từng tag (epc, epc_hex, tid_hex, user_hex, rssi,
+// count, timestamp_device) kèm seq để server khử trùng lặp theo (source, seq).
+// Mỗi worker giữ một encoder riêng (StringBuilder / buffer dùng lại giữa các lô), không thread-safe.
+final class UploadBatchEncoder {
+
+    private final HexCodec hexCodec = new HexCodec();
+    private final StringBuilder json = new StringBuilder(64 * 1024);
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+    private final SimpleDateFormat isoFormat;
+
+    // Phần "yyyy-MM-ddTHH:mm:ss." của giây gần nhất: record liên tiếp thường cùng giây,
+    // chỉ format lại khi sang giây khác
+    private long isoSecond = Long.MIN_VALUE;
+    private String isoPrefix;
+
+    private int rawBytes;
+
+    UploadBatchEncoder() {
+        isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.", Locale.US);
+        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    // Trả về body đã (hoặc không) nén; lỗi chỉ có thể từ stream nén
+    byte[] encode(String source, String batchId, List<JournalRecord> records, boolean gzip) throws IOException {
+        json.setLength(0);
+        json.append("{\"source\":");
+        appendString(source);
+        json.append(",\"batch_id\":");
+        appendString(batchId);
+        json.append(",\"first_seq\":").append(records.get(0).seq);
+        json.append(",\"last_seq\":").append(records.get(records.size() - 1).seq);
+        json.append(",\"records\":[");
+        for (int i = 0; i < records.size(); i++) {
+            if (i > 0) json.append(',');
+            appendRecord(records.get(i));
+        }
+        json.append("]}");
+
+        body.reset();
+        Writer writer;
+        if (gzip) {
+            writer = new OutputStreamWriter(new GZIPOutputStream(body, 8192) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            }, StandardCharsets.UTF_8);
+        } else {
+            writer = new OutputStreamWriter(body, StandardCharsets.UTF_8);
+        }
+        writer.append(json);
+        writer.close();
+        rawBytes = json.length();
+        return body.toByteArray();
+    }
+
+    // Số ký tự JSON trước khi nén của lô vừa encode
+    int rawBytes() {
+        return rawBytes;
+    }
+
+    private void appendRecord(JournalRecord record) {
+        json.append("{\"seq\":").append(record.seq);
+        json.append(",\"epc\":");
+        appendString(hexCodec.hexToAscii(record.epcHex));
+        json.append(",\"epc_hex\":\"").append(record.epcHex);
+        json.append("\",\"tid_hex\":\"").append(record.tidHex);
+        json.append("\",\"user_hex\":\"").append(record.userHex);
+        json.append("\",\"rssi\":");
+        if (record.hasRssi()) {
+            json.append('"');
+            appendFixed(record.rssiCentiDbm, 100);
+            json.append('"');
+        } else {
+            json.append("null");
+        }
+        json.append(",\"count\":").append(record.count);
+        json.append(",\"scan_duration_ms\":");
+        appendFixed(record.scanDurationNs / 1_000, 1_000);
+        json.append(",\"timestamp_ms\":").append(record.timestampMs);
+        json.append(",\"timestamp_device\":\"");
+        appendIsoTimestamp(record.timestampMs);
+        json.append("\",\"status_sync\":true}");
+    }
+
+    // value / scale (scale = 10^n) với đúng n chữ số thập phân, không qua double (vd. -6150, 100 -> -61.50)
+    private void appendFixed(long value, long scale) {
+        if (value < 0) {
+            json.append('-');
+            value = -value;
+        }
+        json.append(value / scale).append('.');
+        long fraction = value % scale;
+        for (long unit = scale / 10; unit > 0; unit /= 10) {
+            json.append((char) ('0' + (fraction / unit) % 10));
+        }
+    }
+
+    // epochMs >= 0 (System.currentTimeMillis)
+    private void appendIsoTimestamp(long epochMs) {
+        long second = epochMs / 1000;
+        if (second != isoSecond) {
+            isoSecond = second;
+            isoPrefix = isoFormat.format(new Date(second * 1000));
+        }
+        int millis = (int) (epochMs % 1000);
+        json.append(isoPrefix)
+                .append((char) ('0' + millis / 100))
+                .append((char) ('0' + (millis / 10) % 10))
+                .append((char) ('0' + millis % 10))
+                .append('Z');
+    }
+
+    private void appendString(String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Vòng poll thích ứng cho reader thread thay cho while(isScanning) quay liên tục.
+// Sau mỗi lần có tag: poll dồn dập tối đa spinIterations lần (độ trễ thấp khi đang có tag).
+// Khi buffer rỗng lâu hơn: park với thời gian tăng gấp đôi từ minParkNs tới maxParkNs
+// để không chiếm trọn một core CPU suốt phiên quét.
+// Thống kê spin / wait / active cho phép cân chỉnh độ trễ và CPU theo từng site.
+public final class AdaptivePoller {
+
+    public interface PollSource {
+        // true nếu lấy được (và đã xử lý) một tag, false nếu buffer rỗng
+        boolean pollOnce();
+    }
+
+    public static final int DEFAULT_SPIN_ITERATIONS = 100;
+    public static final long DEFAULT_MIN_PARK_NS = 100_000L;     // 100 µs
+    public static final long DEFAULT_MAX_PARK_NS = 10_000_000L;  // 10 ms
+
+    private volatile int spinIterations = DEFAULT_SPIN_ITERATIONS;
+    private volatile long minParkNs = DEFAULT_MIN_PARK_NS;
+    private volatile long maxParkNs = DEFAULT_MAX_PARK_NS;
+
+    // Chỉ reader thread ghi; volatile để main thread đọc thống kê
+    private volatile long spinNs;
+    private volatile long waitNs;
+    private volatile long activeNs;
+    private volatile long hits;
+    private volatile long emptyPolls;
+    private volatile long parks;
+
+    public void configure(int spinIterations, long minParkNs, long maxParkNs) {
+        this.spinIterations = Math.max(0, spinIterations);
+        this.minParkNs = Math.max(1_000L, minParkNs);
+        this.maxParkNs = Math.max(this.minParkNs, maxParkNs);
+    }
+
+    public int spinIterations() {
+        return spinIterations;
+    }
+
+    public long minParkNs() {
+        return minParkNs;
+    }
+
+    public long maxParkNs() {
+        return maxParkNs;
+    }
+
+    public void resetStats() {
+        spinNs = 0;
+        waitNs = 0;
+        activeNs = 0;
+        hits = 0;
+        emptyPolls = 0;
+        parks = 0;
+    }
+
+    // Chạy trên reader thread cho tới khi running trả về false
+    public void run(BooleanCheck running, PollSource source) {
+        int emptyStreak = 0;
+        long parkNs = minParkNs;
+
+        while (running.check()) {
+            long start = System.nanoTime();
+            boolean hit = source.pollOnce();
+            long end = System.nanoTime();
+
+            if (hit) {
+                activeNs += end - start;
+                hits++;
+                emptyStreak = 0;
+                parkNs = minParkNs;
+                continue;
+            }
+
+            emptyPolls++;
+            if (emptyStreak < spinIterations) {
+                // Poll lại ngay (Thread.onSpinWait chỉ có từ API 33 nên không dùng)
+                emptyStreak++;
+                spinNs += end - start;
+                continue;
+            }
+
+            spinNs += end - start;
+            LockSupport.parkNanos(parkNs);
+            waitNs += System.nanoTime() - end;
+            parks++;
+            parkNs = Math.min(parkNs * 2, maxParkNs);
+        }
+    }
+
+    public long spinNs() {
+        return spinNs;
+    }
+
+    public long waitNs() {
+        return waitNs;
+    }
+
+    public long activeNs() {
+        return activeNs;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long emptyPolls() {
+        return emptyPolls;
+    }
+
+    public long parks() {
+        return parks;
+    }
+}
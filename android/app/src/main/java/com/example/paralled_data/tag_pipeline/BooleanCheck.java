@@ -0,0 +1,6 @@
+package com.example.paralled_data.tag_pipeline;
+
+// Thay cho java.util.function.BooleanSupplier (chỉ có từ API 24, app còn chạy API 21+)
+public interface BooleanCheck {
+    boolean check();
+}
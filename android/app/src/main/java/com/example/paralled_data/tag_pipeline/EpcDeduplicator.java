@@ -0,0 +1,99 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.Arrays;
+
+// Khử trùng lặp EPC trong một phiên quét, chạy trên dispatcher thread của TagPipeline (consumer).
+// Chỉ cho qua lần thấy đầu tiên của mỗi EPC, và cập nhật số lần đọc định kỳ
+// (mỗi updateIntervalMs cho mỗi EPC) thay vì gửi mọi lần đọc lên Flutter.
+public final class EpcDeduplicator {
+    public static final int SUPPRESS = 0;
+    public static final int FIRST_SIGHTING = 1;
+    public static final int COUNT_UPDATE = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final EpcTable table = new EpcTable(INITIAL_CAPACITY);
+    private int[] readCounts = new int[INITIAL_CAPACITY];
+    private long[] lastEmitNs = new long[INITIAL_CAPACITY];
+
+    private volatile boolean enabled = true;
+    private volatile long updateIntervalNs = 1_000_000_000L;
+
+    // Đọc từ main thread (getDedupStats) nên để volatile; chỉ reader thread ghi
+    private volatile long totalReads;
+    private volatile int uniqueCount;
+    private int lastReadCount;
+
+    public void configure(boolean enabled, long updateIntervalMs) {
+        this.enabled = enabled;
+        this.updateIntervalNs = Math.max(0, updateIntervalMs) * 1_000_000L;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long updateIntervalMs() {
+        return updateIntervalNs / 1_000_000L;
+    }
+
+    // Gọi trước khi reader thread bắt đầu một phiên quét mới
+    public void reset() {
+        table.clear();
+        Arrays.fill(readCounts, 0);
+        totalReads = 0;
+        uniqueCount = 0;
+        lastReadCount = 0;
+    }
+
+    public int observe(String epcHex, long nowNs) {
+        totalReads++;
+        if (!enabled) {
+            lastReadCount = 0;
+            return FIRST_SIGHTING;
+        }
+
+        int before = table.size();
+        int ordinal = table.intern(epcHex);
+        if (ordinal < 0) {
+            // EPC rỗng/không phải hex: không khoá được, cho qua như cũ
+            lastReadCount = 0;
+            return FIRST_SIGHTING;
+        }
+
+        if (ordinal >= readCounts.length) {
+            int newLength = readCounts.length * 2;
+            readCounts = Arrays.copyOf(readCounts, newLength);
+            lastEmitNs = Arrays.copyOf(lastEmitNs, newLength);
+        }
+
+        int count = ++readCounts[ordinal];
+        lastReadCount = count;
+
+        if (table.size() != before) {
+            uniqueCount = table.size();
+            lastEmitNs[ordinal] = nowNs;
+            return FIRST_SIGHTING;
+        }
+
+        long interval = updateIntervalNs;
+        if (interval > 0 && nowNs - lastEmitNs[ordinal] >= interval) {
+            lastEmitNs[ordinal] = nowNs;
+            return COUNT_UPDATE;
+        }
+        return SUPPRESS;
+    }
+
+    // Số lần đọc trong phiên của EPC vừa observe()
+    public int lastReadCount() {
+        return lastReadCount;
+    }
+
+    public long totalReads() {
+        return totalReads;
+    }
+
+    public int uniqueCount() {
+        return uniqueCount;
+    }
+}
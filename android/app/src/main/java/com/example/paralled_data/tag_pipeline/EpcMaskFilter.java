@@ -0,0 +1,115 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bộ lọc EPC theo mặt nạ bit (ví dụ chỉ giữ tag thuộc một GS1 company prefix).
+// Mỗi rule so khớp lengthBits bit của EPC bắt đầu từ offsetBits (tính từ bit đầu của EPC,
+// không gồm CRC/PC) với giá trị value; tag được giữ nếu khớp ít nhất một rule.
+// Rule được biên dịch sẵn thành các cặp (vị trí nibble, mask, giá trị) nên matches()
+// không cấp phát và chỉ đọc đúng các ký tự hex liên quan.
+public final class EpcMaskFilter {
+
+    public static final class Rule {
+        public final int offsetBits;
+        public final int lengthBits;
+        public final String valueHex;
+
+        // Biên dịch: nibble thứ nibbleIndex[i] của EPC & nibbleMask[i] phải bằng nibbleValue[i]
+        final int[] nibbleIndex;
+        final int[] nibbleMask;
+        final int[] nibbleValue;
+
+        // valueHex phải có ít nhất lengthBits bit; bit thừa ở cuối bị bỏ qua
+        public Rule(int offsetBits, int lengthBits, String valueHex) {
+            if (offsetBits < 0) throw new IllegalArgumentException("offsetBits phải >= 0");
+            if (lengthBits <= 0 || lengthBits > 496) throw new IllegalArgumentException("lengthBits phải trong khoảng 1..496");
+            if (valueHex == null || valueHex.length() * 4 < lengthBits) {
+                throw new IllegalArgumentException("value phải có ít nhất " + lengthBits + " bit");
+            }
+            for (int i = 0; i < valueHex.length(); i++) {
+                if (HexCodec.nibble(valueHex.charAt(i)) < 0) throw new IllegalArgumentException("value không phải hex");
+            }
+
+            this.offsetBits = offsetBits;
+            this.lengthBits = lengthBits;
+            this.valueHex = valueHex.toUpperCase();
+
+            int first = offsetBits >> 2;
+            int last = (offsetBits + lengthBits - 1) >> 2;
+            int count = last - first + 1;
+            nibbleIndex = new int[count];
+            nibbleMask = new int[count];
+            nibbleValue = new int[count];
+            for (int n = 0; n < count; n++) nibbleIndex[n] = first + n;
+
+            for (int i = 0; i < lengthBits; i++) {
+                int bit = offsetBits + i;
+                int n = (bit >> 2) - first;
+                int shift = 3 - (bit & 3);
+                nibbleMask[n] |= 1 << shift;
+                if (((HexCodec.nibble(valueHex.charAt(i >> 2)) >> (3 - (i & 3))) & 1) != 0) {
+                    nibbleValue[n] |= 1 << shift;
+                }
+            }
+        }
+
+        public boolean matches(String epcHex) {
+            int[] index = nibbleIndex;
+            if (index[index.length - 1] >= epcHex.length()) return false;
+            for (int n = 0; n < index.length; n++) {
+                int v = HexCodec.nibble(epcHex.charAt(index[n]));
+                if (v < 0 || (v & nibbleMask[n]) != nibbleValue[n]) return false;
+            }
+            return true;
+        }
+
+        // Dữ liệu cho setFilter của SDK: đúng lengthBits bit, đệm 0 tới đủ byte
+        public String hardwareData() {
+            int bytes = (lengthBits + 7) >> 3;
+            StringBuilder data = new StringBuilder(bytes * 2);
+            for (int i = 0; i < bytes * 2; i++) {
+                int nibble = i < valueHex.length() ? HexCodec.nibble(valueHex.charAt(i)) : 0;
+                int validBits = Math.max(0, Math.min(4, lengthBits - i * 4));
+                nibble &= (0xF0 >> validBits) & 0xF;
+                data.append(Character.toUpperCase(Character.forDigit(nibble, 16)));
+            }
+            return data.toString();
+        }
+    }
+
+    private volatile List<Rule> rules = Collections.emptyList();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public void setRules(List<Rule> newRules) {
+        rules = Collections.unmodifiableList(new ArrayList<>(newRules));
+        rejected.set(0);
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    // Không có rule = giữ mọi tag. Gọi từ thread xử lý tag và từ quét đơn
+    public boolean matches(String epcHex) {
+        List<Rule> current = rules;
+        if (current.isEmpty()) return true;
+        if (epcHex != null) {
+            for (int i = 0; i < current.size(); i++) {
+                if (current.get(i).matches(epcHex)) return true;
+            }
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public long rejected() {
+        return rejected.get();
+    }
+}
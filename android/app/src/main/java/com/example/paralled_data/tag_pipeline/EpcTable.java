@@ -0,0 +1,146 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.Arrays;
+
+// Bảng băm open-addressing cho EPC, khoá bằng bit thô của EPC (2 long) thay vì String.
+// Mỗi EPC khác nhau được gán một ordinal liên tiếp (0..size-1) theo thứ tự xuất hiện,
+// để các bảng phụ (đếm, thời gian...) chỉ cần mảng nguyên thuỷ đánh chỉ số theo ordinal.
+public final class EpcTable {
+    private static final int MAX_PACKED_HEX = 32; // 128 bit đóng gói chính xác vào hi/lo
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // Slot -> khoá (hi, lo, số ký tự hex) và ordinal; ordinal -1 là slot trống
+    private long[] slotHi;
+    private long[] slotLo;
+    private int[] slotLen;
+    private int[] slotOrdinal;
+    private int mask;
+    private int resizeAt;
+
+    // Ordinal -> EPC hex (chỉ cấp phát một lần khi EPC xuất hiện lần đầu)
+    private String[] epcByOrdinal;
+    private int size;
+
+    // Khoá vừa parse xong (tránh cấp phát đối tượng trung gian)
+    private long keyHi;
+    private long keyLo;
+
+    public EpcTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+        epcByOrdinal = new String[Math.max(16, expectedSize)];
+    }
+
+    // Trả về ordinal của EPC (thêm mới nếu chưa có), hoặc -1 nếu chuỗi không phải hex hợp lệ
+    public int intern(String epcHex) {
+        if (epcHex == null || epcHex.isEmpty() || !parseKey(epcHex)) return -1;
+        int len = epcHex.length();
+
+        int slot = probe(epcHex, len);
+        if (slotOrdinal[slot] >= 0) return slotOrdinal[slot];
+
+        int ordinal = size++;
+        if (ordinal == epcByOrdinal.length) {
+            epcByOrdinal = Arrays.copyOf(epcByOrdinal, ordinal * 2);
+        }
+        epcByOrdinal[ordinal] = epcHex;
+        slotHi[slot] = keyHi;
+        slotLo[slot] = keyLo;
+        slotLen[slot] = len;
+        slotOrdinal[slot] = ordinal;
+
+        if (size >= resizeAt) rehash();
+        return ordinal;
+    }
+
+    // Ordinal của EPC nếu đã có trong bảng (không thêm mới), -1 nếu không có / không hợp lệ
+    public int find(String epcHex) {
+        if (epcHex == null || epcHex.isEmpty() || !parseKey(epcHex)) return -1;
+        return slotOrdinal[probe(epcHex, epcHex.length())];
+    }
+
+    // Slot chứa khoá vừa parse, hoặc slot trống đầu tiên trên đường dò
+    private int probe(String epcHex, int len) {
+        int slot = mix(keyHi, keyLo, len) & mask;
+        while (true) {
+            int ordinal = slotOrdinal[slot];
+            if (ordinal < 0) return slot;
+            if (slotHi[slot] == keyHi && slotLo[slot] == keyLo && slotLen[slot] == len
+                    && (len <= MAX_PACKED_HEX || epcByOrdinal[ordinal].equalsIgnoreCase(epcHex))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String epcAt(int ordinal) {
+        return epcByOrdinal[ordinal];
+    }
+
+    public void clear() {
+        Arrays.fill(slotOrdinal, -1);
+        Arrays.fill(epcByOrdinal, 0, size, null);
+        size = 0;
+    }
+
+    // 32 ký tự hex đầu được đóng gói chính xác vào hi/lo; phần dư (EPC > 128 bit)
+    // được gộp vào lo, va chạm khi đó được loại trừ bằng cách so sánh chuỗi gốc.
+    private boolean parseKey(String hex) {
+        long hi = 0, lo = 0;
+        int len = hex.length();
+        for (int i = 0; i < len; i++) {
+            int v = HexCodec.nibble(hex.charAt(i));
+            if (v < 0) return false;
+            if (i < 16) {
+                hi = (hi << 4) | v;
+            } else if (i < MAX_PACKED_HEX) {
+                lo = (lo << 4) | v;
+            } else {
+                lo = (lo ^ v) * 0x9E3779B97F4A7C15L;
+            }
+        }
+        keyHi = hi;
+        keyLo = lo;
+        return true;
+    }
+
+    private static int mix(long hi, long lo, int len) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(lo * 0xC2B2AE3D27D4EB4FL, 31) ^ len;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private void allocate(int capacity) {
+        slotHi = new long[capacity];
+        slotLo = new long[capacity];
+        slotLen = new int[capacity];
+        slotOrdinal = new int[capacity];
+        Arrays.fill(slotOrdinal, -1);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash() {
+        long[] oldHi = slotHi;
+        long[] oldLo = slotLo;
+        int[] oldLen = slotLen;
+        int[] oldOrdinal = slotOrdinal;
+
+        allocate(oldOrdinal.length * 2);
+        for (int i = 0; i < oldOrdinal.length; i++) {
+            if (oldOrdinal[i] < 0) continue;
+            int slot = mix(oldHi[i], oldLo[i], oldLen[i]) & mask;
+            while (slotOrdinal[slot] >= 0) slot = (slot + 1) & mask;
+            slotHi[slot] = oldHi[i];
+            slotLo[slot] = oldLo[i];
+            slotLen[slot] = oldLen[i];
+            slotOrdinal[slot] = oldOrdinal[i];
+        }
+    }
+}
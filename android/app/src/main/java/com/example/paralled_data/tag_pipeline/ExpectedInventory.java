@@ -0,0 +1,170 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Đối soát kiểm kê: danh sách EPC dự kiến (100k+) được nạp một lần vào EpcTable
+// (băm open-addressing, khoá là bit thô của EPC) và mỗi lần đọc chỉ cần một lần dò bảng.
+// Trạng thái "đã thấy" là bitset theo ordinal, nên bộ nhớ tỉ lệ với danh sách dự kiến;
+// EPC ngoài danh sách được nhớ tối đa unexpectedCapacity mã khác nhau, sau đó chỉ đếm.
+// observe() chạy trên thread xử lý tag, các hàm còn lại trên main thread: dùng chung một lock.
+public final class ExpectedInventory {
+
+    // Một EPC vừa chuyển trạng thái (dự kiến được thấy lần đầu / ngoài danh sách lần đầu),
+    // được gom lô trước khi gửi lên Flutter
+    public static final class Sighting {
+        public final String epcHex;
+        public final boolean expected;
+
+        public Sighting(String epcHex, boolean expected) {
+            this.epcHex = epcHex;
+            this.expected = expected;
+        }
+    }
+
+    public static final int NOT_LOADED = 0;
+    public static final int FOUND = 1;            // Lần đầu thấy EPC dự kiến
+    public static final int ALREADY_FOUND = 2;
+    public static final int UNEXPECTED = 3;       // Lần đầu thấy EPC ngoài danh sách
+    public static final int ALREADY_UNEXPECTED = 4;
+
+    private static final int MIN_UNEXPECTED_CAPACITY = 1024;
+
+    private EpcTable expected;
+    private long[] foundBits = new long[0];
+    private int foundCount;
+
+    private EpcTable unexpected;
+    private int unexpectedCapacity;
+    private int unexpectedCount;     // Số EPC ngoài danh sách khác nhau đã nhớ được
+    private long unexpectedOverflowReads;
+
+    // Trả về số EPC hợp lệ khác nhau đã nạp; EPC không phải hex bị bỏ qua
+    public synchronized int load(List<String> epcs) {
+        EpcTable table = new EpcTable(Math.max(16, epcs.size()));
+        for (int i = 0; i < epcs.size(); i++) table.intern(epcs.get(i));
+
+        expected = table;
+        foundBits = new long[(table.size() + 63) >>> 6];
+        unexpectedCapacity = Math.max(MIN_UNEXPECTED_CAPACITY, table.size());
+        unexpected = new EpcTable(Math.min(unexpectedCapacity, 4096));
+        resetLocked();
+        return table.size();
+    }
+
+    public synchronized void clear() {
+        expected = null;
+        foundBits = new long[0];
+        unexpected = null;
+        resetLocked();
+    }
+
+    // Xoá kết quả đối soát, giữ danh sách dự kiến (bắt đầu một lượt đếm mới)
+    public synchronized void reset() {
+        resetLocked();
+    }
+
+    private void resetLocked() {
+        Arrays.fill(foundBits, 0);
+        foundCount = 0;
+        if (unexpected != null) unexpected.clear();
+        unexpectedCount = 0;
+        unexpectedOverflowReads = 0;
+    }
+
+    public synchronized boolean isLoaded() {
+        return expected != null;
+    }
+
+    public synchronized int observe(String epcHex) {
+        if (expected == null) return NOT_LOADED;
+
+        int ordinal = expected.find(epcHex);
+        if (ordinal >= 0) {
+            long bit = 1L << ordinal;
+            int word = ordinal >>> 6;
+            if ((foundBits[word] & bit) != 0) return ALREADY_FOUND;
+            foundBits[word] |= bit;
+            foundCount++;
+            return FOUND;
+        }
+
+        if (unexpected.size() >= unexpectedCapacity) {
+            // Đã đủ số mã nhớ được: EPC đã nhớ vẫn nhận ra, EPC mới chỉ được đếm số lần đọc
+            if (unexpected.find(epcHex) >= 0) return ALREADY_UNEXPECTED;
+            unexpectedOverflowReads++;
+            return ALREADY_UNEXPECTED;
+        }
+        int before = unexpected.size();
+        if (unexpected.intern(epcHex) < 0) return ALREADY_UNEXPECTED;
+        if (unexpected.size() == before) return ALREADY_UNEXPECTED;
+        unexpectedCount++;
+        return UNEXPECTED;
+    }
+
+    public synchronized int expectedCount() {
+        return expected != null ? expected.size() : 0;
+    }
+
+    public synchronized int foundCount() {
+        return foundCount;
+    }
+
+    public synchronized int missingCount() {
+        return expectedCount() - foundCount;
+    }
+
+    public synchronized int unexpectedCount() {
+        return unexpectedCount;
+    }
+
+    public synchronized long unexpectedOverflowReads() {
+        return unexpectedOverflowReads;
+    }
+
+    // Event cho kênh đối soát: bộ đếm hiện tại + các EPC mới thấy / ngoài danh sách trong lô
+    public synchronized Map<String, Object> statusMap(List<Sighting> batch) {
+        List<String> newFound = new ArrayList<>();
+        List<String> newUnexpected = new ArrayList<>();
+        if (batch != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                Sighting sighting = batch.get(i);
+                (sighting.expected ? newFound : newUnexpected).add(sighting.epcHex);
+            }
+        }
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("loaded", expected != null);
+        status.put("expected", expectedCount());
+        status.put("found", foundCount);
+        status.put("missing", missingCount());
+        status.put("unexpected", unexpectedCount);
+        status.put("unexpected_overflow_reads", unexpectedOverflowReads);
+        status.put("new_found", newFound);
+        status.put("new_unexpected", newUnexpected);
+        return status;
+    }
+
+    // EPC dự kiến chưa thấy (tối đa limit mã, limit <= 0 = tất cả), theo thứ tự nạp
+    public synchronized List<String> missing(int limit) {
+        List<String> missing = new ArrayList<>();
+        if (expected == null) return missing;
+        int max = limit > 0 ? limit : Integer.MAX_VALUE;
+        for (int ordinal = 0; ordinal < expected.size() && missing.size() < max; ordinal++) {
+            if ((foundBits[ordinal >>> 6] & (1L << ordinal)) == 0) missing.add(expected.epcAt(ordinal));
+        }
+        return missing;
+    }
+
+    // EPC ngoài danh sách đã nhớ (tối đa limit mã, limit <= 0 = tất cả)
+    public synchronized List<String> unexpected(int limit) {
+        List<String> result = new ArrayList<>();
+        if (unexpected == null) return result;
+        int count = limit > 0 ? Math.min(limit, unexpected.size()) : unexpected.size();
+        for (int ordinal = 0; ordinal < count; ordinal++) result.add(unexpected.epcAt(ordinal));
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.Arrays;
+
+// Giải mã hex dùng bảng tra nibble dựng sẵn, thay cho hexToAscii cũ
+// (substring + Integer.parseInt + try/catch cho từng byte).
+// Một instance giữ buffer tạm char[] tái sử dụng nên KHÔNG thread-safe:
+// mỗi thread giải mã (ví dụ sink của TagBatchDispatcher) dùng instance riêng.
+public final class HexCodec {
+    private static final byte[] NIBBLE = new byte[128];
+    static {
+        Arrays.fill(NIBBLE, (byte) -1);
+        for (int i = 0; i < 10; i++) NIBBLE['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            NIBBLE['a' + i] = (byte) (10 + i);
+            NIBBLE['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private char[] chars = new char[64];
+    private int lastInvalidPairs;
+
+    // Giá trị 0..15 của một ký tự hex, -1 nếu không hợp lệ
+    public static int nibble(char c) {
+        return c < 128 ? NIBBLE[c] : -1;
+    }
+
+    // Cùng kết quả với hexToAscii cũ: nibble lẻ cuối bị bỏ, cặp không hợp lệ bị bỏ qua.
+    // Chỉ cấp phát String kết quả; số cặp lỗi xem qua lastInvalidPairs().
+    public String hexToAscii(String hex) {
+        lastInvalidPairs = 0;
+        if (hex == null || hex.length() < 2) return "";
+
+        int pairs = hex.length() >>> 1;
+        if (chars.length < pairs) chars = new char[Math.max(pairs, chars.length * 2)];
+
+        char[] out = chars;
+        int n = 0;
+        for (int i = 0, p = 0; p < pairs; p++, i += 2) {
+            int hi = nibble(hex.charAt(i));
+            int lo = nibble(hex.charAt(i + 1));
+            if ((hi | lo) < 0) {
+                lastInvalidPairs++;
+                continue;
+            }
+            out[n++] = (char) ((hi << 4) | lo);
+        }
+        return new String(out, 0, n);
+    }
+
+    public int lastInvalidPairs() {
+        return lastInvalidPairs;
+    }
+
+    // Ghi các byte của chuỗi hex vào dst từ offset; trả về số byte đã ghi
+    // (tối đa maxBytes, nibble lẻ cuối bị bỏ, ký tự không hợp lệ coi là 0).
+    public static int hexToBytes(String hex, byte[] dst, int offset, int maxBytes) {
+        int bytes = Math.min(hex.length() >>> 1, maxBytes);
+        for (int i = 0; i < bytes; i++) {
+            int hi = nibble(hex.charAt(2 * i));
+            int lo = nibble(hex.charAt(2 * i + 1));
+            dst[offset + i] = (byte) (((hi < 0 ? 0 : hi) << 4) | (lo < 0 ? 0 : lo));
+        }
+        return bytes;
+    }
+}
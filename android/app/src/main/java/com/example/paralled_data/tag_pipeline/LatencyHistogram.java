@@ -0,0 +1,87 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Histogram độ trễ (ns) chia bucket theo log2, mỗi bậc SUB_BUCKETS bucket tuyến tính
+// (sai số tương đối <= 1/SUB_BUCKETS). record() không khoá, không cấp phát: một
+// incrementAndGet trên bucket + cộng dồn tổng, nên gọi được từ reader / dispatcher / main thread.
+// snapshot / reset không nguyên tử với các lần record đang chạy song song (chấp nhận lệch vài mẫu).
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Giá trị < 2 * SUB_BUCKETS có bucket riêng; mỗi bậc 2^k (k >= SUB_BITS + 1) có SUB_BUCKETS bucket
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR + (63 - SUB_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNs = new AtomicLong();
+    private final AtomicLong maxNs = new AtomicLong();
+
+    public void record(long valueNs) {
+        if (valueNs < 0) valueNs = 0;   // nanoTime của hai thread, phòng lệch nhỏ
+        buckets.incrementAndGet(bucketOf(valueNs));
+        count.incrementAndGet();
+        sumNs.addAndGet(valueNs);
+        long max = maxNs.get();
+        while (valueNs > max && !maxNs.compareAndSet(max, valueNs)) max = maxNs.get();
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR) return (int) value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (msb - SUB_BITS - 1) * SUB_BUCKETS + sub;
+    }
+
+    // Giá trị lớn nhất thuộc bucket (percentile báo cận trên, không báo thấp hơn thực tế)
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int msb = (bucket - LINEAR) / SUB_BUCKETS + SUB_BITS + 1;
+        long sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long width = 1L << (msb - SUB_BITS);
+        return (1L << msb) + sub * width + width - 1;
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    // ns tại percentile (0..100), 0 nếu chưa có mẫu; không vượt max đã ghi
+    public long percentileNs(double percentile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min(upperBoundOf(i), maxNs.get());
+        }
+        return maxNs.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        count.set(0);
+        sumNs.set(0);
+        maxNs.set(0);
+    }
+
+    // count / p50_ms / p90_ms / p99_ms / max_ms / mean_ms
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new HashMap<>();
+        long total = count.get();
+        stats.put("count", total);
+        stats.put("p50_ms", percentileNs(50) / 1_000_000.0);
+        stats.put("p90_ms", percentileNs(90) / 1_000_000.0);
+        stats.put("p99_ms", percentileNs(99) / 1_000_000.0);
+        stats.put("max_ms", maxNs.get() / 1_000_000.0);
+        stats.put("mean_ms", total > 0 ? sumNs.get() / 1_000_000.0 / total : 0.0);
+        return stats;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.paralled_data.tag_pipeline;
+
+// Một ô dựng sẵn trong TagRing: reader thread ghi thẳng dữ liệu thô của tag vào đây
+// (không tạo object mới cho mỗi lần đọc), dispatcher thread đọc ra rồi giải phóng ô.
+public final class RawTagSlot {
+    public String epcHex;
+    public String tidHex;
+    public String userHex;
+    public String rssi;
+    public int count;
+    public long readNs;          // System.nanoTime() lúc rút khỏi buffer của module
+    public long scanDurationNs;  // Khoảng cách tới lần đọc trước trong phiên
+    public boolean userBankRead; // Kết quả đọc USER (UserBankReadQueue), không phải một lần inventory
+
+    public void set(String epcHex, String tidHex, String userHex, String rssi, int count,
+                    long readNs, long scanDurationNs) {
+        this.epcHex = epcHex;
+        this.tidHex = tidHex;
+        this.userHex = userHex;
+        this.rssi = rssi;
+        this.count = count;
+        this.readNs = readNs;
+        this.scanDurationNs = scanDurationNs;
+        this.userBankRead = false;
+    }
+
+    // Chỉ dữ liệu tag (TagReader ghi); readNs / scanDurationNs do người gọi gán sau
+    public void setTag(String epcHex, String tidHex, String userHex, String rssi, int count) {
+        this.epcHex = epcHex;
+        this.tidHex = tidHex;
+        this.userHex = userHex;
+        this.rssi = rssi;
+        this.count = count;
+        this.userBankRead = false;
+    }
+
+    // Bỏ tham chiếu String để ô không giữ dữ liệu của tag cũ
+    void clear() {
+        epcHex = null;
+        tidHex = null;
+        userHex = null;
+        rssi = null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Độ trễ của một lần đọc tag qua từng chặng, theo mốc System.nanoTime() gắn vào TagRead:
+//  - drain: thời gian một lệnh rút tag khỏi buffer module (UART / SDK)
+//  - pipeline: từ lúc rút (readNs) tới lúc dispatcher giải mã thành TagRead (decodeNs)
+//  - channel: từ decodeNs tới lúc EventSink / BinaryChannel gửi xong trên main thread
+//  - end_to_end: từ readNs tới lúc gửi xong
+// Lần đọc không có mốc (readNs = 0, ví dụ kết quả đọc USER) không được tính.
+public final class ReadLatencyStats {
+
+    private final LatencyHistogram drain = new LatencyHistogram();
+    private final LatencyHistogram pipeline = new LatencyHistogram();
+    private final LatencyHistogram channel = new LatencyHistogram();
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+
+    // Reader thread, chỉ khi lệnh rút trả về tag
+    public void recordDrain(long startNs, long endNs) {
+        drain.record(endNs - startNs);
+    }
+
+    public void recordDecode(long readNs, long decodeNs) {
+        if (readNs != 0) pipeline.record(decodeNs - readNs);
+    }
+
+    // Main thread, ngay sau khi lô đã được gửi qua channel (TagDeliveryQueue.DeliveryObserver)
+    public void recordDelivered(List<TagRead> batch, long deliveredNs) {
+        for (int i = 0; i < batch.size(); i++) {
+            TagRead read = batch.get(i);
+            if (read.readNs == 0) continue;
+            channel.record(deliveredNs - read.decodeNs);
+            endToEnd.record(deliveredNs - read.readNs);
+        }
+    }
+
+    public void reset() {
+        drain.reset();
+        pipeline.reset();
+        channel.reset();
+        endToEnd.reset();
+    }
+
+    // Mỗi chặng: count / p50_ms / p90_ms / p99_ms / max_ms / mean_ms
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("drain", drain.snapshot());
+        stats.put("pipeline", pipeline.snapshot());
+        stats.put("channel", channel.snapshot());
+        stats.put("end_to_end", endToEnd.snapshot());
+        return stats;
+    }
+}
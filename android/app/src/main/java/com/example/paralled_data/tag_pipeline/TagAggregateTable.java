@@ -0,0 +1,163 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Thống kê theo từng EPC trong phiên quét: thời điểm thấy đầu / cuối, tổng số lần đọc,
+// RSSI min / max / trung bình và EWMA, USER đọc được (UserBankReadQueue). Mỗi lần đọc (kể cả lần bị dedup chặn) đều được ghi,
+// Flutter lấy cả bảng (hoặc một trang) qua snapshot() thay vì tự tính lại từ luồng tag.
+// Dữ liệu lưu theo cột (mảng nguyên thuỷ đánh chỉ số theo ordinal của EpcTable).
+// observe() chạy trên thread xử lý tag, snapshot() trên main thread: dùng chung một lock.
+public final class TagAggregateTable {
+    public static final double DEFAULT_EWMA_ALPHA = 0.2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final EpcTable table = new EpcTable(INITIAL_CAPACITY);
+    private long[] firstSeenMs = new long[INITIAL_CAPACITY];
+    private long[] lastSeenMs = new long[INITIAL_CAPACITY];
+    private int[] reads = new int[INITIAL_CAPACITY];
+    // RSSI tính theo centi-dBm; rssiReads = số lần đọc có RSSI hợp lệ
+    private int[] rssiReads = new int[INITIAL_CAPACITY];
+    private int[] rssiMin = new int[INITIAL_CAPACITY];
+    private int[] rssiMax = new int[INITIAL_CAPACITY];
+    private long[] rssiSum = new long[INITIAL_CAPACITY];
+    private double[] rssiEwma = new double[INITIAL_CAPACITY];
+    // null = chưa đọc USER của EPC này
+    private String[] userHex = new String[INITIAL_CAPACITY];
+
+    private double ewmaAlpha = DEFAULT_EWMA_ALPHA;
+    private long totalReads;
+
+    public synchronized void setEwmaAlpha(double alpha) {
+        if (alpha > 0 && alpha <= 1) ewmaAlpha = alpha;
+    }
+
+    public synchronized double ewmaAlpha() {
+        return ewmaAlpha;
+    }
+
+    public synchronized void reset() {
+        table.clear();
+        totalReads = 0;
+    }
+
+    public synchronized void observe(String epcHex, String rssi, long nowMs) {
+        int before = table.size();
+        int ordinal = table.intern(epcHex);
+        if (ordinal < 0) return;
+        totalReads++;
+
+        if (ordinal >= reads.length) grow();
+        if (table.size() != before) {
+            // Ordinal mới (mảng không được xoá khi reset nên khởi tạo lại ở đây)
+            firstSeenMs[ordinal] = nowMs;
+            reads[ordinal] = 0;
+            rssiReads[ordinal] = 0;
+            rssiSum[ordinal] = 0;
+            userHex[ordinal] = null;
+        }
+        reads[ordinal]++;
+        lastSeenMs[ordinal] = nowMs;
+
+        int centiDbm = rssi != null ? TagFrameEncoder.parseCentiDbm(rssi) : Integer.MIN_VALUE;
+        if (centiDbm == Integer.MIN_VALUE) return;
+
+        if (rssiReads[ordinal] == 0) {
+            rssiMin[ordinal] = centiDbm;
+            rssiMax[ordinal] = centiDbm;
+            rssiEwma[ordinal] = centiDbm;
+        } else {
+            if (centiDbm < rssiMin[ordinal]) rssiMin[ordinal] = centiDbm;
+            if (centiDbm > rssiMax[ordinal]) rssiMax[ordinal] = centiDbm;
+            rssiEwma[ordinal] += ewmaAlpha * (centiDbm - rssiEwma[ordinal]);
+        }
+        rssiReads[ordinal]++;
+        rssiSum[ordinal] += centiDbm;
+    }
+
+    // Gắn kết quả đọc USER vào EPC đã có trong bảng; không tính là một lần đọc
+    public synchronized void setUser(String epcHex, String user) {
+        int ordinal = table.find(epcHex);
+        if (ordinal >= 0) userHex[ordinal] = user;
+    }
+
+    private void grow() {
+        int newLength = reads.length * 2;
+        firstSeenMs = Arrays.copyOf(firstSeenMs, newLength);
+        lastSeenMs = Arrays.copyOf(lastSeenMs, newLength);
+        reads = Arrays.copyOf(reads, newLength);
+        rssiReads = Arrays.copyOf(rssiReads, newLength);
+        rssiMin = Arrays.copyOf(rssiMin, newLength);
+        rssiMax = Arrays.copyOf(rssiMax, newLength);
+        rssiSum = Arrays.copyOf(rssiSum, newLength);
+        rssiEwma = Arrays.copyOf(rssiEwma, newLength);
+        userHex = Arrays.copyOf(userHex, newLength);
+    }
+
+    public synchronized int size() {
+        return table.size();
+    }
+
+    public synchronized long totalReads() {
+        return totalReads;
+    }
+
+    // Một trang của bảng theo thứ tự thấy đầu tiên, dạng cột để StandardMessageCodec gửi
+    // long[] / int[] / double[] thành Int64List / Int32List / Float64List trong một message.
+    // RSSI (dBm) là NaN với EPC chưa có lần đọc nào kèm RSSI; user_hex rỗng khi chưa đọc USER.
+    public synchronized Map<String, Object> snapshot(int offset, int limit) {
+        int total = table.size();
+        int from = Math.min(Math.max(0, offset), total);
+        int count = limit > 0 ? Math.min(limit, total - from) : total - from;
+
+        List<String> epcs = new ArrayList<>(count);
+        List<String> users = new ArrayList<>(count);
+        int[] readsOut = new int[count];
+        long[] firstOut = new long[count];
+        long[] lastOut = new long[count];
+        double[] minOut = new double[count];
+        double[] maxOut = new double[count];
+        double[] meanOut = new double[count];
+        double[] ewmaOut = new double[count];
+
+        for (int i = 0; i < count; i++) {
+            int ordinal = from + i;
+            epcs.add(table.epcAt(ordinal));
+            users.add(userHex[ordinal] != null ? userHex[ordinal] : "");
+            readsOut[i] = reads[ordinal];
+            firstOut[i] = firstSeenMs[ordinal];
+            lastOut[i] = lastSeenMs[ordinal];
+            if (rssiReads[ordinal] > 0) {
+                minOut[i] = rssiMin[ordinal] / 100.0;
+                maxOut[i] = rssiMax[ordinal] / 100.0;
+                meanOut[i] = (double) rssiSum[ordinal] / rssiReads[ordinal] / 100.0;
+                ewmaOut[i] = rssiEwma[ordinal] / 100.0;
+            } else {
+                minOut[i] = Double.NaN;
+                maxOut[i] = Double.NaN;
+                meanOut[i] = Double.NaN;
+                ewmaOut[i] = Double.NaN;
+            }
+        }
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("total", total);
+        snapshot.put("total_reads", totalReads);
+        snapshot.put("offset", from);
+        snapshot.put("count", count);
+        snapshot.put("epc_hex", epcs);
+        snapshot.put("reads", readsOut);
+        snapshot.put("first_seen_ms", firstOut);
+        snapshot.put("last_seen_ms", lastOut);
+        snapshot.put("rssi_min", minOut);
+        snapshot.put("rssi_max", maxOut);
+        snapshot.put("rssi_mean", meanOut);
+        snapshot.put("rssi_ewma", ewmaOut);
+        snapshot.put("user_hex", users);
+        return snapshot;
+    }
+}
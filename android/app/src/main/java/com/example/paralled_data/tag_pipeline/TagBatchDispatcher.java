@@ -0,0 +1,144 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Gom các lần đọc tag thành lô trước khi đẩy sang main thread / EventSink.
+// Một lô được flush khi đủ maxBatchSize phần tử hoặc khi phần tử đầu tiên
+// đã chờ flushIntervalMs, tuỳ điều kiện nào đến trước.
+// Sink chạy trên thread flush (reader thread hoặc timer) để việc mã hoá lô
+// (Map/frame nhị phân) không chiếm main thread; sink tự post kết quả sang main.
+// Sink có thể chặn (TagDeliveryQueue BLOCK chờ main thread gửi bớt) nên được gọi ngoài lock của
+// pending, tuần tự bằng deliverLock; thread nào mayFlushInline trả về false (main thread) không bao
+// giờ gọi sink mà chuyển việc flush sang thread timer.
+public final class TagBatchDispatcher<T> {
+
+    public interface BatchSink<T> {
+        // Gọi tuần tự theo thứ tự flush, không bao giờ với lô rỗng
+        void deliver(List<T> batch);
+    }
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 50;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 200;
+
+    private final BatchSink<T> sink;
+    private final ScheduledExecutorService timer;
+    private final BooleanCheck mayFlushInline;
+    // lock: pending / timer; deliverLock: giữ thứ tự các lần gọi sink (lấy trước lock)
+    private final Object lock = new Object();
+    private final Object deliverLock = new Object();
+
+    private ArrayList<T> pending = new ArrayList<>();
+    private ScheduledFuture<?> pendingFlush;
+    private boolean closed;
+
+    private volatile long flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    public TagBatchDispatcher(String name, BatchSink<T> sink) {
+        this(name, sink, () -> true);
+    }
+
+    public TagBatchDispatcher(String name, BatchSink<T> sink, BooleanCheck mayFlushInline) {
+        this.sink = sink;
+        this.mayFlushInline = mayFlushInline;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-flush");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void configure(long flushIntervalMs, int maxBatchSize) {
+        this.flushIntervalMs = Math.max(0, flushIntervalMs);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    public long flushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    // Lô đầy thì flush ngay trên thread gọi: nếu sink đang chặn, thread gọi (reader / dispatcher)
+    // cũng chờ theo, dồn ngược về ring và đầu đọc
+    public void offer(T item) {
+        boolean flushNow;
+        synchronized (lock) {
+            if (closed) return;
+            pending.add(item);
+            flushNow = pending.size() >= maxBatchSize || flushIntervalMs == 0;
+            if (!flushNow && pendingFlush == null) {
+                pendingFlush = timer.schedule(this::flush, flushIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) flush();
+    }
+
+    public void flush() {
+        if (!mayFlushInline.check()) {
+            flushAsync(null);
+            return;
+        }
+        synchronized (deliverLock) {
+            List<T> batch;
+            synchronized (lock) {
+                batch = takePendingLocked();
+            }
+            if (batch != null) sink.deliver(batch);
+        }
+    }
+
+    // Flush trên thread timer rồi chạy afterFlush (nếu có) trên thread đó, ví dụ đổi định dạng
+    // sau khi lô đang chờ đã được mã hoá theo định dạng cũ
+    public void flushAsync(Runnable afterFlush) {
+        try {
+            timer.execute(() -> {
+                flush();
+                if (afterFlush != null) afterFlush.run();
+            });
+        } catch (RejectedExecutionException e) {
+            // Đã shutdown
+        }
+    }
+
+    // Huỷ các phần tử đang chờ (ví dụ khi dừng quét / detach engine)
+    public void clear() {
+        synchronized (lock) {
+            pending.clear();
+            cancelTimerLocked();
+        }
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            closed = true;
+            pending.clear();
+            cancelTimerLocked();
+        }
+        timer.shutdownNow();
+    }
+
+    private List<T> takePendingLocked() {
+        cancelTimerLocked();
+        if (pending.isEmpty()) return null;
+
+        List<T> batch = pending;
+        pending = new ArrayList<>(Math.min(batch.size(), maxBatchSize));
+        return batch;
+    }
+
+    private void cancelTimerLocked() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+    }
+}
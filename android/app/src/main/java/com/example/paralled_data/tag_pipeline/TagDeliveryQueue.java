@@ -0,0 +1,280 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Hàng đợi có giới hạn giữa thread flush (TagBatchDispatcher) và main thread / EventSink.
+// Trước đây mỗi lô là một Runnable post thẳng lên main looper: nếu UI isolate chậm thì
+// hàng Runnable tăng không giới hạn, còn khi chưa có listener thì tag bị mất im lặng.
+//  - Giới hạn tính theo số tag đang chờ (capacity); chỉ có tối đa một Runnable drain trên main.
+//  - Khi đầy áp dụng OverflowPolicy; số tag bị bỏ / bị hạ cấp được đếm lại.
+//  - Khi chưa có listener, giữ tối đa preListenerCapacity tag mới nhất và gửi ngay khi listener gắn vào.
+public final class TagDeliveryQueue {
+
+    public enum OverflowPolicy {
+        BLOCK,          // Thread flush chờ main thread gửi bớt, không giới hạn thời gian (dồn ngược về ring / reader)
+        DROP_OLDEST,    // Bỏ các lô cũ nhất đang chờ
+        DROP_NEWEST,    // Bỏ phần tag mới không còn chỗ
+        AGGREGATE_ONLY; // Chỉ gửi lần thấy đầu tiên, bỏ các cập nhật số lần đọc (vẫn có trong bộ đếm native)
+
+        // "drop_oldest" -> DROP_OLDEST; null nếu không hợp lệ
+        public static OverflowPolicy parse(String name) {
+            if (name == null) return null;
+            for (OverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name)) return policy;
+            }
+            return null;
+        }
+    }
+
+    public interface Encoder {
+        // Chạy trên thread flush, ngoài lock của hàng đợi
+        Object encode(List<TagRead> batch);
+    }
+
+    public interface Sink {
+        // Chạy trên main thread (qua mainExecutor)
+        void deliver(Object event);
+    }
+
+    public interface DeliveryObserver {
+        // Main thread, ngay sau sink.deliver của lô (dùng để đo độ trễ tới Flutter)
+        void onDelivered(List<TagRead> batch, long deliveredNs);
+    }
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_PRE_LISTENER_CAPACITY = 500;
+
+    private static final int MAX_EVENTS_PER_DRAIN = 8;
+
+    private static final class Entry {
+        final Object event;
+        final List<TagRead> batch;
+        final int reads;
+
+        Entry(Object event, List<TagRead> batch) {
+            this.event = event;
+            this.batch = batch;
+            this.reads = batch.size();
+        }
+    }
+
+    private final Executor mainExecutor;
+    private final Sink sink;
+    private final BooleanCheck mayBlock;
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private final Runnable drainTask = this::drain;
+    private volatile DeliveryObserver observer;
+
+    private OverflowPolicy policy = OverflowPolicy.DROP_OLDEST;
+    private int capacity = DEFAULT_CAPACITY;
+    private int preListenerCapacity = DEFAULT_PRE_LISTENER_CAPACITY;
+
+    private int queuedReads;
+    private boolean listenerAttached;
+    private boolean drainScheduled;
+    private boolean closed;
+
+    private volatile long deliveredReads;
+    private volatile long droppedReads;
+    private volatile long degradedReads;
+    private volatile long blockedNs;
+    private volatile int maxQueuedReads;
+
+    // mayBlock: false trên main thread, để BLOCK không tự khoá chính thread phải drain
+    public TagDeliveryQueue(Executor mainExecutor, Sink sink, BooleanCheck mayBlock) {
+        this.mainExecutor = mainExecutor;
+        this.sink = sink;
+        this.mayBlock = mayBlock;
+    }
+
+    public synchronized void configure(OverflowPolicy policy, int capacity, int preListenerCapacity) {
+        this.policy = policy;
+        this.capacity = Math.max(1, capacity);
+        this.preListenerCapacity = Math.max(0, preListenerCapacity);
+        notifyAll();
+    }
+
+    public synchronized OverflowPolicy policy() {
+        return policy;
+    }
+
+    public synchronized int capacity() {
+        return capacity;
+    }
+
+    public synchronized int preListenerCapacity() {
+        return preListenerCapacity;
+    }
+
+    public void setDeliveryObserver(DeliveryObserver observer) {
+        this.observer = observer;
+    }
+
+    public synchronized void setListenerAttached(boolean attached) {
+        listenerAttached = attached;
+        if (attached) scheduleDrainLocked();
+        notifyAll();
+    }
+
+    public void offer(List<TagRead> batch, Encoder encoder) {
+        List<TagRead> admitted;
+        synchronized (this) {
+            if (closed) return;
+            admitted = admitLocked(batch);
+        }
+        if (admitted.isEmpty()) return;
+
+        Object event = encoder.encode(admitted);
+
+        synchronized (this) {
+            if (closed) return;
+            queue.addLast(new Entry(event, admitted));
+            queuedReads += admitted.size();
+
+            // Bỏ các lô cũ nhất nếu vượt giới hạn (không bỏ lô vừa thêm). BLOCK không bỏ gì: chỉ vượt
+            // capacity khi thread gọi không được chờ (main thread), tối đa một lô
+            int limit = !listenerAttached ? preListenerCapacity
+                    : policy == OverflowPolicy.AGGREGATE_ONLY ? 2 * capacity
+                    : policy == OverflowPolicy.BLOCK ? Integer.MAX_VALUE : capacity;
+            while (queuedReads > limit && queue.size() > 1) {
+                Entry oldest = queue.pollFirst();
+                queuedReads -= oldest.reads;
+                droppedReads += oldest.reads;
+            }
+            if (queuedReads > maxQueuedReads) maxQueuedReads = queuedReads;
+            scheduleDrainLocked();
+        }
+    }
+
+    // Quyết định phần nào của lô được vào hàng đợi theo policy hiện tại
+    private List<TagRead> admitLocked(List<TagRead> batch) {
+        if (!listenerAttached) {
+            // Chưa có listener: giữ phần mới nhất, lô cũ bị đẩy ra ở bước thêm
+            return keepNewest(batch, preListenerCapacity);
+        }
+
+        int n = batch.size();
+        switch (policy) {
+            case BLOCK:
+                if (queuedReads + n > capacity && mayBlock.check()) {
+                    // Chờ tới khi main thread gửi đủ chỗ (hoặc listener rời đi / đổi policy / shutdown)
+                    long start = System.nanoTime();
+                    while (queuedReads > 0 && queuedReads + n > capacity
+                            && listenerAttached && policy == OverflowPolicy.BLOCK && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                    blockedNs += System.nanoTime() - start;
+                }
+                return batch;
+
+            case DROP_NEWEST:
+                return keepOldest(batch, capacity - queuedReads);
+
+            case AGGREGATE_ONLY:
+                if (queuedReads + n <= capacity) return batch;
+                List<TagRead> firstSightings = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    if (batch.get(i).firstSeen) firstSightings.add(batch.get(i));
+                }
+                degradedReads += n - firstSightings.size();
+                // Lần thấy đầu tiên vẫn được giữ tới 2 lần capacity, sau đó bỏ phần mới
+                return keepOldest(firstSightings, 2 * capacity - queuedReads);
+
+            case DROP_OLDEST:
+            default:
+                return keepNewest(batch, capacity);
+        }
+    }
+
+    private List<TagRead> keepOldest(List<TagRead> batch, int room) {
+        if (batch.size() <= room) return batch;
+        int keep = Math.max(0, room);
+        droppedReads += batch.size() - keep;
+        return batch.subList(0, keep);
+    }
+
+    private List<TagRead> keepNewest(List<TagRead> batch, int room) {
+        if (batch.size() <= room) return batch;
+        int keep = Math.max(0, room);
+        droppedReads += batch.size() - keep;
+        return batch.subList(batch.size() - keep, batch.size());
+    }
+
+    private void scheduleDrainLocked() {
+        if (drainScheduled || !listenerAttached || queue.isEmpty() || closed) return;
+        drainScheduled = true;
+        mainExecutor.execute(drainTask);
+    }
+
+    // Main thread: gửi tối đa MAX_EVENTS_PER_DRAIN lô rồi nhường looper, post lại nếu còn
+    private void drain() {
+        for (int i = 0; i < MAX_EVENTS_PER_DRAIN; i++) {
+            Entry entry;
+            synchronized (this) {
+                entry = listenerAttached && !closed ? queue.pollFirst() : null;
+                if (entry == null) {
+                    drainScheduled = false;
+                    return;
+                }
+                queuedReads -= entry.reads;
+                deliveredReads += entry.reads;
+                notifyAll();
+            }
+            sink.deliver(entry.event);
+            DeliveryObserver deliveryObserver = observer;
+            if (deliveryObserver != null) deliveryObserver.onDelivered(entry.batch, System.nanoTime());
+        }
+        mainExecutor.execute(drainTask);
+    }
+
+    public synchronized void shutdown() {
+        closed = true;
+        queue.clear();
+        queuedReads = 0;
+        notifyAll();
+    }
+
+    public synchronized void resetStats() {
+        deliveredReads = 0;
+        droppedReads = 0;
+        degradedReads = 0;
+        blockedNs = 0;
+        maxQueuedReads = queuedReads;
+    }
+
+    public synchronized int queuedReads() {
+        return queuedReads;
+    }
+
+    public synchronized boolean isListenerAttached() {
+        return listenerAttached;
+    }
+
+    public int maxQueuedReads() {
+        return maxQueuedReads;
+    }
+
+    public long deliveredReads() {
+        return deliveredReads;
+    }
+
+    public long droppedReads() {
+        return droppedReads;
+    }
+
+    public long degradedReads() {
+        return degradedReads;
+    }
+
+    public long blockedNs() {
+        return blockedNs;
+    }
+}
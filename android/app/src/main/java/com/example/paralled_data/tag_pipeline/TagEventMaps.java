@@ -0,0 +1,43 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Map event của một TagRead cho StandardMessageCodec (kênh EventChannel "tags"), dùng chung cho
+// RfidC72Plugin, RfidBlePlugin và EventPayloadBenchmark. Chế độ nhị phân (tag_frame_codec.dart) trả cùng key.
+public final class TagEventMaps {
+
+    // Đổi hex sang ASCII; plugin truyền hàm có log cặp hex lỗi, benchmark truyền HexCodec
+    public interface AsciiDecoder {
+        String hexToAscii(String hex);
+    }
+
+    private TagEventMaps() {}
+
+    public static Map<String, Object> toEventMap(TagRead read, AsciiDecoder ascii) {
+        Map<String, Object> dataMap = new HashMap<>();
+
+        dataMap.put("epc_hex", read.epcHex);
+        dataMap.put("epc_ascii", ascii.hexToAscii(read.epcHex));
+        dataMap.put("tid_hex", read.tidHex);
+        dataMap.put("tid_ascii", ascii.hexToAscii(read.tidHex));
+        dataMap.put("user_hex", read.userHex);
+        dataMap.put("user_ascii", ascii.hexToAscii(read.userHex));
+        dataMap.put("rssi", read.rssi);
+        dataMap.put("count", read.count);
+
+        dataMap.put("scan_duration_ms", read.scanDurationNs / 1_000_000.0);
+        dataMap.put("scan_duration_ns", read.scanDurationNs);
+
+        if (read.userUpdate) dataMap.put("user_update", true);
+
+        // Chỉ có khi khử trùng lặp đang chạy (quét liên tục trên C72)
+        if (read.hasDedupInfo()) {
+            dataMap.put("first_seen", read.firstSeen);
+            dataMap.put("seen_count", read.seenCount);
+            dataMap.put("session_reads", read.sessionReads);
+            dataMap.put("session_unique", read.sessionUnique);
+        }
+        return dataMap;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+// Mã hoá một lô TagRead thành một frame nhị phân (little-endian) cho BasicMessageChannel + BinaryCodec.
+// Phía Dart giải mã trong lib/plugin/tag_frame_codec.dart, hai bên phải giữ cùng layout.
+//
+// Header frame (24 byte):
+//   u16 magic 'T''F' | u8 version | u8 reserved | u32 recordCount
+//   i64 sessionReads (-1 nếu không có) | i32 sessionUnique (-1) | u32 reserved
+// Mỗi bản ghi (32 byte cố định + EPC/TID/USER dạng byte thô):
+//   u8 flags | u8 epcLen | u8 tidLen | u8 userLen | i16 rssi (centi-dBm) | u16 reserved
+//   i32 count | i32 seenCount | i64 timestampMs | i64 scanDurationNs | epc | tid | user
+public final class TagFrameEncoder {
+    public static final int MAGIC = 0x4654; // "TF" khi đọc little-endian
+    public static final int VERSION = 1;
+    public static final int FRAME_HEADER_SIZE = 24;
+    public static final int RECORD_HEADER_SIZE = 32;
+
+    public static final int FLAG_FIRST_SEEN = 1;
+    public static final int FLAG_HAS_DEDUP = 1 << 1;
+    public static final int FLAG_HAS_RSSI = 1 << 2;
+    public static final int FLAG_USER_UPDATE = 1 << 3;   // TagRead.userUpdate
+
+    private static final int MAX_FIELD_BYTES = 255;
+
+    private TagFrameEncoder() {}
+
+    // Trả về direct ByteBuffer (position = 0) sẵn sàng cho BinaryMessenger
+    public static ByteBuffer encode(List<TagRead> batch) {
+        int size = FRAME_HEADER_SIZE;
+        for (int i = 0; i < batch.size(); i++) {
+            TagRead read = batch.get(i);
+            size += RECORD_HEADER_SIZE + byteLength(read.epcHex) + byteLength(read.tidHex) + byteLength(read.userHex);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        // Bộ đếm phiên lấy từ bản ghi mới nhất có thông tin khử trùng lặp
+        TagRead last = null;
+        for (int i = batch.size() - 1; i >= 0 && last == null; i--) {
+            if (batch.get(i).hasDedupInfo()) last = batch.get(i);
+        }
+        boolean hasSession = last != null;
+
+        buffer.putShort((short) MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) 0);
+        buffer.putInt(batch.size());
+        buffer.putLong(hasSession ? last.sessionReads : -1);
+        buffer.putInt(hasSession ? last.sessionUnique : -1);
+        buffer.putInt(0);
+
+        for (int i = 0; i < batch.size(); i++) {
+            putRecord(buffer, batch.get(i));
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void putRecord(ByteBuffer buffer, TagRead read) {
+        int centiDbm = parseCentiDbm(read.rssi);
+        int flags = 0;
+        if (read.firstSeen) flags |= FLAG_FIRST_SEEN;
+        if (read.hasDedupInfo()) flags |= FLAG_HAS_DEDUP;
+        if (centiDbm != Integer.MIN_VALUE) flags |= FLAG_HAS_RSSI;
+        if (read.userUpdate) flags |= FLAG_USER_UPDATE;
+
+        buffer.put((byte) flags);
+        buffer.put((byte) byteLength(read.epcHex));
+        buffer.put((byte) byteLength(read.tidHex));
+        buffer.put((byte) byteLength(read.userHex));
+        buffer.putShort(centiDbm != Integer.MIN_VALUE ? (short) centiDbm : 0);
+        buffer.putShort((short) 0);
+        buffer.putInt(read.count);
+        buffer.putInt(read.seenCount);
+        buffer.putLong(read.timestampMs);
+        buffer.putLong(read.scanDurationNs);
+
+        putHex(buffer, read.epcHex);
+        putHex(buffer, read.tidHex);
+        putHex(buffer, read.userHex);
+    }
+
+    // Số byte ghi ra cho một chuỗi hex (nibble lẻ cuối bị bỏ như hexToAscii)
+    private static int byteLength(String hex) {
+        return Math.min(hex.length() / 2, MAX_FIELD_BYTES);
+    }
+
+    private static void putHex(ByteBuffer buffer, String hex) {
+        int bytes = byteLength(hex);
+        for (int i = 0; i < bytes; i++) {
+            int hi = nibble(hex.charAt(2 * i));
+            int lo = nibble(hex.charAt(2 * i + 1));
+            buffer.put((byte) ((hi << 4) | lo));
+        }
+    }
+
+    // Ký tự không hợp lệ được coi là 0 để giữ nguyên độ dài trường
+    private static int nibble(char c) {
+        int v = HexCodec.nibble(c);
+        return v < 0 ? 0 : v;
+    }
+
+    // "-62.5" -> -6250; trả về Integer.MIN_VALUE nếu không parse được
+    public static int parseCentiDbm(String rssi) {
+        int len = rssi.length();
+        if (len == 0) return Integer.MIN_VALUE;
+
+        int i = 0;
+        boolean negative = false;
+        if (rssi.charAt(0) == '-' || rssi.charAt(0) == '+') {
+            negative = rssi.charAt(0) == '-';
+            i++;
+        }
+
+        int value = 0;
+        int decimals = -1;
+        boolean digits = false;
+        for (; i < len; i++) {
+            char c = rssi.charAt(i);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits = true;
+                if (decimals >= 2) continue;
+                value = value * 10 + (c - '0');
+                if (decimals >= 0) decimals++;
+                if (value > 100_000) return Integer.MIN_VALUE;
+            } else {
+                return Integer.MIN_VALUE;
+            }
+        }
+        if (!digits) return Integer.MIN_VALUE;
+
+        for (int d = Math.max(decimals, 0); d < 2; d++) value *= 10;
+        int result = negative ? -value : value;
+        return (result < Short.MIN_VALUE || result > Short.MAX_VALUE) ? Integer.MIN_VALUE : result;
+    }
+}
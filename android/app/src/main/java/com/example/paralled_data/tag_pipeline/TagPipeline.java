@@ -0,0 +1,193 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Hai thread sống suốt vòng đời plugin thay cho việc new Thread() mỗi lần startContinuousScan:
+//  - reader thread: chỉ rút tag khỏi buffer của module (Source) vào TagRing, không giải mã / log
+//  - dispatcher thread: lấy tag khỏi ring, khử trùng lặp, gom lô, gửi qua channel (Consumer)
+// Nhờ vậy tốc độ rút UART không phụ thuộc chi phí phía sau, và bắt đầu quét không phải chờ tạo thread.
+// Khi không có phiên quét, cả hai thread park hẳn (không thức dậy định kỳ).
+public final class TagPipeline {
+
+    public interface Source {
+        // Ghi tag kế tiếp vào slot; false nếu buffer của module đang rỗng
+        boolean read(RawTagSlot slot) throws Exception;
+
+        // Gọi trên reader thread sau khi phiên kết thúc (ví dụ stopInventory)
+        void onStop();
+    }
+
+    public interface Consumer {
+        // Gọi trên dispatcher thread; slot chỉ hợp lệ trong lúc gọi
+        void accept(RawTagSlot slot);
+
+        // Ring đã rỗng và reader đã dừng: thời điểm để flush lô còn lại
+        void onDrained();
+
+        void onError(String where, Exception e);
+    }
+
+    public static final int DEFAULT_RING_CAPACITY = 4096;
+
+    private static final long FULL_RING_PARK_NS = 50_000L;
+
+    private final String name;
+    private final TagRing ring;
+    private final Consumer consumer;
+    private final AdaptivePoller readerPoller;
+    private final AdaptivePoller dispatchPoller = new AdaptivePoller();
+
+    private volatile Source session;
+    private volatile boolean readerBusy;
+    private volatile boolean dispatcherBusy;
+    private volatile boolean closed;
+    private volatile long ringFullWaits;
+
+    private volatile Thread readerThread;
+    private volatile Thread dispatcherThread;
+
+    public TagPipeline(String name, int ringCapacity, AdaptivePoller readerPoller, Consumer consumer) {
+        this.name = name;
+        this.ring = new TagRing(ringCapacity);
+        this.readerPoller = readerPoller;
+        this.consumer = consumer;
+    }
+
+    // Tạo hai thread (một lần); gọi sớm, ví dụ lúc attach, để lần quét đầu không phải chờ
+    public synchronized void start() {
+        if (readerThread != null || closed) return;
+
+        Thread reader = new Thread(this::readerLoop, name + "-reader");
+        reader.setDaemon(true);
+        Thread dispatcher = new Thread(this::dispatcherLoop, name + "-dispatch");
+        dispatcher.setDaemon(true);
+
+        readerThread = reader;
+        dispatcherThread = dispatcher;
+        reader.start();
+        dispatcher.start();
+    }
+
+    public void startSession(Source source) {
+        start();
+        session = source;
+        LockSupport.unpark(readerThread);
+        LockSupport.unpark(dispatcherThread);
+    }
+
+    // Không chờ: reader tự thoát vòng poll trong tối đa maxParkNs rồi gọi source.onStop()
+    public void stopSession() {
+        session = null;
+        Thread reader = readerThread;
+        if (reader != null) LockSupport.unpark(reader);
+    }
+
+    public boolean isSessionActive() {
+        return session != null;
+    }
+
+    // Chờ phiên trước kết thúc hẳn (reader đã onStop, ring đã được xử lý hết)
+    public boolean awaitIdle(long timeoutMs) {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        while (readerBusy || dispatcherBusy || !ring.isEmpty()) {
+            if (System.nanoTime() - deadline >= 0) return false;
+            LockSupport.parkNanos(100_000L);
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        closed = true;
+        session = null;
+        Thread reader = readerThread;
+        Thread dispatcher = dispatcherThread;
+        if (reader != null) LockSupport.unpark(reader);
+        if (dispatcher != null) LockSupport.unpark(dispatcher);
+    }
+
+    public int queueDepth() {
+        return ring.size();
+    }
+
+    public int ringCapacity() {
+        return ring.capacity();
+    }
+
+    public long ringFullWaits() {
+        return ringFullWaits;
+    }
+
+    private void readerLoop() {
+        while (!closed) {
+            Source source = session;
+            if (source == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            readerBusy = true;
+            try {
+                readerPoller.run(() -> session == source && !closed, () -> readOnce(source));
+            } finally {
+                try {
+                    source.onStop();
+                } catch (Exception e) {
+                    consumer.onError("onStop", e);
+                }
+                readerBusy = false;
+                LockSupport.unpark(dispatcherThread);
+            }
+        }
+    }
+
+    private boolean readOnce(Source source) {
+        RawTagSlot slot = ring.claim();
+        if (slot == null) {
+            // Ring đầy: chờ dispatcher giải phóng chỗ, không bỏ tag
+            ringFullWaits++;
+            LockSupport.parkNanos(FULL_RING_PARK_NS);
+            return false;
+        }
+        try {
+            if (!source.read(slot)) return false;
+        } catch (Exception e) {
+            consumer.onError("read", e);
+            return false;
+        }
+        ring.publish();
+        return true;
+    }
+
+    private void dispatcherLoop() {
+        while (!closed) {
+            if (session == null && !readerBusy && ring.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            dispatcherBusy = true;
+            try {
+                // readerBusy = false được ghi sau lần publish cuối của phiên,
+                // nên khi thấy nó false thì isEmpty() đã thấy mọi tag còn lại
+                dispatchPoller.run(() -> !closed && (session != null || readerBusy || !ring.isEmpty()),
+                        this::dispatchOnce);
+                consumer.onDrained();
+            } finally {
+                dispatcherBusy = false;
+            }
+        }
+    }
+
+    private boolean dispatchOnce() {
+        RawTagSlot slot = ring.peek();
+        if (slot == null) return false;
+        try {
+            consumer.accept(slot);
+        } catch (Exception e) {
+            consumer.onError("dispatch", e);
+        } finally {
+            ring.release();
+        }
+        return true;
+    }
+}
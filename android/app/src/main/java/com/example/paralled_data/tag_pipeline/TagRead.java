@@ -0,0 +1,76 @@
+package com.example.paralled_data.tag_pipeline;
+
+// Một lần đọc tag đã qua khử trùng lặp, chờ được gom lô và mã hoá
+// (Map cho StandardMessageCodec hoặc frame nhị phân cho BinaryCodec).
+public final class TagRead {
+    public final String epcHex;
+    public final String tidHex;
+    public final String userHex;
+    public final String rssi;
+    public final int count;
+    public final long timestampMs;
+    public final long scanDurationNs;
+
+    // Thông tin khử trùng lặp; seenCount < 0 khi không có (quét đơn, dedup tắt)
+    public final boolean firstSeen;
+    public final int seenCount;
+    public final long sessionReads;
+    public final int sessionUnique;
+
+    // Mốc System.nanoTime() cho ReadLatencyStats: lúc rút khỏi module và lúc thành TagRead; 0 = không đo
+    public final long readNs;
+    public final long decodeNs;
+
+    // Kết quả đọc USER (UserBankReadQueue) của một EPC đã gửi trước đó, không phải một lần đọc:
+    // không ghi journal / upload, không tính vào bộ đếm lần đọc
+    public final boolean userUpdate;
+
+    public TagRead(String epcHex, String tidHex, String userHex, String rssi, int count,
+                   long timestampMs, long scanDurationNs) {
+        this(epcHex, tidHex, userHex, rssi, count, timestampMs, scanDurationNs, true, -1, -1, -1);
+    }
+
+    public TagRead(String epcHex, String tidHex, String userHex, String rssi, int count,
+                   long timestampMs, long scanDurationNs,
+                   boolean firstSeen, int seenCount, long sessionReads, int sessionUnique) {
+        this(epcHex, tidHex, userHex, rssi, count, timestampMs, scanDurationNs,
+                firstSeen, seenCount, sessionReads, sessionUnique, 0, 0);
+    }
+
+    public TagRead(String epcHex, String tidHex, String userHex, String rssi, int count,
+                   long timestampMs, long scanDurationNs,
+                   boolean firstSeen, int seenCount, long sessionReads, int sessionUnique,
+                   long readNs, long decodeNs) {
+        this(epcHex, tidHex, userHex, rssi, count, timestampMs, scanDurationNs,
+                firstSeen, seenCount, sessionReads, sessionUnique, readNs, decodeNs, false);
+    }
+
+    private TagRead(String epcHex, String tidHex, String userHex, String rssi, int count,
+                    long timestampMs, long scanDurationNs,
+                    boolean firstSeen, int seenCount, long sessionReads, int sessionUnique,
+                    long readNs, long decodeNs, boolean userUpdate) {
+        this.epcHex = epcHex != null ? epcHex : "";
+        this.tidHex = tidHex != null ? tidHex : "";
+        this.userHex = userHex != null ? userHex : "";
+        this.rssi = rssi != null ? rssi : "";
+        this.count = count;
+        this.timestampMs = timestampMs;
+        this.scanDurationNs = scanDurationNs;
+        this.firstSeen = firstSeen;
+        this.seenCount = seenCount;
+        this.sessionReads = sessionReads;
+        this.sessionUnique = sessionUnique;
+        this.readNs = readNs;
+        this.decodeNs = decodeNs;
+        this.userUpdate = userUpdate;
+    }
+
+    public static TagRead userUpdate(String epcHex, String tidHex, String userHex, long timestampMs) {
+        return new TagRead(epcHex, tidHex, userHex, null, 0, timestampMs, 0,
+                false, -1, -1, -1, 0, 0, true);
+    }
+
+    public boolean hasDedupInfo() {
+        return seenCount >= 0;
+    }
+}
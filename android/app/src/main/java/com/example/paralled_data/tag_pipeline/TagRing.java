@@ -0,0 +1,71 @@
+package com.example.paralled_data.tag_pipeline;
+
+// Ring buffer một producer / một consumer (SPSC) với các RawTagSlot cấp phát sẵn.
+// Producer: claim() -> ghi vào ô -> publish(). Consumer: peek() -> đọc ô -> release().
+// Chỉ dùng head/tail volatile, không lock; mỗi phía giữ bản cache chỉ số của phía kia
+// để tránh đọc volatile ở mỗi lần gọi.
+public final class TagRing {
+    private final RawTagSlot[] slots;
+    private final int mask;
+
+    private volatile long head; // Consumer ghi
+    private volatile long tail; // Producer ghi
+
+    private long cachedHead; // Chỉ producer dùng
+    private long cachedTail; // Chỉ consumer dùng
+
+    public TagRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        slots = new RawTagSlot[size];
+        for (int i = 0; i < size; i++) slots[i] = new RawTagSlot();
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    // ===== Producer =====
+
+    // Ô trống kế tiếp, null nếu ring đầy
+    public RawTagSlot claim() {
+        long t = tail;
+        if (t - cachedHead >= slots.length) {
+            cachedHead = head;
+            if (t - cachedHead >= slots.length) return null;
+        }
+        return slots[(int) (t & mask)];
+    }
+
+    public void publish() {
+        tail = tail + 1;
+    }
+
+    // ===== Consumer =====
+
+    // Ô cũ nhất đã publish, null nếu ring rỗng
+    public RawTagSlot peek() {
+        long h = head;
+        if (h >= cachedTail) {
+            cachedTail = tail;
+            if (h >= cachedTail) return null;
+        }
+        return slots[(int) (h & mask)];
+    }
+
+    public void release() {
+        long h = head;
+        slots[(int) (h & mask)].clear();
+        head = h + 1;
+    }
+
+    // ===== Gọi từ thread bất kỳ (chỉ mang tính ước lượng) =====
+
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    public boolean isEmpty() {
+        return tail == head;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.paralled_data.tag_pipeline;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+// Hàng đợi đọc vùng USER cho từng EPC mới thấy trong phiên quét liên tục.
+// Dispatcher thread offer() EPC mới; reader thread, giữa hai lượt inventory (shouldPause),
+// dừng inventory, poll() và đọc lần lượt tối đa readsPerPause tag rồi complete() kết quả.
+// Kết quả được giữ theo EPC (userFor) để gộp vào các lần đọc sau của cùng tag.
+// Các hàm (trừ isEnabled) synchronized: chỉ EPC mới và kết quả đọc đi qua đây, không phải mọi lần đọc.
+public final class UserBankReadQueue {
+
+    public static final int DEFAULT_READS_PER_PAUSE = 8;
+    public static final long DEFAULT_ROUND_MS = 300;
+    public static final long DEFAULT_MAX_WAIT_MS = 1_000;
+    public static final int DEFAULT_MAX_ATTEMPTS = 2;
+    public static final int MAX_PENDING = 4_096;
+    public static final int MAX_TRACKED = 65_536;
+    // = JournalRecord.USER_BYTES / 2 (28 byte USER trong record journal)
+    public static final int MAX_USER_WORDS = 14;
+
+    private static final String FAILED = "";
+
+    private volatile boolean enabled;
+    private int userPtr;          // word
+    private int userLen = 2;      // word
+    private int readsPerPause = DEFAULT_READS_PER_PAUSE;
+    private long roundMs = DEFAULT_ROUND_MS;
+    private long maxWaitMs = DEFAULT_MAX_WAIT_MS;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private String accessPassword = "00000000";
+
+    // EPC -> USER hex ("" = đọc thất bại hẳn, không thử lại); EPC đã offer đều có mặt (null = đang chờ)
+    private final HashMap<String, String> results = new HashMap<>();
+    private final HashMap<String, Integer> attempts = new HashMap<>();
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    private final ArrayDeque<Long> pendingSinceMs = new ArrayDeque<>();
+    private long lastPauseMs;
+
+    private long offered;
+    private long droppedFull;
+    private long readsOk;
+    private long readsFailed;
+    private long retries;
+    private long pauses;
+    private long pauseNs;
+    private long readNs;
+
+    public synchronized void configure(boolean enabled, int userPtr, int userLen, int readsPerPause, long roundMs,
+                                       long maxWaitMs, int maxAttempts, String accessPassword) {
+        if (userPtr < 0 || userLen < 1 || userLen > MAX_USER_WORDS) {
+            throw new IllegalArgumentException("userPtr phải >= 0, userLen phải trong 1.." + MAX_USER_WORDS);
+        }
+        if (readsPerPause < 1 || roundMs < 0 || maxWaitMs < 0 || maxAttempts < 1) {
+            throw new IllegalArgumentException("readsPerPause / maxAttempts phải >= 1, roundMs / maxWaitMs phải >= 0");
+        }
+        if (accessPassword == null || !accessPassword.matches("[0-9A-Fa-f]{8}")) {
+            throw new IllegalArgumentException("accessPassword phải là 8 ký tự hex");
+        }
+        boolean rangeChanged = userPtr != this.userPtr || userLen != this.userLen;
+        this.enabled = enabled;
+        this.userPtr = userPtr;
+        this.userLen = userLen;
+        this.readsPerPause = readsPerPause;
+        this.roundMs = roundMs;
+        this.maxWaitMs = maxWaitMs;
+        this.maxAttempts = maxAttempts;
+        this.accessPassword = accessPassword;
+        // Đổi vùng đọc thì kết quả cũ không còn đúng
+        if (rangeChanged || !enabled) clearState();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized int userPtr() {
+        return userPtr;
+    }
+
+    public synchronized int userLen() {
+        return userLen;
+    }
+
+    public synchronized int readsPerPause() {
+        return readsPerPause;
+    }
+
+    public synchronized String accessPassword() {
+        return accessPassword;
+    }
+
+    // Gọi khi bắt đầu phiên quét liên tục mới
+    public synchronized void reset() {
+        clearState();
+        lastPauseMs = 0;
+        offered = 0;
+        droppedFull = 0;
+        readsOk = 0;
+        readsFailed = 0;
+        retries = 0;
+        pauses = 0;
+        pauseNs = 0;
+        readNs = 0;
+    }
+
+    private void clearState() {
+        results.clear();
+        attempts.clear();
+        pending.clear();
+        pendingSinceMs.clear();
+    }
+
+    // Dispatcher thread: xếp EPC vào hàng đợi nếu chưa từng xếp; false nếu bỏ qua
+    public synchronized boolean offer(String epcHex, long nowMs) {
+        if (!enabled || epcHex == null || epcHex.isEmpty() || results.containsKey(epcHex)) return false;
+        if (pending.size() >= MAX_PENDING || results.size() >= MAX_TRACKED) {
+            droppedFull++;
+            return false;
+        }
+        results.put(epcHex, null);
+        pending.addLast(epcHex);
+        pendingSinceMs.addLast(nowMs);
+        offered++;
+        return true;
+    }
+
+    // Reader thread: có nên dừng inventory để đọc USER không.
+    // bufferEmpty: buffer module vừa rỗng (cuối một lượt) -> đọc nếu đã chạy inventory đủ roundMs;
+    // còn lại chỉ ngắt giữa chừng khi EPC chờ lâu nhất đã quá maxWaitMs.
+    public synchronized boolean shouldPause(long nowMs, boolean bufferEmpty) {
+        if (!enabled || pending.isEmpty()) return false;
+        if (bufferEmpty) return nowMs - lastPauseMs >= roundMs;
+        return nowMs - pendingSinceMs.peekFirst() >= maxWaitMs;
+    }
+
+    public synchronized String poll() {
+        pendingSinceMs.pollFirst();
+        return pending.pollFirst();
+    }
+
+    // userHex null = đọc lỗi: xếp lại cuối hàng nếu còn lượt thử
+    public synchronized void complete(String epcHex, String userHex, long elapsedNs, long nowMs) {
+        readNs += elapsedNs;
+        if (!results.containsKey(epcHex)) return;   // đã reset / đổi cấu hình giữa chừng
+        if (userHex != null) {
+            readsOk++;
+            results.put(epcHex, userHex);
+            attempts.remove(epcHex);
+            return;
+        }
+        int tried = attempts.containsKey(epcHex) ? attempts.get(epcHex) + 1 : 1;
+        if (tried < maxAttempts) {
+            retries++;
+            attempts.put(epcHex, tried);
+            pending.addLast(epcHex);
+            pendingSinceMs.addLast(nowMs);
+        } else {
+            readsFailed++;
+            attempts.remove(epcHex);
+            results.put(epcHex, FAILED);
+        }
+    }
+
+    public synchronized void onPauseFinished(long startNs, long endNs, long nowMs) {
+        pauses++;
+        pauseNs += endNs - startNs;
+        lastPauseMs = nowMs;
+    }
+
+    // USER hex đã đọc được của EPC, hoặc null
+    public synchronized String userFor(String epcHex) {
+        String user = results.get(epcHex);
+        return user == null || user.isEmpty() ? null : user;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("userPtr", userPtr);
+        stats.put("userLen", userLen);
+        stats.put("readsPerPause", readsPerPause);
+        stats.put("roundMs", roundMs);
+        stats.put("maxWaitMs", maxWaitMs);
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("offered", offered);
+        stats.put("pending", pending.size());
+        stats.put("dropped_full", droppedFull);
+        stats.put("reads_ok", readsOk);
+        stats.put("reads_failed", readsFailed);
+        stats.put("retries", retries);
+        stats.put("pauses", pauses);
+        stats.put("pause_ms", pauseNs / 1_000_000.0);
+        long reads = readsOk + readsFailed + retries;
+        stats.put("avg_read_ms", reads > 0 ? readNs / 1_000_000.0 / reads : 0.0);
+        return stats;
+    }
+}
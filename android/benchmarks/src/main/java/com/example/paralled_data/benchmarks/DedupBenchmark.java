@@ -0,0 +1,87 @@
+package com.example.paralled_data.benchmarks;
+
+import com.example.paralled_data.tag_pipeline.EpcDeduplicator;
+import com.example.paralled_data.tag_pipeline.EpcTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+// Khử trùng lặp trên dispatcher thread cho mỗi lần đọc: EpcDeduplicator (EpcTable key nhị phân)
+// so với HashSet<String> kiểu cũ. Mỗi lần gọi = một lần đọc, xoay vòng qua uniqueTags EPC
+// (tất cả đã được thấy trong setup, như giữa phiên quét khi hầu hết lần đọc là lặp lại).
+// insertFresh: chi phí lần thấy đầu tiên (bảng được xoá sau mỗi vòng uniqueTags lần đọc).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DedupBenchmark {
+
+    @Param({"100", "10000"})
+    public int uniqueTags;
+
+    private String[] epcs;
+    private int next;
+    private long nowNs;
+
+    private final EpcDeduplicator deduplicator = new EpcDeduplicator();
+    private final EpcDeduplicator freshDeduplicator = new EpcDeduplicator();
+    private EpcTable table;
+    private final HashSet<String> seen = new HashSet<>();
+
+    @Setup
+    public void setup() {
+        epcs = new String[uniqueTags];
+        table = new EpcTable(uniqueTags);
+        for (int i = 0; i < uniqueTags; i++) {
+            // Chuỗi được dùng lại qua các vòng nên String.hashCode đã cache sẵn: hashSetAdd là cận dưới,
+            // trên thiết bị mỗi lần đọc SDK trả về một String mới phải băm lại
+            epcs[i] = String.format("E28011606000020D%08X", i * 2654435761L & 0xFFFFFFFFL);
+            deduplicator.observe(epcs[i], 0);
+            table.intern(epcs[i]);
+            seen.add(epcs[i]);
+        }
+    }
+
+    private String nextEpc() {
+        String epc = epcs[next];
+        if (++next == epcs.length) next = 0;
+        return epc;
+    }
+
+    @Benchmark
+    public int observeRepeat() {
+        nowNs += 1_000L;
+        return deduplicator.observe(nextEpc(), nowNs);
+    }
+
+    @Benchmark
+    public int tableFind() {
+        return table.find(nextEpc());
+    }
+
+    @Benchmark
+    public boolean hashSetAdd() {
+        return seen.add(nextEpc());
+    }
+
+    @Benchmark
+    public int insertFresh() {
+        if (next == 0) freshDeduplicator.reset();
+        nowNs += 1_000L;
+        return freshDeduplicator.observe(nextEpc(), nowNs);
+    }
+}
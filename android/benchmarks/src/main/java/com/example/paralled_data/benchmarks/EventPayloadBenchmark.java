@@ -0,0 +1,67 @@
+package com.example.paralled_data.benchmarks;
+
+import com.example.paralled_data.tag_pipeline.HexCodec;
+import com.example.paralled_data.tag_pipeline.TagEventMaps;
+import com.example.paralled_data.tag_pipeline.TagFrameEncoder;
+import com.example.paralled_data.tag_pipeline.TagRead;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Chi phí dựng payload cho một lô tag trên thread flush (encodeTagBatch của plugin):
+// List<Map> (TagEventMaps, cùng mã plugin dùng) cho StandardMessageCodec so với một frame nhị phân
+// TagFrameEncoder.
+// Kết quả chia cho batchSize để ra ns / tag.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventPayloadBenchmark {
+
+    @Param({"1", "200"})
+    public int batchSize;
+
+    private List<TagRead> batch;
+
+    private final HexCodec hexCodec = new HexCodec();
+    private final TagEventMaps.AsciiDecoder ascii = hexCodec::hexToAscii;
+
+    @Setup
+    public void setup() {
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            String epc = String.format("E28011606000020D%08X", i);
+            batch.add(new TagRead(epc, "E2801160200074CF085809A5", "", "-61.50", 1 + i % 7,
+                    1_700_000_000_000L + i, 2_500_000L + i, i % 3 == 0, 1 + i % 5, 10_000L + i, 500 + i));
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> mapBatch() {
+        List<Map<String, Object>> maps = new ArrayList<>(batch.size());
+        for (TagRead read : batch) maps.add(TagEventMaps.toEventMap(read, ascii));
+        return maps;
+    }
+
+    @Benchmark
+    public ByteBuffer binaryFrame() {
+        return TagFrameEncoder.encode(batch);
+    }
+}
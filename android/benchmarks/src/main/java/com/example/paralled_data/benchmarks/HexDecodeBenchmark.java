@@ -0,0 +1,90 @@
+package com.example.paralled_data.benchmarks;
+
+import com.example.paralled_data.tag_pipeline.HexCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Chi phí giải mã EPC/TID/USER cho một tag: hexToAscii cũ (substring + parseInt + try/catch)
+// so với HexCodec (bảng tra nibble + buffer tạm). Mỗi lần gọi = 3 trường của một tag.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexDecodeBenchmark {
+    // EPC 96 bit, TID 96 bit, USER 64 byte như ở chế độ EPC+TID+USER
+    private String epc;
+    private String tid;
+    private String user;
+    // Dữ liệu lỗi (ký tự ngoài hex): đường chạy exception của bản cũ
+    private String corruptEpc;
+
+    private final HexCodec codec = new HexCodec();
+
+    @Setup
+    public void setup() {
+        epc = "E28011606000020D5B0A1C3F";
+        tid = "E2801160200074CF085809A5";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 64; i++) sb.append(String.format("%02X", 0x20 + (i % 90)));
+        user = sb.toString();
+        corruptEpc = "E2801160ZZ00020D5B0A1CXX";
+    }
+
+    @Benchmark
+    public void legacyPerTag(Blackhole bh) {
+        bh.consume(legacyHexToAscii(epc));
+        bh.consume(legacyHexToAscii(tid));
+        bh.consume(legacyHexToAscii(user));
+    }
+
+    @Benchmark
+    public void tablePerTag(Blackhole bh) {
+        bh.consume(codec.hexToAscii(epc));
+        bh.consume(codec.hexToAscii(tid));
+        bh.consume(codec.hexToAscii(user));
+    }
+
+    @Benchmark
+    public String legacyCorruptEpc() {
+        return legacyHexToAscii(corruptEpc);
+    }
+
+    @Benchmark
+    public String tableCorruptEpc() {
+        return codec.hexToAscii(corruptEpc);
+    }
+
+    // Bản sao hexToAscii trước khi đổi sang HexCodec (bỏ Log.w vì chạy trên JVM thuần)
+    static String legacyHexToAscii(String hex) {
+        if (hex == null) return "";
+        StringBuilder output = new StringBuilder();
+        int len = hex.length();
+        if (len % 2 != 0) {
+            len = len - 1;
+        }
+        for (int i = 0; i < len; i += 2) {
+            try {
+                String part = hex.substring(i, i + 2);
+                int val = Integer.parseInt(part, 16);
+                output.append((char) val);
+            } catch (Exception e) {
+                // bản cũ ghi log ở đây
+            }
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.paralled_data.benchmarks;
+
+import com.example.paralled_data.radio.ReaderCaptureWriter;
+import com.example.paralled_data.radio.ReplayTagReader;
+import com.example.paralled_data.radio.SimulatedTagReader;
+import com.example.paralled_data.radio.TagReader;
+import com.example.paralled_data.tag_pipeline.AdaptivePoller;
+import com.example.paralled_data.tag_pipeline.EpcDeduplicator;
+import com.example.paralled_data.tag_pipeline.LatencyHistogram;
+import com.example.paralled_data.tag_pipeline.RawTagSlot;
+import com.example.paralled_data.tag_pipeline.TagPipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Chạy tải TagPipeline với SimulatedTagReader trên JVM thuần (không cần thiết bị):
+// reader thread rút tag như RfidC72Plugin (kể cả chạy lại inventory sau khi mất kết nối),
+// dispatcher thread khử trùng lặp như plugin. In thông lượng, số lần ring đầy, số tag bị đè
+// trong buffer mô phỏng và thời gian phục hồi sau mất kết nối.
+// gradle loadTest -Pload.args="readsPerSec=20000 population=5000 durationSec=20 disconnectEveryMs=5000 disconnectDurationMs=500"
+// Phát lại file capture lấy từ máy (startCapture) thay cho tag mô phỏng, dừng khi hết file:
+// gradle loadTest -Pload.args="replay=/path/site.rcap speed=0 durationSec=1200"
+// capture=<file>: ghi output của đầu đọc (mô phỏng) ra file capture để phát lại sau.
+public final class PipelineLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Object> overrides = new HashMap<>();
+        long durationSec = 10;
+        long dispatchCostNs = 0;
+        String replayPath = null;
+        String capturePath = null;
+        double speed = 1;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Tham số phải có dạng key=value: " + arg);
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            if (key.equals("durationSec")) {
+                durationSec = Long.parseLong(value);
+            } else if (key.equals("dispatchCostNs")) {
+                // Giả lập chi phí gửi qua channel trên dispatcher thread
+                dispatchCostNs = Long.parseLong(value);
+            } else if (key.equals("replay")) {
+                replayPath = value;
+            } else if (key.equals("speed")) {
+                speed = Double.parseDouble(value);
+            } else if (key.equals("capture")) {
+                capturePath = value;
+            } else if (key.equals("withTid")) {
+                overrides.put(key, Boolean.parseBoolean(value));
+            } else if (key.equals("epcPrefix")) {
+                overrides.put(key, value);
+            } else {
+                overrides.put(key, Double.parseDouble(value));
+            }
+        }
+
+        SimulatedTagReader.Config config = new SimulatedTagReader.Config();
+        config.readsPerSec = 20_000;
+        config.population = 2_000;
+        String error = config.applyOverrides(overrides);
+        if (error != null) throw new IllegalArgumentException(error);
+
+        TagReader reader;
+        ReplayTagReader replay = null;
+        if (replayPath != null) {
+            replay = new ReplayTagReader(new File(replayPath), speed);
+            reader = replay;
+            System.out.println("Phát lại: " + replayPath + ", speed=" + speed + ", durationSec=" + durationSec
+                    + ", dispatchCostNs=" + dispatchCostNs);
+        } else {
+            reader = new SimulatedTagReader(config);
+            System.out.println("Cấu hình: " + config.toMap() + ", durationSec=" + durationSec
+                    + ", dispatchCostNs=" + dispatchCostNs);
+        }
+        ReaderCaptureWriter capture = capturePath != null
+                ? new ReaderCaptureWriter(new File(capturePath), System.nanoTime(), System.currentTimeMillis(),
+                        Long.MAX_VALUE)
+                : null;
+
+        LoadConsumer consumer = new LoadConsumer(dispatchCostNs);
+        TagPipeline pipeline = new TagPipeline("load", TagPipeline.DEFAULT_RING_CAPACITY,
+                new AdaptivePoller(), consumer);
+        pipeline.start();
+        LoadSource source = new LoadSource(reader, capture);
+
+        if (!reader.connect()) {
+            throw new IllegalStateException("Không kết nối được đầu đọc"
+                    + (replay != null ? ": " + replay.lastError() : ""));
+        }
+        if (!reader.startInventory()) throw new IllegalStateException("Không chạy được inventory");
+        long startNs = System.nanoTime();
+        pipeline.startSession(source);
+
+        long lastReads = 0;
+        for (long second = 1; second <= durationSec; second++) {
+            Thread.sleep(1_000);
+            long reads = consumer.reads.get();
+            System.out.printf("%3ds  %9d đọc/s  ring=%5d  unique=%7d  connected=%b%n",
+                    second, reads - lastReads, pipeline.queueDepth(), consumer.unique.get(), reader.isConnected());
+            lastReads = reads;
+            if (replay != null && replay.isFinished() && pipeline.queueDepth() == 0) break;
+        }
+
+        pipeline.stopSession();
+        pipeline.awaitIdle(1_000);
+        double elapsedSec = (System.nanoTime() - startNs) / 1e9;
+        pipeline.shutdown();
+
+        System.out.println();
+        System.out.printf("Thông lượng:        %.0f đọc/s (dispatcher nhận %d)%n",
+                consumer.reads.get() / elapsedSec, consumer.reads.get());
+        System.out.printf("Tag duy nhất:       %d%n", consumer.unique.get());
+        System.out.printf("Ring đầy (chờ):     %d%n", pipeline.ringFullWaits());
+        if (reader instanceof SimulatedTagReader) {
+            Map<String, Object> stats = ((SimulatedTagReader) reader).stats();
+            System.out.printf("Sinh:               %d%n", (Long) stats.get("generated"));
+            System.out.printf("Bị đè trong buffer: %d%n", (Long) stats.get("overflow_dropped"));
+            System.out.printf("Mất kết nối:        %d, phục hồi %d, thời gian phục hồi tối đa %.1f ms%n",
+                    (Long) stats.get("disconnects"), source.recoveries, source.maxRecoveryNs / 1e6);
+        } else {
+            System.out.println("Phát lại:           " + replay.stats());
+        }
+        System.out.println("Độ trễ rút -> dispatcher: " + consumer.latency.snapshot());
+        reader.disconnect();
+        if (capture != null) {
+            capture.close();
+            System.out.println("Capture: " + capturePath + " (" + capture.records() + " record, "
+                    + capture.bytes() + " byte)");
+        }
+    }
+
+    // Giống Source trong RfidC72Plugin.startContinuousScan (bỏ phần đọc USER)
+    private static final class LoadSource implements TagPipeline.Source {
+        private final TagReader reader;
+        private final ReaderCaptureWriter capture;
+        private long lastReadNs = System.nanoTime();
+        private boolean disconnected;
+        private long disconnectedAtNs;
+        volatile long recoveries;
+        volatile long maxRecoveryNs;
+
+        LoadSource(TagReader reader, ReaderCaptureWriter capture) {
+            this.reader = reader;
+            this.capture = capture;
+        }
+
+        @Override
+        public boolean read(RawTagSlot slot) throws IOException {
+            if (!reader.isConnected()) {
+                if (!disconnected) {
+                    disconnected = true;
+                    disconnectedAtNs = System.nanoTime();
+                }
+                return false;
+            }
+            if (disconnected) {
+                if (!reader.startInventory()) return false;
+                disconnected = false;
+                maxRecoveryNs = Math.max(maxRecoveryNs, System.nanoTime() - disconnectedAtNs);
+                recoveries++;
+            }
+            if (!reader.readFromBuffer(slot)) return false;
+            long nowNs = System.nanoTime();
+            slot.readNs = nowNs;
+            slot.scanDurationNs = nowNs - lastReadNs;
+            lastReadNs = nowNs;
+            if (capture != null) capture.append(slot.epcHex, slot.tidHex, slot.userHex, slot.rssi, slot.count, nowNs);
+            return true;
+        }
+
+        @Override
+        public void onStop() {
+            reader.stopInventory();
+        }
+    }
+
+    private static final class LoadConsumer implements TagPipeline.Consumer {
+        final AtomicLong reads = new AtomicLong();
+        final AtomicLong unique = new AtomicLong();
+        final LatencyHistogram latency = new LatencyHistogram();
+        private final EpcDeduplicator deduplicator = new EpcDeduplicator();
+        private final long dispatchCostNs;
+
+        LoadConsumer(long dispatchCostNs) {
+            this.dispatchCostNs = dispatchCostNs;
+        }
+
+        @Override
+        public void accept(RawTagSlot slot) {
+            long nowNs = System.nanoTime();
+            latency.record(nowNs - slot.readNs);
+            reads.incrementAndGet();
+            int result = deduplicator.observe(slot.epcHex, slot.readNs);
+            if (result == EpcDeduplicator.FIRST_SIGHTING) unique.incrementAndGet();
+            if (result != EpcDeduplicator.SUPPRESS && dispatchCostNs > 0) {
+                long untilNs = nowNs + dispatchCostNs;
+                while (System.nanoTime() < untilNs) Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public void onDrained() {
+        }
+
+        @Override
+        public void onError(String where, Exception e) {
+            System.err.println("Lỗi " + where + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.paralled_data.benchmarks;
+
+import com.example.paralled_data.storage.ScanJournal;
+import com.example.paralled_data.sync.BatchUploader;
+import com.example.paralled_data.tag_pipeline.TagRead;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+// Chạy tải BatchUploader với server giả lập (com.sun.net.httpserver trên 127.0.0.1), không cần thiết bị:
+// ghi records record vào ScanJournal (trước, hoặc song song với appendPerSec), đẩy lên server và
+// kiểm tra mỗi seq được server nhận đúng một lần. Server trả 503 / 429 (Retry-After) ngẫu nhiên
+// trước khi nhận lô, và lostAckRate: nhận lô rồi vẫn trả 503 (mất phản hồi) để lần gửi lại
+// đi qua nhánh 409 của Idempotency-Key. In thông lượng, số lần thử lại và byte đã gửi.
+// gradle uploadLoadTest -Pload.args="records=200000 batchSize=500 concurrency=2 error503=0.05 error429=0.02 lostAckRate=0.02"
+public final class UploadLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int records = 100_000;
+        int batchSize = BatchUploader.DEFAULT_BATCH_SIZE;
+        int concurrency = BatchUploader.DEFAULT_CONCURRENCY;
+        int maxAttempts = BatchUploader.DEFAULT_MAX_ATTEMPTS;
+        boolean gzip = true;
+        double error503 = 0.02;
+        double error429 = 0.01;
+        double lostAckRate = 0.01;
+        long serverDelayMs = 0;
+        long appendPerSec = 0;
+        long timeoutSec = 300;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Tham số phải có dạng key=value: " + arg);
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "records": records = Integer.parseInt(value); break;
+                case "batchSize": batchSize = Integer.parseInt(value); break;
+                case "concurrency": concurrency = Integer.parseInt(value); break;
+                case "maxAttempts": maxAttempts = Integer.parseInt(value); break;
+                case "gzip": gzip = Boolean.parseBoolean(value); break;
+                case "error503": error503 = Double.parseDouble(value); break;
+                case "error429": error429 = Double.parseDouble(value); break;
+                case "lostAckRate": lostAckRate = Double.parseDouble(value); break;
+                // Giả lập thời gian server xử lý một lô
+                case "serverDelayMs": serverDelayMs = Long.parseLong(value); break;
+                // 0 = ghi hết trước khi upload; > 0 = ghi song song như lúc đang quét
+                case "appendPerSec": appendPerSec = Long.parseLong(value); break;
+                case "timeoutSec": timeoutSec = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Tham số không hỗ trợ: " + key);
+            }
+        }
+        System.out.println("Cấu hình: records=" + records + ", batchSize=" + batchSize
+                + ", concurrency=" + concurrency + ", maxAttempts=" + maxAttempts + ", gzip=" + gzip
+                + ", error503=" + error503 + ", error429=" + error429 + ", lostAckRate=" + lostAckRate
+                + ", serverDelayMs=" + serverDelayMs + ", appendPerSec=" + appendPerSec);
+
+        StandInServer server = new StandInServer(records, error503, error429, lostAckRate, serverDelayMs,
+                concurrency * 2);
+        File directory = Files.createTempDirectory("upload-load").toFile();
+        File cursorFile = new File(directory, "upload.cursor");
+        ScanJournal journal = new ScanJournal(new File(directory, "journal"));
+        journal.open();
+
+        Thread appender = null;
+        if (appendPerSec <= 0) {
+            for (int i = 0; i < records; i++) journal.append(read(i));
+        } else {
+            int total = records;
+            long perSec = appendPerSec;
+            appender = new Thread(() -> appendPaced(journal, total, perSec), "UploadLoadTest-append");
+            appender.setDaemon(true);
+            appender.start();
+        }
+
+        String[] finalState = new String[1];
+        BatchUploader uploader = new BatchUploader("load", (u, status) -> {
+            if (BatchUploader.STATE_FAILED.equals(status.get("state"))) {
+                synchronized (finalState) {
+                    finalState[0] = "failed: " + status.get("last_error");
+                }
+            }
+        });
+        uploader.configure(server.url(), batchSize, concurrency, maxAttempts, gzip, null);
+        long startNs = System.nanoTime();
+        uploader.start(journal, cursorFile);
+
+        long deadlineNs = startNs + timeoutSec * 1_000_000_000L;
+        long lastAccepted = 0;
+        for (long second = 1; ; second++) {
+            Thread.sleep(1_000);
+            long accepted = server.acceptedRecords.get();
+            Map<String, Object> stats = uploader.stats();
+            System.out.printf("%3ds  %8d record/s  committed=%8d  pending=%7d  retries=%5d  in_flight=%d%n",
+                    second, accepted - lastAccepted, (Long) stats.get("committed_seq"),
+                    (Long) stats.get("pending_records"), (Long) stats.get("retries"),
+                    (Integer) stats.get("in_flight_batches"));
+            lastAccepted = accepted;
+            synchronized (finalState) {
+                if (finalState[0] != null) break;
+            }
+            if (uploader.committedSeq() >= records || System.nanoTime() > deadlineNs) break;
+        }
+        double elapsedSec = (System.nanoTime() - startNs) / 1e9;
+        uploader.stop();
+        while (uploader.isActive()) Thread.sleep(10);
+        if (appender != null) appender.interrupt();
+        Map<String, Object> stats = uploader.stats();
+        journal.close();
+        server.stop();
+
+        // Mỗi seq 1..records phải được server nhận đúng một lần
+        long missing = 0;
+        long duplicated = 0;
+        for (int seq = 1; seq <= records; seq++) {
+            int count = server.seqCounts.get(seq);
+            if (count == 0) missing++;
+            if (count > 1) duplicated++;
+        }
+
+        System.out.println();
+        System.out.printf("Thông lượng:        %.0f record/s (%d record trong %.1f s)%n",
+                server.acceptedRecords.get() / elapsedSec, server.acceptedRecords.get(), elapsedSec);
+        System.out.printf("Lô:                 %d nhận, %d trả 503, %d trả 429, %d mất phản hồi, %d trả 409%n",
+                server.acceptedBatches.get(), server.injected503.get(), server.injected429.get(),
+                server.lostAcks.get(), server.conflicts.get());
+        System.out.printf("Uploader:           %d lô, %d lần thử lại, last_batch_ms=%d, state=%s%n",
+                (Long) stats.get("uploaded_batches"), (Long) stats.get("retries"),
+                (Long) stats.get("last_batch_ms"), stats.get("state"));
+        long rawBytes = (Long) stats.get("raw_bytes");
+        long sentBytes = (Long) stats.get("sent_bytes");
+        System.out.printf("Byte:               %d JSON -> %d gửi (%.1f%%)%n",
+                rawBytes, sentBytes, rawBytes > 0 ? sentBytes * 100.0 / rawBytes : 0.0);
+        System.out.printf("Cursor:             %d / %d%n", uploader.committedSeq(), records);
+        System.out.printf("Kiểm tra seq:       thiếu %d, trùng %d%n", missing, duplicated);
+
+        String failure = finalState[0];
+        if (failure == null && uploader.committedSeq() < records) failure = "hết thời gian sau " + timeoutSec + " s";
+        if (failure == null && (missing > 0 || duplicated > 0)) failure = "seq thiếu hoặc trùng";
+        if (failure != null) {
+            System.err.println("❌ " + failure);
+            System.exit(1);
+        }
+        System.out.println("✅ Mọi seq được nhận đúng một lần");
+    }
+
+    private static TagRead read(int i) {
+        return new TagRead(String.format("E28011606000020D%08X", i), "E2801160200074CF085809A5", "",
+                "-61.50", 1 + i % 7, System.currentTimeMillis(), 2_500_000L + i,
+                i % 3 == 0, 1 + i % 5, 10_000L + i, 500 + i);
+    }
+
+    // Ghi theo nhịp appendPerSec (theo từng ms) như khi ScanJournal nhận tag từ dispatcher
+    private static void appendPaced(ScanJournal journal, int records, long appendPerSec) {
+        long startNs = System.nanoTime();
+        int written = 0;
+        try {
+            while (written < records) {
+                long due = Math.min(records, (System.nanoTime() - startNs) * appendPerSec / 1_000_000_000L);
+                while (written < due) journal.append(read(written++));
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Lỗi ghi journal: " + e);
+        }
+    }
+
+    // Server nhận lô: khử trùng lặp theo Idempotency-Key (409 nếu đã nhận) và đếm số lần nhận mỗi seq
+    private static final class StandInServer {
+        final AtomicIntegerArray seqCounts;
+        final AtomicLong acceptedRecords = new AtomicLong();
+        final AtomicLong acceptedBatches = new AtomicLong();
+        final AtomicLong injected503 = new AtomicLong();
+        final AtomicLong injected429 = new AtomicLong();
+        final AtomicLong lostAcks = new AtomicLong();
+        final AtomicLong conflicts = new AtomicLong();
+        private final Set<String> acceptedKeys = ConcurrentHashMap.newKeySet();
+        private final double error503;
+        private final double error429;
+        private final double lostAckRate;
+        private final long delayMs;
+        private final HttpServer server;
+        private final ExecutorService executor;
+
+        StandInServer(int records, double error503, double error429, double lostAckRate, long delayMs,
+                      int threads) throws IOException {
+            this.seqCounts = new AtomicIntegerArray(records + 1);
+            this.error503 = error503;
+            this.error429 = error429;
+            this.lostAckRate = lostAckRate;
+            this.delayMs = delayMs;
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            executor = Executors.newFixedThreadPool(threads);
+            server.setExecutor(executor);
+            server.createContext("/batches", this::handle);
+            server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/batches";
+        }
+
+        void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try {
+                byte[] body = readBody(exchange);
+                if (delayMs > 0) Thread.sleep(delayMs);
+                double roll = ThreadLocalRandom.current().nextDouble();
+                if (roll < error503) {
+                    injected503.incrementAndGet();
+                    reply(exchange, 503);
+                    return;
+                }
+                if (roll < error503 + error429) {
+                    injected429.incrementAndGet();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    reply(exchange, 429);
+                    return;
+                }
+                String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+                if (key == null) {
+                    reply(exchange, 400);
+                    return;
+                }
+                if (!acceptedKeys.add(key)) {
+                    conflicts.incrementAndGet();
+                    reply(exchange, 409);
+                    return;
+                }
+                String json = new String(body, StandardCharsets.UTF_8);
+                acceptedRecords.addAndGet(countSeqs(json));
+                acceptedBatches.incrementAndGet();
+                if (ThreadLocalRandom.current().nextDouble() < lostAckRate) {
+                    // Đã nhận nhưng phản hồi "mất": uploader phải gửi lại và nhận 409
+                    lostAcks.incrementAndGet();
+                    reply(exchange, 503);
+                    return;
+                }
+                reply(exchange, 200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reply(exchange, 503);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private byte[] readBody(HttpExchange exchange) throws IOException {
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                in = new GZIPInputStream(in);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+            byte[] scratch = new byte[8192];
+            int n;
+            while ((n = in.read(scratch)) >= 0) out.write(scratch, 0, n);
+            return out.toByteArray();
+        }
+
+        // Đếm {"seq":N trong body (format của UploadBatchEncoder), ghi nhận từng seq
+        private int countSeqs(String json) {
+            String marker = "{\"seq\":";
+            int count = 0;
+            for (int at = json.indexOf(marker); at >= 0; at = json.indexOf(marker, at + 1)) {
+                int i = at + marker.length();
+                long seq = 0;
+                while (i < json.length() && Character.isDigit(json.charAt(i))) {
+                    seq = seq * 10 + (json.charAt(i++) - '0');
+                }
+                if (seq >= 1 && seq < seqCounts.length()) seqCounts.incrementAndGet((int) seq);
+                count++;
+            }
+            return count;
+        }
+
+        private static void reply(HttpExchange exchange, int code) throws IOException {
+            exchange.sendResponseHeaders(code, -1);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.paralled_data.sync;
+
+import com.example.paralled_data.storage.JournalRecord;
+import com.example.paralled_data.storage.ScanJournal;
+import com.example.paralled_data.tag_pipeline.TagRead;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Mã hoá một lô upload (JSON, có / không gzip) trên worker của BatchUploader.
+// Nằm trong package sync vì UploadBatchEncoder là package-private. Record được ghi qua
+// ScanJournal rồi đọc lại, giống hệt dữ liệu uploader nhận được trên thiết bị.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UploadBatchEncodeBenchmark {
+
+    @Param({"500"})
+    public int batchSize;
+
+    private File directory;
+    private List<JournalRecord> records;
+    private final UploadBatchEncoder encoder = new UploadBatchEncoder();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("upload-bench").toFile();
+        ScanJournal journal = new ScanJournal(directory);
+        journal.open();
+        long timestampMs = 1_700_000_000_000L;
+        for (int i = 0; i < batchSize; i++) {
+            journal.append(new TagRead(String.format("E28011606000020D%08X", i), "E2801160200074CF085809A5",
+                    "", "-61.50", 1 + i % 7, timestampMs + i * 3L, 2_500_000L + i,
+                    i % 3 == 0, 1 + i % 5, 10_000L + i, 500 + i));
+        }
+        records = journal.read(0, batchSize);
+        journal.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public byte[] plainJson() throws IOException {
+        return encoder.encode("bench", "batch", records, false);
+    }
+
+    @Benchmark
+    public byte[] gzipJson() throws IOException {
+        return encoder.encode("bench", "batch", records, true);
+    }
+}
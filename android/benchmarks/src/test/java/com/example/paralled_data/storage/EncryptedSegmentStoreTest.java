@@ -0,0 +1,279 @@
+package com.example.paralled_data.storage;
+
+import static com.example.paralled_data.storage.ScanJournalTest.assertSeqs;
+import static com.example.paralled_data.storage.ScanJournalTest.flipByte;
+import static com.example.paralled_data.storage.ScanJournalTest.read;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+// Khôi phục và xác thực của EncryptedSegmentStore: tail.chunk sau crash, slot ghi dở cuối segment,
+// khối / tail bị sửa, và sai khoá (key.check) phải dừng trước khi cắt bỏ dữ liệu
+public class EncryptedSegmentStoreTest {
+
+    // Khối nhỏ để vài record đã đủ niêm phong khối và sang segment mới
+    private static final int CHUNK_RECORDS = 4;
+    private static final int CHUNKS_PER_SEGMENT = 2;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void reopenAfterCrashRestoresSyncedTail() throws Exception {
+        File dir = temp.newFolder();
+        SecretKey key = newKey();
+        EncryptedSegmentStore store = open(dir, key);
+        append(store, 6);   // 1 khối niêm phong + 2 record trong tail
+        store.sync();
+
+        EncryptedSegmentStore reopened = open(dir, key);
+        assertEquals(6, reopened.recordCount());
+        assertEquals(6, reopened.lastSeq());
+        assertSeqs(reopened, 1, 6);
+
+        reopened.append(read(7));
+        assertEquals(7, reopened.lastSeq());
+        reopened.close();
+    }
+
+    @Test
+    public void unsyncedTailIsLostButNotCorrupted() throws Exception {
+        File dir = temp.newFolder();
+        SecretKey key = newKey();
+        EncryptedSegmentStore store = open(dir, key);
+        append(store, 6);
+        store.sync();
+        store.append(read(7));
+
+        EncryptedSegmentStore reopened = open(dir, key);
+        assertEquals(6, reopened.recordCount());
+        assertSeqs(reopened, 1, 6);
+        reopened.close();
+    }
+
+    @Test
+    public void reopenAcrossSegments() throws Exception {
+        File dir = temp.newFolder();
+        SecretKey key = newKey();
+        EncryptedSegmentStore store = open(dir, key);
+        append(store, 19);   // 4 khối trên 2 segment + 3 record trong tail
+        store.close();
+
+        assertEquals(2, segmentFiles(dir).length);
+        EncryptedSegmentStore reopened = open(dir, key);
+        assertEquals(19, reopened.recordCount());
+        assertSeqs(reopened, 1, 19);
+        reopened.close();
+    }
+
+    @Test
+    public void tornLastSlotIsTruncated() throws Exception {
+        File dir = temp.newFolder();
+        SecretKey key = newKey();
+        EncryptedSegmentStore store = open(dir, key);
+        append(store, 8);
+        store.close();
+
+        // Khối thứ hai chỉ ghi được một phần
+        File segment = segmentFiles(dir)[0];
+        long length = segment.length();
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.setLength(length - 10);
+        }
+
+        EncryptedSegmentStore reopened = open(dir, key);
+        assertEquals(4, reopened.recordCount());
+        assertEquals(4, reopened.lastSeq());
+        assertEquals(length / 2, segment.length());
+        assertSeqs(reopened, 1, 4);
+
+        reopened.append(read(5));
+        reopened.close();
+        EncryptedSegmentStore again = open(dir, key);
+        assertSeqs(again, 1, 5);
+        again.close();
+    }
+
+    @Test
+    public void tamperedLastChunkIsDiscarded() throws Exception {
+        File dir = temp.newFolder();
+        SecretKey key = newKey();
+        EncryptedSegmentStore store = open(dir, key);
+        append(store, 8);
+        store.close();
+
+        File segment = segmentFiles(dir)[0];
+        flipByte(segment, segment.length() - 100);
+
+        EncryptedSegmentStore reopened = open(dir, key);
+        assertEquals(4, reopened.recordCount());
+        assertEquals(4L, reopened.stats().get("discarded_records"));
+        reopened.close();
+    }
+
+    @Test
+    public void tamperedEarlierChunkFailsOnRead() throws Exception {
+        File dir = temp.newFolder();
+        SecretKey key = newKey();
+        EncryptedSegmentStore store = open(dir, key);
+        append(store, 8);
+        store.close();
+
+        // Chỉ khối cuối được kiểm tra lúc mở; khối trước bị sửa phải lộ ra khi đọc
+        File segment = segmentFiles(dir)[0];
+        flipByte(segment, 100);
+
+        EncryptedSegmentStore reopened = open(dir, key);
+        assertEquals(8, reopened.recordCount());
+        assertSeqsAt(reopened, 4, 5, 8);
+        try {
+            reopened.read(0, 1);
+            fail("Khối bị sửa vẫn giải mã được");
+        } catch (IOException expected) {
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void tamperedTailIsDiscarded() throws Exception {
+        File dir = temp.newFolder();
+        SecretKey key = newKey();
+        EncryptedSegmentStore store = open(dir, key);
+        append(store, 6);
+        store.close();
+
+        File tail = new File(dir, "tail.chunk");
+        flipByte(tail, tail.length() - 1);
+
+        EncryptedSegmentStore reopened = open(dir, key);
+        assertEquals(4, reopened.recordCount());
+        assertEquals(2L, reopened.stats().get("discarded_records"));
+        assertSeqs(reopened, 1, 4);
+        reopened.close();
+    }
+
+    @Test
+    public void wrongKeyIsRejectedBeforeRecovery() throws Exception {
+        File dir = temp.newFolder();
+        EncryptedSegmentStore store = open(dir, newKey());
+        append(store, 6);
+        store.close();
+
+        File segment = segmentFiles(dir)[0];
+        File tail = new File(dir, "tail.chunk");
+        long segmentLength = segment.length();
+        long tailLength = tail.length();
+
+        try {
+            open(dir, newKey());
+            fail("Mở được kho với khoá khác");
+        } catch (IOException expected) {
+        }
+        // Không khối nào bị coi là hỏng và cắt bỏ
+        assertEquals(segmentLength, segment.length());
+        assertEquals(tailLength, tail.length());
+    }
+
+    @Test
+    public void tamperedKeyCheckIsRejected() throws Exception {
+        File dir = temp.newFolder();
+        SecretKey key = newKey();
+        EncryptedSegmentStore store = open(dir, key);
+        append(store, 2);
+        store.close();
+
+        File check = new File(dir, "key.check");
+        flipByte(check, check.length() - 1);
+        try {
+            open(dir, key);
+            fail("key.check bị sửa vẫn được chấp nhận");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void noPlaintextOnDisk() throws Exception {
+        File dir = temp.newFolder();
+        EncryptedSegmentStore store = open(dir, newKey());
+        append(store, 6);
+        store.close();
+
+        byte[] epc = hexBytes(read(1).epcHex);
+        File[] files = dir.listFiles();
+        assertNotNull(files);
+        for (File file : files) {
+            byte[] bytes = new byte[(int) file.length()];
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.readFully(bytes);
+            }
+            assertTrue(file.getName(), indexOf(bytes, epc) < 0);
+        }
+    }
+
+    private static EncryptedSegmentStore open(File dir, SecretKey key) throws IOException, GeneralSecurityException {
+        EncryptedSegmentStore store = new EncryptedSegmentStore(dir, key, CHUNK_RECORDS, CHUNKS_PER_SEGMENT);
+        store.open();
+        return store;
+    }
+
+    private static SecretKey newKey() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return new SecretKeySpec(bytes, "AES");
+    }
+
+    private static void append(RecordStore store, int n) throws IOException {
+        for (int i = 1; i <= n; i++) store.append(read(i));
+    }
+
+    // Đọc count record từ vị trí index, kiểm tra seq bắt đầu từ firstSeq
+    private static void assertSeqsAt(RecordStore store, long index, long firstSeq, long lastSeq) throws IOException {
+        int count = (int) (lastSeq - firstSeq + 1);
+        List<JournalRecord> records = store.read(index, count);
+        assertEquals(count, records.size());
+        for (int i = 0; i < count; i++) assertEquals(firstSeq + i, records.get(i).seq);
+    }
+
+    private static File[] segmentFiles(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".segment"));
+        assertNotNull(files);
+        assertTrue(files.length > 0);
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static byte[] hexBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.paralled_data.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.paralled_data.tag_pipeline.TagRead;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Khôi phục của ScanJournal khi mở lại sau crash / mất điện: đuôi ghi dở, header chưa kịp cập nhật,
+// header hỏng. "Crash" ở đây là bỏ đối tượng journal mà không close(), dữ liệu vẫn nằm trong file.
+public class ScanJournalTest {
+
+    // Vị trí trong header segment (xem ScanJournal)
+    private static final int H_COUNT = 12;
+    private static final int H_CRC = 60;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void reopenAfterCrashKeepsRecords() throws IOException {
+        File dir = temp.newFolder();
+        ScanJournal journal = new ScanJournal(dir, 16);
+        journal.open();
+        append(journal, 10);
+
+        ScanJournal reopened = open(dir, 16);
+        assertEquals(10, reopened.recordCount());
+        assertEquals(10, reopened.lastSeq());
+        assertSeqs(reopened, 1, 10);
+
+        reopened.append(read(11));
+        assertEquals(11, reopened.lastSeq());
+        reopened.close();
+    }
+
+    @Test
+    public void reopenAcrossSegments() throws IOException {
+        File dir = temp.newFolder();
+        ScanJournal journal = open(dir, 4);
+        append(journal, 10);
+        journal.close();
+
+        assertEquals(3, segmentFiles(dir).length);
+        ScanJournal reopened = open(dir, 4);
+        assertEquals(10, reopened.recordCount());
+        assertEquals(1, reopened.firstSeq());
+        assertSeqs(reopened, 1, 10);
+        reopened.close();
+    }
+
+    @Test
+    public void tornTailRecordIsDiscarded() throws IOException {
+        File dir = temp.newFolder();
+        ScanJournal journal = open(dir, 16);
+        append(journal, 5);
+        journal.close();
+
+        // Header đếm 5 record nhưng record cuối ghi dở
+        File segment = segmentFiles(dir)[0];
+        flipByte(segment, ScanJournal.HEADER_SIZE + 4 * ScanJournal.RECORD_SIZE + 50);
+
+        ScanJournal reopened = open(dir, 16);
+        assertEquals(4, reopened.recordCount());
+        assertEquals(4, reopened.lastSeq());
+        assertEquals(1L, reopened.stats().get("discarded_records"));
+
+        // Seq tiếp tục từ record hợp lệ cuối, phần ghi dở đã bị xoá
+        reopened.append(read(5));
+        reopened.close();
+        ScanJournal again = open(dir, 16);
+        assertEquals(5, again.recordCount());
+        assertSeqs(again, 1, 5);
+        assertEquals(0L, again.stats().get("discarded_records"));
+        again.close();
+    }
+
+    @Test
+    public void recordsAheadOfHeaderAreRecovered() throws IOException {
+        File dir = temp.newFolder();
+        ScanJournal journal = open(dir, 16);
+        append(journal, 5);
+        journal.close();
+
+        // Record đã ghi nhưng header (CRC hợp lệ) mới đếm tới 3
+        File segment = segmentFiles(dir)[0];
+        rewriteHeaderCount(segment, 3);
+
+        ScanJournal reopened = open(dir, 16);
+        assertEquals(5, reopened.recordCount());
+        assertEquals(2L, reopened.stats().get("recovered_records"));
+        assertSeqs(reopened, 1, 5);
+        reopened.close();
+    }
+
+    @Test
+    public void corruptHeaderIsRebuiltFromRecords() throws IOException {
+        File dir = temp.newFolder();
+        ScanJournal journal = open(dir, 16);
+        append(journal, 5);
+        journal.close();
+
+        File segment = segmentFiles(dir)[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.write(new byte[ScanJournal.HEADER_SIZE]);
+        }
+
+        ScanJournal reopened = open(dir, 16);
+        assertEquals(5, reopened.recordCount());
+        assertEquals(1, reopened.firstSeq());
+        assertSeqs(reopened, 1, 5);
+        reopened.close();
+
+        // Header đã được ghi lại: lần mở sau không cần khôi phục nữa
+        ScanJournal again = open(dir, 16);
+        assertEquals(5, again.recordCount());
+        assertEquals(0L, again.stats().get("recovered_records"));
+        again.close();
+    }
+
+    @Test
+    public void staleRecordsAfterTornTailAreNotResurrected() throws IOException {
+        File dir = temp.newFolder();
+        ScanJournal journal = open(dir, 16);
+        append(journal, 8);
+        journal.close();
+
+        // Record 4 hỏng, 5..8 phía sau vẫn còn nguyên nhưng không còn nối tiếp
+        File segment = segmentFiles(dir)[0];
+        flipByte(segment, ScanJournal.HEADER_SIZE + 3 * ScanJournal.RECORD_SIZE + 10);
+        rewriteHeaderCount(segment, 3);
+
+        ScanJournal reopened = open(dir, 16);
+        assertEquals(3, reopened.recordCount());
+        reopened.close();
+
+        ScanJournal again = open(dir, 16);
+        assertEquals(3, again.recordCount());
+        assertEquals(3, again.lastSeq());
+        again.close();
+    }
+
+    private static ScanJournal open(File dir, int segmentRecords) throws IOException {
+        ScanJournal journal = new ScanJournal(dir, segmentRecords);
+        journal.open();
+        return journal;
+    }
+
+    private static void append(RecordStore store, int n) throws IOException {
+        for (int i = 1; i <= n; i++) store.append(read(i));
+    }
+
+    static TagRead read(int i) {
+        return new TagRead(String.format("E2000000%08X", i), "E280", "", "-55.5", 1, 1000L + i, 0);
+    }
+
+    static void assertSeqs(RecordStore store, long firstSeq, long lastSeq) throws IOException {
+        List<JournalRecord> records = store.read(0, (int) (lastSeq - firstSeq + 1));
+        assertEquals(lastSeq - firstSeq + 1, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            JournalRecord record = records.get(i);
+            long seq = firstSeq + i;
+            assertEquals(seq, record.seq);
+            assertEquals(read((int) seq).epcHex, record.epcHex.toUpperCase());
+            assertEquals(1000L + seq, record.timestampMs);
+        }
+    }
+
+    private static File[] segmentFiles(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".journal"));
+        assertNotNull(files);
+        assertTrue(files.length > 0);
+        Arrays.sort(files);
+        return files;
+    }
+
+    static void flipByte(File file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0xFF);
+        }
+    }
+
+    // Sửa số record trong header và tính lại CRC, như khi header chưa kịp cập nhật
+    private static void rewriteHeaderCount(File segment, int count) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            byte[] header = new byte[ScanJournal.HEADER_SIZE];
+            raf.readFully(header);
+            ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(H_COUNT, count);
+            CRC32 crc = new CRC32();
+            crc.update(header, 0, H_CRC);
+            buffer.putInt(H_CRC, (int) crc.getValue());
+            raf.seek(0);
+            raf.write(header);
+        }
+    }
+}
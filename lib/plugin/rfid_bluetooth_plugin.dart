@@ -1,6 +1,8 @@
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 import 'dart:async';
+import 'package:paralled_data/plugin/session_snapshot.dart';
+import 'package:paralled_data/plugin/tag_frame_codec.dart';
 
 class RfidBlePlugin {
   static const MethodChannel _channel = MethodChannel('rfid_ble_channel');
@@ -14,7 +16,14 @@ class RfidBlePlugin {
   );
 
   static const EventChannel _rfidDataChannel = EventChannel('rfid_ble_data');
+  static const BasicMessageChannel<ByteData> _rfidBinaryChannel =
+      BasicMessageChannel<ByteData>('rfid_ble_data_binary', BinaryCodec());
   static const EventChannel _configStream = EventChannel("ble_rfid_config");
+  static const EventChannel _reconciliationChannel =
+      EventChannel('rfid_ble_reconciliation');
+  static const EventChannel _exportChannel = EventChannel('rfid_ble_export');
+  static const EventChannel _syncChannel = EventChannel('rfid_ble_sync');
+  static const EventChannel _metricsChannel = EventChannel('rfid_ble_metrics');
 
   static const EventChannel _bluetoothStateChannel =
       EventChannel('bluetooth_state_channel');
@@ -101,11 +110,287 @@ class RfidBlePlugin {
         .cast<bool>();
   }
 
-  /// Stream dữ liệu RFID tag
+  /// Stream dữ liệu RFID tag (native gửi theo lô, tách lại thành từng tag)
   static Stream<Map<String, dynamic>> get rfidStream {
-    return _rfidDataChannel.receiveBroadcastStream().map(
-          (event) => Map<String, dynamic>.from(event),
-        );
+    return _rfidDataChannel.receiveBroadcastStream().expand((event) {
+      if (event is List) {
+        return event.map((item) => Map<String, dynamic>.from(item));
+      }
+      return [Map<String, dynamic>.from(event)];
+    });
+  }
+
+  /// Đăng ký nhận lô tag ở chế độ nhị phân (đã giải mã sang Map)
+  static void setBinaryTagHandler(
+      void Function(List<Map<String, dynamic>> tags)? handler) {
+    if (handler == null) {
+      _rfidBinaryChannel.setMessageHandler(null);
+      return;
+    }
+    _rfidBinaryChannel.setMessageHandler((ByteData? frame) async {
+      if (frame != null) handler(TagFrameCodec.decode(frame));
+      return null;
+    });
+  }
+
+  /// 'map' (mặc định, rfid_ble_data) hoặc 'binary' (rfid_ble_data_binary)
+  static Future<void> setWireFormat(String format) async {
+    await _channel.invokeMethod('setWireFormat', {'format': format});
+  }
+
+  /// Gom tag theo lô: flush sau [intervalMs] hoặc khi đủ [maxBatch] tag
+  static Future<void> setBatchConfig({int? intervalMs, int? maxBatch}) async {
+    await _channel.invokeMethod('setBatchConfig', <String, dynamic>{
+      if (intervalMs != null) 'intervalMs': intervalMs,
+      if (maxBatch != null) 'maxBatch': maxBatch,
+    });
+  }
+
+  /// Nạp danh sách EPC dự kiến cho kiểm kê (thay danh sách cũ, xoá kết quả).
+  /// Trả về {expected, ignored}; việc so khớp chạy native khi tag được đọc.
+  static Future<Map<String, dynamic>?> loadExpectedInventory(
+      List<String> epcs) async {
+    final response = await _channel.invokeMethod(
+        'loadExpectedInventory', <String, dynamic>{'epcs': epcs});
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  static Future<void> clearExpectedInventory() async {
+    await _channel.invokeMethod('clearExpectedInventory');
+  }
+
+  /// Bắt đầu lượt đếm mới, giữ danh sách dự kiến
+  static Future<void> resetReconciliation() async {
+    await _channel.invokeMethod('resetReconciliation');
+  }
+
+  /// Bộ đếm hiện tại; [missingLimit] / [unexpectedLimit] > 0 (hoặc -1 = tất cả)
+  /// để kèm danh sách missing_epcs / unexpected_epcs
+  static Future<Map<String, dynamic>?> getReconciliationStatus({
+    int missingLimit = 0,
+    int unexpectedLimit = 0,
+  }) async {
+    final response = await _channel.invokeMethod(
+        'getReconciliationStatus', <String, dynamic>{
+      'missingLimit': missingLimit,
+      'unexpectedLimit': unexpectedLimit,
+    });
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Bộ đếm đối soát kèm new_found / new_unexpected theo từng lô
+  static Stream<Map<String, dynamic>> get reconciliationStream {
+    return _reconciliationChannel
+        .receiveBroadcastStream()
+        .map((event) => Map<String, dynamic>.from(event));
+  }
+
+  /// Thống kê theo EPC của phiên quét (cả bảng, hoặc một trang [offset]/[limit])
+  static Future<SessionSnapshot?> getSessionSnapshot({int? offset, int? limit}) async {
+    final map = await _channel.invokeMethod('getSessionSnapshot', <String, dynamic>{
+      if (offset != null) 'offset': offset,
+      if (limit != null) 'limit': limit,
+    });
+    return map == null ? null : SessionSnapshot.fromMap(map);
+  }
+
+  /// Hệ số EWMA cho RSSI (0 < [ewmaAlpha] <= 1, mặc định 0.2)
+  static Future<void> setAggregateConfig({double? ewmaAlpha}) async {
+    await _channel.invokeMethod('setAggregateConfig', <String, dynamic>{
+      if (ewmaAlpha != null) 'ewmaAlpha': ewmaAlpha,
+    });
+  }
+
+  /// Chính sách khi hàng đợi gửi tag đầy: 'block', 'drop_oldest',
+  /// 'drop_newest' hoặc 'aggregate_only'. [capacity] tính theo số tag;
+  /// [preListenerCapacity] là số tag giữ lại khi chưa có listener.
+  static Future<void> setBackpressureConfig({
+    String? policy,
+    int? capacity,
+    int? preListenerCapacity,
+  }) async {
+    await _channel.invokeMethod('setBackpressureConfig', <String, dynamic>{
+      if (policy != null) 'policy': policy,
+      if (capacity != null) 'capacity': capacity,
+      if (preListenerCapacity != null) 'preListenerCapacity': preListenerCapacity,
+    });
+  }
+
+  /// queued_reads / dropped_reads / degraded_reads / blocked_ms ...
+  static Future<Map<String, dynamic>?> get deliveryStats async {
+    final stats = await _channel.invokeMethod('getDeliveryStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
+  /// Độ trễ theo chặng (mỗi chặng: count / p50_ms / p90_ms / p99_ms / max_ms / mean_ms):
+  /// drain (rút tag khỏi module), pipeline (rút -> giải mã), channel (giải mã -> gửi
+  /// qua platform channel) và end_to_end. Tự reset khi bắt đầu quét liên tục.
+  static Future<Map<String, dynamic>?> get latencyStats async {
+    final stats = await _channel.invokeMethod('getLatencyStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
+  static Future<void> resetLatencyStats() async {
+    await _channel.invokeMethod('resetLatencyStats');
+  }
+
+  /// Nhật ký quét trên đĩa: mỗi tag gửi lên Flutter được ghi thành một record
+  /// cố định vào segment file map bộ nhớ. [syncIntervalMs]: chu kỳ force xuống đĩa.
+  /// [encrypted]: dùng kho mã hoá AES-GCM theo khối 256 record (thư mục riêng,
+  /// khoá bọc bằng Android Keystore, cần Android 6.0+).
+  static Future<void> setJournalConfig({
+    bool? enabled,
+    bool? encrypted,
+    int? syncIntervalMs,
+  }) async {
+    await _channel.invokeMethod('setJournalConfig', <String, dynamic>{
+      if (enabled != null) 'enabled': enabled,
+      if (encrypted != null) 'encrypted': encrypted,
+      if (syncIntervalMs != null) 'syncIntervalMs': syncIntervalMs,
+    });
+  }
+
+  /// records / first_seq / last_seq / segments / bytes / discarded_records ...
+  static Future<Map<String, dynamic>?> get journalStats async {
+    final stats = await _channel.invokeMethod('getJournalStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
+  /// Đọc tối đa [limit] record từ vị trí [offset] (0 = record cũ nhất)
+  static Future<List<Map<String, dynamic>>> readJournal({int offset = 0, int limit = 500}) async {
+    final records = await _channel.invokeMethod('readJournal', <String, dynamic>{
+      'offset': offset,
+      'limit': limit,
+    });
+    if (records == null) return const [];
+    return (records as List).map((r) => Map<String, dynamic>.from(r)).toList();
+  }
+
+  static Future<void> clearJournal() async {
+    await _channel.invokeMethod('clearJournal');
+  }
+
+  /// Xuất journal ra file [format] 'csv' / 'json' ngay trên native (đọc từng trang,
+  /// bộ nhớ cố định). [path] mặc định: thư mục exports trong bộ nhớ app.
+  /// Trả về trạng thái job; tiến độ theo dõi qua [exportStream].
+  static Future<Map<String, dynamic>?> startExport({
+    String format = 'csv',
+    String? path,
+    int? offset,
+  }) async {
+    final status = await _channel.invokeMethod('startExport', <String, dynamic>{
+      'format': format,
+      if (path != null) 'path': path,
+      if (offset != null) 'offset': offset,
+    });
+    return status == null ? null : Map<String, dynamic>.from(status);
+  }
+
+  /// true nếu có job đang chạy bị huỷ (file dở bị xoá)
+  static Future<bool> cancelExport() async {
+    final cancelled = await _channel.invokeMethod('cancelExport');
+    return cancelled == true;
+  }
+
+  static Future<Map<String, dynamic>?> get exportStatus async {
+    final status = await _channel.invokeMethod('getExportStatus');
+    return status == null ? null : Map<String, dynamic>.from(status);
+  }
+
+  /// job_id / state (running, completed, cancelled, failed) / written / total / bytes / path / error
+  static Stream<Map<String, dynamic>> get exportStream {
+    return _exportChannel
+        .receiveBroadcastStream()
+        .map((event) => Map<String, dynamic>.from(event));
+  }
+
+  /// Đồng bộ journal lên server ngay trên native: lô [batchSize] record nén gzip,
+  /// [concurrency] kết nối song song, thử lại với backoff + jitter tối đa [maxAttempts]
+  /// lần mỗi lô, header Idempotency-Key theo khoảng seq của lô. [headers]: header thêm
+  /// (vd. Authorization). [url] phải là https; http chỉ cho server trong mạng nội bộ
+  /// có trong res/xml/network_security_config của app.
+  static Future<void> setSyncConfig({
+    String? url,
+    int? batchSize,
+    int? concurrency,
+    int? maxAttempts,
+    bool? gzip,
+    Map<String, String>? headers,
+  }) async {
+    await _channel.invokeMethod('setSyncConfig', <String, dynamic>{
+      if (url != null) 'url': url,
+      if (batchSize != null) 'batchSize': batchSize,
+      if (concurrency != null) 'concurrency': concurrency,
+      if (maxAttempts != null) 'maxAttempts': maxAttempts,
+      if (gzip != null) 'gzip': gzip,
+      if (headers != null) 'headers': headers,
+    });
+  }
+
+  /// Gửi các record chưa đồng bộ (sau cursor) rồi tiếp tục theo record mới
+  static Future<void> startSync() async {
+    await _channel.invokeMethod('startSync');
+  }
+
+  static Future<void> stopSync() async {
+    await _channel.invokeMethod('stopSync');
+  }
+
+  static Future<Map<String, dynamic>?> get syncStats async {
+    final stats = await _channel.invokeMethod('getSyncStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
+  /// Vùng nhớ trả về khi inventory: 'epc', 'epc_tid' hoặc 'epc_tid_user'
+  /// (kèm [userLen] word USER, 1..14, từ [userPtr]). Không đổi được khi đang quét.
+  static Future<void> setInventoryMode(
+    String mode, {
+    int userPtr = 0,
+    int userLen = 0,
+  }) async {
+    await _channel.invokeMethod('setInventoryMode', <String, dynamic>{
+      'mode': mode,
+      'userPtr': userPtr,
+      'userLen': userLen,
+    });
+  }
+
+  static Future<Map<String, dynamic>?> get inventoryMode async {
+    final response = await _channel.invokeMethod('getInventoryMode');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Ghi mọi tag thô đầu đọc trả về (trước khử trùng lặp) ra file capture nhị phân
+  /// để phát lại sau (backend 'replay' của C72 hoặc `gradle loadTest` trên máy tính).
+  /// Mặc định ghi vào thư mục captures của app, tối đa [maxMb] MB. Trả về đường dẫn file.
+  static Future<String?> startCapture({String? path, int? maxMb}) async {
+    return _channel.invokeMethod('startCapture', <String, dynamic>{
+      if (path != null) 'path': path,
+      if (maxMb != null) 'maxMb': maxMb,
+    });
+  }
+
+  /// {path, records, bytes, truncated}; null nếu không có capture đang ghi
+  static Future<Map<String, dynamic>?> stopCapture() async {
+    final response = await _channel.invokeMethod('stopCapture');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// state (idle, running, stopping, failed) / committed_seq / pending_records /
+  /// uploaded_records / retries / records_per_sec / last_error
+  static Stream<Map<String, dynamic>> get syncStream {
+    return _syncChannel
+        .receiveBroadcastStream()
+        .map((event) => Map<String, dynamic>.from(event));
+  }
+
+  /// Snapshot pipeline mỗi [intervalMs]: reads_per_sec / unique_per_sec /
+  /// delivery_queued / dropped_events / channel_messages_per_sec /
+  /// reader_cpu_percent / process_cpu_percent / alloc_bytes_per_sec / heap_used_bytes
+  static Stream<Map<String, dynamic>> metricsStream({int intervalMs = 1000}) {
+    return _metricsChannel
+        .receiveBroadcastStream(intervalMs)
+        .map((event) => Map<String, dynamic>.from(event));
   }
 
   /// Stream cấu hình (ví dụ: mức pin, firmware...)
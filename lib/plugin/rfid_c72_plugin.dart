@@ -1,6 +1,8 @@
 import 'dart:async';
 
 import 'package:flutter/services.dart';
+import 'package:paralled_data/plugin/session_snapshot.dart';
+import 'package:paralled_data/plugin/tag_frame_codec.dart';
 
 class RfidC72Plugin {
   static const MethodChannel _channel = MethodChannel('rfid_c72_plugin');
@@ -10,11 +12,56 @@ class RfidC72Plugin {
     return version;
   }
 
+  /// Mỗi lần vòng đời phần cứng chuyển trạng thái (IDLE / INITIALIZING / READY /
+  /// SCANNING / RELEASING): state / previous / previous_ms (thời gian ở trạng thái
+  /// trước) / connected / at / error
   static const EventChannel connectedStatusStream =
       EventChannel('ConnectedStatus');
   static const EventChannel tagsStatusStream = EventChannel('TagsStatus');
   static const EventChannel barcodeStatusStream = EventChannel('BarcodeStatus');
 
+  /// Bộ đếm đối soát (expected / found / missing / unexpected) kèm
+  /// new_found / new_unexpected: EPC vừa đổi trạng thái trong lô này
+  static const EventChannel reconciliationStatusStream =
+      EventChannel('ReconciliationStatus');
+
+  /// Tiến độ job xuất journal: job_id / state (running, completed, cancelled,
+  /// failed) / written / total / bytes / path / error
+  static const EventChannel exportStatusStream = EventChannel('ExportStatus');
+
+  /// Trạng thái đồng bộ: state (idle, running, stopping, failed) / committed_seq /
+  /// pending_records / uploaded_records / retries / records_per_sec / last_error
+  static const EventChannel syncStatusStream = EventChannel('SyncStatus');
+
+  /// Snapshot pipeline mỗi giây (hoặc theo chu kỳ ms truyền vào
+  /// receiveBroadcastStream): reads_per_sec / unique_per_sec / queue_depth /
+  /// delivery_queued / dropped_events / dropped_per_sec / channel_messages_per_sec /
+  /// reader_cpu_percent / process_cpu_percent / alloc_bytes_per_sec / heap_used_bytes
+  static const EventChannel metricsStatusStream = EventChannel('MetricsStatus');
+
+  /// Kênh nhị phân cho chế độ setWireFormat('binary')
+  static const BasicMessageChannel<ByteData> tagsBinaryChannel =
+      BasicMessageChannel<ByteData>('TagsBinary', BinaryCodec());
+
+  /// Đăng ký nhận lô tag ở chế độ nhị phân (đã giải mã sang Map)
+  static void setBinaryTagHandler(
+      void Function(List<Map<String, dynamic>> tags)? handler) {
+    if (handler == null) {
+      tagsBinaryChannel.setMessageHandler(null);
+      return;
+    }
+    tagsBinaryChannel.setMessageHandler((ByteData? frame) async {
+      if (frame != null) handler(TagFrameCodec.decode(frame));
+      return null;
+    });
+  }
+
+  /// 'map' (mặc định, TagsStatus) hoặc 'binary' (TagsBinary)
+  static Future<bool?> setWireFormat(String format) async {
+    return _channel
+        .invokeMethod('setWireFormat', <String, String>{'format': format});
+  }
+
   static Future<bool?> get isStarted async {
     return _channel.invokeMethod('isStarted');
   }
@@ -43,18 +90,42 @@ class RfidC72Plugin {
     return _channel.invokeMethod('isEmptyTags');
   }
 
+  /// Init module chạy nền trên native, tiến trình xem qua connectedStatusStream
   static Future<bool?> get connect async {
     return _channel.invokeMethod('connect');
   }
 
+  /// state / state_ms / transitions / last_error / steps: thời gian từng bước
+  /// init / giải phóng (count / last_ms / max_ms / avg_ms)
+  static Future<Map<String, dynamic>?> get lifecycleStats async {
+    final response = await _channel.invokeMethod('getLifecycleStats');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
   static Future<bool?> get isConnected async {
     return _channel.invokeMethod('isConnected');
   }
 
+  /// Decoder được làm nóng ngay khi plugin attach: đã sẵn sàng thì trả về ngay,
+  /// đang làm nóng thì chờ xong
   static Future<bool?> get connectBarcode async {
     return _channel.invokeMethod('connectBarcode');
   }
 
+  /// Đóng rồi mở lại barcode decoder (khi đầu quét bị treo)
+  static Future<bool?> reconnectBarcode() async {
+    return _channel.invokeMethod('connectBarcode', <String, dynamic>{
+      'reconnect': true,
+    });
+  }
+
+  /// state (CLOSED / OPENING / READY / FAILED) / ready / open_ms / open_attempts
+  /// của lần mở gần nhất / ready_since / error
+  static Future<Map<String, dynamic>?> get barcodeReadiness async {
+    final response = await _channel.invokeMethod('getBarcodeReadiness');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
   static Future<bool?> get scanBarcodeSingle async {
     return _channel.invokeMethod('scanBarcodeSingle');
   }
@@ -76,6 +147,42 @@ class RfidC72Plugin {
     return _channel.invokeMethod('closeScan');
   }
 
+  /// Thời gian tắt laser giữa hai lần quét ở chế độ barcode liên tục
+  /// (0 = bật lại ngay sau mỗi lần giải mã, mặc định).
+  /// dedupWindowMs: cùng mã quét lại trong cửa sổ này (tính từ lần thấy gần nhất) không
+  /// tạo event mới mà cộng vào `repeats`; nếu event trước đã gửi thì gửi event có
+  /// `update: true` (0 = tắt, mặc định 1000).
+  /// batchIntervalMs / maxBatch: gom event thành List qua barcodeStatusStream
+  /// (mặc định 50 ms / 200); maxBatch = 1 giữ định dạng cũ, mỗi event một Map.
+  static Future<bool?> setBarcodeConfig({
+    int? restartDelayMs,
+    int? dedupWindowMs,
+    int? batchIntervalMs,
+    int? maxBatch,
+  }) async {
+    return _channel.invokeMethod('setBarcodeConfig', <String, dynamic>{
+      if (restartDelayMs != null) 'restartDelayMs': restartDelayMs,
+      if (dedupWindowMs != null) 'dedupWindowMs': dedupWindowMs,
+      if (batchIntervalMs != null) 'batchIntervalMs': batchIntervalMs,
+      if (maxBatch != null) 'maxBatch': maxBatch,
+    });
+  }
+
+  /// open / continuous / restartDelayMs / scans_ok / scans_failed / restarts /
+  /// scans_per_sec / decode_latency (startScan -> giải mã) / restart_gap
+  /// (giải mã -> startScan kế tiếp), hai mục này có p50_ms / p90_ms / p99_ms / max_ms;
+  /// dedup (windowMs / decodes / emitted / repeat_updates / suppressed / tracked_codes) /
+  /// batchIntervalMs / maxBatch / state / first_scan (lần quét đầu sau khi mở decoder:
+  /// warm / request_to_laser_ms / request_to_decode_ms)
+  static Future<Map<String, dynamic>?> get barcodeStats async {
+    final response = await _channel.invokeMethod('getBarcodeStats');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  static Future<bool?> resetBarcodeStats() async {
+    return _channel.invokeMethod('resetBarcodeStats');
+  }
+
   static Future<bool?> setPowerLevel(String value) async {
     return _channel
         .invokeMethod('setPowerLevel', <String, String>{'value': value});
@@ -86,6 +193,371 @@ class RfidC72Plugin {
         .invokeMethod('setWorkArea', <String, String>{'value': value});
   }
 
+  static Future<bool?> setDedupConfig({
+    bool? enabled,
+    int? updateIntervalMs,
+  }) async {
+    return _channel.invokeMethod('setDedupConfig', <String, dynamic>{
+      if (enabled != null) 'enabled': enabled,
+      if (updateIntervalMs != null) 'updateIntervalMs': updateIntervalMs,
+    });
+  }
+
+  /// Gom tag theo lô: flush sau [intervalMs] hoặc khi đủ [maxBatch] tag.
+  /// maxBatch = 1 trả về định dạng cũ (mỗi event là một Map).
+  static Future<bool?> setBatchConfig({int? intervalMs, int? maxBatch}) async {
+    return _channel.invokeMethod('setBatchConfig', <String, dynamic>{
+      if (intervalMs != null) 'intervalMs': intervalMs,
+      if (maxBatch != null) 'maxBatch': maxBatch,
+    });
+  }
+
+  /// Chỉ giữ tag có EPC khớp ít nhất một mặt nạ trong [filters], mỗi phần tử
+  /// {'offsetBits': int (tính từ bit đầu EPC), 'lengthBits': int, 'value': hex}.
+  /// Ví dụ header SGTIN-96: {'offsetBits': 0, 'lengthBits': 8, 'value': '30'}.
+  /// Một rule được đẩy xuống module (tag khác không ra khỏi module) nếu [hardware];
+  /// nhiều rule hoặc module từ chối thì lọc bằng phần mềm. Danh sách rỗng = bỏ lọc.
+  static Future<Map<String, dynamic>?> setEpcFilters(
+    List<Map<String, dynamic>> filters, {
+    bool hardware = true,
+  }) async {
+    final response = await _channel.invokeMethod('setEpcFilters', <String, dynamic>{
+      'filters': filters,
+      'hardware': hardware,
+    });
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// filters / mode ('none' | 'hardware' | 'software') / rejected_reads
+  static Future<Map<String, dynamic>?> get epcFilters async {
+    final response = await _channel.invokeMethod('getEpcFilters');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Profile radio có sẵn: 'dense-static-shelf', 'portal-fast-moving', 'single-item-near'
+  /// (hoặc 'custom'). [overrides] ghi đè từng tham số: power, frequencyMode, session,
+  /// target, qAlgorithm, startQ, minQ, maxQ, rfLink, fastInventory, tagFocus.
+  /// Áp dụng ngay nếu đã connect, và ở mỗi lần connect sau đó.
+  static Future<Map<String, dynamic>?> setRadioProfile(
+    String? name, {
+    Map<String, dynamic>? overrides,
+  }) async {
+    final response = await _channel.invokeMethod('setRadioProfile', <String, dynamic>{
+      if (name != null) 'name': name,
+      if (overrides != null) 'overrides': overrides,
+    });
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// presets / active / module (giá trị module đang dùng khi đã connect)
+  static Future<Map<String, dynamic>?> get radioProfiles async {
+    final response = await _channel.invokeMethod('getRadioProfiles');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Vùng nhớ module trả về khi inventory: 'epc' (nhanh nhất), 'epc_tid',
+  /// 'epc_tid_user' (kèm [userLen] word USER, 1..14, từ [userPtr]). Không đổi được khi đang quét.
+  static Future<bool?> setInventoryMode(
+    String mode, {
+    int userPtr = 0,
+    int userLen = 0,
+  }) async {
+    return _channel.invokeMethod('setInventoryMode', <String, dynamic>{
+      'mode': mode,
+      'userPtr': userPtr,
+      'userLen': userLen,
+    });
+  }
+
+  /// {mode, userPtr?, userLen?}; null = mặc định của module
+  static Future<Map<String, dynamic>?> get inventoryMode async {
+    final response = await _channel.invokeMethod('getInventoryMode');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Đọc vùng USER cho mỗi EPC mới trong lúc quét liên tục: giữa các lượt inventory
+  /// native dừng quét, đọc tối đa [readsPerPause] tag rồi quét tiếp. Kết quả đến dưới dạng
+  /// cập nhật của EPC đã báo trước đó (`user_update: true`, không phải một lần đọc), được gắn
+  /// vào user_hex của [getSessionSnapshot] và gộp vào user_hex các lần đọc sau.
+  /// [userLen] trong 1..14 word (vừa chỗ USER của record journal). Tham số null giữ giá trị cũ.
+  /// Trả về stats như [userBankReadStats].
+  static Future<Map<String, dynamic>?> setUserBankReadConfig({
+    bool? enabled,
+    int? userPtr,
+    int? userLen,
+    int? readsPerPause,
+    int? roundMs,
+    int? maxWaitMs,
+    int? maxAttempts,
+    String? accessPassword,
+  }) async {
+    final response = await _channel.invokeMethod('setUserBankReadConfig', <String, dynamic>{
+      if (enabled != null) 'enabled': enabled,
+      if (userPtr != null) 'userPtr': userPtr,
+      if (userLen != null) 'userLen': userLen,
+      if (readsPerPause != null) 'readsPerPause': readsPerPause,
+      if (roundMs != null) 'roundMs': roundMs,
+      if (maxWaitMs != null) 'maxWaitMs': maxWaitMs,
+      if (maxAttempts != null) 'maxAttempts': maxAttempts,
+      if (accessPassword != null) 'accessPassword': accessPassword,
+    });
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Cấu hình + offered / pending / reads_ok / reads_failed / retries / pauses /
+  /// pause_ms / avg_read_ms và inventoryMode đang chọn
+  static Future<Map<String, dynamic>?> get userBankReadStats async {
+    final response = await _channel.invokeMethod('getUserBankReadStats');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Backend đầu đọc: 'uart' (module C72), 'simulated' (quần thể tag tổng hợp để
+  /// chạy tải không cần thiết bị) hoặc 'replay' (phát lại file của [startCapture]).
+  /// Với 'simulated', [config] ghi đè tham số mô phỏng: population,
+  /// readsPerSec, turnoverPerSec, rssiMean, rssiStdDev, rssiJitter, burstEveryMs,
+  /// burstDurationMs, burstMultiplier, bufferCapacity, disconnectEveryMs,
+  /// disconnectDurationMs, withTid, userReadFailRate, epcPrefix, seed.
+  /// Với 'replay', [config] = {path, speed}: speed 1 giữ nhịp gốc, 0 = nhanh nhất.
+  /// Đầu đọc đang mở bị ngắt, gọi [connect] lại. Không đổi được khi đang quét.
+  static Future<bool?> setReaderBackend(
+    String backend, {
+    Map<String, dynamic>? config,
+  }) async {
+    return _channel.invokeMethod('setReaderBackend', <String, dynamic>{
+      'backend': backend,
+      if (config != null) 'config': config,
+    });
+  }
+
+  /// backend / connected / recoveries / last_recovery_ms; với 'simulated' thêm
+  /// generated / delivered / buffered / overflow_dropped / disconnects / config,
+  /// với 'replay' thêm path / speed / replayed / finished / capture_position_ms
+  static Future<Map<String, dynamic>?> get readerStats async {
+    final response = await _channel.invokeMethod('getReaderStats');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Ghi mọi tag thô đầu đọc trả về (trước lọc EPC / khử trùng lặp) ra file capture
+  /// nhị phân để phát lại sau bằng backend 'replay' hoặc `gradle loadTest` trên máy tính.
+  /// Mặc định ghi vào thư mục captures của app, tối đa [maxMb] MB. Trả về đường dẫn file.
+  static Future<String?> startCapture({String? path, int? maxMb}) async {
+    return _channel.invokeMethod('startCapture', <String, dynamic>{
+      if (path != null) 'path': path,
+      if (maxMb != null) 'maxMb': maxMb,
+    });
+  }
+
+  /// {path, records, bytes, truncated}; null nếu không có capture đang ghi
+  static Future<Map<String, dynamic>?> stopCapture() async {
+    final response = await _channel.invokeMethod('stopCapture');
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Nạp danh sách EPC dự kiến cho kiểm kê (thay danh sách cũ, xoá kết quả).
+  /// Trả về {expected, ignored}; việc so khớp chạy native khi tag được đọc.
+  static Future<Map<String, dynamic>?> loadExpectedInventory(
+      List<String> epcs) async {
+    final response = await _channel.invokeMethod(
+        'loadExpectedInventory', <String, dynamic>{'epcs': epcs});
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  static Future<bool?> clearExpectedInventory() async {
+    return _channel.invokeMethod('clearExpectedInventory');
+  }
+
+  /// Bắt đầu lượt đếm mới, giữ danh sách dự kiến
+  static Future<bool?> resetReconciliation() async {
+    return _channel.invokeMethod('resetReconciliation');
+  }
+
+  /// Bộ đếm hiện tại; [missingLimit] / [unexpectedLimit] > 0 (hoặc -1 = tất cả)
+  /// để kèm danh sách missing_epcs / unexpected_epcs
+  static Future<Map<String, dynamic>?> getReconciliationStatus({
+    int missingLimit = 0,
+    int unexpectedLimit = 0,
+  }) async {
+    final response = await _channel.invokeMethod(
+        'getReconciliationStatus', <String, dynamic>{
+      'missingLimit': missingLimit,
+      'unexpectedLimit': unexpectedLimit,
+    });
+    return response == null ? null : Map<String, dynamic>.from(response);
+  }
+
+  /// Thống kê theo EPC của phiên quét (cả bảng, hoặc một trang [offset]/[limit])
+  static Future<SessionSnapshot?> getSessionSnapshot({int? offset, int? limit}) async {
+    final map = await _channel.invokeMethod('getSessionSnapshot', <String, dynamic>{
+      if (offset != null) 'offset': offset,
+      if (limit != null) 'limit': limit,
+    });
+    return map == null ? null : SessionSnapshot.fromMap(map);
+  }
+
+  /// Hệ số EWMA cho RSSI (0 < [ewmaAlpha] <= 1, mặc định 0.2)
+  static Future<bool?> setAggregateConfig({double? ewmaAlpha}) async {
+    return _channel.invokeMethod('setAggregateConfig', <String, dynamic>{
+      if (ewmaAlpha != null) 'ewmaAlpha': ewmaAlpha,
+    });
+  }
+
+  /// Chính sách khi hàng đợi gửi tag đầy: 'block', 'drop_oldest',
+  /// 'drop_newest' hoặc 'aggregate_only'. [capacity] tính theo số tag;
+  /// [preListenerCapacity] là số tag giữ lại khi chưa có listener.
+  static Future<bool?> setBackpressureConfig({
+    String? policy,
+    int? capacity,
+    int? preListenerCapacity,
+  }) async {
+    return _channel.invokeMethod('setBackpressureConfig', <String, dynamic>{
+      if (policy != null) 'policy': policy,
+      if (capacity != null) 'capacity': capacity,
+      if (preListenerCapacity != null) 'preListenerCapacity': preListenerCapacity,
+    });
+  }
+
+  /// queued_reads / dropped_reads / degraded_reads / blocked_ms ...
+  static Future<Map<String, dynamic>?> get deliveryStats async {
+    final stats = await _channel.invokeMethod('getDeliveryStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
+  /// Độ trễ theo chặng (mỗi chặng: count / p50_ms / p90_ms / p99_ms / max_ms / mean_ms):
+  /// drain (rút tag khỏi module), pipeline (rút -> giải mã), channel (giải mã -> gửi
+  /// qua platform channel) và end_to_end. Tự reset khi bắt đầu quét liên tục.
+  static Future<Map<String, dynamic>?> get latencyStats async {
+    final stats = await _channel.invokeMethod('getLatencyStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
+  static Future<bool?> resetLatencyStats() async {
+    return _channel.invokeMethod('resetLatencyStats');
+  }
+
+  /// Nhật ký quét trên đĩa: mỗi tag gửi lên Flutter được ghi thành một record
+  /// cố định vào segment file map bộ nhớ. [syncIntervalMs]: chu kỳ force xuống đĩa.
+  /// [encrypted]: dùng kho mã hoá AES-GCM theo khối 256 record (thư mục riêng,
+  /// khoá bọc bằng Android Keystore, cần Android 6.0+).
+  static Future<bool?> setJournalConfig({
+    bool? enabled,
+    bool? encrypted,
+    int? syncIntervalMs,
+  }) async {
+    return _channel.invokeMethod('setJournalConfig', <String, dynamic>{
+      if (enabled != null) 'enabled': enabled,
+      if (encrypted != null) 'encrypted': encrypted,
+      if (syncIntervalMs != null) 'syncIntervalMs': syncIntervalMs,
+    });
+  }
+
+  /// records / first_seq / last_seq / segments / bytes / discarded_records ...
+  static Future<Map<String, dynamic>?> get journalStats async {
+    final stats = await _channel.invokeMethod('getJournalStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
+  /// Đọc tối đa [limit] record từ vị trí [offset] (0 = record cũ nhất)
+  static Future<List<Map<String, dynamic>>> readJournal({int offset = 0, int limit = 500}) async {
+    final records = await _channel.invokeMethod('readJournal', <String, dynamic>{
+      'offset': offset,
+      'limit': limit,
+    });
+    if (records == null) return const [];
+    return (records as List).map((r) => Map<String, dynamic>.from(r)).toList();
+  }
+
+  static Future<bool?> clearJournal() async {
+    return _channel.invokeMethod('clearJournal');
+  }
+
+  /// Xuất journal ra file [format] 'csv' / 'json' ngay trên native (đọc từng trang,
+  /// bộ nhớ cố định). [path] mặc định: thư mục exports trong bộ nhớ app.
+  /// Trả về trạng thái job; tiến độ theo dõi qua [exportStatusStream].
+  static Future<Map<String, dynamic>?> startExport({
+    String format = 'csv',
+    String? path,
+    int? offset,
+  }) async {
+    final status = await _channel.invokeMethod('startExport', <String, dynamic>{
+      'format': format,
+      if (path != null) 'path': path,
+      if (offset != null) 'offset': offset,
+    });
+    return status == null ? null : Map<String, dynamic>.from(status);
+  }
+
+  /// true nếu có job đang chạy bị huỷ (file dở bị xoá)
+  static Future<bool?> cancelExport() async {
+    return _channel.invokeMethod('cancelExport');
+  }
+
+  static Future<Map<String, dynamic>?> get exportStatus async {
+    final status = await _channel.invokeMethod('getExportStatus');
+    return status == null ? null : Map<String, dynamic>.from(status);
+  }
+
+  /// Đồng bộ journal lên server ngay trên native: lô [batchSize] record nén gzip,
+  /// [concurrency] kết nối song song, thử lại với backoff + jitter tối đa [maxAttempts]
+  /// lần mỗi lô, header Idempotency-Key theo khoảng seq của lô. [headers]: header thêm
+  /// (vd. Authorization). [url] phải là https; http chỉ cho server trong mạng nội bộ
+  /// có trong res/xml/network_security_config của app.
+  static Future<bool?> setSyncConfig({
+    String? url,
+    int? batchSize,
+    int? concurrency,
+    int? maxAttempts,
+    bool? gzip,
+    Map<String, String>? headers,
+  }) async {
+    return _channel.invokeMethod('setSyncConfig', <String, dynamic>{
+      if (url != null) 'url': url,
+      if (batchSize != null) 'batchSize': batchSize,
+      if (concurrency != null) 'concurrency': concurrency,
+      if (maxAttempts != null) 'maxAttempts': maxAttempts,
+      if (gzip != null) 'gzip': gzip,
+      if (headers != null) 'headers': headers,
+    });
+  }
+
+  /// Gửi các record chưa đồng bộ (sau cursor) rồi tiếp tục theo record mới
+  static Future<bool?> startSync() async {
+    return _channel.invokeMethod('startSync');
+  }
+
+  static Future<bool?> stopSync() async {
+    return _channel.invokeMethod('stopSync');
+  }
+
+  static Future<Map<String, dynamic>?> get syncStats async {
+    final stats = await _channel.invokeMethod('getSyncStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
+  /// Cấu hình poll buffer: spin [spinIterations] lần rỗng liên tiếp rồi park
+  /// lùi dần từ [minParkUs] tới [maxParkUs] micro giây.
+  static Future<bool?> setPollingConfig({
+    int? spinIterations,
+    int? minParkUs,
+    int? maxParkUs,
+  }) async {
+    return _channel.invokeMethod('setPollingConfig', <String, dynamic>{
+      if (spinIterations != null) 'spinIterations': spinIterations,
+      if (minParkUs != null) 'minParkUs': minParkUs,
+      if (maxParkUs != null) 'maxParkUs': maxParkUs,
+    });
+  }
+
+  /// spin_ms / wait_ms / active_ms của reader thread trong phiên quét gần nhất
+  static Future<Map<String, dynamic>?> get pollingStats async {
+    final stats = await _channel.invokeMethod('getPollingStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
+  static Future<Map<String, dynamic>?> get dedupStats async {
+    final stats = await _channel.invokeMethod('getDedupStats');
+    return stats == null ? null : Map<String, dynamic>.from(stats);
+  }
+
   static Future<String?> get readBarcode async {
     final String? barcode = await _channel.invokeMethod('readBarcode');
     return barcode;
@@ -0,0 +1,67 @@
+import 'dart:typed_data';
+
+/// Thống kê theo EPC trả về từ getSessionSnapshot (dạng cột, một message).
+/// RSSI tính bằng dBm, là NaN khi EPC chưa có lần đọc nào kèm RSSI.
+/// userHex rỗng khi chưa đọc được USER của EPC (setUserBankReadConfig).
+class SessionSnapshot {
+  final int total;
+  final int totalReads;
+  final int offset;
+  final List<String> epcHex;
+  final Int32List reads;
+  final Int64List firstSeenMs;
+  final Int64List lastSeenMs;
+  final Float64List rssiMin;
+  final Float64List rssiMax;
+  final Float64List rssiMean;
+  final Float64List rssiEwma;
+  final List<String> userHex;
+
+  SessionSnapshot._(
+    this.total,
+    this.totalReads,
+    this.offset,
+    this.epcHex,
+    this.reads,
+    this.firstSeenMs,
+    this.lastSeenMs,
+    this.rssiMin,
+    this.rssiMax,
+    this.rssiMean,
+    this.rssiEwma,
+    this.userHex,
+  );
+
+  factory SessionSnapshot.fromMap(Map<dynamic, dynamic> map) {
+    return SessionSnapshot._(
+      map['total'] as int,
+      map['total_reads'] as int,
+      map['offset'] as int,
+      List<String>.from(map['epc_hex'] as List),
+      map['reads'] as Int32List,
+      map['first_seen_ms'] as Int64List,
+      map['last_seen_ms'] as Int64List,
+      map['rssi_min'] as Float64List,
+      map['rssi_max'] as Float64List,
+      map['rssi_mean'] as Float64List,
+      map['rssi_ewma'] as Float64List,
+      List<String>.from(map['user_hex'] as List),
+    );
+  }
+
+  /// Số EPC trong trang này
+  int get length => epcHex.length;
+
+  /// Dòng thứ [i] dưới dạng Map (chỉ nên dùng cho số ít dòng đang hiển thị)
+  Map<String, dynamic> rowAt(int i) => {
+        'epc_hex': epcHex[i],
+        'reads': reads[i],
+        'first_seen_ms': firstSeenMs[i],
+        'last_seen_ms': lastSeenMs[i],
+        'rssi_min': rssiMin[i],
+        'rssi_max': rssiMax[i],
+        'rssi_mean': rssiMean[i],
+        'rssi_ewma': rssiEwma[i],
+        'user_hex': userHex[i],
+      };
+}
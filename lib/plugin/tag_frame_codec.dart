@@ -0,0 +1,90 @@
+import 'dart:typed_data';
+
+/// Giải mã frame nhị phân từ kênh TagsBinary / rfid_ble_data_binary.
+/// Layout phải khớp với TagFrameEncoder.java (little-endian):
+///   header 24 byte: u16 magic 'TF' | u8 version | u8 - | u32 recordCount |
+///                   i64 sessionReads | i32 sessionUnique | u32 -
+///   bản ghi 32 byte + EPC/TID/USER: u8 flags | u8 epcLen | u8 tidLen |
+///                   u8 userLen | i16 rssi (centi-dBm) | u16 - | i32 count |
+///                   i32 seenCount | i64 timestampMs | i64 scanDurationNs
+class TagFrameCodec {
+  static const int magic = 0x4654;
+  static const int version = 1;
+  static const int frameHeaderSize = 24;
+  static const int recordHeaderSize = 32;
+
+  static const int flagFirstSeen = 1;
+  static const int flagHasDedup = 1 << 1;
+  static const int flagHasRssi = 1 << 2;
+  static const int flagUserUpdate = 1 << 3;
+
+  /// Trả về danh sách Map cùng khoá với chế độ Map (epc_hex, epc_ascii, ...)
+  static List<Map<String, dynamic>> decode(ByteData frame) {
+    if (frame.lengthInBytes < frameHeaderSize ||
+        frame.getUint16(0, Endian.little) != magic ||
+        frame.getUint8(2) != version) {
+      throw const FormatException('Frame tag không hợp lệ');
+    }
+
+    final recordCount = frame.getUint32(4, Endian.little);
+    final sessionReads = frame.getInt64(8, Endian.little);
+    final sessionUnique = frame.getInt32(16, Endian.little);
+
+    final records = <Map<String, dynamic>>[];
+    var offset = frameHeaderSize;
+    for (var i = 0; i < recordCount; i++) {
+      final flags = frame.getUint8(offset);
+      final epcLen = frame.getUint8(offset + 1);
+      final tidLen = frame.getUint8(offset + 2);
+      final userLen = frame.getUint8(offset + 3);
+      final rssi = frame.getInt16(offset + 4, Endian.little);
+      final count = frame.getInt32(offset + 8, Endian.little);
+      final seenCount = frame.getInt32(offset + 12, Endian.little);
+      final timestampMs = frame.getInt64(offset + 16, Endian.little);
+      final scanDurationNs = frame.getInt64(offset + 24, Endian.little);
+      offset += recordHeaderSize;
+
+      final epc = _bytes(frame, offset, epcLen);
+      offset += epcLen;
+      final tid = _bytes(frame, offset, tidLen);
+      offset += tidLen;
+      final user = _bytes(frame, offset, userLen);
+      offset += userLen;
+
+      final data = <String, dynamic>{
+        'epc_hex': _hex(epc),
+        'epc_ascii': String.fromCharCodes(epc),
+        'tid_hex': _hex(tid),
+        'tid_ascii': String.fromCharCodes(tid),
+        'user_hex': _hex(user),
+        'user_ascii': String.fromCharCodes(user),
+        'rssi': (flags & flagHasRssi) != 0 ? (rssi / 100).toStringAsFixed(2) : '',
+        'count': count,
+        'timestamp_ms': timestampMs,
+        'scan_duration_ms': scanDurationNs / 1000000.0,
+        'scan_duration_ns': scanDurationNs,
+      };
+      if ((flags & flagUserUpdate) != 0) data['user_update'] = true;
+      if ((flags & flagHasDedup) != 0) {
+        data['first_seen'] = (flags & flagFirstSeen) != 0;
+        data['seen_count'] = seenCount;
+        if (sessionReads >= 0) data['session_reads'] = sessionReads;
+        if (sessionUnique >= 0) data['session_unique'] = sessionUnique;
+      }
+      records.add(data);
+    }
+    return records;
+  }
+
+  static Uint8List _bytes(ByteData frame, int offset, int length) {
+    return frame.buffer.asUint8List(frame.offsetInBytes + offset, length);
+  }
+
+  static String _hex(Uint8List bytes) {
+    final buffer = StringBuffer();
+    for (final b in bytes) {
+      buffer.write(b.toRadixString(16).padLeft(2, '0').toUpperCase());
+    }
+    return buffer.toString();
+  }
+}
@@ -137,6 +137,14 @@ class BarcodeScanService {
       (event) async {
         if (event == null) return;
 
+        // Native gom event thành List (xem RfidC72Plugin.setBarcodeConfig)
+        if (event is List) {
+          for (final item in event) {
+            if (item is Map) _handleBarcodeEvent(Map<String, dynamic>.from(item));
+          }
+          return;
+        }
+
         Map<String, dynamic> data;
         if (event is Map) {
           data = Map<String, dynamic>.from(event);
@@ -153,30 +161,7 @@ class BarcodeScanService {
         } else {
           return;
         }
-
-        final code = data['barcode']?.toString() ?? '';
-        debugPrint('Scanned barcode: $code');
-        if (code.trim().isEmpty) return;
-
-        final normalized = _normalizeCode(code);
-
-        totalCount++;
-        if (uniqueCodes.add(normalized)) {
-          uniqueCount++;
-        }
-
-        debugPrint('Tổng: $totalCount | Duy nhất: $uniqueCount');
-
-        final processedData = {
-          'epc': code, 
-          'scan_duration_ms': data['barcode_scan_duration_ms'] ?? 0,
-        };
-
-        _codeController.add(processedData);
-        _addToBatch({
-          'epc': normalized, 
-          'scan_duration_ms': data['barcode_scan_duration_ms'] ?? 0,
-        });
+        _handleBarcodeEvent(data);
       },
       onError: (err) {
         _codeController.addError(err.toString());
@@ -184,6 +169,37 @@ class BarcodeScanService {
     );
   }
 
+  void _handleBarcodeEvent(Map<String, dynamic> data) {
+    final code = data['barcode']?.toString() ?? '';
+    debugPrint('Scanned barcode: $code');
+    if (code.trim().isEmpty) return;
+
+    // Native đã chặn lặp: repeats = số lần quét lặp gộp vào event này,
+    // update = chỉ báo thêm lần lặp của mã đã gửi trước đó
+    final repeats = (data['repeats'] as num?)?.toInt() ?? 0;
+    final isUpdate = data['update'] == true;
+    totalCount += (isUpdate ? 0 : 1) + repeats;
+    if (isUpdate) return;
+
+    final normalized = _normalizeCode(code);
+    if (uniqueCodes.add(normalized)) {
+      uniqueCount++;
+    }
+
+    debugPrint('Tổng: $totalCount | Duy nhất: $uniqueCount');
+
+    final processedData = {
+      'epc': code,
+      'scan_duration_ms': data['barcode_scan_duration_ms'] ?? 0,
+    };
+
+    _codeController.add(processedData);
+    _addToBatch({
+      'epc': normalized,
+      'scan_duration_ms': data['barcode_scan_duration_ms'] ?? 0,
+    });
+  }
+
   String _normalizeCode(String raw) {
     if (raw.contains('://')) {
       final parts = raw.split('/');
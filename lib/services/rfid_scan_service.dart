@@ -138,6 +138,14 @@ class RfidScanService {
       (event) async {
         if (event == null) return;
 
+        // Native gửi theo lô (List<Map>); vẫn nhận 1 Map/event khi maxBatch = 1
+        if (event is List) {
+          for (final item in event) {
+            if (item is Map) _handleTagData(Map<String, dynamic>.from(item));
+          }
+          return;
+        }
+
         Map<String, dynamic> data;
         if (event is Map) {
           data = Map<String, dynamic>.from(event);
@@ -151,18 +159,7 @@ class RfidScanService {
           return;
         }
 
-        final epc = data['epc_ascii'] ?? '';
-        if (epc.toString().trim().isEmpty) return;
-
-        totalCount++;
-        if (uniqueEpcs.add(epc)) {
-          uniqueCount++;
-        }
-
-        debugPrint('Tổng: $totalCount | Duy nhất: $uniqueCount');
-
-        _tagController.add(data);
-        _addToBatch(data);
+        _handleTagData(data);
       },
       onError: (err) {
         _tagController.addError(err.toString());
@@ -170,6 +167,31 @@ class RfidScanService {
     );
   }
 
+  void _handleTagData(Map<String, dynamic> data) {
+    final epc = data['epc_ascii'] ?? '';
+    if (epc.toString().trim().isEmpty) return;
+
+    // Kết quả đọc USER của EPC đã nhận trước đó, không phải lần quét mới: không đếm, không lưu / gửi.
+    // Native đã gắn USER vào getSessionSnapshot và vào các lần đọc sau của EPC này.
+    if (data['user_update'] == true) return;
+
+    // Native đã khử trùng lặp: dùng tổng số lần đọc của phiên nếu có
+    final sessionReads = data['session_reads'];
+    if (sessionReads is int) {
+      totalCount = sessionReads;
+    } else {
+      totalCount++;
+    }
+    if (uniqueEpcs.add(epc)) {
+      uniqueCount++;
+    }
+
+    debugPrint('Tổng: $totalCount | Duy nhất: $uniqueCount');
+
+    _tagController.add(data);
+    _addToBatch(data);
+  }
+
   //Thêm dữ liệu vào batch chờ xử lý
   void _addToBatch(Map<String, dynamic> data) {
     _pendingBatch.add({